@@ -1,7 +1,6 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.imagery.vectortile.mapbox;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.ArrayList;
@@ -9,8 +8,7 @@ import java.util.List;
 import java.util.Locale;
 
 import org.openstreetmap.josm.data.osm.TagMap;
-import org.openstreetmap.josm.data.protobuf.ProtobufPacked;
-import org.openstreetmap.josm.data.protobuf.ProtobufParser;
+import org.openstreetmap.josm.data.protobuf.ProtobufCursor;
 import org.openstreetmap.josm.data.protobuf.ProtobufRecord;
 import org.openstreetmap.josm.tools.Utils;
 
@@ -60,6 +58,18 @@ public class Feature {
      * @throws IOException - if an IO error occurs
      */
     public Feature(Layer layer, ProtobufRecord protobufRecord) throws IOException {
+        this(layer, new ProtobufCursor(protobufRecord.getBytes()));
+        protobufRecord.close();
+    }
+
+    /**
+     * Create a new Feature
+     *
+     * @param layer  The layer the feature is part of (required for tags)
+     * @param cursor The cursor over the feature message
+     * @since xxx
+     */
+    public Feature(Layer layer, ProtobufCursor cursor) {
         long tId = 0;
         GeometryTypes geometryTypeTemp = GeometryTypes.UNKNOWN;
         String key = null;
@@ -68,49 +78,45 @@ public class Feature {
         // a good idea to have multiple tag fields).
         // By avoiding array copies in TagMap, Feature#init goes from 339 MB to 188 MB.
         ArrayList<String> tagList = null;
-        try (ProtobufParser parser = new ProtobufParser(protobufRecord.getBytes())) {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(4);
-            while (parser.hasNext()) {
-                try (ProtobufRecord next = new ProtobufRecord(byteArrayOutputStream, parser)) {
-                    if (next.getField() == TAG_FIELD) {
-                        // This is packed in v1 and v2
-                        ProtobufPacked packed = new ProtobufPacked(next.getBytes());
-                        if (tagList == null) {
-                            tagList = new ArrayList<>(packed.getArray().length);
-                        } else {
-                            tagList.ensureCapacity(tagList.size() + packed.getArray().length);
-                        }
-                        for (long number : packed.getArray()) {
-                            key = parseTagValue(key, layer, (int) number, tagList);
-                        }
-                    } else if (next.getField() == GEOMETRY_FIELD) {
-                        // This is packed in v1 and v2
-                        ProtobufPacked packed = new ProtobufPacked(next.getBytes());
-                        CommandInteger currentCommand = null;
-                        for (long number : packed.getArray()) {
-                            if (currentCommand != null && currentCommand.hasAllExpectedParameters()) {
-                                currentCommand = null;
-                            }
-                            if (currentCommand == null) {
-                                currentCommand = new CommandInteger(Math.toIntExact(number));
-                                this.geometry.add(currentCommand);
-                            } else {
-                                currentCommand.addParameter(ProtobufParser.decodeZigZag(number));
-                            }
-                        }
-                        // TODO fallback to non-packed
-                    } else if (next.getField() == GEOMETRY_TYPE_FIELD) {
-                        // by using getAllValues, we avoid 12.4 MB allocations
-                        geometryTypeTemp = GeometryTypes.getAllValues()[next.asUnsignedVarInt().intValue()];
-                    } else if (next.getField() == ID_FIELD) {
-                        tId = next.asUnsignedVarInt().longValue();
+        final ProtobufCursor packed = new ProtobufCursor();
+        while (cursor.nextField()) {
+            if (cursor.getField() == TAG_FIELD) {
+                // This is packed in v1 and v2
+                cursor.readMessage(packed);
+                final int count = packed.countVarInts();
+                if (tagList == null) {
+                    tagList = new ArrayList<>(count);
+                } else {
+                    tagList.ensureCapacity(tagList.size() + count);
+                }
+                while (packed.hasRemaining()) {
+                    key = parseTagValue(key, layer, (int) packed.readVarInt(), tagList);
+                }
+            } else if (cursor.getField() == GEOMETRY_FIELD) {
+                // This is packed in v1 and v2
+                cursor.readMessage(packed);
+                CommandInteger currentCommand = null;
+                while (packed.hasRemaining()) {
+                    if (currentCommand != null && currentCommand.hasAllExpectedParameters()) {
+                        currentCommand = null;
+                    }
+                    if (currentCommand == null) {
+                        currentCommand = new CommandInteger(Math.toIntExact(packed.readVarInt()));
+                        this.geometry.add(currentCommand);
+                    } else {
+                        currentCommand.addParameter(packed.readSignedVarInt());
                     }
                 }
+                // TODO fallback to non-packed
+            } else if (cursor.getField() == GEOMETRY_TYPE_FIELD) {
+                // by using getAllValues, we avoid 12.4 MB allocations
+                geometryTypeTemp = GeometryTypes.getAllValues()[(int) cursor.readVarInt()];
+            } else if (cursor.getField() == ID_FIELD) {
+                tId = cursor.readVarInt();
             }
         }
         this.id = tId;
         this.geometryType = geometryTypeTemp;
-        protobufRecord.close();
         if (tagList != null && !tagList.isEmpty()) {
             this.tags = new TagMap(tagList.toArray(EMPTY_STRING_ARRAY));
         } else {
@@ -16,6 +16,7 @@ import java.util.Objects;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.openstreetmap.josm.data.protobuf.ProtobufCursor;
 import org.openstreetmap.josm.data.protobuf.ProtobufParser;
 import org.openstreetmap.josm.data.protobuf.ProtobufRecord;
 import org.openstreetmap.josm.tools.Destroyable;
@@ -161,14 +162,79 @@ public final class Layer implements Destroyable {
     }
 
     /**
-     * Get all the records from a array of bytes
-     * @param bytes The byte information
-     * @return All the protobuf records
-     * @throws IOException If there was an error reading the bytes (unlikely)
+     * Create a layer from a protobuf cursor
+     * @param cursor The cursor over the layer message
+     * @since xxx
      */
-    private static Collection<ProtobufRecord> getAllRecords(byte[] bytes) throws IOException {
-        try (ProtobufParser parser = new ProtobufParser(bytes)) {
-            return parser.allRecords();
+    public Layer(ProtobufCursor cursor) {
+        // Features need the keys and values, which may come after them, so we read the features in a second pass
+        final ProtobufCursor features = cursor.duplicate();
+        final ProtobufCursor value = new ProtobufCursor();
+        byte tVersion = DEFAULT_VERSION;
+        String tName = null;
+        int tExtent = DEFAULT_EXTENT;
+        int featureCount = 0;
+        while (cursor.nextField()) {
+            if (cursor.getField() == VERSION_FIELD) {
+                tVersion = (byte) cursor.readVarInt();
+                // Per spec, we cannot continue past this until we have checked the version number
+                if (tVersion != 1 && tVersion != 2) {
+                    throw new IllegalArgumentException(tr("We do not understand version {0} of the vector tile specification", tVersion));
+                }
+            } else if (cursor.getField() == NAME_FIELD) {
+                tName = cursor.readString();
+            } else if (cursor.getField() == EXTENT_FIELD) {
+                tExtent = (int) cursor.readVarInt();
+            } else if (cursor.getField() == KEY_FIELD) {
+                this.keyList.add(cursor.readString());
+            } else if (cursor.getField() == VALUE_FIELD) {
+                parseValue(cursor.readMessage(value));
+            } else if (cursor.getField() == FEATURE_FIELD) {
+                featureCount++;
+            }
+        }
+        this.version = tVersion;
+        if (tName == null) {
+            throw new IllegalArgumentException(tr("Vector tile layers must have a layer name"));
+        }
+        this.name = tName;
+        this.extent = tExtent;
+
+        this.featureCollection = new ArrayList<>(featureCount);
+        final ProtobufCursor feature = new ProtobufCursor();
+        while (features.nextField()) {
+            if (features.getField() == FEATURE_FIELD) {
+                this.featureCollection.add(new Feature(this, features.readMessage(feature)));
+            }
+        }
+    }
+
+    private void parseValue(ProtobufCursor cursor) {
+        // A value message has exactly one field; an empty message will have a field of 0
+        cursor.nextField();
+        final int field = cursor.getField();
+        switch (field) {
+            case 1:
+                this.valueList.add(cursor.readString());
+                break;
+            case 2:
+                this.valueList.add(cursor.readFloat());
+                break;
+            case 3:
+                this.valueList.add(cursor.readDouble());
+                break;
+            case 4:
+            case 5: // This may have issues if there are actual uint_values (i.e., more than {@link Long#MAX_VALUE})
+                this.valueList.add(ProtobufParser.convertLong(cursor.readVarInt()));
+                break;
+            case 6:
+                this.valueList.add(ProtobufParser.convertLong(cursor.readSignedVarInt()));
+                break;
+            case 7:
+                this.valueList.add(cursor.readVarInt() != 0);
+                break;
+            default:
+                throw new IllegalArgumentException(tr("Unknown field in vector tile layer value ({0})", field));
         }
     }
 
@@ -178,7 +244,7 @@ public final class Layer implements Destroyable {
      * @throws IOException - if an IO error occurs
      */
     public Layer(byte[] bytes) throws IOException {
-        this(getAllRecords(bytes));
+        this(new ProtobufCursor(bytes));
     }
 
     /**
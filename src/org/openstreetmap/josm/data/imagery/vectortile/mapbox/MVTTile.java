@@ -15,11 +15,9 @@ import org.openstreetmap.gui.jmapviewer.interfaces.TileSource;
 import org.openstreetmap.josm.data.IQuadBucketType;
 import org.openstreetmap.josm.data.imagery.vectortile.VectorTile;
 import org.openstreetmap.josm.data.osm.BBox;
-import org.openstreetmap.josm.data.protobuf.ProtobufParser;
-import org.openstreetmap.josm.data.protobuf.ProtobufRecord;
+import org.openstreetmap.josm.data.protobuf.ProtobufCursor;
 import org.openstreetmap.josm.data.vector.VectorDataStore;
 import org.openstreetmap.josm.tools.ListenerList;
-import org.openstreetmap.josm.tools.Logging;
 
 /**
  * A class for Mapbox Vector Tiles
@@ -50,17 +48,12 @@ public class MVTTile extends Tile implements VectorTile, IQuadBucketType {
     public void loadImage(final InputStream inputStream) throws IOException {
         if (this.image == null || this.image == Tile.LOADING_IMAGE || this.image == Tile.ERROR_IMAGE) {
             this.initLoading();
-            ProtobufParser parser = new ProtobufParser(inputStream);
-            Collection<ProtobufRecord> protobufRecords = parser.allRecords();
-            this.layers = new ArrayList<>(protobufRecords.size());
-            for (ProtobufRecord protoBufRecord : protobufRecords) {
-                if (protoBufRecord.getField() == Layer.LAYER_FIELD) {
-                    try (protoBufRecord; // Cleanup bytes
-                         ProtobufParser tParser = new ProtobufParser(protoBufRecord.getBytes())) {
-                        this.layers.add(new Layer(tParser.allRecords()));
-                    } catch (IOException e) {
-                        Logging.error(e);
-                    }
+            final ProtobufCursor cursor = new ProtobufCursor(inputStream.readAllBytes());
+            final ProtobufCursor layer = new ProtobufCursor();
+            this.layers = new ArrayList<>();
+            while (cursor.nextField()) {
+                if (cursor.getField() == Layer.LAYER_FIELD) {
+                    this.layers.add(new Layer(cursor.readMessage(layer)));
                 }
             }
             this.layers = new ArrayList<>(this.layers);
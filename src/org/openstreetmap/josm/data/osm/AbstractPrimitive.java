@@ -630,6 +630,31 @@ public abstract class AbstractPrimitive implements IPrimitive, IFilterablePrimit
         keysChangedImpl(originalKeys);
     }
 
+    /**
+     * Replaces the keys and values of the tags by equal strings from a pool. This does not change the tags.
+     * @param pool the pool
+     * @since xxx
+     */
+    void internKeys(TagStringPool pool) {
+        final String[] tKeys = this.keys;
+        if (tKeys == null) {
+            return;
+        }
+        String[] newKeys = null;
+        for (int i = 0; i < tKeys.length; i++) {
+            final String pooled = pool.intern(tKeys[i]);
+            if (pooled != tKeys[i]) {
+                if (newKeys == null) {
+                    newKeys = tKeys.clone();
+                }
+                newKeys[i] = pooled;
+            }
+        }
+        if (newKeys != null) {
+            this.keys = newKeys;
+        }
+    }
+
     /**
      * Set the given value to the given key. If key is null, does nothing. If value is null,
      * removes the key and behaves like {@link #remove(String)}.
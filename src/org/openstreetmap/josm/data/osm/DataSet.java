@@ -4,6 +4,7 @@ package org.openstreetmap.josm.data.osm;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.geom.Area;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -19,8 +20,7 @@ import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -43,6 +43,7 @@ import org.openstreetmap.josm.data.osm.DataSelectionListener.SelectionToggleEven
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
 import org.openstreetmap.josm.data.osm.event.ChangesetIdChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetChangeSet;
 import org.openstreetmap.josm.data.osm.event.DataSetListener;
 import org.openstreetmap.josm.data.osm.event.DataSourceAddedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSourceRemovedEvent;
@@ -55,6 +56,7 @@ import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
 import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
 import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
@@ -106,6 +108,10 @@ import org.openstreetmap.josm.tools.SubclassFilteredCollection;
  * Note that locks cannot be upgraded - if one threads use read lock and and then write lock, dead lock will occur - see #5814 for
  * sample ticket
  *
+ * The read lock is striped, see {@link #PREF_LOCK_STRIPES}, so background tasks which lock the dataset for many short reads do
+ * not contend with each other. Read-only consumers which can repeat their work may also use {@link #readOptimistically(Supplier)},
+ * which does not block the thread which modifies the dataset at all.
+ *
  * @author imi
  */
 public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>, ProjectionChangeListener {
@@ -120,11 +126,15 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
      */
     private static final int MAX_EVENTS = 1000;
 
+    /**
+     * The number of stripes of the read lock. If it is not positive, the number of processors is used, up to 16.
+     * @since xxx
+     */
+    public static final IntegerProperty PREF_LOCK_STRIPES = new IntegerProperty("osm.dataset.lock-stripes", 0);
+
     private final QuadBucketPrimitiveStore<Node, Way, Relation> store = new QuadBucketPrimitiveStore<>();
 
-    private final Storage<OsmPrimitive> allPrimitives = new Storage<>(new Storage.PrimitiveIdHash(), true);
-    private final Map<PrimitiveId, OsmPrimitive> primitivesMap = allPrimitives
-            .foreignKey(new Storage.PrimitiveIdHash());
+    private final PrimitiveIdStorage<OsmPrimitive> allPrimitives = new PrimitiveIdStorage<>();
     private final CopyOnWriteArrayList<DataSetListener> listeners = new CopyOnWriteArrayList<>();
 
     // provide means to highlight map elements that are not osm primitives
@@ -136,6 +146,8 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     private int updateCount;
     // Events that occurred while dataset was locked but should be fired after write lock is released
     private final List<AbstractDatasetChangedEvent> cachedEvents = new ArrayList<>();
+    // The net changes of the primitives, recorded once the events are too many to be fired as single events
+    private DataSetChangeSet.Builder cachedChanges;
 
     private String name;
     private DownloadPolicy downloadPolicy = DownloadPolicy.NORMAL;
@@ -143,7 +155,12 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     /** Flag used to know if the dataset should not be editable */
     private final AtomicBoolean isReadOnly = new AtomicBoolean(false);
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StripedReadWriteLock lock = new StripedReadWriteLock(Config.getPref() != null ? PREF_LOCK_STRIPES.get() : 0);
+    /** Write locked from the first {@link #beginUpdate()} to the last {@link #endUpdate()}, to validate optimistic reads */
+    private final StampedLock modificationLock = new StampedLock();
+    private long modificationStamp;
+    /** The snapshots which save the state of the primitives before they are changed */
+    private final List<WeakReference<DataSetSnapshot>> snapshots = new CopyOnWriteArrayList<>();
 
     /**
      * The mutex lock that is used to synchronize selection changes.
@@ -305,6 +322,110 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         return lock.readLock();
     }
 
+    /**
+     * Runs a read-only operation without locking the dataset, like an optimistic read of a {@link StampedLock}.
+     * <p>
+     * If the dataset has been modified while the operation was running, including the case that the operation failed because
+     * of the modification, it is run again with the read lock. So the operation must not have any side effect, not even on
+     * caches like the search cache of {@link QuadBuckets}, and it must not wait for other threads. It is well suited for
+     * reading a few primitives by their id, e.g. their coordinates or their tags, while another thread edits the dataset.
+     * Spatial searches need the read lock, see {@link #searchNodes(BBox)}.
+     * @param <T> the type of the result
+     * @param reader the operation
+     * @return the result of the operation, computed on a consistent state of the dataset
+     * @since xxx
+     */
+    public <T> T readOptimistically(Supplier<T> reader) {
+        final long stamp = modificationLock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                final T result = reader.get();
+                if (modificationLock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (modificationLock.validate(stamp)) {
+                    throw e;
+                }
+                Logging.trace(e);
+            }
+        }
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes a snapshot of this dataset, which keeps the current state of the primitives while the dataset is modified.
+     * <p>
+     * This does not copy anything: from now on, the state of a primitive is saved before it is changed for the first time,
+     * until the snapshot is closed or not referenced any more. Background jobs which need a consistent state of the data,
+     * e.g. the autosave, can read it from the snapshot without locking the dataset.
+     * @return a new snapshot of this dataset
+     * @since xxx
+     */
+    public DataSetSnapshot snapshot() {
+        lock.readLock().lock();
+        try {
+            final List<DataSource> sources;
+            synchronized (this) {
+                sources = new ArrayList<>(dataSources);
+            }
+            final DataSetSnapshot snapshot = new DataSetSnapshot(this, sources);
+            snapshots.removeIf(ref -> ref.get() == null);
+            snapshots.add(new WeakReference<>(snapshot));
+            return snapshot;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stops saving the state of the primitives for a snapshot.
+     * @param snapshot the closed snapshot
+     */
+    void releaseSnapshot(DataSetSnapshot snapshot) {
+        snapshots.removeIf(ref -> ref.get() == null || ref.get() == snapshot);
+    }
+
+    /**
+     * Determines if there are snapshots of this dataset which save the state of the changed primitives.
+     * @return {@code true} if there are snapshots of this dataset
+     */
+    boolean hasSnapshots() {
+        return !snapshots.isEmpty();
+    }
+
+    /**
+     * Saves the state of a primitive for the snapshots of this dataset, before it is modified or removed.
+     * The caller must hold the write lock.
+     * @param primitive the primitive
+     */
+    void saveStateForSnapshots(OsmPrimitive primitive) {
+        if (!snapshots.isEmpty()) {
+            for (WeakReference<DataSetSnapshot> ref : snapshots) {
+                final DataSetSnapshot snapshot = ref.get();
+                if (snapshot != null) {
+                    snapshot.saveState(primitive);
+                }
+            }
+        }
+    }
+
+    private void addedForSnapshots(OsmPrimitive primitive) {
+        if (!snapshots.isEmpty()) {
+            for (WeakReference<DataSetSnapshot> ref : snapshots) {
+                final DataSetSnapshot snapshot = ref.get();
+                if (snapshot != null) {
+                    snapshot.primitiveAdded(primitive);
+                }
+            }
+        }
+    }
+
     /**
      * History of selections - shared by plugins and SelectionListDialog
      */
@@ -517,6 +638,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
                         tr("Unable to add primitive {0} to the dataset because it is already included", primitive.toString()),
                         null, primitive);
 
+            addedForSnapshots(primitive);
             allPrimitives.add(primitive);
             primitive.setDataset(this);
             primitive.updatePosition(); // Set cached bbox for way and relation (required for reindexWay and reindexRelation to work properly)
@@ -626,6 +748,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     }
 
     private void removePrimitiveFromStorage(OsmPrimitive primitive) {
+        saveStateForSnapshots(primitive);
         store.removePrimitive(primitive);
         allPrimitives.remove(primitive);
         primitive.setDataset(null);
@@ -858,7 +981,12 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
 
     @Override
     public OsmPrimitive getPrimitiveById(PrimitiveId primitiveId) {
-        return primitiveId != null ? primitivesMap.get(primitiveId) : null;
+        return allPrimitives.get(primitiveId);
+    }
+
+    @Override
+    public OsmPrimitive getPrimitiveById(long id, OsmPrimitiveType type) {
+        return allPrimitives.get(id, type);
     }
 
     /**
@@ -1004,7 +1132,9 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
      */
     public void beginUpdate() {
         lock.writeLock().lock();
-        updateCount++;
+        if (updateCount++ == 0) {
+            modificationStamp = modificationLock.writeLock();
+        }
     }
 
     /**
@@ -1025,9 +1155,15 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         if (updateCount > 0) {
             updateCount--;
             List<AbstractDatasetChangedEvent> eventsToFire = Collections.emptyList();
+            DataSetChangeSet changes = null;
             if (updateCount == 0) {
                 eventsToFire = new ArrayList<>(cachedEvents);
                 cachedEvents.clear();
+                if (cachedChanges != null) {
+                    changes = cachedChanges.build();
+                    cachedChanges = null;
+                }
+                modificationLock.unlockWrite(modificationStamp);
             }
 
             if (!eventsToFire.isEmpty()) {
@@ -1039,9 +1175,9 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
                             fireEventToListeners(event);
                         }
                     } else if (eventsToFire.size() == MAX_EVENTS) {
-                        fireEventToListeners(new DataChangedEvent(this));
+                        fireEventToListeners(new DataChangedEvent(this, null, changes));
                     } else {
-                        fireEventToListeners(new DataChangedEvent(this, eventsToFire));
+                        fireEventToListeners(new DataChangedEvent(this, eventsToFire, changes));
                     }
                 } finally {
                     lock.readLock().unlock();
@@ -1115,6 +1251,13 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         if (cachedEvents.size() < MAX_EVENTS) {
             cachedEvents.add(event);
         }
+        if (cachedChanges != null) {
+            cachedChanges.record(event);
+        } else if (cachedEvents.size() == MAX_SINGLE_EVENTS) {
+            // the events will be fired as a DataChangedEvent, which keeps the changes of all events
+            cachedChanges = new DataSetChangeSet.Builder(this);
+            cachedEvents.forEach(cachedChanges::record);
+        }
     }
 
     void firePrimitivesAdded(Collection<? extends OsmPrimitive> added, boolean wasIncomplete) {
@@ -1207,6 +1350,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
             clearSelection();
             clearSelectionHistory();
             for (OsmPrimitive primitive : allPrimitives) {
+                saveStateForSnapshots(primitive);
                 primitive.setDataset(null);
             }
             store.clear();
@@ -121,6 +121,7 @@ public class DataSetMerger {
         default: throw new AssertionError();
         }
         target.mergeFrom(source);
+        target.internKeys(TagStringPool.getInstance());
         targetDataSet.addPrimitive(target);
         mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
         objectsWithChildrenToMerge.add(source.getPrimitiveId());
@@ -385,6 +386,7 @@ public class DataSetMerger {
         if (mergeFromSource) {
             boolean backupReferrersDownloadedStatus = target.isReferrersDownloaded() && haveSameVersion;
             target.mergeFrom(source);
+            target.internKeys(TagStringPool.getInstance());
             if (backupReferrersDownloadedStatus && !target.isReferrersDownloaded()) {
                 target.setReferrersDownloaded(true);
             }
@@ -0,0 +1,248 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.DataSource;
+
+/**
+ * A frozen revision of a {@link DataSet}, see {@link DataSet#snapshot()}.
+ * <p>
+ * Taking a snapshot does not copy anything. Instead, the data set saves the state of a primitive, as {@link PrimitiveData},
+ * before it is modified or removed for the first time after the snapshot was taken, and remembers the primitives which
+ * are added afterwards. So the memory of a snapshot is proportional to the number of primitives changed since, and the
+ * state of the other primitives is read from the data set itself, without locking it, see
+ * {@link DataSet#readOptimistically}. Background jobs like the autosave can thus work on a consistent state of the data
+ * while the user keeps editing it.
+ * <p>
+ * The data set only holds weak references to its snapshots, so a snapshot is released when it is not referenced any more.
+ * It should nevertheless be {@linkplain #close() closed} as soon as it is not needed, so that the data set stops saving
+ * the state of the primitives which are modified.
+ * @since xxx
+ */
+public final class DataSetSnapshot implements AutoCloseable {
+
+    private final DataSet dataSet;
+    private final String name;
+    private final String version;
+    private final DownloadPolicy downloadPolicy;
+    private final UploadPolicy uploadPolicy;
+    private final boolean locked;
+    private final List<DataSource> dataSources;
+    /** The state of the primitives which have been modified or removed since the snapshot was taken */
+    private final Map<OsmPrimitive, PrimitiveData> saved = Collections.synchronizedMap(new IdentityHashMap<>());
+    /** The primitives which have been added since the snapshot was taken */
+    private final Set<OsmPrimitive> added = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new {@code DataSetSnapshot}. The caller must hold the read lock of the data set.
+     * @param dataSet the data set
+     * @param dataSources a copy of the data sources of the data set
+     */
+    DataSetSnapshot(DataSet dataSet, List<DataSource> dataSources) {
+        this.dataSet = dataSet;
+        this.name = dataSet.getName();
+        this.version = dataSet.getVersion();
+        this.downloadPolicy = dataSet.getDownloadPolicy();
+        this.uploadPolicy = dataSet.getUploadPolicy();
+        this.locked = dataSet.isLocked();
+        this.dataSources = dataSources;
+    }
+
+    /**
+     * Saves the state of a primitive which is about to be modified or removed, if it has not been saved or added before.
+     * The caller must hold the write lock of the data set.
+     * @param primitive the primitive
+     */
+    void saveState(OsmPrimitive primitive) {
+        if (!saved.containsKey(primitive) && !added.contains(primitive)) {
+            saved.put(primitive, primitive.save());
+        }
+    }
+
+    /**
+     * Remembers a primitive which has been added to the data set. The caller must hold the write lock of the data set.
+     * @param primitive the primitive
+     */
+    void primitiveAdded(OsmPrimitive primitive) {
+        // a primitive which has been removed and is added again, e.g. by undo, belongs to the snapshot
+        if (!saved.containsKey(primitive)) {
+            added.add(primitive);
+        }
+    }
+
+    /**
+     * Returns the data set of this snapshot.
+     * @return the data set
+     */
+    public DataSet getDataSet() {
+        return dataSet;
+    }
+
+    /**
+     * Returns the version of the data set when the snapshot was taken.
+     * @return the API version, e.g. {@code 0.6}
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the download policy of the data set when the snapshot was taken.
+     * @return the download policy
+     */
+    public DownloadPolicy getDownloadPolicy() {
+        return downloadPolicy;
+    }
+
+    /**
+     * Returns the upload policy of the data set when the snapshot was taken.
+     * @return the upload policy
+     */
+    public UploadPolicy getUploadPolicy() {
+        return uploadPolicy;
+    }
+
+    /**
+     * Determines if the data set was locked when the snapshot was taken.
+     * @return {@code true} if the data set was locked
+     */
+    public boolean isLocked() {
+        return locked;
+    }
+
+    /**
+     * Returns the data sources of the data set when the snapshot was taken.
+     * @return the data sources
+     */
+    public Collection<DataSource> getDataSources() {
+        return Collections.unmodifiableList(dataSources);
+    }
+
+    /**
+     * Returns the number of primitives which have been added, modified or removed since the snapshot was taken.
+     * @return the number of changed primitives
+     */
+    public int getChangedCount() {
+        return saved.size() + added.size();
+    }
+
+    /**
+     * Returns the state of a primitive when the snapshot was taken.
+     * @param primitive the primitive
+     * @return the state of the primitive, or {@code null} if it was not part of the data set
+     * @throws IllegalStateException if the snapshot has been closed
+     */
+    public PrimitiveData get(OsmPrimitive primitive) {
+        checkNotClosed();
+        return dataSet.readOptimistically(() -> getState(primitive));
+    }
+
+    private PrimitiveData getState(OsmPrimitive primitive) {
+        final PrimitiveData state = saved.get(primitive);
+        if (state != null) {
+            return state;
+        }
+        return primitive.getDataSet() == dataSet && !added.contains(primitive) ? primitive.save() : null;
+    }
+
+    /**
+     * Returns the state of all primitives of the data set when the snapshot was taken: the nodes, then the ways, then the
+     * relations. This copies the primitives which have not been changed since, without locking the data set.
+     * @return the state of all primitives
+     * @throws IllegalStateException if the snapshot has been closed
+     */
+    public List<PrimitiveData> getPrimitives() {
+        checkNotClosed();
+        final Map<OsmPrimitive, PrimitiveData> result = new IdentityHashMap<>();
+        for (OsmPrimitive primitive : dataSet.allPrimitives()) {
+            final PrimitiveData state = dataSet.readOptimistically(() -> getState(primitive));
+            if (state != null) {
+                result.put(primitive, state);
+            }
+        }
+        // the primitives which have been removed meanwhile, or modified after they were copied, with the same state
+        synchronized (saved) {
+            result.putAll(saved);
+        }
+        final List<PrimitiveData> primitives = new ArrayList<>(result.values());
+        primitives.sort(Comparator.comparing(PrimitiveData::getType));
+        return primitives;
+    }
+
+    /**
+     * Creates a new, independent data set with the state of the primitives and the data sources when the snapshot was taken.
+     * @return a new data set
+     * @throws IllegalStateException if the snapshot has been closed
+     */
+    public DataSet toDataSet() {
+        final List<PrimitiveData> primitives = getPrimitives();
+        final DataSet ds = new DataSet();
+        ds.setName(name);
+        ds.setVersion(version);
+        ds.setDownloadPolicy(downloadPolicy);
+        ds.setUploadPolicy(uploadPolicy);
+        ds.update(() -> {
+            final List<OsmPrimitive> created = new ArrayList<>(primitives.size());
+            for (PrimitiveData data : primitives) {
+                final OsmPrimitive primitive = data.getType().newInstance(data.getUniqueId(), true);
+                // nodes cannot be added without their coordinates, ways and relations need their members first
+                if (data instanceof NodeData) {
+                    primitive.load(data);
+                }
+                ds.addPrimitive(primitive);
+                created.add(primitive);
+            }
+            for (int i = 0; i < created.size(); i++) {
+                if (!(created.get(i) instanceof Node)) {
+                    created.get(i).load(primitives.get(i));
+                }
+            }
+        });
+        ds.addDataSources(dataSources);
+        if (locked) {
+            ds.lock();
+        }
+        return ds;
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("The snapshot has been closed");
+        }
+    }
+
+    /**
+     * Determines if this snapshot has been closed.
+     * @return {@code true} if this snapshot has been closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Releases this snapshot: the data set stops saving the state of the primitives which are modified for it.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            dataSet.releaseSnapshot(this);
+            saved.clear();
+            added.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DataSetSnapshot [dataSet=" + name + ", changed=" + getChangedCount() + (closed ? ", closed" : "") + ']';
+    }
+}
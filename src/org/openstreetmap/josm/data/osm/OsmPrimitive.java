@@ -209,6 +209,7 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Template
     protected boolean writeLock() {
         if (dataSet != null) {
             dataSet.beginUpdate();
+            dataSet.saveStateForSnapshots(this);
             return true;
         } else
             return false;
@@ -245,6 +246,10 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Template
                 throw new IllegalArgumentException(tr("Version > 0 expected. Got {0}.", version));
             if (dataSet != null && id != this.id) {
                 DataSet datasetCopy = dataSet;
+                if (datasetCopy.hasSnapshots()) {
+                    // the saved state of the referrers refers to the old id
+                    getReferrers().forEach(datasetCopy::saveStateForSnapshots);
+                }
                 // Reindex primitive
                 datasetCopy.removePrimitive(this);
                 this.id = id;
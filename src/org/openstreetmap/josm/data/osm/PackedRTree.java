@@ -0,0 +1,425 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import org.openstreetmap.josm.data.IQuadBucketType;
+import org.openstreetmap.josm.data.coor.ILatLon;
+
+/**
+ * A spatial index which packs the bounding boxes of its objects into arrays, sorted with the Sort-Tile-Recursive (STR)
+ * algorithm. Each leaf holds 16 objects, each inner node 16 nodes of the level below, so the children of a node are
+ * found by their index, without any pointer. The boxes are stored as floats, rounded outwards, and the candidates are
+ * checked with their exact bounding boxes.
+ * <p>
+ * Added objects are kept in a pending list, which is searched linearly. The tree is packed again, including the pending
+ * objects, by the first access after the pending list has grown too large, so adding all primitives after a download
+ * only sorts them once. Removed objects leave a hole in the packed arrays until the tree is packed again.
+ * <p>
+ * Unlike {@link QuadBuckets}, searches do not modify the index, except for packing it, which replaces the arrays at once.
+ * So several threads may search the index at the same time, e.g. with the read lock of a {@link DataSet}, but the index
+ * must not be modified while it is searched.
+ * @param <T> type of object extending {@link IQuadBucketType}.
+ * @since xxx
+ */
+public class PackedRTree<T extends IQuadBucketType> extends AbstractCollection<T> implements SpatialIndex<T> {
+
+    /** The number of objects in a leaf, and of children of an inner node */
+    private static final int NODE_SIZE = 16;
+    /** The number of pending objects which are always searched linearly */
+    private static final int MIN_PENDING = 256;
+    /** The number of objects which are sorted with several threads */
+    private static final int PARALLEL_THRESHOLD = 50_000;
+
+    /**
+     * A packed tree and the objects added since it was packed.
+     */
+    private static final class State<T> {
+        /** The objects in STR order, {@code null} for removed objects */
+        private final Object[] items;
+        /** The boxes of the objects: min lon, min lat, max lon, max lat */
+        private final float[] boxes;
+        /** The boxes of the nodes, from the leaves up to the root */
+        private final float[][] levels;
+        private final List<T> pending = new ArrayList<>();
+        private int removed;
+
+        State(Object[] items, float[] boxes, float[][] levels) {
+            this.items = items;
+            this.boxes = boxes;
+            this.levels = levels;
+        }
+
+        /**
+         * Visits the objects whose packed box intersects the given box.
+         * @param minX min lon
+         * @param minY min lat
+         * @param maxX max lon
+         * @param maxY max lat
+         * @param visitor called with the index of each candidate, returns {@code false} to stop
+         */
+        void visit(double minX, double minY, double maxX, double maxY, IntPredicate visitor) {
+            if (levels.length == 0) {
+                return;
+            }
+            // each entry is (index << 5 | level), there are less than 32 levels
+            final int[] stack = new int[levels.length * NODE_SIZE];
+            int top = 0;
+            if (intersects(levels[levels.length - 1], 0, minX, minY, maxX, maxY)) {
+                stack[top++] = levels.length - 1;
+            }
+            while (top > 0) {
+                final int entry = stack[--top];
+                final int level = entry & 31;
+                final int index = entry >>> 5;
+                final int from = index * NODE_SIZE;
+                if (level == 0) {
+                    final int to = Math.min(items.length, from + NODE_SIZE);
+                    for (int i = from; i < to; i++) {
+                        if (items[i] != null && intersects(boxes, i, minX, minY, maxX, maxY) && !visitor.test(i)) {
+                            return;
+                        }
+                    }
+                } else {
+                    final float[] children = levels[level - 1];
+                    final int to = Math.min(children.length / 4, from + NODE_SIZE);
+                    for (int i = from; i < to; i++) {
+                        if (intersects(children, i, minX, minY, maxX, maxY)) {
+                            stack[top++] = i << 5 | (level - 1);
+                        }
+                    }
+                }
+            }
+        }
+
+        int indexOf(IQuadBucketType o) {
+            final BBox bbox = o.getBBox();
+            final int[] result = {-1};
+            visit(bbox.getMinLon(), bbox.getMinLat(), bbox.getMaxLon(), bbox.getMaxLat(), i -> {
+                if (o.equals(items[i])) {
+                    result[0] = i;
+                    return false;
+                }
+                return true;
+            });
+            return result[0];
+        }
+    }
+
+    private volatile State<T> state = pack(new Object[0], 0);
+    /** The objects with an invalid bounding box, which are never found by a search */
+    private final Set<T> invalidBBoxObjects = new LinkedHashSet<>();
+    private int size;
+
+    /**
+     * Constructs a new, empty {@code PackedRTree}.
+     */
+    public PackedRTree() {
+        // Nothing to do
+    }
+
+    private static boolean intersects(float[] boxes, int i, double minX, double minY, double maxX, double maxY) {
+        final int j = 4 * i;
+        return boxes[j] <= maxX && boxes[j + 1] <= maxY && boxes[j + 2] >= minX && boxes[j + 3] >= minY;
+    }
+
+    private static boolean matches(IQuadBucketType o, BBox searchBbox) {
+        // the same as QuadBuckets, avoid allocations for nodes
+        if (o instanceof ILatLon) {
+            return searchBbox.contains((ILatLon) o);
+        }
+        return o.getBBox().intersects(searchBbox);
+    }
+
+    private static float floor(double d) {
+        final float f = (float) d;
+        return f > d ? Math.nextDown(f) : f;
+    }
+
+    private static float ceil(double d) {
+        final float f = (float) d;
+        return f < d ? Math.nextUp(f) : f;
+    }
+
+    private static long quantize(double value, double min, double max) {
+        return Math.max(0, Math.min(Integer.MAX_VALUE, (long) ((value - min) / (max - min) * Integer.MAX_VALUE)));
+    }
+
+    /**
+     * Sorts the objects with the Sort-Tile-Recursive algorithm and packs their boxes.
+     * @param objects the objects, with valid bounding boxes
+     * @param count the number of objects
+     * @return the packed tree
+     */
+    private static <T> State<T> pack(Object[] objects, int count) {
+        final float[] unsorted = new float[4 * count];
+        final IntStream boxStream = IntStream.range(0, count);
+        (count >= PARALLEL_THRESHOLD ? boxStream.parallel() : boxStream).forEach(i -> {
+            final IQuadBucketType o = (IQuadBucketType) objects[i];
+            if (o instanceof ILatLon) {
+                final ILatLon ll = (ILatLon) o;
+                unsorted[4 * i] = floor(ll.lon());
+                unsorted[4 * i + 1] = floor(ll.lat());
+                unsorted[4 * i + 2] = ceil(ll.lon());
+                unsorted[4 * i + 3] = ceil(ll.lat());
+            } else {
+                final BBox bbox = o.getBBox();
+                unsorted[4 * i] = floor(bbox.getMinLon());
+                unsorted[4 * i + 1] = floor(bbox.getMinLat());
+                unsorted[4 * i + 2] = ceil(bbox.getMaxLon());
+                unsorted[4 * i + 3] = ceil(bbox.getMaxLat());
+            }
+        });
+
+        // sort by the center longitude, then cut into vertical slices which are sorted by the center latitude
+        final long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = quantize((unsorted[4 * i] + unsorted[4 * i + 2]) / 2.0, -180, 180) << 32 | i;
+        }
+        if (count >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(keys);
+        } else {
+            Arrays.sort(keys);
+        }
+        final int leaves = (count + NODE_SIZE - 1) / NODE_SIZE;
+        final int slices = (int) Math.ceil(Math.sqrt(leaves));
+        final int sliceSize = slices == 0 ? 0 : (leaves + slices - 1) / slices * NODE_SIZE;
+        final IntStream sliceStream = IntStream.range(0, slices);
+        (count >= PARALLEL_THRESHOLD ? sliceStream.parallel() : sliceStream).forEach(s -> {
+            final int from = s * sliceSize;
+            final int to = Math.min(count, from + sliceSize);
+            for (int j = from; j < to; j++) {
+                final int i = (int) keys[j];
+                keys[j] = quantize((unsorted[4 * i + 1] + unsorted[4 * i + 3]) / 2.0, -90, 90) << 32 | i;
+            }
+            if (from < to) {
+                Arrays.sort(keys, from, to);
+            }
+        });
+
+        final Object[] items = new Object[count];
+        final float[] boxes = new float[4 * count];
+        for (int j = 0; j < count; j++) {
+            final int i = (int) keys[j];
+            items[j] = objects[i];
+            System.arraycopy(unsorted, 4 * i, boxes, 4 * j, 4);
+        }
+
+        // the boxes of the nodes, each covering NODE_SIZE boxes of the level below
+        final List<float[]> levels = new ArrayList<>();
+        float[] below = boxes;
+        int belowCount = count;
+        while (belowCount > 1 || (belowCount == 1 && levels.isEmpty())) {
+            final int nodes = (belowCount + NODE_SIZE - 1) / NODE_SIZE;
+            final float[] level = new float[4 * nodes];
+            for (int n = 0; n < nodes; n++) {
+                float minX = Float.POSITIVE_INFINITY;
+                float minY = Float.POSITIVE_INFINITY;
+                float maxX = Float.NEGATIVE_INFINITY;
+                float maxY = Float.NEGATIVE_INFINITY;
+                final int to = Math.min(belowCount, (n + 1) * NODE_SIZE);
+                for (int c = n * NODE_SIZE; c < to; c++) {
+                    minX = Math.min(minX, below[4 * c]);
+                    minY = Math.min(minY, below[4 * c + 1]);
+                    maxX = Math.max(maxX, below[4 * c + 2]);
+                    maxY = Math.max(maxY, below[4 * c + 3]);
+                }
+                level[4 * n] = minX;
+                level[4 * n + 1] = minY;
+                level[4 * n + 2] = maxX;
+                level[4 * n + 3] = maxY;
+            }
+            levels.add(level);
+            below = level;
+            belowCount = nodes;
+        }
+        return new State<>(items, boxes, levels.toArray(new float[0][]));
+    }
+
+    private static boolean needsPacking(State<?> s) {
+        return s.pending.size() > Math.max(MIN_PENDING, s.items.length >> 5)
+            || s.removed > Math.max(MIN_PENDING, s.items.length >> 2);
+    }
+
+    /**
+     * Returns the current state, packs the pending objects first if there are too many of them.
+     * @return the current state
+     */
+    private State<T> packedState() {
+        State<T> s = state;
+        if (needsPacking(s)) {
+            synchronized (this) {
+                s = state;
+                if (needsPacking(s)) {
+                    s = repack(s);
+                }
+            }
+        }
+        return s;
+    }
+
+    private synchronized State<T> repack(State<T> s) {
+        final Object[] objects = new Object[s.items.length - s.removed + s.pending.size()];
+        int count = 0;
+        for (Object o : s.items) {
+            if (o != null) {
+                objects[count++] = o;
+            }
+        }
+        for (T o : s.pending) {
+            objects[count++] = o;
+        }
+        final State<T> packed = pack(objects, count);
+        state = packed;
+        return packed;
+    }
+
+    @Override
+    public List<T> search(BBox searchBbox) {
+        final List<T> result = new ArrayList<>();
+        if (searchBbox == null || !searchBbox.isValid()) {
+            return result;
+        }
+        final State<T> s = packedState();
+        s.visit(searchBbox.getMinLon(), searchBbox.getMinLat(), searchBbox.getMaxLon(), searchBbox.getMaxLat(), i -> {
+            @SuppressWarnings("unchecked")
+            final T o = (T) s.items[i];
+            if (matches(o, searchBbox)) {
+                result.add(o);
+            }
+            return true;
+        });
+        for (T o : s.pending) {
+            if (matches(o, searchBbox)) {
+                result.add(o);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean add(T o) {
+        if (o.getBBox().isValid()) {
+            state.pending.add(o);
+        } else {
+            invalidBBoxObjects.add(o);
+        }
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof IQuadBucketType)) {
+            return false;
+        }
+        boolean removed;
+        if (!((IQuadBucketType) o).getBBox().isValid()) {
+            removed = invalidBBoxObjects.remove(o);
+        } else {
+            final State<T> s = packedState();
+            final int i = s.indexOf((IQuadBucketType) o);
+            if (i >= 0) {
+                s.items[i] = null;
+                s.removed++;
+                removed = true;
+            } else {
+                removed = s.pending.remove(o);
+            }
+        }
+        if (removed) {
+            size--;
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof IQuadBucketType)) {
+            return false;
+        } else if (!((IQuadBucketType) o).getBBox().isValid()) {
+            return invalidBBoxObjects.contains(o);
+        }
+        final State<T> s = packedState();
+        return s.indexOf((IQuadBucketType) o) >= 0 || s.pending.contains(o);
+    }
+
+    @Override
+    public void clear() {
+        state = pack(new Object[0], 0);
+        invalidBBoxObjects.clear();
+        size = 0;
+    }
+
+    /**
+     * Packs all objects into the tree, and removes the holes of the removed objects.
+     */
+    @Override
+    public void trimToSize() {
+        final State<T> s = state;
+        if (!s.pending.isEmpty() || s.removed > 0) {
+            repack(s);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final State<T> s = state;
+        final List<T> others = new ArrayList<>(s.pending.size() + invalidBBoxObjects.size());
+        others.addAll(s.pending);
+        others.addAll(invalidBBoxObjects);
+        return new Iterator<T>() {
+            private int index;
+            private T last;
+
+            @Override
+            public boolean hasNext() {
+                while (index < s.items.length && s.items[index] == null) {
+                    index++;
+                }
+                return index < s.items.length + others.size();
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = index < s.items.length ? (T) s.items[index] : others.get(index - s.items.length);
+                index++;
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                PackedRTree.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        final State<T> s = state;
+        return "PackedRTree [size=" + size + ", packed=" + (s.items.length - s.removed) + ", pending=" + s.pending.size()
+                + ", levels=" + s.levels.length + ']';
+    }
+}
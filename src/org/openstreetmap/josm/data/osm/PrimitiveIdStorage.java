@@ -0,0 +1,421 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A set of primitives that is indexed by their {@link PrimitiveId}, the replacement of
+ * {@code new Storage<>(new Storage.PrimitiveIdHash(), true)}.
+ * <p>
+ * There is one open addressing table per {@link OsmPrimitiveType#dataValues() primitive type}. The unique ids are stored in a
+ * {@code long[]} next to the primitives, so looking up a primitive neither boxes the id nor dereferences the primitives of
+ * colliding slots, and the full 64 bit id is hashed instead of {@code (int) id ^ type.hashCode()}.
+ * <p>
+ * Modifications are serialized by a {@link StampedLock}. Lookups do not lock: they are optimistic reads which are only
+ * repeated with a read lock if a modification happened at the same time.
+ * <p>
+ * Like a {@link Storage} with safe iterator, the iterators work on a snapshot of the tables. The next modification of a table
+ * which is used by an iterator copies it first, so it is safe to modify the set while iterating over it.
+ * The iterators do not support {@link Iterator#remove()}.
+ *
+ * @param <T> the type of the primitives
+ * @since xxx
+ */
+public class PrimitiveIdStorage<T extends PrimitiveId> extends AbstractSet<T> {
+
+    private static final double LOAD_FACTOR = 0.6d;
+    private static final int DEFAULT_CAPACITY = 16;
+    /** 2<sup>64</sup> divided by the golden ratio, see Knuth's multiplicative (Fibonacci) hashing */
+    private static final long GOLDEN_RATIO = 0x9E37_79B9_7F4A_7C15L;
+
+    private final StampedLock lock = new StampedLock();
+    /** The tables for nodes, ways and relations */
+    private final Table[] tables = new Table[3];
+    private int size;
+
+    /**
+     * Constructs a new, empty {@code PrimitiveIdStorage}.
+     */
+    public PrimitiveIdStorage() {
+        initTables();
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int mask;
+        final int threshold;
+        int size;
+        /** If an iterator uses this table, which must not be modified then any more */
+        boolean shared;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+            this.threshold = (int) (capacity * LOAD_FACTOR);
+        }
+
+        Table(Table other) {
+            this.keys = other.keys.clone();
+            this.values = other.values.clone();
+            this.mask = other.mask;
+            this.threshold = other.threshold;
+            this.size = other.size;
+        }
+
+        int home(long id) {
+            final long h = id * GOLDEN_RATIO;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        /**
+         * Finds the slot of an id
+         * @param id the unique id
+         * @return the slot of the id, or {@code ~slot} of the free slot where it can be inserted
+         */
+        int find(long id) {
+            int slot = home(id);
+            // The bound only matters for optimistic reads racing with a modification, which are validated afterwards
+            for (int probes = 0; probes <= mask; probes++) {
+                if (values[slot] == null) {
+                    return ~slot;
+                } else if (keys[slot] == id) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return ~0;
+        }
+
+        void insert(int freeSlot, long id, Object value) {
+            keys[freeSlot] = id;
+            values[freeSlot] = value;
+            size++;
+        }
+
+        /**
+         * Removes the entry of a slot, and moves the following entries of the probe sequence back (Knuth's Algorithm R),
+         * so that lookups do not need tombstones.
+         * @param slot the slot to clear
+         */
+        void delete(int slot) {
+            int hole = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (values[next] == null) {
+                    break;
+                }
+                final int nextHome = home(keys[next]);
+                // the entry may move to the hole unless its home is cyclically in (hole, next]
+                final boolean stays = hole <= next ? hole < nextHome && nextHome <= next : hole < nextHome || nextHome <= next;
+                if (!stays) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            values[hole] = null;
+            size--;
+        }
+
+        Table grow() {
+            final Table grown = new Table(values.length * 2);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    grown.insert(~grown.find(keys[i]), keys[i], values[i]);
+                }
+            }
+            return grown;
+        }
+    }
+
+    private static int tableIndex(OsmPrimitiveType type) {
+        switch (type) {
+        case NODE:
+            return 0;
+        case WAY:
+            return 1;
+        case RELATION:
+            return 2;
+        default:
+            return -1;
+        }
+    }
+
+    private void initTables() {
+        for (int i = 0; i < tables.length; i++) {
+            tables[i] = new Table(DEFAULT_CAPACITY);
+        }
+        size = 0;
+    }
+
+    /**
+     * Gets a table for modification. Tables used by iterators are copied first.
+     * @param index the index of the table
+     * @return the table which may be modified
+     */
+    private Table writableTable(int index) {
+        Table table = tables[index];
+        if (table.shared) {
+            table = new Table(table);
+            tables[index] = table;
+        }
+        return table;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T lookup(int index, long id) {
+        final Table table = tables[index];
+        final int slot = table.find(id);
+        return slot < 0 ? null : (T) table.values[slot];
+    }
+
+    /**
+     * Gets the primitive with the given unique id and type
+     * @param id the unique id
+     * @param type the type, must not be {@code null}
+     * @return the primitive, or {@code null} if there is no such primitive
+     */
+    public T get(long id, OsmPrimitiveType type) {
+        final int index = tableIndex(type);
+        if (index < 0) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        T result = lookup(index, id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = lookup(index, id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the primitive with the same unique id and type as the given id
+     * @param primitiveId the primitive id
+     * @return the primitive, or {@code null} if there is no such primitive or if {@code primitiveId} is {@code null}
+     */
+    public T get(PrimitiveId primitiveId) {
+        return primitiveId == null ? null : get(primitiveId.getUniqueId(), primitiveId.getType());
+    }
+
+    /**
+     * Adds a primitive, unless there is already a primitive with the same id
+     * @param t the primitive to add
+     * @return the primitive with the id of {@code t} in this set, which is {@code t} if it was added
+     * @throws IllegalArgumentException if the type of {@code t} is not a {@linkplain OsmPrimitiveType#dataValues() data type}
+     */
+    @SuppressWarnings("unchecked")
+    public T putUnique(T t) {
+        final int index = tableIndex(t.getType());
+        if (index < 0) {
+            throw new IllegalArgumentException("Unsupported primitive type: " + t.getType());
+        }
+        final long id = t.getUniqueId();
+        final long stamp = lock.writeLock();
+        try {
+            Table table = writableTable(index);
+            int slot = table.find(id);
+            if (slot >= 0) {
+                return (T) table.values[slot];
+            }
+            if (table.size >= table.threshold) {
+                table = table.grow();
+                tables[index] = table;
+                slot = table.find(id);
+            }
+            table.insert(~slot, id, t);
+            size++;
+            return t;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the primitive with the same unique id and type as the given id
+     * @param primitiveId the primitive id
+     * @return the removed primitive, or {@code null} if there was no such primitive
+     */
+    @SuppressWarnings("unchecked")
+    public T removeElem(PrimitiveId primitiveId) {
+        final int index = tableIndex(primitiveId.getType());
+        if (index < 0) {
+            return null;
+        }
+        final long stamp = lock.writeLock();
+        try {
+            final Table table = writableTable(index);
+            final int slot = table.find(primitiveId.getUniqueId());
+            if (slot < 0) {
+                return null;
+            }
+            final T removed = (T) table.values[slot];
+            table.delete(slot);
+            size--;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean add(T t) {
+        return putUnique(t) == t;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof PrimitiveId && removeElem((PrimitiveId) o) != null;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof PrimitiveId && get((PrimitiveId) o) != null;
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int result = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        final long stamp = lock.writeLock();
+        try {
+            initTables();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final Object[][] snapshot = new Object[tables.length][];
+        final int snapshotSize;
+        final long stamp = lock.readLock();
+        try {
+            for (int i = 0; i < tables.length; i++) {
+                // concurrent readers may only set the flag, which is read by the writers after acquiring the write lock
+                tables[i].shared = true;
+                snapshot[i] = tables[i].values;
+            }
+            snapshotSize = size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return new SnapshotIterator<>(snapshot, snapshotSize);
+    }
+
+    private static final class SnapshotIterator<T> implements Iterator<T> {
+        private final Object[][] values;
+        private int remaining;
+        private int table;
+        private int slot;
+
+        SnapshotIterator(Object[][] values, int size) {
+            this.values = values;
+            this.remaining = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            while (true) {
+                if (slot >= values[table].length) {
+                    table++;
+                    slot = 0;
+                } else {
+                    final Object value = values[table][slot++];
+                    if (value != null) {
+                        remaining--;
+                        return (T) value;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets a read-only map view of this set, keyed by primitive id. Like {@link #get(PrimitiveId)}, the lookups do not lock.
+     * @return the map view
+     * @see Storage#foreignKey(Storage.Hash)
+     */
+    public Map<PrimitiveId, T> foreignKey() {
+        return new IdMap();
+    }
+
+    private final class IdMap extends AbstractMap<PrimitiveId, T> {
+        @Override
+        public T get(Object key) {
+            return key instanceof PrimitiveId ? PrimitiveIdStorage.this.get((PrimitiveId) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return PrimitiveIdStorage.this.size();
+        }
+
+        @Override
+        public Set<Entry<PrimitiveId, T>> entrySet() {
+            return new AbstractSet<Entry<PrimitiveId, T>>() {
+                @Override
+                public Iterator<Entry<PrimitiveId, T>> iterator() {
+                    final Iterator<T> it = PrimitiveIdStorage.this.iterator();
+                    return new Iterator<Entry<PrimitiveId, T>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Entry<PrimitiveId, T> next() {
+                            final T t = it.next();
+                            return new SimpleImmutableEntry<>(t, t);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return PrimitiveIdStorage.this.size();
+                }
+            };
+        }
+    }
+}
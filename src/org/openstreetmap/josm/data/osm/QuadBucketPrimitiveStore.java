@@ -7,11 +7,15 @@ import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import org.openstreetmap.josm.data.preferences.EnumProperty;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 
 /**
  * Stores primitives in quad buckets. This can be used to hold a collection of primitives, e.g. in a {@link DataSet}
  *
+ * The nodes and ways are stored in a {@link SpatialIndex}, by default {@link QuadBuckets}, see {@link #PREF_SPATIAL_INDEX}.
+ *
  * This class does not do any synchronization.
  * @author Michael Zangl
  * @param <N> type representing OSM nodes
@@ -20,24 +24,48 @@ import org.openstreetmap.josm.tools.JosmRuntimeException;
  * @since 12048
  */
 public class QuadBucketPrimitiveStore<N extends INode, W extends IWay<N>, R extends IRelation<?>> {
+    /**
+     * The spatial index used for new stores.
+     * @since xxx
+     */
+    public static final EnumProperty<SpatialIndex.Type> PREF_SPATIAL_INDEX =
+            new EnumProperty<>("osm.spatial-index", SpatialIndex.Type.class, SpatialIndex.Type.QUAD_BUCKETS);
+
     /**
      * All nodes goes here, even when included in other data (ways etc). This enables the instant
      * conversion of the whole DataSet by iterating over this data structure.
      */
-    private final QuadBuckets<N> nodes = new QuadBuckets<>();
+    private final SpatialIndex<N> nodes;
 
     /**
      * All ways (Streets etc.) in the DataSet.
      *
      * The way nodes are stored only in the way list.
      */
-    private final QuadBuckets<W> ways = new QuadBuckets<>();
+    private final SpatialIndex<W> ways;
 
     /**
      * All relations/relationships
      */
     private final Collection<R> relations = new ArrayList<>();
 
+    /**
+     * Constructs a new {@code QuadBucketPrimitiveStore} with the spatial index of the preferences.
+     */
+    public QuadBucketPrimitiveStore() {
+        this(Config.getPref() != null ? PREF_SPATIAL_INDEX.get() : SpatialIndex.Type.QUAD_BUCKETS);
+    }
+
+    /**
+     * Constructs a new {@code QuadBucketPrimitiveStore}.
+     * @param spatialIndex the type of the spatial index of the nodes and ways
+     * @since xxx
+     */
+    public QuadBucketPrimitiveStore(SpatialIndex.Type spatialIndex) {
+        nodes = spatialIndex.create();
+        ways = spatialIndex.create();
+    }
+
     /**
      * Searches for nodes in the given bounding box.
      * @param bbox the bounding box
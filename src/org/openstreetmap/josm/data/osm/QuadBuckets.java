@@ -25,7 +25,7 @@ import org.openstreetmap.josm.tools.Utils;
  * @param <T> type of object extending {@link IQuadBucketType}.
  * @since 2165 ({@link IPrimitive} only), 17459 for {@link IQuadBucketType}
  */
-public class QuadBuckets<T extends IQuadBucketType> implements Collection<T> {
+public class QuadBuckets<T extends IQuadBucketType> implements SpatialIndex<T> {
     private static final boolean CONSISTENCY_TESTING = false;
     private static final byte NW_INDEX = 1;
     private static final byte NE_INDEX = 3;
@@ -576,6 +576,7 @@ public class QuadBuckets<T extends IQuadBucketType> implements Collection<T> {
      * @param searchBbox the bbox
      * @return List of primitives within the bbox (or crossing the bbox if they are ways). Can be empty, but not null.
      */
+    @Override
     public List<T> search(BBox searchBbox) {
         List<T> ret = new ArrayList<>();
         if (searchBbox == null || !searchBbox.isValid()) {
@@ -0,0 +1,51 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.openstreetmap.josm.data.IQuadBucketType;
+
+/**
+ * A collection of objects which can be searched by their bounding boxes.
+ * <p>
+ * The bounding box of an object must not change while it is in the index. In case of a coordinate change, the object
+ * must be removed and added again.
+ * @param <T> type of object extending {@link IQuadBucketType}.
+ * @since xxx
+ */
+public interface SpatialIndex<T extends IQuadBucketType> extends Collection<T> {
+
+    /**
+     * The available implementations of {@link SpatialIndex}.
+     */
+    enum Type {
+        /** {@link QuadBuckets}, a quad tree which is modified in place */
+        QUAD_BUCKETS,
+        /** {@link PackedRTree}, an array-backed R-tree which supports concurrent searches */
+        PACKED_R_TREE;
+
+        /**
+         * Creates a new, empty index of this type.
+         * @param <T> type of object extending {@link IQuadBucketType}.
+         * @return the new index
+         */
+        public <T extends IQuadBucketType> SpatialIndex<T> create() {
+            return this == PACKED_R_TREE ? new PackedRTree<>() : new QuadBuckets<>();
+        }
+    }
+
+    /**
+     * Search the index for objects in the bbox (or crossing the bbox if they are ways)
+     * @param searchBbox the bbox
+     * @return List of objects within the bbox (or crossing the bbox if they are ways). Can be empty, but not null.
+     */
+    List<T> search(BBox searchBbox);
+
+    /**
+     * Trims the memory used by the index, for rarely modified data.
+     */
+    default void trimToSize() {
+        // Do nothing by default
+    }
+}
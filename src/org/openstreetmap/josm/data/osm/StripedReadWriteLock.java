@@ -0,0 +1,211 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A read/write lock which is split into several {@link ReentrantReadWriteLock}s (stripes).
+ * <p>
+ * A reader only locks the stripe of its thread, so readers in different threads do not update the same lock state, which
+ * is the bottleneck of a single {@link ReentrantReadWriteLock} when many threads lock it for short reads, e.g. searches.
+ * The writer locks all stripes, in ascending order. A thread which holds the write lock may acquire the read lock, so the
+ * write lock can be downgraded like the one of a {@link ReentrantReadWriteLock}. Both locks are reentrant.
+ * <p>
+ * The read lock must be released by the thread which acquired it. Conditions are not supported.
+ * @since xxx
+ */
+final class StripedReadWriteLock implements ReadWriteLock {
+
+    /** The maximum number of stripes used by default */
+    private static final int MAX_DEFAULT_STRIPES = 16;
+    /** The maximum number of stripes */
+    private static final int MAX_STRIPES = 1024;
+
+    private final ReentrantReadWriteLock[] stripes;
+    private final Lock readLock = new ReadLock();
+    private final Lock writeLock = new WriteLock();
+    /** The number of nested acquisitions of the write lock, only accessed by the thread which holds the write lock */
+    private int writeHolds;
+
+    /**
+     * Constructs a new {@code StripedReadWriteLock}.
+     * @param stripes the number of stripes, rounded up to a power of two. If it is not positive, the number of processors
+     * is used, up to 16.
+     */
+    StripedReadWriteLock(int stripes) {
+        int n = stripes > 0 ? Math.min(stripes, MAX_STRIPES) : Math.min(MAX_DEFAULT_STRIPES, Runtime.getRuntime().availableProcessors());
+        n = Math.max(1, Integer.highestOneBit(n - 1) << 1);
+        this.stripes = new ReentrantReadWriteLock[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Returns the number of stripes.
+     * @return the number of stripes
+     */
+    int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Determines if the current thread holds the write lock.
+     * @return {@code true} if the current thread holds the write lock
+     */
+    boolean isWriteLockedByCurrentThread() {
+        return stripes[0].isWriteLockedByCurrentThread();
+    }
+
+    private ReentrantReadWriteLock stripe() {
+        long id = Thread.currentThread().getId();
+        // thread ids are consecutive, mix them anyway so that the threads of a pool do not share stripes by chance
+        id ^= id >>> 7;
+        return stripes[(int) id & (stripes.length - 1)];
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    private final class ReadLock implements Lock {
+        @Override
+        public void lock() {
+            stripe().readLock().lock();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            stripe().readLock().lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLock() {
+            return stripe().readLock().tryLock();
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return stripe().readLock().tryLock(time, unit);
+        }
+
+        @Override
+        public void unlock() {
+            stripe().readLock().unlock();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final class WriteLock implements Lock {
+        @Override
+        public void lock() {
+            if (!reenter()) {
+                for (ReentrantReadWriteLock stripe : stripes) {
+                    stripe.writeLock().lock();
+                }
+                writeHolds = 1;
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (!reenter()) {
+                int locked = 0;
+                try {
+                    for (; locked < stripes.length; locked++) {
+                        stripes[locked].writeLock().lockInterruptibly();
+                    }
+                } finally {
+                    if (locked < stripes.length) {
+                        release(locked);
+                    }
+                }
+                writeHolds = 1;
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (reenter()) {
+                return true;
+            }
+            for (int i = 0; i < stripes.length; i++) {
+                if (!stripes[i].writeLock().tryLock()) {
+                    release(i);
+                    return false;
+                }
+            }
+            writeHolds = 1;
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            if (reenter()) {
+                return true;
+            }
+            final long deadline = System.nanoTime() + unit.toNanos(time);
+            int locked = 0;
+            try {
+                for (; locked < stripes.length; locked++) {
+                    if (!stripes[locked].writeLock().tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                        return false;
+                    }
+                }
+            } finally {
+                if (locked < stripes.length) {
+                    release(locked);
+                }
+            }
+            writeHolds = 1;
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            if (!isWriteLockedByCurrentThread()) {
+                throw new IllegalMonitorStateException();
+            }
+            if (--writeHolds == 0) {
+                release(stripes.length);
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        private boolean reenter() {
+            if (isWriteLockedByCurrentThread()) {
+                writeHolds++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Releases the write locks of the first stripes, in descending order.
+         * @param count the number of stripes to release
+         */
+        private void release(int count) {
+            for (int i = count - 1; i >= 0; i--) {
+                stripes[i].writeLock().unlock();
+            }
+        }
+    }
+}
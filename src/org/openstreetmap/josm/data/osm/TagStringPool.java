@@ -0,0 +1,156 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A bounded pool of tag keys and values, so that equal strings of different primitives are one instance on the heap.
+ * <p>
+ * Unlike {@link String#intern()} and unlike a map of all strings, the pool has a fixed size. It is a 2-way set associative
+ * cache: each string can be in one of two slots, and a new string replaces the string which was least recently used.
+ * Frequent strings like {@code highway} or {@code residential} stay in the pool, while rare strings like names are
+ * eventually replaced. Long strings are not pooled at all, since they are hardly ever repeated.
+ * <p>
+ * Since the pool is lossy, the readers pass a map of their own strings to {@link #intern(String, Map)}: the strings which
+ * are not in the pool are deduplicated by this map, so that every repeated string of a file is still one instance.
+ * <p>
+ * The pool is safe to use from multiple threads without locking. Concurrent updates of a slot may lose a string, which
+ * only means that a later equal string will not be deduplicated.
+ *
+ * @since xxx
+ */
+public final class TagStringPool {
+
+    /** The number of strings in the pool */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    /** The maximum length of pooled strings */
+    public static final int MAX_LENGTH = 64;
+
+    private static final TagStringPool INSTANCE = new TagStringPool(DEFAULT_CAPACITY);
+
+    private final String[] strings;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a new {@code TagStringPool}. Most code should use the shared {@link #getInstance() instance}.
+     * @param capacity The number of strings in the pool, rounded up to a power of two
+     */
+    public TagStringPool(int capacity) {
+        int size = 2;
+        while (size < capacity) {
+            size *= 2;
+        }
+        this.strings = new String[size];
+        this.mask = size - 2;
+    }
+
+    /**
+     * Gets the pool which is shared by the readers and the other code that creates tags.
+     * @return the shared pool
+     */
+    public static TagStringPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets an equal string from the pool, or adds the string to the pool.
+     * @param string The string, may be {@code null}
+     * @return A string which is equal to {@code string}
+     */
+    public String intern(String string) {
+        return intern(string, null);
+    }
+
+    /**
+     * Gets an equal string from the pool, or from a map of the strings which were not found in the pool, e.g. the strings of
+     * a file. A string which is not in the map either is {@linkplain String#intern() interned} and added to the map.
+     * @param string The string, may be {@code null}
+     * @param fallback The strings which were not found in the pool, or {@code null}
+     * @return A string which is equal to {@code string}
+     */
+    public String intern(String string, Map<String, String> fallback) {
+        if (string == null) {
+            return null;
+        } else if (string.length() > MAX_LENGTH) {
+            return fallback == null ? string : fallback.computeIfAbsent(string, Utils::intern);
+        }
+        final int hash = string.hashCode();
+        final int set = (hash ^ (hash >>> 16)) & mask;
+        final String first = strings[set];
+        if (string.equals(first)) {
+            hits.increment();
+            return first;
+        }
+        final String second = strings[set + 1];
+        if (string.equals(second)) {
+            // move to the most recently used slot
+            strings[set] = second;
+            strings[set + 1] = first;
+            hits.increment();
+            return second;
+        }
+        final String missed = fallback == null ? string : fallback.computeIfAbsent(string, Utils::intern);
+        strings[set + 1] = first;
+        strings[set] = missed;
+        misses.increment();
+        return missed;
+    }
+
+    /**
+     * Replaces the keys and values of a tag map by equal strings from the pool.
+     * @param tags The tags
+     * @return A map with the same tags, using the pooled strings
+     */
+    public TagMap internTags(Map<String, String> tags) {
+        final TagMap result = new TagMap();
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            result.put(intern(tag.getKey()), intern(tag.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of strings which were already in the pool.
+     * @return the number of hits since the last {@link #resetStatistics() reset}
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of strings which were added to the pool.
+     * @return the number of misses since the last {@link #resetStatistics() reset}
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the share of the strings which were already in the pool.
+     * @return the hit rate from 0 to 1, or 0 if no string was pooled since the last {@link #resetStatistics() reset}
+     */
+    public double getHitRate() {
+        final long h = getHits();
+        final long total = h + getMisses();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Resets the hit and miss counters. The pooled strings are kept.
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "TagStringPool [capacity=" + strings.length + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", hitRate=" + getHitRate() + ']';
+    }
+}
@@ -10,10 +10,13 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 
 /**
  * A combined data change event. It consists of multiple dataset events.
+ * <p>
+ * Large batches of changes do not keep their events, but the net changes of the primitives, see {@link #getChangeSet()}.
  */
 public class DataChangedEvent extends AbstractDatasetChangedEvent {
 
     private final List<AbstractDatasetChangedEvent> events;
+    private DataSetChangeSet changeSet;
 
     /**
      * Constructs a new {@code DataChangedEvent}
@@ -21,8 +24,21 @@ public class DataChangedEvent extends AbstractDatasetChangedEvent {
      * @param events list of change events
      */
     public DataChangedEvent(DataSet dataSet, List<AbstractDatasetChangedEvent> events) {
+        this(dataSet, events, null);
+    }
+
+    /**
+     * Constructs a new {@code DataChangedEvent}
+     * @param dataSet the dataset from which the event comes from
+     * @param events list of change events, can be {@code null} if there are too many events
+     * @param changeSet the net changes of the events, can be {@code null} if it is computed from the events or if the
+     * whole dataset may have changed
+     * @since xxx
+     */
+    public DataChangedEvent(DataSet dataSet, List<AbstractDatasetChangedEvent> events, DataSetChangeSet changeSet) {
         super(dataSet);
         this.events = events;
+        this.changeSet = changeSet;
     }
 
     /**
@@ -55,4 +71,27 @@ public class DataChangedEvent extends AbstractDatasetChangedEvent {
     public List<AbstractDatasetChangedEvent> getEvents() {
         return events;
     }
+
+    /**
+     * Returns the net changes of the primitives, whatever the number of events, so that listeners do not have to check
+     * all primitives of the dataset.
+     * @return the net changes of the primitives, or {@code null} if the whole dataset may have changed, e.g. if another
+     * dataset has become active
+     * @since xxx
+     */
+    public synchronized DataSetChangeSet getChangeSet() {
+        if (changeSet == null && events != null) {
+            changeSet = DataSetChangeSet.of(dataSet, events);
+        }
+        return changeSet;
+    }
+
+    /**
+     * Determines if the whole dataset may have changed, i.e., if there is neither a list of events nor a change set.
+     * @return {@code true} if the whole dataset may have changed
+     * @since xxx
+     */
+    public boolean isFullChange() {
+        return events == null && getChangeSet() == null;
+    }
 }
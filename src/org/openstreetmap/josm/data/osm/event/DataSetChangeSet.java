@@ -0,0 +1,426 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+
+/**
+ * The net changes of a data set in a batch of modifications, e.g. between {@link DataSet#beginUpdate()} and
+ * {@link DataSet#endUpdate()}, see {@link DataChangedEvent#getChangeSet()}.
+ * <p>
+ * For each primitive type, the unique ids of the added, removed and modified primitives are stored in sorted
+ * {@code long} arrays, next to the primitives themselves, whatever the number of changes. The changes of a primitive are
+ * coalesced: a primitive which has been added and then modified is only added, a primitive which has been added and then
+ * removed is not part of the change set, and a primitive which has been removed and then added again, e.g. by undo, is
+ * modified. Primitives which became complete or incomplete are modified. The changes are coalesced by primitive, not by
+ * id: a primitive whose id changed, e.g. by an upload, is modified, and it is stored with its unique id at the time the
+ * change set is built.
+ * @since xxx
+ */
+public final class DataSetChangeSet {
+
+    /**
+     * The kind of change of a primitive.
+     */
+    public enum Change {
+        /** The primitive has been added to the data set */
+        ADDED,
+        /** The primitive has been removed from the data set, or deleted */
+        REMOVED,
+        /** The primitive has been modified, e.g. its tags, its coordinates, its members or its flags */
+        MODIFIED
+    }
+
+    private static final OsmPrimitiveType[] TYPES = {OsmPrimitiveType.NODE, OsmPrimitiveType.WAY, OsmPrimitiveType.RELATION};
+    private static final Change[] CHANGES = Change.values();
+
+    private final DataSet dataSet;
+    /** The sorted unique ids, indexed by {@code type * 3 + change} */
+    private final long[][] ids;
+    /** The primitives, in the order of {@link #ids} */
+    private final OsmPrimitive[][] primitives;
+    private final Set<DatasetEventType> eventTypes;
+
+    private DataSetChangeSet(DataSet dataSet, long[][] ids, OsmPrimitive[][] primitives, Set<DatasetEventType> eventTypes) {
+        this.dataSet = dataSet;
+        this.ids = ids;
+        this.primitives = primitives;
+        this.eventTypes = eventTypes;
+    }
+
+    /**
+     * Computes the change set of a list of events.
+     * @param dataSet the data set
+     * @param events the events, in the order in which they have been fired
+     * @return the change set, or {@code null} if one of the events is a {@link DataChangedEvent} without any details,
+     * i.e., if the whole data set may have changed
+     */
+    public static DataSetChangeSet of(DataSet dataSet, Collection<? extends AbstractDatasetChangedEvent> events) {
+        final Builder builder = new Builder(dataSet);
+        events.forEach(builder::record);
+        return builder.build();
+    }
+
+    /**
+     * Returns the data set.
+     * @return the data set
+     */
+    public DataSet getDataSet() {
+        return dataSet;
+    }
+
+    private static int typeIndex(OsmPrimitiveType type) {
+        switch (type) {
+        case NODE:
+            return 0;
+        case WAY:
+            return 1;
+        case RELATION:
+            return 2;
+        default:
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the sorted unique ids of the primitives of a type with a given change.
+     * @param type the type, one of {@link OsmPrimitiveType#dataValues()}
+     * @param change the change
+     * @return a new array of the sorted unique ids
+     */
+    public long[] getIds(OsmPrimitiveType type, Change change) {
+        final int t = typeIndex(type);
+        return t < 0 ? new long[0] : ids[t * 3 + change.ordinal()].clone();
+    }
+
+    /**
+     * Returns the primitives of a type with a given change, sorted by their unique id.
+     * @param type the type, one of {@link OsmPrimitiveType#dataValues()}
+     * @param change the change
+     * @return an unmodifiable list of the primitives
+     */
+    public List<OsmPrimitive> getPrimitives(OsmPrimitiveType type, Change change) {
+        final int t = typeIndex(type);
+        return t < 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(primitives[t * 3 + change.ordinal()]));
+    }
+
+    /**
+     * Returns the primitives with a given change: the nodes, then the ways, then the relations.
+     * @param change the change
+     * @return a new list of the primitives
+     */
+    public List<OsmPrimitive> getPrimitives(Change change) {
+        final List<OsmPrimitive> result = new ArrayList<>(size(change));
+        for (int t = 0; t < TYPES.length; t++) {
+            result.addAll(Arrays.asList(primitives[t * 3 + change.ordinal()]));
+        }
+        return result;
+    }
+
+    /**
+     * Determines if a primitive has a given change.
+     * @param primitive the primitive
+     * @param change the change
+     * @return {@code true} if the primitive has the given change
+     */
+    public boolean contains(OsmPrimitive primitive, Change change) {
+        final int t = typeIndex(primitive.getType());
+        if (t < 0) {
+            return false;
+        }
+        final long[] a = ids[t * 3 + change.ordinal()];
+        final OsmPrimitive[] p = primitives[t * 3 + change.ordinal()];
+        final long id = primitive.getUniqueId();
+        final int i = Arrays.binarySearch(a, id);
+        if (i < 0) {
+            return false;
+        }
+        // distinct primitives may share an id, e.g. a removed primitive and the one added in its place
+        for (int j = i; j >= 0 && a[j] == id; j--) {
+            if (p[j] == primitive) {
+                return true;
+            }
+        }
+        for (int j = i + 1; j < a.length && a[j] == id; j++) {
+            if (p[j] == primitive) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines if a primitive has been added, removed or modified.
+     * @param primitive the primitive
+     * @return {@code true} if the primitive has changed
+     */
+    public boolean contains(OsmPrimitive primitive) {
+        for (Change change : CHANGES) {
+            if (contains(primitive, change)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of primitives of a type with a given change.
+     * @param type the type, one of {@link OsmPrimitiveType#dataValues()}
+     * @param change the change
+     * @return the number of primitives
+     */
+    public int size(OsmPrimitiveType type, Change change) {
+        final int t = typeIndex(type);
+        return t < 0 ? 0 : ids[t * 3 + change.ordinal()].length;
+    }
+
+    /**
+     * Returns the number of primitives with a given change.
+     * @param change the change
+     * @return the number of primitives
+     */
+    public int size(Change change) {
+        int size = 0;
+        for (OsmPrimitiveType type : TYPES) {
+            size += size(type, change);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of changed primitives.
+     * @return the number of changed primitives
+     */
+    public int size() {
+        int size = 0;
+        for (long[] a : ids) {
+            size += a.length;
+        }
+        return size;
+    }
+
+    /**
+     * Determines if no primitive has changed.
+     * @return {@code true} if no primitive has changed
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the types of the events which have been fired in the batch, e.g. {@link DatasetEventType#TAGS_CHANGED}.
+     * @return the types of the events
+     */
+    public Set<DatasetEventType> getEventTypes() {
+        return Collections.unmodifiableSet(eventTypes);
+    }
+
+    /**
+     * Returns the change set of this batch followed by another one.
+     * @param next the changes of the next batch
+     * @return the combined change set
+     */
+    public DataSetChangeSet then(DataSetChangeSet next) {
+        final Builder builder = new Builder(dataSet);
+        builder.record(this);
+        builder.record(next);
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        return "DataSetChangeSet [added=" + size(Change.ADDED) + ", removed=" + size(Change.REMOVED)
+                + ", modified=" + size(Change.MODIFIED) + ", events=" + eventTypes + ']';
+    }
+
+    /**
+     * Accumulates the changes of primitives and coalesces the changes of the same primitive.
+     * Not thread-safe, the changes of a data set are recorded with its write lock.
+     */
+    public static final class Builder {
+        // the states of a primitive: EMPTY marks a free slot, GONE a primitive which has been added and removed
+        private static final byte EMPTY = 0;
+        private static final byte ADDED = 1;
+        private static final byte REMOVED = 2;
+        private static final byte MODIFIED = 3;
+        private static final byte GONE = 4;
+
+        /** The next state, indexed by {@code state * 3 + change} */
+        private static final byte[] TRANSITIONS = {
+            // ADDED,   REMOVED,  MODIFIED
+            ADDED,      REMOVED,  MODIFIED, // EMPTY
+            ADDED,      GONE,     ADDED,    // ADDED
+            MODIFIED,   REMOVED,  REMOVED,  // REMOVED
+            MODIFIED,   REMOVED,  MODIFIED, // MODIFIED
+            ADDED,      GONE,     GONE,     // GONE
+        };
+
+        private final DataSet dataSet;
+        private final Table[] tables = {new Table(), new Table(), new Table()};
+        private final Set<DatasetEventType> eventTypes = EnumSet.noneOf(DatasetEventType.class);
+        /** If a change of the whole data set has been recorded */
+        private boolean fullChange;
+
+        /**
+         * Constructs a new {@code Builder}.
+         * @param dataSet the data set
+         */
+        public Builder(DataSet dataSet) {
+            this.dataSet = dataSet;
+        }
+
+        /**
+         * An open addressing table of the states of the primitives of one type, by identity. The ids of the primitives may
+         * change while the changes are recorded, they are only read by {@link Builder#build()}.
+         */
+        private static final class Table {
+            OsmPrimitive[] keys = new OsmPrimitive[16];
+            byte[] states = new byte[16];
+            int size;
+
+            int slot(OsmPrimitive primitive) {
+                final int mask = keys.length - 1;
+                int slot = (int) ((System.identityHashCode(primitive) * 0x9E37_79B9_7F4A_7C15L) >>> 32) & mask;
+                while (states[slot] != EMPTY && keys[slot] != primitive) {
+                    slot = (slot + 1) & mask;
+                }
+                return slot;
+            }
+
+            void record(OsmPrimitive primitive, Change change) {
+                int slot = slot(primitive);
+                if (states[slot] == EMPTY) {
+                    if (size >= keys.length * 3 / 4) {
+                        grow();
+                        slot = slot(primitive);
+                    }
+                    keys[slot] = primitive;
+                    size++;
+                }
+                states[slot] = TRANSITIONS[states[slot] * 3 + change.ordinal()];
+            }
+
+            private void grow() {
+                final OsmPrimitive[] oldKeys = keys;
+                final byte[] oldStates = states;
+                keys = new OsmPrimitive[oldKeys.length * 2];
+                states = new byte[oldKeys.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldStates[i] != EMPTY) {
+                        final int slot = slot(oldKeys[i]);
+                        keys[slot] = oldKeys[i];
+                        states[slot] = oldStates[i];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Records a change of a primitive.
+         * @param primitive the primitive
+         * @param change the change
+         */
+        public void record(OsmPrimitive primitive, Change change) {
+            final int t = typeIndex(primitive.getType());
+            if (t >= 0) {
+                tables[t].record(primitive, change);
+            }
+        }
+
+        /**
+         * Records the changes of an event.
+         * @param event the event
+         * @return {@code false} if the event is a {@link DataChangedEvent} without any details, i.e., if the whole data set
+         * may have changed
+         */
+        public boolean record(AbstractDatasetChangedEvent event) {
+            eventTypes.add(event.getType());
+            if (event instanceof DataChangedEvent) {
+                final DataSetChangeSet changes = ((DataChangedEvent) event).getChangeSet();
+                if (changes == null) {
+                    fullChange = true;
+                    return false;
+                }
+                record(changes);
+            } else if (event instanceof PrimitivesAddedEvent) {
+                record(event.getPrimitives(), ((PrimitivesAddedEvent) event).wasIncomplete() ? Change.MODIFIED : Change.ADDED);
+            } else if (event instanceof PrimitivesRemovedEvent) {
+                record(event.getPrimitives(), ((PrimitivesRemovedEvent) event).wasComplete() ? Change.MODIFIED : Change.REMOVED);
+            } else {
+                record(event.getPrimitives(), Change.MODIFIED);
+            }
+            return true;
+        }
+
+        private void record(Collection<? extends OsmPrimitive> primitives, Change change) {
+            for (OsmPrimitive primitive : primitives) {
+                record(primitive, change);
+            }
+        }
+
+        /**
+         * Records the changes of a previous change set.
+         * @param changes the change set
+         */
+        public void record(DataSetChangeSet changes) {
+            eventTypes.addAll(changes.eventTypes);
+            for (int i = 0; i < changes.primitives.length; i++) {
+                for (OsmPrimitive primitive : changes.primitives[i]) {
+                    tables[i / 3].record(primitive, CHANGES[i % 3]);
+                }
+            }
+        }
+
+        /**
+         * Builds the change set.
+         * @return the change set, or {@code null} if a {@link DataChangedEvent} without any details has been recorded,
+         * i.e., if the whole data set may have changed
+         */
+        public DataSetChangeSet build() {
+            if (fullChange) {
+                return null;
+            }
+            final long[][] ids = new long[TYPES.length * 3][];
+            final OsmPrimitive[][] primitives = new OsmPrimitive[TYPES.length * 3][];
+            for (int t = 0; t < TYPES.length; t++) {
+                final Table table = tables[t];
+                for (Change change : CHANGES) {
+                    // the states ADDED, REMOVED and MODIFIED follow the order of the changes
+                    final byte state = (byte) (change.ordinal() + 1);
+                    int count = 0;
+                    for (byte s : table.states) {
+                        if (s == state) {
+                            count++;
+                        }
+                    }
+                    final OsmPrimitive[] p = new OsmPrimitive[count];
+                    count = 0;
+                    for (int i = 0; i < table.keys.length; i++) {
+                        if (table.states[i] == state) {
+                            p[count++] = table.keys[i];
+                        }
+                    }
+                    Arrays.sort(p, Comparator.comparingLong(OsmPrimitive::getUniqueId));
+                    final long[] a = new long[count];
+                    for (int i = 0; i < count; i++) {
+                        a[i] = p[i].getUniqueId();
+                    }
+                    ids[t * 3 + change.ordinal()] = a;
+                    primitives[t * 3 + change.ordinal()] = p;
+                }
+            }
+            return new DataSetChangeSet(dataSet, ids, primitives, EnumSet.copyOf(eventTypes));
+        }
+    }
+}
@@ -2,7 +2,7 @@
 package org.openstreetmap.josm.data.osm.event;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Queue;
@@ -50,39 +50,7 @@ public class DatasetEventManager implements ActiveLayerChangeListener, Listener
 
                     dataSet = event.getDataset();
 
-                    // Build consolidated event
-                    if (event instanceof DataChangedEvent) {
-                        // DataChangeEvent can contains other events, so it gets special handling
-                        DataChangedEvent dataEvent = (DataChangedEvent) event;
-                        if (dataEvent.getEvents() == null) {
-                            consolidatedEvent = dataEvent; // Dataset was completely changed, we can ignore older events
-                        } else {
-                            if (consolidatedEvent == null) {
-                                consolidatedEvent = new DataChangedEvent(dataSet, dataEvent.getEvents());
-                            } else if (consolidatedEvent instanceof DataChangedEvent) {
-                                List<AbstractDatasetChangedEvent> evts = ((DataChangedEvent) consolidatedEvent).getEvents();
-                                if (evts != null) {
-                                    evts.addAll(dataEvent.getEvents());
-                                }
-                            } else {
-                                AbstractDatasetChangedEvent oldConsolidateEvent = consolidatedEvent;
-                                consolidatedEvent = new DataChangedEvent(dataSet, dataEvent.getEvents());
-                                ((DataChangedEvent) consolidatedEvent).getEvents().add(oldConsolidateEvent);
-                            }
-                        }
-                    } else {
-                        // Normal events
-                        if (consolidatedEvent == null) {
-                            consolidatedEvent = event;
-                        } else if (consolidatedEvent instanceof DataChangedEvent) {
-                            List<AbstractDatasetChangedEvent> evs = ((DataChangedEvent) consolidatedEvent).getEvents();
-                            if (evs != null) {
-                                evs.add(event);
-                            }
-                        } else {
-                            consolidatedEvent = new DataChangedEvent(dataSet, new ArrayList<>(Arrays.asList(consolidatedEvent)));
-                        }
-                    }
+                    consolidatedEvent = consolidate(dataSet, consolidatedEvent, event);
                 }
 
                 // Fire consolidated event
@@ -93,6 +61,55 @@ public class DatasetEventManager implements ActiveLayerChangeListener, Listener
         }
     }
 
+    /**
+     * Merges an event into the consolidated event of the previous events of the same dataset.
+     * @param dataSet the dataset
+     * @param consolidated the consolidated event of the previous events, can be {@code null}
+     * @param event the event
+     * @return the consolidated event of the previous events and the event
+     */
+    private static AbstractDatasetChangedEvent consolidate(DataSet dataSet, AbstractDatasetChangedEvent consolidated,
+            AbstractDatasetChangedEvent event) {
+        if (isFullChange(event)) {
+            return event; // Dataset was completely changed, we can ignore older events
+        } else if (consolidated == null) {
+            // DataChangeEvent can contains other events, copy them so that more events can be added
+            List<AbstractDatasetChangedEvent> events = getEvents(event);
+            return event instanceof DataChangedEvent && events != null ? new DataChangedEvent(dataSet, new ArrayList<>(events)) : event;
+        } else if (isFullChange(consolidated)) {
+            return consolidated;
+        }
+        List<AbstractDatasetChangedEvent> previousEvents = getEvents(consolidated);
+        List<AbstractDatasetChangedEvent> events = getEvents(event);
+        if (previousEvents != null && events != null) {
+            if (consolidated instanceof DataChangedEvent) {
+                // created above, so its list can be modified
+                previousEvents.addAll(events);
+                return consolidated;
+            }
+            List<AbstractDatasetChangedEvent> merged = new ArrayList<>(events.size() + 1);
+            merged.add(consolidated);
+            merged.addAll(events);
+            return new DataChangedEvent(dataSet, merged);
+        }
+        // large batches only keep the net changes of their events
+        return new DataChangedEvent(dataSet, null, getChangeSet(dataSet, consolidated).then(getChangeSet(dataSet, event)));
+    }
+
+    private static boolean isFullChange(AbstractDatasetChangedEvent event) {
+        return event instanceof DataChangedEvent && ((DataChangedEvent) event).isFullChange();
+    }
+
+    private static List<AbstractDatasetChangedEvent> getEvents(AbstractDatasetChangedEvent event) {
+        return event instanceof DataChangedEvent ? ((DataChangedEvent) event).getEvents() : Collections.singletonList(event);
+    }
+
+    private static DataSetChangeSet getChangeSet(DataSet dataSet, AbstractDatasetChangedEvent event) {
+        return event instanceof DataChangedEvent
+                ? ((DataChangedEvent) event).getChangeSet()
+                : DataSetChangeSet.of(dataSet, Collections.singletonList(event));
+    }
+
     /**
      * Event firing mode regarding Event Dispatch Thread.
      */
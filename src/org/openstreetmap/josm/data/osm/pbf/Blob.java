@@ -4,6 +4,9 @@ package org.openstreetmap.josm.data.osm.pbf;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
@@ -101,4 +104,43 @@ public final class Blob {
                 throw new IOException("unknown compression type is not currently supported: " + this.compressionType.name());
         }
     }
+
+    /**
+     * Get the decompressed bytes of this blob. When the raw size is known, zlib data is inflated directly into an array of the
+     * right size, avoiding the intermediate copies of {@link #inputStream()}.
+     * @return A buffer with the decompressed bytes
+     * @throws IOException if we don't support the compression type <i>or</i> the data could not be decompressed
+     * @since xxx
+     */
+    @Nonnull
+    public ByteBuffer decompress() throws IOException {
+        if (this.compressionType == CompressionType.raw) {
+            return ByteBuffer.wrap(this.bytes);
+        } else if (this.compressionType == CompressionType.zlib && this.rawSize != null && this.rawSize >= 0) {
+            final Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(this.bytes);
+                final byte[] raw = new byte[this.rawSize];
+                int read = 0;
+                while (read < raw.length && !inflater.finished()) {
+                    final int inflated = inflater.inflate(raw, read, raw.length - read);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    read += inflated;
+                }
+                if (read != raw.length) {
+                    throw new IOException("zlib blob is shorter than its raw size: " + read + " < " + raw.length);
+                }
+                return ByteBuffer.wrap(raw);
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            } finally {
+                inflater.end();
+            }
+        }
+        try (InputStream inputStream = this.inputStream()) {
+            return ByteBuffer.wrap(inputStream.readAllBytes());
+        }
+    }
 }
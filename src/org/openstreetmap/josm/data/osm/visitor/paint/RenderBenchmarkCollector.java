@@ -1,7 +1,10 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm.visitor.paint;
 
+import java.awt.Rectangle;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Supplier;
 
@@ -45,6 +48,16 @@ public class RenderBenchmarkCollector {
         return true;
     }
 
+    /**
+     * Notified when a tile has been painted and drawn, if the records are painted in parallel tiles.
+     * This is called on the rendering thread, in the order of the tiles.
+     * @param tile The times of the tile
+     * @since xxx
+     */
+    public void renderTile(TileTimes tile) {
+        // nop
+    }
+
     /**
      * Notified when the render method is done.
      */
@@ -52,6 +65,82 @@ public class RenderBenchmarkCollector {
      // nop
     }
 
+    /**
+     * The phases of painting a tile of the view, see {@link StyledMapRenderer#PREFERENCE_PARALLEL_TILES}.
+     * @since xxx
+     */
+    public static final class TileTimes {
+        private final Rectangle tile;
+        private final int recordCount;
+        private final long selectTime;
+        private final long paintTime;
+        private final long compositeTime;
+
+        /**
+         * Constructs a new {@code TileTimes}.
+         * @param tile The tile in view coordinates
+         * @param recordCount The number of style records painted in the tile
+         * @param selectTime The time needed to select the records of the tile, in nanoseconds
+         * @param paintTime The time needed to paint the records into the image of the tile, in nanoseconds
+         * @param compositeTime The time needed to draw the image of the tile in the view, in nanoseconds
+         */
+        public TileTimes(Rectangle tile, int recordCount, long selectTime, long paintTime, long compositeTime) {
+            this.tile = new Rectangle(tile);
+            this.recordCount = recordCount;
+            this.selectTime = selectTime;
+            this.paintTime = paintTime;
+            this.compositeTime = compositeTime;
+        }
+
+        /**
+         * Get the tile
+         * @return The tile in view coordinates
+         */
+        public Rectangle getTile() {
+            return new Rectangle(tile);
+        }
+
+        /**
+         * Get the number of style records painted in the tile
+         * @return The number of records
+         */
+        public int getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * Get the time needed to select the records of the tile
+         * @return The time in nanoseconds
+         */
+        public long getSelectTime() {
+            return selectTime;
+        }
+
+        /**
+         * Get the time needed to paint the records into the image of the tile
+         * @return The time in nanoseconds
+         */
+        public long getPaintTime() {
+            return paintTime;
+        }
+
+        /**
+         * Get the time needed to draw the image of the tile in the view
+         * @return The time in nanoseconds
+         */
+        public long getCompositeTime() {
+            return compositeTime;
+        }
+
+        @Override
+        public String toString() {
+            return "tile " + tile.x + ',' + tile.y + ' ' + tile.width + 'x' + tile.height + ": " + recordCount + " records"
+                    + "; select: " + Utils.getDurationString(selectTime / 1_000_000)
+                    + "; paint: " + Utils.getDurationString(paintTime / 1_000_000)
+                    + "; composite: " + Utils.getDurationString(compositeTime / 1_000_000);
+        }
+    }
+
     /**
      * A benchmark implementation that captures the times
      * @author Michael Zangl
@@ -61,10 +150,13 @@ public class RenderBenchmarkCollector {
         protected long timeGenerateDone;
         protected long timeSortingDone;
         protected long timeFinished;
+        /** The times of the tiles, if the records were painted in parallel tiles */
+        protected final List<TileTimes> tileTimes = new ArrayList<>();
 
         @Override
         public void renderStart(double circum) {
             timeStart = getCurrentTimeMilliseconds();
+            tileTimes.clear();
             super.renderStart(circum);
         }
 
@@ -96,6 +188,12 @@ public class RenderBenchmarkCollector {
             return timeSortingDone - timeGenerateDone;
         }
 
+        @Override
+        public void renderTile(TileTimes tile) {
+            tileTimes.add(tile);
+            super.renderTile(tile);
+        }
+
         @Override
         public void renderDone() {
             timeFinished = getCurrentTimeMilliseconds();
@@ -109,6 +207,15 @@ public class RenderBenchmarkCollector {
         public long getDrawTime() {
             return timeFinished - timeGenerateDone;
         }
+
+        /**
+         * Get the times of the tiles
+         * @return The times of the tiles, empty if the records were not painted in parallel tiles
+         * @since xxx
+         */
+        public List<TileTimes> getTileTimes() {
+            return Collections.unmodifiableList(tileTimes);
+        }
     }
 
     public static long getCurrentTimeMilliseconds() {
@@ -143,6 +250,9 @@ public class RenderBenchmarkCollector {
             outStream.println("; phase 2 (draw): " + Utils.getDurationString(timeFinished - timeGenerateDone) +
                     "; total: " + Utils.getDurationString(timeFinished - timeStart) +
                     " (scale: " + circum + " zoom level: " + Selector.GeneralSelector.scale2level(circum) + ')');
+            for (TileTimes tile : tileTimes) {
+                outStream.println("BENCHMARK:   " + tile);
+            }
         }
     }
 
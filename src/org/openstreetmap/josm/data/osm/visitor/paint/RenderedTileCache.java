@@ -0,0 +1,276 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.image.BufferedImage;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+
+import org.apache.commons.jcs3.access.CacheAccess;
+import org.apache.commons.jcs3.engine.behavior.ICache;
+import org.openstreetmap.josm.data.cache.BufferedImageCacheEntry;
+import org.openstreetmap.josm.data.cache.JCSCacheManager;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.INode;
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.IRelation;
+import org.openstreetmap.josm.data.osm.IRelationMember;
+import org.openstreetmap.josm.data.osm.IWay;
+import org.openstreetmap.josm.data.osm.OsmData;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.gui.mappaint.ElemStyles;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.MapPaintStylesUpdateListener;
+import org.openstreetmap.josm.gui.mappaint.StyleSource;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.spi.preferences.AbstractPreferences;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.spi.preferences.PreferenceChangeEvent;
+import org.openstreetmap.josm.spi.preferences.PreferenceChangedListener;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A persistent cache of the tiles rendered by {@link StyledTiledMapRenderer}, so that the tiles of a data set do not
+ * have to be rendered again when it is opened again, e.g. with a session.
+ * <p>
+ * The key of a tile consists of the projection, the digest of the map paint styles and the rendering preferences, the
+ * revision of the data in the render area of the tile, and the zoom, the coordinates and the size of the tile. The revision is a digest
+ * of the primitives which are painted in the tile, including their tags, their geometry and their selection state. So
+ * a change of the data set only changes the keys of the tiles whose render area intersects the changed primitives,
+ * the tiles with the old keys are never read again and are evicted from the disk cache.
+ * @since xxx
+ */
+public final class RenderedTileCache implements MapPaintStylesUpdateListener, PreferenceChangedListener {
+
+    /** Whether the rendered tiles are stored on disk */
+    public static final BooleanProperty PREF_DISK_CACHE = new BooleanProperty("mappaint.fast_render.disk_cache", false);
+    /** The maximum size of the disk cache in kB */
+    public static final IntegerProperty PREF_DISK_CACHE_SIZE = new IntegerProperty("mappaint.fast_render.disk_cache.size", 256_000);
+
+    private static RenderedTileCache instance;
+
+    private final CacheAccess<String, BufferedImageCacheEntry> cache;
+    /** The digest of the styles and the preferences, {@code null} if it has to be computed again */
+    private volatile String styleDigest;
+
+    private RenderedTileCache(CacheAccess<String, BufferedImageCacheEntry> cache) {
+        this.cache = cache;
+        MapPaintStyles.addMapPaintStylesUpdateListener(this);
+        Config.getPref().addPreferenceChangeListener(this);
+    }
+
+    /**
+     * Returns the unique instance, which creates the disk cache on first use.
+     * @return the unique instance
+     */
+    public static synchronized RenderedTileCache getInstance() {
+        if (instance == null) {
+            instance = new RenderedTileCache(JCSCacheManager.getCache("mappaint-tiles", 0, PREF_DISK_CACHE_SIZE.get(),
+                    Config.getDirs().getCacheDirectory(true).getPath() + File.separator + "mappaint-tiles"));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the key of a tile in the cache.
+     * The caller has to hold the read lock of the data set until the tile is rendered, otherwise the key may not match the
+     * rendered data.
+     * @param data the data set which is rendered
+     * @param tile the tile
+     * @param tileSize the size of the tile in pixels
+     * @param renderArea the area which is rendered for the tile
+     * @return the key of the tile, or {@code null} if the data set could not be locked
+     */
+    public String getKey(OsmData<?, ?, ?, ?> data, TileZXY tile, int tileSize, BBox renderArea) {
+        String styles = styleDigest;
+        if (styles == null) {
+            styles = getStyleDigest(MapPaintStyles.getStyles());
+            styleDigest = styles;
+        }
+        final Lock readLock = data.getReadLock();
+        if (!readLock.tryLock()) {
+            return null;
+        }
+        try {
+            return String.join(ICache.NAME_COMPONENT_DELIMITER, ProjectionRegistry.getProjection().toCode(), styles,
+                    getDataDigest(data, renderArea), tile.zoom() + "/" + tile.x() + '/' + tile.y(), Integer.toString(tileSize));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a tile from the cache.
+     * @param key the key of the tile
+     * @return the image of the tile, or {@code null} if it is not in the cache
+     */
+    public BufferedImage get(String key) {
+        if (cache == null) {
+            return null;
+        }
+        try {
+            final BufferedImageCacheEntry entry = cache.get(key);
+            return entry != null ? entry.getImage() : null;
+        } catch (IOException e) {
+            Logging.warn(e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a tile in the cache.
+     * @param key the key of the tile
+     * @param image the image of the tile
+     */
+    public void put(String key, BufferedImage image) {
+        if (cache != null) {
+            try {
+                cache.put(key, BufferedImageCacheEntry.pngEncoded(image));
+            } catch (UncheckedIOException e) {
+                Logging.warn(e);
+            }
+        }
+    }
+
+    /**
+     * Removes all tiles from the cache.
+     */
+    public void clear() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public void mapPaintStylesUpdated() {
+        styleDigest = null;
+    }
+
+    @Override
+    public void mapPaintStyleEntryUpdated(int index) {
+        styleDigest = null;
+    }
+
+    @Override
+    public void preferenceChanged(PreferenceChangeEvent e) {
+        if (e.getKey().startsWith("mappaint.") || e.getKey().startsWith("color.")) {
+            styleDigest = null;
+        }
+    }
+
+    /**
+     * Computes the digest of the active styles, their settings, and the rendering preferences.
+     * @param styles the styles
+     * @return the digest
+     */
+    static String getStyleDigest(ElemStyles styles) {
+        final StringBuilder sb = new StringBuilder();
+        for (StyleSource source : styles.getStyleSources()) {
+            if (source.active) {
+                sb.append('\n').append(source.url).append(new TreeMap<>(source.settingValues));
+                if (source instanceof MapCSSStyleSource) {
+                    ((MapCSSStyleSource) source).rules.forEach(rule -> sb.append('\n').append(rule));
+                }
+            }
+        }
+        if (Config.getPref() instanceof AbstractPreferences) {
+            final AbstractPreferences preferences = (AbstractPreferences) Config.getPref();
+            for (String prefix : new String[] {"mappaint.", "color."}) {
+                preferences.getAllPrefix(prefix).forEach((k, v) -> sb.append('\n').append(k).append('=').append(v));
+            }
+        }
+        return Utils.md5Hex(sb.toString());
+    }
+
+    /**
+     * Computes the revision of the data in an area, from the primitives which are painted in this area.
+     * The caller must hold the read lock of the data set.
+     * @param data the data set
+     * @param area the area
+     * @return the digest of the primitives in the area
+     */
+    static String getDataDigest(OsmData<?, ?, ?, ?> data, BBox area) {
+        final MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new JosmRuntimeException(e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), md))) {
+            for (List<? extends IPrimitive> primitives : List.of(data.searchNodes(area), data.searchWays(area), data.searchRelations(area))) {
+                final List<IPrimitive> sorted = new ArrayList<>(primitives);
+                sorted.sort(Comparator.comparingLong(IPrimitive::getUniqueId));
+                out.writeInt(sorted.size());
+                for (IPrimitive p : sorted) {
+                    writePrimitive(out, p);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Utils.toHexString(md.digest());
+    }
+
+    private static void writePrimitive(DataOutputStream out, IPrimitive p) throws IOException {
+        out.writeByte(p.getType().ordinal());
+        // the ids of new primitives are not the same when the data is loaded again
+        out.writeLong(p.isNew() ? 0 : p.getId());
+        out.writeInt(StyledMapRenderer.computeFlags(p, true));
+        out.writeBoolean(p.isHighlighted());
+        out.writeBoolean(p.isDeleted());
+        out.writeBoolean(p.isIncomplete());
+        for (Map.Entry<String, String> tag : new TreeMap<>(p.getKeys()).entrySet()) {
+            out.writeUTF(tag.getKey());
+            out.writeUTF(tag.getValue());
+        }
+        out.writeByte(0);
+        if (p instanceof INode) {
+            writeCoordinates(out, (INode) p);
+        } else if (p instanceof IWay) {
+            writeNodes(out, (IWay<?>) p);
+        } else if (p instanceof IRelation) {
+            for (IRelationMember<?> member : ((IRelation<?>) p).getMembers()) {
+                out.writeUTF(member.getRole());
+                final IPrimitive m = member.getMember();
+                out.writeByte(m.getType().ordinal());
+                out.writeLong(m.isNew() ? 0 : m.getId());
+                // the geometry of the members, e.g. of multipolygons which cover the whole area
+                if (m instanceof INode) {
+                    writeCoordinates(out, (INode) m);
+                } else if (m instanceof IWay) {
+                    writeNodes(out, (IWay<?>) m);
+                }
+            }
+        }
+    }
+
+    private static void writeNodes(DataOutputStream out, IWay<?> way) throws IOException {
+        out.writeInt(way.getNodesCount());
+        for (INode n : way.getNodes()) {
+            writeCoordinates(out, n);
+        }
+    }
+
+    private static void writeCoordinates(DataOutputStream out, INode n) throws IOException {
+        out.writeBoolean(n.isLatLonKnown());
+        if (n.isLatLonKnown()) {
+            out.writeDouble(n.lat());
+            out.writeDouble(n.lon());
+        }
+    }
+}
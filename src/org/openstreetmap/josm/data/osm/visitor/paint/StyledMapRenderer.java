@@ -28,13 +28,14 @@ import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.function.BiConsumer;
@@ -46,6 +47,7 @@ import javax.swing.FocusManager;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.IPrimitive;
@@ -70,11 +72,14 @@ import org.openstreetmap.josm.gui.draw.MapViewPath;
 import org.openstreetmap.josm.gui.draw.MapViewPositionAndRotation;
 import org.openstreetmap.josm.gui.mappaint.ElemStyles;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.styleelement.AreaElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement.HorizontalTextAlignment;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement.VerticalTextAlignment;
 import org.openstreetmap.josm.gui.mappaint.styleelement.DefaultStyles;
+import org.openstreetmap.josm.gui.mappaint.styleelement.LineElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.MapImage;
+import org.openstreetmap.josm.gui.mappaint.styleelement.RepeatImageElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.RepeatImageElement.LineImageAlignment;
 import org.openstreetmap.josm.gui.mappaint.styleelement.StyleElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.Symbol;
@@ -240,7 +245,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
-    private static final Map<Font, Boolean> IS_GLYPH_VECTOR_DOUBLE_TRANSLATION_BUG = new HashMap<>();
+    private static final Map<Font, Boolean> IS_GLYPH_VECTOR_DOUBLE_TRANSLATION_BUG = new ConcurrentHashMap<>();
 
     /**
      * Check, if this System has the GlyphVector double translation bug.
@@ -341,6 +346,32 @@ public class StyledMapRenderer extends AbstractMapRenderer {
      */
     public static final AbstractProperty<String> PREFERENCE_TEXT_ANTIALIASING
             = new StringProperty("mappaint.text-antialiasing", "default").cached();
+    /**
+     * Indicates that the style records are painted in tiles of the view in parallel, see {@link #paintTiles}
+     * @since xxx
+     */
+    public static final AbstractProperty<Boolean> PREFERENCE_PARALLEL_TILES
+            = new BooleanProperty("mappaint.render.parallel-tiles", false).cached();
+    /**
+     * The size of the tiles in pixels, if the style records are painted in parallel
+     * @since xxx
+     */
+    public static final AbstractProperty<Integer> PREFERENCE_PARALLEL_TILES_SIZE
+            = new IntegerProperty("mappaint.render.parallel-tiles.size", 512).cached();
+    /**
+     * The distance in pixels from the bounds of a primitive in which its lines and areas are painted,
+     * if the style records are painted in parallel
+     * @since xxx
+     */
+    public static final AbstractProperty<Integer> PREFERENCE_PARALLEL_TILES_MARGIN
+            = new IntegerProperty("mappaint.render.parallel-tiles.margin", 64).cached();
+    /**
+     * The distance in pixels from the bounds of a primitive in which its icons and labels are painted,
+     * if the style records are painted in parallel
+     * @since xxx
+     */
+    public static final AbstractProperty<Integer> PREFERENCE_PARALLEL_TILES_LABEL_MARGIN
+            = new IntegerProperty("mappaint.render.parallel-tiles.label-margin", 256).cached();
 
     /**
      * The line with to use for highlighting
@@ -1692,8 +1723,12 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                 return;
             }
 
-            for (StyleRecord styleRecord : sorted) {
-                paintRecord(styleRecord);
+            if (canPaintTiles()) {
+                paintTiles(sorted, renderVirtualNodes, benchmark);
+            } else {
+                for (StyleRecord styleRecord : sorted) {
+                    paintRecord(styleRecord);
+                }
             }
 
             drawVirtualNodes(data, bbox);
@@ -1709,6 +1744,159 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         }
     }
 
+    /**
+     * Determines if the style records can be painted in parallel tiles. The tiles are drawn with the transformation and
+     * the composite of the graphics context, so it must not scale the images, and must draw them as if they were painted
+     * directly. Subclasses may override the painting methods, which are not called by the renderers of the tiles.
+     * @return {@code true} if {@link #paintTiles} can be used
+     */
+    private boolean canPaintTiles() {
+        if (!Boolean.TRUE.equals(PREFERENCE_PARALLEL_TILES.get()) || THREAD_POOL == null || THREAD_POOL.getParallelism() < 2
+                || (getClass() != StyledMapRenderer.class && getClass() != StyledTiledMapRenderer.class)) {
+            return false;
+        }
+        final AffineTransform transform = g.getTransform();
+        return (transform.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0
+                && transform.getTranslateX() == Math.rint(transform.getTranslateX())
+                && transform.getTranslateY() == Math.rint(transform.getTranslateY())
+                && AlphaComposite.SrcOver.equals(g.getComposite());
+    }
+
+    /**
+     * Paints the sorted style records in tiles of the view. The records of each tile are painted into an image by a
+     * separate renderer on the {@link #THREAD_POOL}, then the images are drawn in the view in the order of the tiles.
+     * <p>
+     * A record is painted in every tile which intersects the bounds of its primitive in the view, extended by a margin for
+     * the line widths, icons and labels. The renderers of the tiles are clipped to the tiles, so the result is the same as
+     * painting all records in the view, unless a style paints farther from the primitive than the margin.
+     * @param sorted The sorted style records
+     * @param renderVirtualNodes if virtual nodes are rendered, for the settings of the renderers of the tiles
+     * @param benchmark The benchmark which is notified of the times of each tile
+     */
+    private void paintTiles(StyleRecord[] sorted, boolean renderVirtualNodes, RenderBenchmarkCollector benchmark) {
+        final int margin = PREFERENCE_PARALLEL_TILES_MARGIN.get();
+        final int labelMargin = PREFERENCE_PARALLEL_TILES_LABEL_MARGIN.get();
+        final Rectangle[] bounds = THREAD_POOL.submit(() -> Arrays.stream(sorted).parallel()
+                .map(r -> getBoundsInView(r, margin, labelMargin))
+                .toArray(Rectangle[]::new)).join();
+
+        final List<ForkJoinTask<RenderBenchmarkCollector.TileTimes>> tasks = new ArrayList<>();
+        final List<BufferedImage> images = new ArrayList<>();
+        for (Rectangle tile : getTiles()) {
+            final BufferedImage image = new BufferedImage(tile.width, tile.height, BufferedImage.TYPE_INT_ARGB_PRE);
+            final Graphics2D tileGraphics = image.createGraphics();
+            tileGraphics.setRenderingHints(g.getRenderingHints());
+            tileGraphics.translate(-tile.x, -tile.y);
+            tileGraphics.clip(tile);
+            final StyledMapRenderer renderer = new StyledMapRenderer(tileGraphics, nc, isInactiveMode);
+            renderer.styles = styles;
+            renderer.doSlowOperations = doSlowOperations;
+            renderer.getSettings(renderVirtualNodes);
+            renderer.highlightWaySegments = highlightWaySegments;
+            images.add(image);
+            tasks.add(THREAD_POOL.submit(() -> {
+                try {
+                    return renderer.paintTile(tile, sorted, bounds);
+                } finally {
+                    tileGraphics.dispose();
+                }
+            }));
+        }
+
+        for (int i = 0; i < tasks.size(); i++) {
+            final RenderBenchmarkCollector.TileTimes painted = tasks.get(i).join();
+            final long compositeStart = System.nanoTime();
+            g.drawImage(images.get(i), painted.getTile().x, painted.getTile().y, null);
+            benchmark.renderTile(new RenderBenchmarkCollector.TileTimes(painted.getTile(), painted.getRecordCount(),
+                    painted.getSelectTime(), painted.getPaintTime(), System.nanoTime() - compositeStart));
+        }
+    }
+
+    /**
+     * Paints the style records which intersect a tile. This renderer must be clipped to the tile.
+     * @param tile The tile in view coordinates
+     * @param sorted The sorted style records
+     * @param bounds The bounds of the records in the view, {@code null} for records which may be painted anywhere
+     * @return The times of the tile, without the composite time
+     */
+    private RenderBenchmarkCollector.TileTimes paintTile(Rectangle tile, StyleRecord[] sorted, Rectangle[] bounds) {
+        final long selectStart = System.nanoTime();
+        final List<StyleRecord> records = new ArrayList<>();
+        for (int i = 0; i < sorted.length; i++) {
+            if (bounds[i] == null || bounds[i].intersects(tile)) {
+                records.add(sorted[i]);
+            }
+        }
+        final long paintStart = System.nanoTime();
+        for (StyleRecord styleRecord : records) {
+            paintRecord(styleRecord);
+        }
+        return new RenderBenchmarkCollector.TileTimes(tile, records.size(), paintStart - selectStart, System.nanoTime() - paintStart, 0);
+    }
+
+    /**
+     * Splits the visible part of the view into tiles of {@link #PREFERENCE_PARALLEL_TILES_SIZE}.
+     * @return The tiles in view coordinates
+     */
+    private List<Rectangle> getTiles() {
+        Rectangle view = new Rectangle(0, 0, (int) Math.ceil(mapState.getViewWidth()), (int) Math.ceil(mapState.getViewHeight()));
+        final Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            view = view.intersection(clip);
+        }
+        final int size = Math.max(64, PREFERENCE_PARALLEL_TILES_SIZE.get());
+        final List<Rectangle> tiles = new ArrayList<>();
+        for (int y = view.y; y < view.y + view.height; y += size) {
+            for (int x = view.x; x < view.x + view.width; x += size) {
+                tiles.add(new Rectangle(x, y, Math.min(size, view.x + view.width - x), Math.min(size, view.y + view.height - y)));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Computes the bounds of the primitive of a style record in the view, extended by the margin of the style.
+     * @param styleRecord The style record
+     * @param margin The margin of lines and areas
+     * @param labelMargin The margin of icons and labels
+     * @return The bounds in view coordinates, or {@code null} if the record may be painted anywhere
+     */
+    private Rectangle getBoundsInView(StyleRecord styleRecord, int margin, int labelMargin) {
+        final IPrimitive osm = styleRecord.osm;
+        final StyleElement style = styleRecord.style;
+        final int extent = style instanceof LineElement || style instanceof AreaElement || style instanceof RepeatImageElement
+                ? margin : labelMargin;
+        final Rectangle2D.Double bounds = new Rectangle2D.Double();
+        if (osm instanceof INode) {
+            if (!((INode) osm).isLatLonKnown()) {
+                return null;
+            }
+            final MapViewPoint p = mapState.getPointFor((INode) osm);
+            bounds.setRect(p.getInViewX(), p.getInViewY(), 0, 0);
+        } else {
+            final BBox bbox = osm.getBBox();
+            if (bbox == null || !bbox.isValid()) {
+                return null;
+            }
+            // the corners of the bounding box, which is not a rectangle in the view in all projections
+            final MapViewPoint p = mapState.getPointFor(bbox.getTopLeft());
+            bounds.setRect(p.getInViewX(), p.getInViewY(), 0, 0);
+            for (LatLon corner : new LatLon[] {bbox.getBottomRight(),
+                    new LatLon(bbox.getTopLeftLat(), bbox.getBottomRightLon()),
+                    new LatLon(bbox.getBottomRightLat(), bbox.getTopLeftLon())}) {
+                final MapViewPoint q = mapState.getPointFor(corner);
+                bounds.add(q.getInViewX(), q.getInViewY());
+            }
+        }
+        // clamp to the view, the coordinates of large primitives may not fit into an int
+        final double width = mapState.getViewWidth() + 1;
+        final double height = mapState.getViewHeight() + 1;
+        final int x = (int) Math.floor(Utils.clamp(bounds.getMinX() - extent, -1, width));
+        final int y = (int) Math.floor(Utils.clamp(bounds.getMinY() - extent, -1, height));
+        return new Rectangle(x, y, (int) Math.ceil(Utils.clamp(bounds.getMaxX() + extent, -1, width)) + 1 - x,
+                (int) Math.ceil(Utils.clamp(bounds.getMaxY() + extent, -1, height)) + 1 - y);
+    }
+
     private void paintRecord(StyleRecord styleRecord) {
         try {
             styleRecord.paintPrimitive(paintSettings, this);
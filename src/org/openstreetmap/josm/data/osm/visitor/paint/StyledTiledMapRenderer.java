@@ -16,14 +16,19 @@ import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.IntSummaryStatistics;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -51,6 +56,7 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
     private CacheAccess<TileZXY, ImageCache> cache;
     private int zoom;
     private Consumer<TileZXY> notifier;
+    private RenderedTileCache diskCache;
     private final ExecutorService worker;
 
     /**
@@ -185,11 +191,13 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
      * @param cache The cache to use
      * @param zoom The zoom level to use for creating the tiles
      * @param notifier The method to call when a tile has been updated. This may or may not be called in the EDT.
+     * If {@link RenderedTileCache#PREF_DISK_CACHE} is enabled, the tiles are also looked up and stored in the {@link RenderedTileCache}.
      */
     public void setCache(Bounds box, CacheAccess<TileZXY, ImageCache> cache, int zoom, Consumer<TileZXY> notifier) {
         this.cache = cache;
         this.zoom = zoom;
         this.notifier = notifier != null ? notifier : tile -> { /* Do nothing */ };
+        this.diskCache = Boolean.TRUE.equals(RenderedTileCache.PREF_DISK_CACHE.get()) ? RenderedTileCache.getInstance() : null;
 
         Set<TileZXY> tiles = TileZXY.boundsToTiles(box.getMinLat(), box.getMinLon(), box.getMaxLat(), box.getMaxLon(), zoom)
                 .collect(Collectors.toSet());
@@ -301,6 +309,8 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
         private boolean cancel;
         private final Collection<TileLoader> tileCollection;
         private boolean done;
+        /** The key of the tile in the disk cache, {@code null} if the disk cache is not used */
+        private String diskCacheKey;
 
         /**
          * Create a new tile loader
@@ -322,22 +332,83 @@ public final class StyledTiledMapRenderer extends StyledMapRenderer {
             if (!cancel) {
                 synchronized (tileCollection) {
                     if (!done) {
-                        final BufferedImage tImage = generateTiles(data,
-                                tileCollection.stream().map(t -> t.tile).collect(Collectors.toList()), tileSize);
-                        final int minX = tileCollection.stream().map(t -> t.tile).mapToInt(TileZXY::x).min().orElse(this.tile.x());
-                        final int minY = tileCollection.stream().map(t -> t.tile).mapToInt(TileZXY::y).min().orElse(this.tile.y());
-                        for (TileLoader loader : tileCollection) {
-                            final TileZXY txy = loader.tile;
-                            final int x = (txy.x() - minX) * tileSize;
-                            final int y = (txy.y() - minY) * tileSize;
-                            final int wh = tileSize;
+                        loadTiles();
+                    }
+                }
+            }
+        }
+
+        private void loadTiles() {
+            // The keys of the disk cache are computed under the same read lock as the rendering, so that a tile is never
+            // stored under the key of other data. The rendering takes this lock anyway.
+            final Lock readLock = diskCache != null ? data.getReadLock() : null;
+            final boolean locked = readLock != null && tryLock(readLock);
+            final Map<String, BufferedImage> toStore = new LinkedHashMap<>();
+            try {
+                if (!locked) {
+                    tileCollection.forEach(loader -> loader.diskCacheKey = null);
+                } else if (loadFromDiskCache()) {
+                    return;
+                }
+                final BufferedImage tImage = generateTiles(data,
+                        tileCollection.stream().map(t -> t.tile).collect(Collectors.toList()), tileSize);
+                final int minX = tileCollection.stream().map(t -> t.tile).mapToInt(TileZXY::x).min().orElse(this.tile.x());
+                final int minY = tileCollection.stream().map(t -> t.tile).mapToInt(TileZXY::y).min().orElse(this.tile.y());
+                for (TileLoader loader : tileCollection) {
+                    final TileZXY txy = loader.tile;
+                    final int x = (txy.x() - minX) * tileSize;
+                    final int y = (txy.y() - minY) * tileSize;
+                    final int wh = tileSize;
 
-                            final BufferedImage tileImage = tImage.getSubimage(x, y, wh + BUFFER_PIXELS, wh + BUFFER_PIXELS);
-                            loader.cacheTile(tileImage);
-                        }
+                    final BufferedImage tileImage = tImage.getSubimage(x, y, wh + BUFFER_PIXELS, wh + BUFFER_PIXELS);
+                    loader.cacheTile(tileImage);
+                    if (loader.diskCacheKey != null) {
+                        toStore.put(loader.diskCacheKey, tileImage);
                     }
                 }
+            } finally {
+                if (locked) {
+                    readLock.unlock();
+                }
+            }
+            // the images are encoded without holding the lock
+            toStore.forEach(diskCache::put);
+        }
+
+        private boolean tryLock(Lock readLock) {
+            try {
+                return readLock.tryLock(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        /**
+         * Load the tiles of the collection from the disk cache
+         * @return {@code true} if all tiles were found in the disk cache, and do not have to be rendered
+         */
+        private boolean loadFromDiskCache() {
+            if (diskCache == null) {
+                return false;
+            }
+            final List<BufferedImage> images = new ArrayList<>(tileCollection.size());
+            for (TileLoader loader : tileCollection) {
+                loader.diskCacheKey = diskCache.getKey(data, loader.tile, tileSize,
+                        generateRenderArea(Collections.singleton(loader.tile)).toBBox());
+                final BufferedImage image = loader.diskCacheKey != null ? diskCache.get(loader.diskCacheKey) : null;
+                if (image != null) {
+                    images.add(image);
+                }
+            }
+            if (images.size() < tileCollection.size()) {
+                return false;
+            }
+            final Iterator<BufferedImage> iterator = images.iterator();
+            for (TileLoader loader : tileCollection) {
+                loader.cacheTile(iterator.next());
             }
+            return true;
         }
 
         /**
@@ -2,11 +2,20 @@
 package org.openstreetmap.josm.data.osm.visitor.paint.relations;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.data.osm.DataSelectionListener;
 import org.openstreetmap.josm.data.osm.DataSet;
@@ -16,6 +25,8 @@ import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetChangeSet;
+import org.openstreetmap.josm.data.osm.event.DataSetChangeSet.Change;
 import org.openstreetmap.josm.data.osm.event.DataSetListener;
 import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
 import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
@@ -25,6 +36,7 @@ import org.openstreetmap.josm.data.osm.event.SelectionEventManager;
 import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
 import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon.PolyData;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
@@ -34,19 +46,129 @@ import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * A memory cache for {@link Multipolygon} objects.
+ * <p>
+ * The multipolygons of data layers are {@linkplain #precompute(DataSet) precomputed} in the background when the layer
+ * is added, and computed again in the background when a change removes them from the cache, e.g. after a merge or an edit
+ * of their members, so that the painting rarely has to join the ways of a multipolygon itself.
  * @since 4623
  */
 public final class MultipolygonCache implements DataSetListener, LayerChangeListener, ProjectionChangeListener, DataSelectionListener {
 
+    /** Whether the multipolygons of data layers are computed in the background before they are painted */
+    public static final BooleanProperty PREF_PRECOMPUTE = new BooleanProperty("mappaint.multipolygon.precompute", true);
+
     private static final MultipolygonCache INSTANCE = new MultipolygonCache();
 
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool(
+                    "mappaint.multipolygon.precompute.numberOfThreads", "multipolygon-precompute-%d", Thread.MIN_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
     private final Map<DataSet, Map<Relation, Multipolygon>> cache = new ConcurrentHashMap<>(); // see ticket 11833
 
+    /** The status of the precomputation of the data sets whose multipolygons are precomputed */
+    private final Map<DataSet, PrecomputationStatus> precomputed = new ConcurrentHashMap<>();
+
     private final Collection<PolyData> selectedPolyData = new ArrayList<>();
 
+    /**
+     * The progress and the timing of the multipolygon precomputation of a data set.
+     * @since xxx
+     */
+    public static final class PrecomputationStatus {
+        private final Set<Relation> pending = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger scheduled = new AtomicInteger();
+        private final AtomicInteger computed = new AtomicInteger();
+        private final LongAdder computeTime = new LongAdder();
+        private volatile long startTime;
+        private volatile long endTime;
+
+        private boolean schedule(Relation r) {
+            if (!pending.add(r)) {
+                return false;
+            }
+            synchronized (this) {
+                if (scheduled.get() == computed.get()) {
+                    // a new batch, e.g. after a merge
+                    scheduled.set(0);
+                    computed.set(0);
+                    startTime = System.nanoTime();
+                }
+                scheduled.incrementAndGet();
+            }
+            return true;
+        }
+
+        private void finished(Relation r, long nanos) {
+            pending.remove(r);
+            computeTime.add(nanos);
+            synchronized (this) {
+                if (computed.incrementAndGet() == scheduled.get()) {
+                    endTime = System.nanoTime();
+                    Logging.debug("Precomputed {0} multipolygons in {1} ms", computed.get(), getElapsedTime());
+                }
+            }
+        }
+
+        /**
+         * Returns the number of multipolygons scheduled since the precomputation was last idle.
+         * @return the number of scheduled multipolygons
+         */
+        public int getScheduled() {
+            return scheduled.get();
+        }
+
+        /**
+         * Returns the number of multipolygons computed since the precomputation was last idle.
+         * @return the number of computed multipolygons
+         */
+        public int getComputed() {
+            return computed.get();
+        }
+
+        /**
+         * Determines if all scheduled multipolygons have been computed.
+         * @return {@code true} if the precomputation is idle
+         */
+        public synchronized boolean isDone() {
+            return computed.get() == scheduled.get();
+        }
+
+        /**
+         * Returns the wall-clock time of the last batch of multipolygons, until now if it is still running.
+         * @return the elapsed time in milliseconds
+         */
+        public long getElapsedTime() {
+            return TimeUnit.NANOSECONDS.toMillis((isDone() ? endTime : System.nanoTime()) - startTime);
+        }
+
+        /**
+         * Returns the sum of the time spent by all threads to compute multipolygons of the data set.
+         * @return the compute time in milliseconds
+         */
+        public long getComputeTime() {
+            return TimeUnit.NANOSECONDS.toMillis(computeTime.sum());
+        }
+
+        @Override
+        public String toString() {
+            return "PrecomputationStatus [computed=" + getComputed() + ", scheduled=" + getScheduled()
+                    + ", elapsed=" + getElapsedTime() + "ms, compute=" + getComputeTime() + "ms]";
+        }
+    }
+
     private MultipolygonCache() {
         ProjectionRegistry.addProjectionChangeListener(this);
         SelectionEventManager.getInstance().addSelectionListener(this);
@@ -90,16 +212,113 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
             if (multipolygon == null || forceRefresh) {
                 multipolygon = new Multipolygon(r);
                 map2.put(r, multipolygon);
-                synchronized (this) {
-                    for (PolyData pd : multipolygon.getCombinedPolygons()) {
-                        if (pd.isSelected()) {
-                            selectedPolyData.add(pd);
-                        }
+                addSelectedPolyData(multipolygon);
+            }
+        }
+        return multipolygon;
+    }
+
+    private synchronized void addSelectedPolyData(Multipolygon multipolygon) {
+        for (PolyData pd : multipolygon.getCombinedPolygons()) {
+            if (pd.isSelected()) {
+                selectedPolyData.add(pd);
+            }
+        }
+    }
+
+    /**
+     * Determines if the multipolygon of a relation is in the cache.
+     * @param r The multipolygon relation
+     * @return {@code true} if the multipolygon does not need to be computed
+     */
+    boolean contains(Relation r) {
+        Map<Relation, Multipolygon> map2 = r.getDataSet() != null ? cache.get(r.getDataSet()) : null;
+        return map2 != null && map2.containsKey(r);
+    }
+
+    /**
+     * Computes the multipolygons of all multipolygon relations of a data set in the background, and keeps them up to date
+     * until the data set is {@linkplain #stopPrecomputation(DataSet) removed}. The multipolygons are computed in parallel,
+     * each with the read lock of the data set. Does nothing if {@link #PREF_PRECOMPUTE} is disabled.
+     * @param ds the data set
+     * @since xxx
+     */
+    public void precompute(DataSet ds) {
+        if (THREAD_POOL == null || !PREF_PRECOMPUTE.get()) {
+            return;
+        }
+        PrecomputationStatus status = precomputed.computeIfAbsent(ds, k -> new PrecomputationStatus());
+        THREAD_POOL.execute(() -> {
+            List<Relation> relations;
+            Lock readLock = ds.getReadLock();
+            readLock.lock();
+            try {
+                relations = ds.getRelations().stream().filter(Relation::isMultipolygon).collect(Collectors.toList());
+            } finally {
+                readLock.unlock();
+            }
+            relations.forEach(r -> schedule(ds, status, r));
+        });
+    }
+
+    /**
+     * Stops the precomputation of the multipolygons of a data set.
+     * @param ds the data set
+     * @since xxx
+     */
+    public void stopPrecomputation(DataSet ds) {
+        precomputed.remove(ds);
+    }
+
+    /**
+     * Returns the status of the multipolygon precomputation of a data set.
+     * @param ds the data set
+     * @return the status, or {@code null} if the multipolygons of the data set are not precomputed
+     * @since xxx
+     */
+    public PrecomputationStatus getPrecomputationStatus(DataSet ds) {
+        return precomputed.get(ds);
+    }
+
+    private void schedule(Relation r) {
+        DataSet ds = r.getDataSet();
+        PrecomputationStatus status = ds != null ? precomputed.get(ds) : null;
+        if (status != null) {
+            schedule(ds, status, r);
+        }
+    }
+
+    private void schedule(DataSet ds, PrecomputationStatus status, Relation r) {
+        if (status.schedule(r)) {
+            THREAD_POOL.execute(() -> compute(ds, status, r));
+        }
+    }
+
+    private void compute(DataSet ds, PrecomputationStatus status, Relation r) {
+        long start = System.nanoTime();
+        Lock readLock = ds.getReadLock();
+        readLock.lock();
+        try {
+            // the multipolygon is stored while the data cannot change, a later change removes it again
+            if (precomputed.get(ds) == status && r.getDataSet() == ds && r.isMultipolygon() && !r.isDeleted()) {
+                Map<Relation, Multipolygon> map2 = cache.computeIfAbsent(ds, k -> new ConcurrentHashMap<>());
+                if (!map2.containsKey(r)) {
+                    Multipolygon multipolygon = new Multipolygon(r);
+                    if (map2.putIfAbsent(r, multipolygon) == null) {
+                        addSelectedPolyData(multipolygon);
                     }
                 }
             }
+        } catch (RuntimeException e) {
+            Logging.warn(e);
+        } finally {
+            readLock.unlock();
+            status.finished(r, System.nanoTime() - start);
+        }
+        // the layer may have been removed meanwhile
+        if (!precomputed.containsKey(ds)) {
+            clear(ds);
         }
-        return multipolygon;
     }
 
     /**
@@ -167,7 +386,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
         return maps;
     }
 
-    private static void processEvent(AbstractDatasetChangedEvent event, Relation r, Collection<Map<Relation, Multipolygon>> maps) {
+    private void processEvent(AbstractDatasetChangedEvent event, Relation r, Collection<Map<Relation, Multipolygon>> maps) {
         if (event instanceof NodeMovedEvent || event instanceof WayNodesChangedEvent) {
             dispatchEvent(event, r, maps);
         } else if (event instanceof PrimitivesRemovedEvent) {
@@ -180,7 +399,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
         }
     }
 
-    private static void dispatchEvent(AbstractDatasetChangedEvent event, Relation r, Collection<Map<Relation, Multipolygon>> maps) {
+    private void dispatchEvent(AbstractDatasetChangedEvent event, Relation r, Collection<Map<Relation, Multipolygon>> maps) {
         for (Map<Relation, Multipolygon> map : maps) {
             Multipolygon m = map.get(r);
             if (m != null) {
@@ -200,7 +419,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
         }
     }
 
-    private static void removeMultipolygonFrom(Relation r, Collection<Map<Relation, Multipolygon>> maps) {
+    private void removeMultipolygonFrom(Relation r, Collection<Map<Relation, Multipolygon>> maps) {
         for (Map<Relation, Multipolygon> map : maps) {
             map.remove(r);
         }
@@ -208,11 +427,17 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
         for (OsmPrimitive member : r.getMemberPrimitivesList()) {
             member.clearCachedStyle();
         }
+        schedule(r);
     }
 
     @Override
     public void primitivesAdded(PrimitivesAddedEvent event) {
-        // Do nothing
+        // e.g. the multipolygons of merged data
+        for (OsmPrimitive p : event.getPrimitives()) {
+            if (p.isMultipolygon()) {
+                schedule((Relation) p);
+            }
+        }
     }
 
     @Override
@@ -247,6 +472,27 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
 
     @Override
     public void dataChanged(DataChangedEvent event) {
+        final DataSetChangeSet changeSet = event.getChangeSet();
+        if (changeSet != null) {
+            // only update the multipolygons which are concerned by the net changes, see #7131 and #7195 below
+            final Set<Relation> removed = new HashSet<>();
+            final Set<Relation> changed = new HashSet<>();
+            for (OsmPrimitive p : changeSet.getPrimitives(Change.REMOVED)) {
+                if (p.isMultipolygon()) {
+                    removed.add((Relation) p);
+                }
+            }
+            for (Change change : Arrays.asList(Change.ADDED, Change.MODIFIED)) {
+                for (OsmPrimitive p : changeSet.getPrimitives(change)) {
+                    addMultipolygonsReferringTo(p, changed);
+                }
+            }
+            changed.removeAll(removed);
+            final Collection<Map<Relation, Multipolygon>> maps = getMapsFor(event.getDataset());
+            removed.forEach(r -> removeMultipolygonFrom(r, maps));
+            changed.forEach(r -> removeMultipolygonFrom(r, maps));
+            return;
+        }
         // Do not call updateMultipolygonsReferringTo as getPrimitives()
         // can return all the data set primitives for this event
         Collection<Map<Relation, Multipolygon>> maps = null;
@@ -263,13 +509,41 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
                     // This ensures concerned multipolygons will be correctly redrawn
                     map.remove(p);
                 }
+                schedule((Relation) p);
+            }
+        }
+    }
+
+    /**
+     * Adds the multipolygons which are, or refer to, a primitive, directly or through its parent ways.
+     * @param p the primitive
+     * @param result the set to which the multipolygons are added
+     */
+    private static void addMultipolygonsReferringTo(OsmPrimitive p, Set<Relation> result) {
+        if (p.isMultipolygon()) {
+            result.add((Relation) p);
+        } else if (p instanceof Way && p.getDataSet() != null) {
+            for (OsmPrimitive ref : p.getReferrers()) {
+                if (ref.isMultipolygon()) {
+                    result.add((Relation) ref);
+                }
+            }
+        } else if (p instanceof Node && p.getDataSet() != null) {
+            for (OsmPrimitive ref : p.getReferrers()) {
+                if (ref instanceof Way) {
+                    addMultipolygonsReferringTo(ref, result);
+                } else if (ref.isMultipolygon()) {
+                    result.add((Relation) ref);
+                }
             }
         }
     }
 
     @Override
     public void layerAdded(LayerAddEvent e) {
-        // Do nothing
+        if (e.getAddedLayer() instanceof OsmDataLayer) {
+            precompute(((OsmDataLayer) e.getAddedLayer()).data);
+        }
     }
 
     @Override
@@ -280,6 +554,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
     @Override
     public void layerRemoving(LayerRemoveEvent e) {
         if (e.getRemovedLayer() instanceof OsmDataLayer) {
+            stopPrecomputation(((OsmDataLayer) e.getRemovedLayer()).data);
             clear(((OsmDataLayer) e.getRemovedLayer()).data);
         }
     }
@@ -287,6 +562,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
     @Override
     public void projectionChanged(Projection oldValue, Projection newValue) {
         clear();
+        precomputed.keySet().forEach(this::precompute);
     }
 
     @Override
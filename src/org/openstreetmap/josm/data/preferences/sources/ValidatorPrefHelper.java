@@ -77,6 +77,18 @@ public class ValidatorPrefHelper extends SourcePrefHelper {
      */
     public static final BooleanProperty PREF_UNFURL = new BooleanProperty(PREFIX + ".force.unfurl.window", true);
 
+    /**
+     * The preferences key for running the tests which support it in parallel
+     * @since xxx
+     */
+    public static final BooleanProperty PREF_PARALLEL = new BooleanProperty(PREFIX + ".parallel", false);
+
+    /**
+     * The preferences key for keeping the validation results up to date while editing
+     * @since xxx
+     */
+    public static final BooleanProperty PREF_INCREMENTAL = new BooleanProperty(PREFIX + ".incremental", false);
+
     /**
      * Constructs a new {@code PresetPrefHelper}.
      */
@@ -0,0 +1,389 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.protobuf;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A cursor-style protobuf parser that reads values directly from a {@link ByteBuffer}.
+ * <p>
+ * Unlike {@link ProtobufParser} and {@link ProtobufRecord}, this does not copy every field into a new {@code byte[]} and does
+ * not box numbers. Nested messages and packed fields are read by pointing another cursor at a range of the same buffer, so
+ * decoding a message only allocates for the values that are actually kept (e.g. strings).
+ * <p>
+ * Typical usage:
+ * <pre>
+ * ProtobufCursor cursor = new ProtobufCursor(bytes);
+ * ProtobufCursor packed = new ProtobufCursor();
+ * while (cursor.nextField()) {
+ *     switch (cursor.getField()) {
+ *         case 1:
+ *             long id = cursor.readVarInt();
+ *             break;
+ *         case 2:
+ *             cursor.readMessage(packed);
+ *             while (packed.hasRemaining()) {
+ *                 long value = packed.readSignedVarInt();
+ *             }
+ *             break;
+ *         default:
+ *             cursor.skip();
+ *     }
+ * }
+ * </pre>
+ * The buffer's own position and limit are never modified, so the same buffer may be shared between several cursors.
+ * Instances are not thread safe.
+ *
+ * @since xxx
+ */
+public final class ProtobufCursor {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    /** The wire types, indexed by the lowest 3 bits of a tag */
+    private static final WireType[] WIRE_TYPES = new WireType[8];
+
+    static {
+        Arrays.fill(WIRE_TYPES, WireType.UNKNOWN);
+        for (WireType type : WireType.getAllValues()) {
+            if (type.getTypeRepresentation() < WIRE_TYPES.length) {
+                WIRE_TYPES[type.getTypeRepresentation()] = type;
+            }
+        }
+    }
+    private ByteBuffer buffer;
+    private int position;
+    private int limit;
+    private int field;
+    private WireType wireType = WireType.UNKNOWN;
+    /** {@code true} if the value of the current field has not been read yet */
+    private boolean pending;
+
+    /**
+     * Create an empty cursor, to be used with {@link #readMessage(ProtobufCursor)} or {@link #reset(ByteBuffer)}
+     */
+    public ProtobufCursor() {
+        this(EMPTY);
+    }
+
+    /**
+     * Create a new cursor over a byte array
+     *
+     * @param bytes The bytes to parse
+     */
+    public ProtobufCursor(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Create a new cursor over the remaining bytes of a buffer (heap, direct or memory-mapped)
+     *
+     * @param buffer The buffer to parse. Its position and limit are not modified.
+     */
+    public ProtobufCursor(ByteBuffer buffer) {
+        reset(buffer);
+    }
+
+    /**
+     * Point this cursor at the remaining bytes of a different buffer
+     *
+     * @param buffer The buffer to parse. Its position and limit are not modified.
+     * @return this cursor, for easy chaining
+     */
+    public ProtobufCursor reset(ByteBuffer buffer) {
+        return reset(buffer, buffer.position(), buffer.limit());
+    }
+
+    private ProtobufCursor reset(ByteBuffer buffer, int position, int limit) {
+        this.buffer = buffer;
+        this.position = position;
+        this.limit = limit;
+        this.field = 0;
+        this.wireType = WireType.UNKNOWN;
+        this.pending = false;
+        return this;
+    }
+
+    /**
+     * Create an independent copy of this cursor at the same position
+     *
+     * @return A new cursor that shares the underlying buffer
+     */
+    public ProtobufCursor duplicate() {
+        final ProtobufCursor copy = new ProtobufCursor().reset(this.buffer, this.position, this.limit);
+        copy.field = this.field;
+        copy.wireType = this.wireType;
+        copy.pending = this.pending;
+        return copy;
+    }
+
+    /**
+     * Check if there is more data to read
+     *
+     * @return {@code true} if there are bytes remaining in the current message
+     */
+    public boolean hasRemaining() {
+        return this.position < this.limit;
+    }
+
+    /**
+     * Get the number of bytes remaining in the current message
+     *
+     * @return The remaining bytes
+     */
+    public int remaining() {
+        return this.limit - this.position;
+    }
+
+    /**
+     * Advance to the next field. If the value of the current field has not been read, it is skipped.
+     *
+     * @return {@code true} if there was another field
+     */
+    public boolean nextField() {
+        if (this.pending) {
+            skip();
+        }
+        if (!hasRemaining()) {
+            return false;
+        }
+        final long tag = readVarInt();
+        // I don't foresee having field numbers > {@code Integer#MAX_VALUE >> 3}
+        this.field = (int) (tag >>> 3);
+        this.wireType = WIRE_TYPES[(int) (tag & 7)];
+        this.pending = true;
+        return true;
+    }
+
+    /**
+     * Get the field number of the current field
+     *
+     * @return The field number
+     */
+    public int getField() {
+        return this.field;
+    }
+
+    /**
+     * Get the wire type of the current field
+     *
+     * @return The wire type
+     */
+    public WireType getWireType() {
+        return this.wireType;
+    }
+
+    /**
+     * Skip the value of the current field
+     */
+    public void skip() {
+        this.pending = false;
+        switch (this.wireType) {
+            case VARINT:
+                readVarInt();
+                break;
+            case SIXTY_FOUR_BIT:
+                advance(Long.BYTES);
+                break;
+            case THIRTY_TWO_BIT:
+                advance(Integer.BYTES);
+                break;
+            case LENGTH_DELIMITED:
+                advance((int) readVarInt());
+                break;
+            default:
+                // We cannot know how long the value is, so we cannot continue
+                this.position = this.limit;
+        }
+    }
+
+    /**
+     * Read a var int ({@code int32}, {@code int64}, {@code uint32}, {@code uint64}, {@code bool}, {@code enum})
+     *
+     * @return The var int
+     */
+    public long readVarInt() {
+        this.pending = false;
+        long value = 0;
+        int shift = 0;
+        while (this.position < this.limit) {
+            final byte current = this.buffer.get(this.position++);
+            value |= (long) (current & 0x7F) << shift;
+            if (current >= 0) {
+                return value;
+            }
+            shift += ProtobufParser.VAR_INT_BYTE_SIZE;
+            if (shift >= Long.SIZE) {
+                throw new IllegalArgumentException("Malformed protobuf var int");
+            }
+        }
+        throw new IllegalArgumentException("Truncated protobuf var int");
+    }
+
+    /**
+     * Read a zig-zag encoded var int ({@code sint32} or {@code sint64})
+     *
+     * @return The decoded value
+     */
+    public long readSignedVarInt() {
+        return ProtobufParser.decodeZigZag(readVarInt());
+    }
+
+    /**
+     * Read the next 32 bits ({@link WireType#THIRTY_TWO_BIT}), little endian
+     *
+     * @return The value ({@code fixed32} or {@code sfixed32})
+     */
+    public int readFixed32() {
+        this.pending = false;
+        final int start = advance(Integer.BYTES);
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value |= (this.buffer.get(start + i) & 0xFF) << (ProtobufParser.BYTE_SIZE * i);
+        }
+        return value;
+    }
+
+    /**
+     * Read the next 64 bits ({@link WireType#SIXTY_FOUR_BIT}), little endian
+     *
+     * @return The value ({@code fixed64} or {@code sfixed64})
+     */
+    public long readFixed64() {
+        this.pending = false;
+        final int start = advance(Long.BYTES);
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value |= (this.buffer.get(start + i) & 0xFFL) << (ProtobufParser.BYTE_SIZE * i);
+        }
+        return value;
+    }
+
+    /**
+     * Read a float ({@link WireType#THIRTY_TWO_BIT})
+     *
+     * @return The float
+     */
+    public float readFloat() {
+        return Float.intBitsToFloat(readFixed32());
+    }
+
+    /**
+     * Read a double ({@link WireType#SIXTY_FOUR_BIT})
+     *
+     * @return The double
+     */
+    public double readDouble() {
+        return Double.longBitsToDouble(readFixed64());
+    }
+
+    /**
+     * Point another cursor at the length delimited value of the current field ({@link WireType#LENGTH_DELIMITED}).
+     * This is used for nested messages and for packed repeated fields; no bytes are copied.
+     *
+     * @param target The cursor to reuse
+     * @return {@code target}, for easy chaining
+     */
+    public ProtobufCursor readMessage(ProtobufCursor target) {
+        final int length = (int) readVarInt();
+        final int start = advance(length);
+        return target.reset(this.buffer, start, start + length);
+    }
+
+    /**
+     * Get a new cursor over the length delimited value of the current field ({@link WireType#LENGTH_DELIMITED})
+     *
+     * @return A new cursor over the nested message
+     * @see #readMessage(ProtobufCursor)
+     */
+    public ProtobufCursor readMessage() {
+        return readMessage(new ProtobufCursor());
+    }
+
+    /**
+     * Get a read-only view of the length delimited value of the current field ({@link WireType#LENGTH_DELIMITED})
+     *
+     * @return A view of the bytes (no copy is made)
+     */
+    public ByteBuffer readBytes() {
+        final int length = (int) readVarInt();
+        final int start = advance(length);
+        final ByteBuffer slice = this.buffer.duplicate();
+        slice.limit(start + length).position(start);
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Copy the length delimited value of the current field ({@link WireType#LENGTH_DELIMITED}) into a new array
+     *
+     * @return The bytes
+     */
+    public byte[] readByteArray() {
+        final int length = (int) readVarInt();
+        final int start = advance(length);
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = this.buffer.get(start + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Read a string ({@link WireType#LENGTH_DELIMITED}), interned by {@link String#intern()}
+     *
+     * @return The string (decoded as {@link StandardCharsets#UTF_8})
+     */
+    public String readString() {
+        return readString(Utils::intern);
+    }
+
+    /**
+     * Read a length delimited field as a string, and deduplicate it with another function than {@link String#intern()}
+     *
+     * @param deduplicator The function which returns an equal string, e.g. from a pool
+     * @return The string (decoded as {@link StandardCharsets#UTF_8})
+     */
+    public String readString(UnaryOperator<String> deduplicator) {
+        final String string;
+        if (this.buffer.hasArray()) {
+            final int length = (int) readVarInt();
+            final int start = advance(length);
+            string = new String(this.buffer.array(), this.buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        } else {
+            string = new String(readByteArray(), StandardCharsets.UTF_8);
+        }
+        return deduplicator.apply(string);
+    }
+
+    /**
+     * Count the var ints remaining in this cursor, without moving it. This is useful for sizing arrays for packed fields.
+     *
+     * @return The number of var ints
+     */
+    public int countVarInts() {
+        int count = 0;
+        for (int i = this.position; i < this.limit; i++) {
+            if (this.buffer.get(i) >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Move past the next bytes of the current message, checking that they belong to it before they are read
+     *
+     * @param length The number of bytes
+     * @return The position of the first byte
+     */
+    private int advance(int length) {
+        if (length < 0 || length > this.limit - this.position) {
+            throw new IllegalArgumentException("Truncated protobuf message");
+        }
+        final int start = this.position;
+        this.position += length;
+        return start;
+    }
+}
@@ -0,0 +1,218 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.protobuf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A simple protobuf encoder, the counterpart of {@link ProtobufCursor}.
+ * <p>
+ * Fields are appended to a growable byte array. Nested messages are written by encoding them into another writer first, and
+ * then copying them with {@link #writeMessage(int, ProtobufWriter)}. Instances may be {@link #reset() reset} and reused.
+ * Instances are not thread safe.
+ *
+ * @since xxx
+ */
+public final class ProtobufWriter {
+    private byte[] buffer;
+    private int size;
+
+    /**
+     * Create a new writer
+     */
+    public ProtobufWriter() {
+        this(256);
+    }
+
+    /**
+     * Create a new writer
+     *
+     * @param initialCapacity The initial capacity of the buffer, in bytes
+     */
+    public ProtobufWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Encode a value with zig-zag encoding ({@code sint32} or {@code sint64})
+     *
+     * @param value The value to encode
+     * @return The encoded value
+     * @see ProtobufParser#decodeZigZag(long)
+     */
+    public static long encodeZigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Get the number of bytes needed to encode a var int
+     *
+     * @param value The value
+     * @return The number of bytes
+     */
+    public static int varIntSize(long value) {
+        int bytes = 1;
+        long remaining = value >>> ProtobufParser.VAR_INT_BYTE_SIZE;
+        while (remaining != 0) {
+            bytes++;
+            remaining >>>= ProtobufParser.VAR_INT_BYTE_SIZE;
+        }
+        return bytes;
+    }
+
+    /**
+     * Write a var int field ({@code int32}, {@code int64}, {@code uint32}, {@code uint64}, {@code bool}, {@code enum})
+     *
+     * @param field The field number
+     * @param value The value
+     */
+    public void writeVarInt(int field, long value) {
+        writeTag(field, WireType.VARINT);
+        writeRawVarInt(value);
+    }
+
+    /**
+     * Write a zig-zag encoded var int field ({@code sint32} or {@code sint64})
+     *
+     * @param field The field number
+     * @param value The value
+     */
+    public void writeSignedVarInt(int field, long value) {
+        writeVarInt(field, encodeZigZag(value));
+    }
+
+    /**
+     * Write a length delimited field
+     *
+     * @param field The field number
+     * @param bytes The bytes to write
+     */
+    public void writeBytes(int field, byte[] bytes) {
+        writeBytes(field, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Write a length delimited field from a part of an array
+     *
+     * @param field The field number
+     * @param bytes The array with the bytes to write
+     * @param offset The start of the bytes in the array
+     * @param length The number of bytes to write
+     */
+    public void writeBytes(int field, byte[] bytes, int offset, int length) {
+        writeTag(field, WireType.LENGTH_DELIMITED);
+        writeRawVarInt(length);
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, this.buffer, this.size, length);
+        this.size += length;
+    }
+
+    /**
+     * Write a string field (encoded as {@link StandardCharsets#UTF_8})
+     *
+     * @param field The field number
+     * @param string The string to write
+     */
+    public void writeString(int field, String string) {
+        writeBytes(field, string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write a nested message field
+     *
+     * @param field The field number
+     * @param message The encoded message
+     */
+    public void writeMessage(int field, ProtobufWriter message) {
+        writeTag(field, WireType.LENGTH_DELIMITED);
+        writeRawVarInt(message.size);
+        ensureCapacity(message.size);
+        System.arraycopy(message.buffer, 0, this.buffer, this.size, message.size);
+        this.size += message.size;
+    }
+
+    /**
+     * Write a packed repeated var int field. Nothing is written if there are no values.
+     *
+     * @param field The field number
+     * @param values The values
+     * @param count The number of values to write, from the start of {@code values}
+     * @param zigZag {@code true} if the values should be zig-zag encoded ({@code sint32}, {@code sint64})
+     */
+    public void writePackedVarInts(int field, long[] values, int count, boolean zigZag) {
+        if (count == 0) {
+            return;
+        }
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            length += varIntSize(zigZag ? encodeZigZag(values[i]) : values[i]);
+        }
+        writeTag(field, WireType.LENGTH_DELIMITED);
+        writeRawVarInt(length);
+        for (int i = 0; i < count; i++) {
+            writeRawVarInt(zigZag ? encodeZigZag(values[i]) : values[i]);
+        }
+    }
+
+    /**
+     * Write a var int without a tag, e.g. for building packed fields
+     *
+     * @param value The value
+     */
+    public void writeRawVarInt(long value) {
+        ensureCapacity(10);
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            this.buffer[this.size++] = (byte) ((remaining & 0x7F) | 0x80);
+            remaining >>>= ProtobufParser.VAR_INT_BYTE_SIZE;
+        }
+        this.buffer[this.size++] = (byte) remaining;
+    }
+
+    private void writeTag(int field, WireType wireType) {
+        writeRawVarInt(((long) field << 3) | wireType.getTypeRepresentation());
+    }
+
+    private void ensureCapacity(int additional) {
+        if (this.size + additional > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.size + additional));
+        }
+    }
+
+    /**
+     * Get the number of bytes written
+     *
+     * @return The size of the encoded message
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Discard the written bytes, keeping the buffer for reuse
+     */
+    public void reset() {
+        this.size = 0;
+    }
+
+    /**
+     * Copy the written bytes into a new array
+     *
+     * @return The encoded message
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.size);
+    }
+
+    /**
+     * Write the encoded message to a stream
+     *
+     * @param out The stream to write to
+     * @throws IOException if the stream could not be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(this.buffer, 0, this.size);
+    }
+}
@@ -0,0 +1,321 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetChangeSet;
+import org.openstreetmap.josm.data.osm.event.DataSetChangeSet.Change;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
+import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
+import org.openstreetmap.josm.data.validation.util.AggregatePrimitivesVisitor;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Stopwatch;
+
+/**
+ * Keeps the errors of a collection of tests up to date while the data is edited.
+ * <p>
+ * The validator listens to the changes of a data set. After a change, the tests which are
+ * {@linkplain Test#isAffectedBy affected} by it run again on the changed primitives, their parents
+ * and their spatial neighbours, and the new errors replace the errors which concern the changed primitives.
+ * The errors are indexed by test and by primitive, so that an update only touches the errors of the changed primitives.
+ * <p>
+ * Like the {@link ValidationTask}, the tests run on the {@link MainApplication#worker worker} thread.
+ * @since xxx
+ */
+public class IncrementalValidator implements DataSetListener {
+
+    /** The space around changed primitives in which the other primitives are validated again, in LatLon degrees */
+    public static final DoubleProperty PREF_NEIGHBOURHOOD = new DoubleProperty(ValidatorPrefHelper.PREFIX + ".incremental.neighbourhood",
+            0.0005);
+
+    /**
+     * The errors of one test, indexed by the primitives which they concern.
+     */
+    private static final class TestErrors {
+        private final Set<TestError> errors = new LinkedHashSet<>();
+        private final Map<OsmPrimitive, List<TestError>> byPrimitive = new HashMap<>();
+
+        void add(TestError error) {
+            if (errors.add(error)) {
+                for (OsmPrimitive p : error.getPrimitives()) {
+                    byPrimitive.computeIfAbsent(p, k -> new ArrayList<>(1)).add(error);
+                }
+            }
+        }
+
+        void removeConcerning(Collection<OsmPrimitive> primitives) {
+            for (OsmPrimitive p : primitives) {
+                final List<TestError> concerning = byPrimitive.remove(p);
+                if (concerning == null) {
+                    continue;
+                }
+                for (TestError error : concerning) {
+                    if (!errors.remove(error)) {
+                        continue;
+                    }
+                    for (OsmPrimitive other : error.getPrimitives()) {
+                        final List<TestError> list = byPrimitive.get(other);
+                        if (list != null && list.remove(error) && list.isEmpty()) {
+                            byPrimitive.remove(other);
+                        }
+                    }
+                }
+            }
+        }
+
+        void clear() {
+            errors.clear();
+            byPrimitive.clear();
+        }
+    }
+
+    private final Map<Test, TestErrors> errorsByTest = new LinkedHashMap<>();
+    /** The errors of unknown testers, which cannot be validated again */
+    private final TestErrors otherErrors = new TestErrors();
+    private final Consumer<List<TestError>> onUpdate;
+
+    // pending changes, guarded by themselves
+    private final Set<OsmPrimitive> changed = new HashSet<>();
+    private final Set<OsmPrimitive> removed = new HashSet<>();
+    private final Set<DatasetEventType> changeTypes = EnumSet.noneOf(DatasetEventType.class);
+    private boolean updateScheduled;
+
+    /**
+     * Constructs a new {@code IncrementalValidator}.
+     * @param tests the tests to run, usually the {@linkplain OsmValidator#getEnabledTests enabled tests}
+     * @param onUpdate called in the EDT with all errors after each update, may be {@code null}
+     */
+    public IncrementalValidator(Collection<Test> tests, Consumer<List<TestError>> onUpdate) {
+        for (Test test : tests) {
+            errorsByTest.put(test, new TestErrors());
+        }
+        this.onUpdate = onUpdate;
+    }
+
+    /**
+     * Replaces the errors which are kept up to date, usually by the result of a {@link ValidationTask}.
+     * @param errors the errors
+     */
+    public synchronized void setErrors(Collection<TestError> errors) {
+        errorsByTest.values().forEach(TestErrors::clear);
+        otherErrors.clear();
+        for (TestError error : errors) {
+            getTestErrors(error.getTester()).add(error);
+        }
+    }
+
+    private TestErrors getTestErrors(Test tester) {
+        final TestErrors testErrors = errorsByTest.get(tester);
+        if (testErrors != null) {
+            return testErrors;
+        }
+        // e.g. the errors of the MapCSS tag checker have a tester for each rule
+        for (Map.Entry<Test, TestErrors> entry : errorsByTest.entrySet()) {
+            if (entry.getKey().getClass().isInstance(tester)) {
+                return entry.getValue();
+            }
+        }
+        return otherErrors;
+    }
+
+    /**
+     * Returns the current errors, ordered by test.
+     * @return the current errors
+     */
+    public synchronized List<TestError> getErrors() {
+        final List<TestError> result = new ArrayList<>();
+        errorsByTest.values().forEach(testErrors -> result.addAll(testErrors.errors));
+        result.addAll(otherErrors.errors);
+        return result;
+    }
+
+    /**
+     * Validates the primitives which were changed since the last update, and notifies the listener.
+     * Updates are scheduled on the worker thread after each change, so this method rarely needs to be called.
+     */
+    public void update() {
+        final Set<OsmPrimitive> changedPrimitives;
+        final Set<OsmPrimitive> removedPrimitives;
+        final Set<DatasetEventType> types;
+        synchronized (changed) {
+            changedPrimitives = new HashSet<>(changed);
+            removedPrimitives = new HashSet<>(removed);
+            types = EnumSet.copyOf(changeTypes);
+            changed.clear();
+            removed.clear();
+            changeTypes.clear();
+            updateScheduled = false;
+        }
+        if (changedPrimitives.isEmpty() && removedPrimitives.isEmpty()) {
+            return;
+        }
+        final List<TestError> errors = validate(changedPrimitives, removedPrimitives, types);
+        if (onUpdate != null) {
+            GuiHelper.runInEDT(() -> onUpdate.accept(errors));
+        }
+    }
+
+    private synchronized List<TestError> validate(Set<OsmPrimitive> changedPrimitives, Set<OsmPrimitive> removedPrimitives,
+            Set<DatasetEventType> types) {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        errorsByTest.values().forEach(testErrors -> testErrors.removeConcerning(removedPrimitives));
+        otherErrors.removeConcerning(removedPrimitives);
+
+        changedPrimitives.removeIf(p -> p.isDeleted() || p.getDataSet() == null);
+        if (!changedPrimitives.isEmpty()) {
+            final Set<OsmPrimitive> relevant = new HashSet<>(changedPrimitives);
+            relevant.addAll(ValidationTask.getRelevantParents(changedPrimitives));
+            // the neighbours are visited, so that the tests can find errors between them and the changed primitives
+            final Set<OsmPrimitive> validated = new HashSet<>(new AggregatePrimitivesVisitor().visit(relevant));
+            validated.addAll(getNeighbours(changedPrimitives));
+            final boolean useIgnore = Boolean.TRUE.equals(ValidatorPrefHelper.PREF_USE_IGNORE.get());
+
+            for (Map.Entry<Test, TestErrors> entry : errorsByTest.entrySet()) {
+                final Test test = entry.getKey();
+                if (types.stream().noneMatch(test::isAffectedBy)) {
+                    continue;
+                }
+                entry.getValue().removeConcerning(relevant);
+                test.setBeforeUpload(false);
+                test.setPartialSelection(true);
+                test.startTest(null);
+                test.visit(validated);
+                test.endTest();
+                test.removeIrrelevantErrors(relevant);
+                for (TestError error : test.getErrors()) {
+                    if (useIgnore) {
+                        error.updateIgnored();
+                    }
+                    entry.getValue().add(error);
+                }
+                test.clear();
+            }
+            // errors of unknown testers cannot be validated again, so they are outdated
+            otherErrors.removeConcerning(relevant);
+            Logging.debug(stopwatch.toString("Incremental validation of " + changedPrimitives.size() + " changed and "
+                    + validated.size() + " validated primitives"));
+        }
+        return getErrors();
+    }
+
+    private static Set<OsmPrimitive> getNeighbours(Collection<OsmPrimitive> primitives) {
+        final double neighbourhood = PREF_NEIGHBOURHOOD.get();
+        final Set<OsmPrimitive> neighbours = new HashSet<>();
+        for (OsmPrimitive p : primitives) {
+            // the neighbourhood of relations can be huge, their members are validated anyway
+            if ((p instanceof Node || p instanceof Way) && p.isUsable() && p.getBBox().isValid()) {
+                final DataSet ds = p.getDataSet();
+                final BBox bbox = new BBox();
+                bbox.addPrimitive(p, neighbourhood);
+                neighbours.addAll(ds.searchNodes(bbox));
+                neighbours.addAll(ds.searchWays(bbox));
+            }
+        }
+        return neighbours;
+    }
+
+    private void changed(AbstractDatasetChangedEvent event, Collection<? extends OsmPrimitive> primitives) {
+        if (event.getType() == DatasetEventType.PRIMITIVES_REMOVED) {
+            changed(Collections.singleton(event.getType()), Collections.emptyList(), primitives);
+        } else {
+            changed(Collections.singleton(event.getType()), primitives, Collections.emptyList());
+        }
+    }
+
+    private void changed(Collection<DatasetEventType> types, Collection<? extends OsmPrimitive> changedPrimitives,
+            Collection<? extends OsmPrimitive> removedPrimitives) {
+        synchronized (changed) {
+            removed.addAll(removedPrimitives);
+            changed.removeAll(removedPrimitives);
+            changed.addAll(changedPrimitives);
+            changeTypes.addAll(types);
+            if (!updateScheduled) {
+                updateScheduled = true;
+                MainApplication.worker.submit(this::update);
+            }
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        changed(event, event.getPrimitives());
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        changed(event, event.getPrimitives());
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        changed(event, event.getPrimitives());
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        changed(event, event.getPrimitives());
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        changed(event, event.getPrimitives());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        changed(event, event.getPrimitives());
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Do nothing, e.g. changes of the data source bounds or of the upload policy
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        final DataSetChangeSet changeSet = event.getChangeSet();
+        if (event.getEvents() != null) {
+            dataChangedIndividualEvents(event);
+        } else if (changeSet != null) {
+            // a large batch of changes, whose events have been replaced by their net changes
+            final List<OsmPrimitive> changedPrimitives = new ArrayList<>(changeSet.getPrimitives(Change.ADDED));
+            changedPrimitives.addAll(changeSet.getPrimitives(Change.MODIFIED));
+            changed(changeSet.getEventTypes(), changedPrimitives, changeSet.getPrimitives(Change.REMOVED));
+        } else {
+            // another data set, whose errors must be set by the caller
+            synchronized (changed) {
+                changed.clear();
+                removed.clear();
+                changeTypes.clear();
+            }
+        }
+    }
+}
@@ -6,10 +6,17 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.awt.GridBagConstraints;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -22,10 +29,12 @@ import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.InDataSourceArea;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.NotOutsideDataSourceArea;
 import org.openstreetmap.josm.data.osm.visitor.OsmPrimitiveVisitor;
 import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
+import org.openstreetmap.josm.data.validation.util.SegmentIndex;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.GBC;
@@ -38,6 +47,13 @@ import org.openstreetmap.josm.tools.Stopwatch;
  * A test is a primitive visitor, so that it can access to all data to be
  * validated. These primitives are always visited in the same order: nodes
  * first, then ways.
+ * <p>
+ * Tests run one after another on a single thread, unless they opt in to parallel validation:
+ * <ul>
+ * <li>A test which is {@link #isThreadSafe() thread safe} may run at the same time as other thread safe tests.</li>
+ * <li>A test which is {@link #isDataParallel() data parallel} may visit its primitives on several threads.</li>
+ * </ul>
+ * The errors of a test are always the same as when it is run alone, see {@link ValidationTask#setForkJoinPool}.
  *
  * @author frsantos
  */
@@ -81,6 +97,10 @@ public class Test implements OsmPrimitiveVisitor {
 
     private boolean showElementCount;
 
+    /** the pool to visit the primitives of a data parallel test, or {@code null} */
+    private ForkJoinPool forkJoinPool;
+    private SegmentIndex segmentIndex;
+
     /**
      * Constructor
      * @param name Name of the test
@@ -209,6 +229,10 @@ public class Test implements OsmPrimitiveVisitor {
         if (progressMonitor != null) {
             progressMonitor.setTicksCount(selection.size());
         }
+        if (isVisitingInParallel()) {
+            errors.addAll(visitInParallel(selection, p -> p.accept(this)));
+            return;
+        }
         long cnt = 0;
         for (OsmPrimitive p : selection) {
             if (isCanceled()) {
@@ -229,6 +253,141 @@ public class Test implements OsmPrimitiveVisitor {
         }
     }
 
+    /**
+     * Determines if this test can run at the same time as other tests, on another thread.
+     * <p>
+     * A thread safe test only reads the data set and the preferences in {@link #startTest}, {@link #visit(Collection)}
+     * and {@link #endTest}, and only modifies its own fields. In particular, it must neither modify the data set
+     * nor use static mutable state, other tests or the GUI. The progress monitor of a test running on another thread
+     * is not shown.
+     * @return {@code true} if this test can run concurrently with other thread safe tests. {@code false} by default.
+     * @since xxx
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Determines if the primitives can be visited by several threads at once.
+     * <p>
+     * The {@code visit} methods of a data parallel test can be called concurrently for different primitives between
+     * {@link #startTest} and {@link #endTest}. They may only read the state which was set up by {@link #startTest},
+     * and they must only add errors whose first primitive is the visited primitive. The errors are then sorted
+     * in the order of the visited primitives, so that the result is the same as when visiting them one after another.
+     * @return {@code true} if the primitives can be visited by several threads. {@code false} by default.
+     * @since xxx
+     */
+    public boolean isDataParallel() {
+        return false;
+    }
+
+    /**
+     * Determines if the errors of this test may change because of the given type of data change.
+     * The {@link IncrementalValidator} only runs the tests again which are affected by a change.
+     * @param type the type of the change
+     * @return {@code true} if the errors may change. {@code true} by default.
+     * @since xxx
+     */
+    public boolean isAffectedBy(DatasetEventType type) {
+        return true;
+    }
+
+    /**
+     * Sets the pool to visit the primitives of a {@link #isDataParallel() data parallel} test.
+     * @param forkJoinPool the pool, or {@code null} to visit the primitives on the current thread
+     * @since xxx
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * Determines if this test uses the {@link SegmentIndex} of the validated primitives. If a test of a validation run uses it,
+     * the index is built once and {@linkplain #setSegmentIndex set} for all tests which use it.
+     * @return {@code true} if this test uses the segment index, {@code false} by default
+     * @since xxx
+     */
+    public boolean usesSegmentIndex() {
+        return false;
+    }
+
+    /**
+     * Sets the index of the segments of the validated primitives.
+     * @param segmentIndex the index, or {@code null} if the test has to find the segments itself
+     * @since xxx
+     */
+    public void setSegmentIndex(SegmentIndex segmentIndex) {
+        this.segmentIndex = segmentIndex;
+    }
+
+    /**
+     * Gets the index of the segments of the validated primitives. The index is only set for a validation of all primitives
+     * of a data set, so it contains the segments of all usable ways of the data set.
+     * @return the index, or {@code null} if the test has to find the segments itself
+     * @since xxx
+     */
+    protected SegmentIndex getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    /**
+     * Determines if the primitives are visited on several threads.
+     * @return {@code true} if this test is data parallel and a pool was set
+     * @since xxx
+     */
+    protected boolean isVisitingInParallel() {
+        return forkJoinPool != null && isDataParallel();
+    }
+
+    /**
+     * Visits the usable primitives on several threads. The errors which are added while visiting are returned,
+     * instead of being added to {@link #errors}.
+     * @param selection The primitives to be tested
+     * @param visitor The visitor, which is called concurrently for different primitives
+     * @return The errors, in the order of their first primitive in {@code selection}
+     * @since xxx
+     */
+    protected final List<TestError> visitInParallel(Collection<OsmPrimitive> selection, Consumer<OsmPrimitive> visitor) {
+        final List<OsmPrimitive> primitives = selection instanceof List ? (List<OsmPrimitive>) selection : new ArrayList<>(selection);
+        final List<TestError> previous = errors;
+        final List<TestError> found = Collections.synchronizedList(new ArrayList<>());
+        errors = found;
+        try {
+            forkJoinPool.submit(() -> primitives.parallelStream()
+                    .filter(p -> !isCanceled() && isPrimitiveUsable(p))
+                    .forEach(visitor)).join();
+        } finally {
+            errors = previous;
+        }
+        if (progressMonitor != null) {
+            progressMonitor.worked(primitives.size());
+        }
+        return sortByFirstPrimitive(found, primitives);
+    }
+
+    private static List<TestError> sortByFirstPrimitive(List<TestError> errors, List<OsmPrimitive> primitives) {
+        if (errors.size() < 2) {
+            return errors;
+        }
+        final Integer unknown = Integer.MAX_VALUE;
+        final Map<OsmPrimitive, Integer> order = new HashMap<>();
+        for (TestError error : errors) {
+            final Iterator<? extends OsmPrimitive> it = error.getPrimitives().iterator();
+            if (it.hasNext()) {
+                order.put(it.next(), unknown);
+            }
+        }
+        for (int i = 0; i < primitives.size(); i++) {
+            order.replace(primitives.get(i), unknown, i);
+        }
+        // the sort is stable, and all errors of a primitive were added by the same thread
+        errors.sort(Comparator.comparingInt(error -> {
+            final Iterator<? extends OsmPrimitive> it = error.getPrimitives().iterator();
+            return it.hasNext() ? order.get(it.next()) : unknown;
+        }));
+        return errors;
+    }
+
     /**
      * Determines if the primitive is usable for tests.
      * @param p The primitive
@@ -3,13 +3,18 @@ package org.openstreetmap.josm.data.validation;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.awt.Component;
 import java.awt.GraphicsEnvironment;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -19,28 +24,45 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
 import org.openstreetmap.josm.data.validation.util.AggregatePrimitivesVisitor;
+import org.openstreetmap.josm.data.validation.util.SegmentIndex;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapFrame;
 import org.openstreetmap.josm.gui.Notification;
 import org.openstreetmap.josm.gui.PleaseWaitRunnable;
 import org.openstreetmap.josm.gui.dialogs.ValidatorDialog;
+import org.openstreetmap.josm.gui.progress.AbstractProgressMonitor;
+import org.openstreetmap.josm.gui.progress.CancelHandler;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressTaskId;
 import org.openstreetmap.josm.gui.progress.swing.PleaseWaitProgressMonitor;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Asynchronous task for running a collection of tests against a collection of primitives
+ * <p>
+ * If {@link ValidatorPrefHelper#PREF_PARALLEL parallel validation} is enabled, {@link Test#isThreadSafe() thread safe}
+ * tests run concurrently on a fork join pool, and {@link Test#isDataParallel() data parallel} tests visit their primitives
+ * on several threads. The errors are collected in the order of the tests, as with sequential validation.
+ * <p>
+ * If all primitives are validated, the tests which {@linkplain Test#usesSegmentIndex use} a {@link SegmentIndex}
+ * share one index, which is built before the first test.
  */
 public class ValidationTask extends PleaseWaitRunnable {
+    private static ForkJoinPool sharedForkJoinPool;
+
     private final Consumer<List<TestError>> onFinish;
     private Collection<Test> tests;
     private final Collection<OsmPrimitive> initialPrimitives;
     private final Collection<OsmPrimitive> formerValidatedPrimitives;
     private final boolean beforeUpload;
     private boolean canceled;
+    /** Cancels the tests running concurrently, whose progress is not shown */
+    private final CancelHandler concurrentCancelHandler = new CancelHandler();
     private final List<TestError> errors = new ArrayList<>();
     private BiConsumer<ValidationTask, Test> testConsumer;
+    private ForkJoinPool forkJoinPool;
 
     /**
      * Constructs a new {@code ValidationTask}
@@ -88,7 +110,7 @@ public class ValidationTask extends PleaseWaitRunnable {
      * @param primitives the given objects
      * @return the collection of relevant parent objects
      */
-    private static Set<OsmPrimitive> getRelevantParents(Collection<OsmPrimitive> primitives) {
+    static Set<OsmPrimitive> getRelevantParents(Collection<OsmPrimitive> primitives) {
         Set<OsmPrimitive> addedWays = new HashSet<>();
         Set<OsmPrimitive> addedRelations = new HashSet<>();
         for (OsmPrimitive p : primitives) {
@@ -122,6 +144,7 @@ public class ValidationTask extends PleaseWaitRunnable {
     @Override
     protected void cancel() {
         this.canceled = true;
+        concurrentCancelHandler.cancel();
     }
 
     @Override
@@ -144,7 +167,7 @@ public class ValidationTask extends PleaseWaitRunnable {
                     return;
                 if (!map.validatorDialog.isShowing() || Boolean.TRUE.equals(ValidatorPrefHelper.PREF_UNFURL.get()))
                     map.validatorDialog.unfurlDialog();
-                map.validatorDialog.tree.setErrors(errors);
+                map.validatorDialog.setErrors(errors);
                 //FIXME: nicer way to find / invalidate the corresponding error layer
                 ValidatorDialog.invalidateValidatorLayers();
                 if (!errors.isEmpty()) {
@@ -180,28 +203,53 @@ public class ValidationTask extends PleaseWaitRunnable {
         }
         getProgressMonitor().setTicksCount(tests.size() * validatedPrimitives.size());
 
-        for (Test test : tests) {
-            if (canceled)
-                return;
-            testCounter++;
-            getProgressMonitor().setCustomText(tr("Test {0}/{1}: Starting {2}", testCounter, tests.size(), test.getName()));
-            test.setBeforeUpload(this.beforeUpload);
-            // Pre-upload checks only run on a partial selection.
-            test.setPartialSelection(isPartial);
-            test.startTest(getProgressMonitor().createSubTaskMonitor(validatedPrimitives.size(), false));
-            test.visit(validatedPrimitives);
-            test.endTest();
-            if (isPartial && Boolean.TRUE.equals(ValidatorPrefHelper.PREF_REMOVE_IRRELEVANT.get())) {
-                // #23397: remove errors for objects which were not in the initial list of primitives
-                test.removeIrrelevantErrors(filter);
+        // the geometry tests share one index of the segments, if all primitives of the data set are validated
+        final SegmentIndex segmentIndex = !isPartial && tests.stream().anyMatch(Test::usesSegmentIndex)
+                ? SegmentIndex.build(validatedPrimitives) : null;
+        if (segmentIndex != null) {
+            tests.stream().filter(Test::usesSegmentIndex).forEach(test -> test.setSegmentIndex(segmentIndex));
+        }
+
+        final ForkJoinPool pool = getForkJoinPool();
+        final Map<Test, ForkJoinTask<?>> concurrentTests = new IdentityHashMap<>();
+        if (pool != null) {
+            final Collection<OsmPrimitive> primitives = validatedPrimitives;
+            final Set<OsmPrimitive> relevant = filter;
+            for (Test test : tests) {
+                test.setForkJoinPool(pool);
+                if (test.isThreadSafe()) {
+                    concurrentTests.put(test, pool.submit(() -> runTest(test,
+                            new ConcurrentTestMonitor(concurrentCancelHandler), primitives, isPartial, relevant)));
+                }
             }
+        }
 
-            errors.addAll(test.getErrors());
-            if (this.testConsumer != null) {
-                this.testConsumer.accept(this, test);
+        try {
+            for (Test test : tests) {
+                if (canceled) {
+                    return;
+                }
+                testCounter++;
+                getProgressMonitor().setCustomText(tr("Test {0}/{1}: Starting {2}", testCounter, tests.size(), test.getName()));
+                final ForkJoinTask<?> task = concurrentTests.get(test);
+                if (task != null) {
+                    task.join();
+                    getProgressMonitor().worked(validatedPrimitives.size());
+                } else {
+                    runTest(test, getProgressMonitor().createSubTaskMonitor(validatedPrimitives.size(), false),
+                            validatedPrimitives, isPartial, filter);
+                }
+
+                errors.addAll(test.getErrors());
+                if (this.testConsumer != null) {
+                    this.testConsumer.accept(this, test);
+                }
+                resetTest(test);
             }
-            test.clear();
-            test.setBeforeUpload(false);
+        } finally {
+            // the tests are shared by all validations, so they must be complete and reset before the next one, also on cancel
+            concurrentTests.values().forEach(ForkJoinTask::quietlyJoin);
+            tests.forEach(ValidationTask::resetTest);
         }
         tests = null;
         if (Boolean.TRUE.equals(ValidatorPrefHelper.PREF_USE_IGNORE.get())) {
@@ -224,6 +272,103 @@ public class ValidationTask extends PleaseWaitRunnable {
         }
     }
 
+    private void runTest(Test test, ProgressMonitor monitor, Collection<OsmPrimitive> validatedPrimitives, boolean isPartial,
+            Set<OsmPrimitive> filter) {
+        test.setBeforeUpload(this.beforeUpload);
+        // Pre-upload checks only run on a partial selection.
+        test.setPartialSelection(isPartial);
+        test.startTest(monitor);
+        test.visit(validatedPrimitives);
+        test.endTest();
+        if (isPartial && Boolean.TRUE.equals(ValidatorPrefHelper.PREF_REMOVE_IRRELEVANT.get())) {
+            // #23397: remove errors for objects which were not in the initial list of primitives
+            test.removeIrrelevantErrors(filter);
+        }
+    }
+
+    /**
+     * The progress monitor of a test running concurrently. It is not shown, but it is canceled with the validation, so that
+     * the test stops visiting its primitives.
+     */
+    private static final class ConcurrentTestMonitor extends AbstractProgressMonitor {
+        private ProgressTaskId taskId;
+
+        ConcurrentTestMonitor(CancelHandler cancelHandler) {
+            super(cancelHandler);
+        }
+
+        @Override
+        protected void doBeginTask() {
+            // Do nothing
+        }
+
+        @Override
+        protected void doFinishTask() {
+            // Do nothing
+        }
+
+        @Override
+        protected void doSetIntermediate(boolean value) {
+            // Do nothing
+        }
+
+        @Override
+        protected void doSetTitle(String title) {
+            // Do nothing
+        }
+
+        @Override
+        protected void doSetCustomText(String title) {
+            // Do nothing
+        }
+
+        @Override
+        protected void updateProgress(double value) {
+            // Do nothing
+        }
+
+        @Override
+        public void setProgressTaskId(ProgressTaskId taskId) {
+            this.taskId = taskId;
+        }
+
+        @Override
+        public ProgressTaskId getProgressTaskId() {
+            return taskId;
+        }
+
+        @Override
+        public Component getWindowParent() {
+            return null;
+        }
+    }
+
+    private static void resetTest(Test test) {
+        test.clear();
+        test.setBeforeUpload(false);
+        test.setForkJoinPool(null);
+        test.setSegmentIndex(null);
+    }
+
+    private ForkJoinPool getForkJoinPool() {
+        if (forkJoinPool != null) {
+            return forkJoinPool;
+        }
+        return Boolean.TRUE.equals(ValidatorPrefHelper.PREF_PARALLEL.get()) ? getSharedForkJoinPool() : null;
+    }
+
+    private static synchronized ForkJoinPool getSharedForkJoinPool() {
+        if (sharedForkJoinPool == null) {
+            try {
+                sharedForkJoinPool = Utils.newForkJoinPool(
+                        "validator.parallel.numberOfThreads", "validator-%d", Thread.NORM_PRIORITY);
+            } catch (SecurityException e) {
+                Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            }
+        }
+        return sharedForkJoinPool;
+    }
+
     /**
      * Gets the validation errors accumulated until this moment.
      * @return The list of errors
@@ -240,4 +385,14 @@ public class ValidationTask extends PleaseWaitRunnable {
     public void setTestConsumer(BiConsumer<ValidationTask, Test> testConsumer) {
         this.testConsumer = testConsumer;
     }
+
+    /**
+     * Sets the pool to run the tests in parallel, regardless of the {@link ValidatorPrefHelper#PREF_PARALLEL preference}.
+     * The errors are the same as with sequential validation, and in the same order.
+     * @param forkJoinPool the pool, or {@code null} to use a shared pool if parallel validation is enabled
+     * @since xxx
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
 }
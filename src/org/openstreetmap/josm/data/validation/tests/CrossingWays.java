@@ -28,6 +28,7 @@ import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.util.SegmentIndex;
 import org.openstreetmap.josm.data.validation.util.ValUtil;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
@@ -326,10 +327,16 @@ public abstract class CrossingWays extends Test {
         } else {
             selection = addNearbyObjects();
         }
-        for (Way w : selection) {
-            testWay(w);
+        final SegmentIndex index = getSegmentIndex();
+        if (index != null && !partialSelection && selection.stream().allMatch(index::contains)) {
+            for (Way w : selection) {
+                testWay(w, index);
+            }
+        } else {
+            for (Way w : selection) {
+                testWay(w);
+            }
         }
-
     }
 
     private Collection<Way> addNearbyObjects() {
@@ -386,6 +393,11 @@ public abstract class CrossingWays extends Test {
         return new MessageHelper(this.name, this.code);
     }
 
+    @Override
+    public boolean usesSegmentIndex() {
+        return true;
+    }
+
     @Override
     public void visit(Way w) {
         waysToTest.add(w);
@@ -408,40 +420,61 @@ public abstract class CrossingWays extends Test {
             }
             for (List<WaySegment> segments : getSegments(cellSegments, es1.getFirstNode(), es1.getSecondNode())) {
                 for (WaySegment es2 : segments) {
-                    List<Way> prims;
-                    List<WaySegment> highlight;
-
                     if (!es1.intersects(es2)
                             || (!findSelfCrossingOnly && ignoreWaySegmentCombination(es1.getWay(), es2.getWay()))) {
                         continue;
                     }
 
-                    prims = new ArrayList<>();
-                    prims.add(es1.getWay());
-                    if (es1.getWay() != es2.getWay())
-                        prims.add(es2.getWay());
-                    if ((highlight = seenWays.get(prims)) == null) {
-                        highlight = new ArrayList<>();
-                        highlight.add(es1);
-                        highlight.add(es2);
-
-                        final MessageHelper message = createMessage(es1.getWay(), es2.getWay());
-                        errors.add(TestError.builder(this, Severity.WARNING, message.code)
-                                .message(message.message)
-                                .primitives(prims)
-                                .highlightWaySegments(highlight)
-                                .build());
-                        seenWays.put(prims, highlight);
-                    } else {
-                        highlight.add(es1);
-                        highlight.add(es2);
-                    }
+                    addCrossing(es1, es2);
                 }
                 segments.add(es1);
             }
         }
     }
 
+    /**
+     * Finds the crossings of a way with the segments which come before it in the shared index.
+     * The same crossings are found as with {@link #testWay(Way)}, without collecting the segments again.
+     * @param w the way
+     * @param index the index of all segments
+     */
+    private void testWay(Way w, SegmentIndex index) {
+        final boolean findSelfCrossingOnly = this instanceof SelfCrossing;
+        index.forEachCrossingCandidate(w, (s1, s2) -> {
+            final Way w2 = index.getWay(s2);
+            if ((findSelfCrossingOnly ? w2 != w : !waysToTest.contains(w2))
+                    || !index.intersects(s1, s2)
+                    || (!findSelfCrossingOnly && ignoreWaySegmentCombination(w, w2))) {
+                return;
+            }
+            addCrossing(index.getWaySegment(s1), index.getWaySegment(s2));
+        });
+    }
+
+    private void addCrossing(WaySegment es1, WaySegment es2) {
+        List<Way> prims = new ArrayList<>();
+        prims.add(es1.getWay());
+        if (es1.getWay() != es2.getWay())
+            prims.add(es2.getWay());
+        List<WaySegment> highlight = seenWays.get(prims);
+        if (highlight == null) {
+            highlight = new ArrayList<>();
+            highlight.add(es1);
+            highlight.add(es2);
+
+            final MessageHelper message = createMessage(es1.getWay(), es2.getWay());
+            errors.add(TestError.builder(this, Severity.WARNING, message.code)
+                    .message(message.message)
+                    .primitives(prims)
+                    .highlightWaySegments(highlight)
+                    .build());
+            seenWays.put(prims, highlight);
+        } else {
+            highlight.add(es1);
+            highlight.add(es2);
+        }
+    }
+
     private static boolean areLayerOrLevelDifferent(Way w1, Way w2) {
         return !Objects.equals(OsmUtils.getLayer(w1), OsmUtils.getLayer(w2))
             || !Objects.equals(w1.get("level"), w2.get("level"));
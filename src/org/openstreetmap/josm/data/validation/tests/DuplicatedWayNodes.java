@@ -32,6 +32,16 @@ public class DuplicatedWayNodes extends Test {
                 tr("Checks for ways with identical consecutive nodes."));
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public boolean isDataParallel() {
+        return true;
+    }
+
     @Override
     public void visit(Way w) {
         if (!w.isUsable()) return;
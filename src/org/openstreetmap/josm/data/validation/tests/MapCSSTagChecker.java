@@ -19,6 +19,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -58,8 +59,8 @@ import org.openstreetmap.josm.tools.Utils;
  */
 public class MapCSSTagChecker extends Test.TagTest {
     private MapCSSStyleIndex indexData;
-    private final Map<MapCSSRule, MapCSSTagCheckerAndRule> ruleToCheckMap = new HashMap<>();
-    private static final Map<IPrimitive, Area> mpAreaCache = new HashMap<>();
+    private final Map<MapCSSRule, MapCSSTagCheckerAndRule> ruleToCheckMap = new ConcurrentHashMap<>();
+    private static final Map<IPrimitive, Area> mpAreaCache = new ConcurrentHashMap<>();
     private static final Set<IPrimitive> toMatchForSurrounding = new HashSet<>();
     static final boolean ALL_TESTS = true;
     static final boolean ONLY_SELECTED_TESTS = false;
@@ -155,17 +156,15 @@ public class MapCSSTagChecker extends Test.TagTest {
      * @param includeOtherSeverity if {@code true}, errors of severity {@link Severity#OTHER} (info) will also be returned
      * @return all errors for the given primitive, with or without those of "info" severity
      */
-    public synchronized Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity) {
+    public Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity) {
         final List<TestError> res = new ArrayList<>();
-        if (indexData == null) {
-            indexData = createMapCSSTagCheckerIndex(checks, includeOtherSeverity, ALL_TESTS);
-        }
+        final MapCSSStyleIndex index = getIndexData(includeOtherSeverity);
 
         final Environment env = new Environment(p, new MultiCascade(), Environment.DEFAULT_LAYER, null);
         env.mpAreaCache = mpAreaCache;
         env.toMatchForSurrounding = toMatchForSurrounding;
 
-        Iterator<MapCSSRule> candidates = indexData.getRuleCandidates(p);
+        Iterator<MapCSSRule> candidates = index.getRuleCandidates(p);
         while (candidates.hasNext()) {
             MapCSSRule r = candidates.next();
             for (Selector selector : r.selectors) {
@@ -197,6 +196,13 @@ public class MapCSSTagChecker extends Test.TagTest {
         return res;
     }
 
+    private synchronized MapCSSStyleIndex getIndexData(boolean includeOtherSeverity) {
+        if (indexData == null) {
+            indexData = createMapCSSTagCheckerIndex(checks, includeOtherSeverity, ALL_TESTS);
+        }
+        return indexData;
+    }
+
     private String getTitle(String url) {
         return urlTitles.getOrDefault(url, tr("unknown"));
     }
@@ -363,6 +369,32 @@ public class MapCSSTagChecker extends Test.TagTest {
         }
     }
 
+    /**
+     * Creates a checker with the rules from the URLs matching the given predicate.
+     * The new checker does not share its index and errors with this checker.
+     * @param urlPredicate a predicate deciding whether the rules from the given URL are copied
+     * @return a new checker
+     */
+    synchronized MapCSSTagChecker withRulesFrom(Predicate<String> urlPredicate) {
+        final MapCSSTagChecker checker = new MapCSSTagChecker();
+        for (Entry<String, Set<MapCSSTagCheckerRule>> entry : checks.entrySet()) {
+            if (urlPredicate.test(entry.getKey())) {
+                checker.checks.putAll(entry.getKey(), entry.getValue());
+            }
+        }
+        checker.urlTitles.putAll(urlTitles);
+        return checker;
+    }
+
+    /**
+     * The rules are evaluated on independent environments, like the map paint styles,
+     * so the primitives can be checked concurrently.
+     */
+    @Override
+    public boolean isDataParallel() {
+        return true;
+    }
+
     @Override
     public synchronized void startTest(ProgressMonitor progressMonitor) {
         super.startTest(progressMonitor);
@@ -428,6 +460,20 @@ public class MapCSSTagChecker extends Test.TagTest {
         if (progressMonitor != null) {
             progressMonitor.setExtraText(tr(" {0}", title));
         }
+        if (isVisitingInParallel()) {
+            final boolean includeOtherSeverity = PREF_OTHER.get();
+            // the similar errors of different primitives are only removed after sorting, so that the result is deterministic
+            for (TestError e : visitInParallel(selection, p -> errors.addAll(getErrorsForPrimitive(p, includeOtherSeverity)))) {
+                addIfNotSimilar(e, errors);
+            }
+            if (partialSelection) {
+                selection.stream().filter(this::isPrimitiveUsable).forEach(tested::add);
+                if (!tested.isEmpty()) {
+                    testPartial(currentCheck, tested, surrounding);
+                }
+            }
+            return;
+        }
         long cnt = 0;
         Stopwatch stopwatch = Stopwatch.createStarted();
         for (OsmPrimitive p : selection) {
@@ -55,6 +55,7 @@ import org.openstreetmap.josm.data.osm.Tag;
 import org.openstreetmap.josm.data.osm.TagMap;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
 import org.openstreetmap.josm.data.osm.visitor.MergeSourceBuildingVisitor;
 import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
 import org.openstreetmap.josm.data.validation.OsmValidator;
@@ -1256,9 +1257,7 @@ public class TagChecker extends TagTest implements TaggingPresetListener {
     private int countDeprecated(OsmPrimitive p) {
         if (deprecatedChecker == null)
             return 0;
-        deprecatedChecker.getErrors().clear();
-        deprecatedChecker.visit(Collections.singleton(p), url -> url.endsWith("deprecated.mapcss"));
-        return deprecatedChecker.getErrors().size();
+        return deprecatedChecker.getErrorsForPrimitive(p, ValidatorPrefHelper.PREF_OTHER.get()).size();
     }
 
     private static boolean isNum(String harmonizedValue) {
@@ -1317,7 +1316,10 @@ public class TagChecker extends TagTest implements TaggingPresetListener {
         if (isBeforeUpload) {
             checkRegions = checkRegions && Config.getPref().getBoolean(PREF_CHECK_REGIONS_BEFORE_UPLOAD, true);
         }
-        deprecatedChecker = OsmValidator.getTest(MapCSSTagChecker.class);
+        // a copy of the deprecated rules, so that the primitives can be checked concurrently with the MapCSS checker
+        MapCSSTagChecker mapCSSTagChecker = OsmValidator.getTest(MapCSSTagChecker.class);
+        deprecatedChecker = mapCSSTagChecker == null ? null
+                : mapCSSTagChecker.withRulesFrom(url -> url.endsWith("deprecated.mapcss"));
         ignoreForOuterMPSameTagCheck.addAll(Config.getPref().getList(PREF_KEYS_IGNORE_OUTER_MP_SAME_TAG, Collections.emptyList()));
     }
 
@@ -1327,6 +1329,23 @@ public class TagChecker extends TagTest implements TaggingPresetListener {
         super.endTest();
     }
 
+    /**
+     * The tag checks only read the static data loaded by {@link #initialize()},
+     * so the primitives can be checked concurrently.
+     */
+    @Override
+    public boolean isDataParallel() {
+        return true;
+    }
+
+    /**
+     * Only the check of regions depends on the positions of the nodes.
+     */
+    @Override
+    public boolean isAffectedBy(DatasetEventType type) {
+        return type != DatasetEventType.NODE_MOVED || Config.getPref().getBoolean(PREF_CHECK_REGIONS, true);
+    }
+
     @Override
     public void visit(Collection<OsmPrimitive> selection) {
         if (checkKeys || checkValues || checkComplex || checkFixmes || checkPresetsTypes || checkRegions) {
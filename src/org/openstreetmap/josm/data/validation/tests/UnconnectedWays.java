@@ -37,6 +37,7 @@ import org.openstreetmap.josm.data.projection.ProjectionRegistry;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.util.SegmentIndex;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Geometry;
@@ -579,6 +580,16 @@ public abstract class UnconnectedWays extends Test {
         private boolean obstacleBetween(Node endnode) {
             EastNorth en = endnode.getEastNorth();
             EastNorth closest = calcClosest(endnode);
+            final SegmentIndex index = getSegmentIndex();
+            if (index != null && index.getDataSet() == ds) {
+                // find obstacle segments between end node and way segment
+                return index.anySegmentNear(closest, en, s -> {
+                    final Way nearbyWay = index.getWay(s);
+                    return nearbyWay != w && isObstacle(nearbyWay) && !endnode.getParentWays().contains(nearbyWay)
+                            && Geometry.getSegmentSegmentIntersection(closest, en,
+                                    index.getFirstNode(s).getEastNorth(), index.getSecondNode(s).getEastNorth()) != null;
+                });
+            }
             LatLon llClosest = ProjectionRegistry.getProjection().eastNorth2latlon(closest);
             // find obstacles between end node and way segment
             BBox bbox = new BBox(endnode.getCoor(), llClosest);
@@ -626,6 +637,11 @@ public abstract class UnconnectedWays extends Test {
         return ret;
     }
 
+    @Override
+    public boolean usesSegmentIndex() {
+        return true;
+    }
+
     @Override
     public void visit(Way w) {
         if (partialSelection) {
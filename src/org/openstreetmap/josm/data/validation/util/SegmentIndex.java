@@ -0,0 +1,411 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation.util;
+
+import java.awt.geom.Line2D;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.validation.OsmValidator;
+
+/**
+ * A spatial index of the way segments of the validated primitives, which is built once per validation run and shared
+ * by the geometry tests.
+ * <p>
+ * The segments are numbered in the order of their ways in the indexed collection and in the order of the nodes of each way,
+ * so the segments of a way have consecutive numbers. Each segment is added to the cells of the validator grid which it
+ * crosses, see {@link ValUtil#forEachSegmentCell}. The cells are keyed by a {@code long} in an open addressing table,
+ * and the segment numbers of all cells are stored in one {@code int[]}, in ascending order for each cell.
+ * The east/north coordinates of the segments are copied to a {@code double[]}, so that the candidates can be checked
+ * without allocating {@link WaySegment}s.
+ * <p>
+ * The index is immutable, so it can be used by several threads. It does not follow later changes of the data.
+ * @since xxx
+ */
+public final class SegmentIndex {
+
+    /**
+     * Consumer of a pair of segments.
+     */
+    @FunctionalInterface
+    public interface SegmentPairConsumer {
+        /**
+         * Accepts a pair of segments.
+         * @param segment The number of the segment
+         * @param candidate The number of the other segment
+         */
+        void accept(int segment, int candidate);
+    }
+
+    private final DataSet dataSet;
+    private final double gridDetail;
+    private final Map<Way, Integer> firstSegments;
+    private final int segmentCount;
+    private final Way[] ways;
+    private final int[] lowerIndexes;
+    /** The east and north coordinates of the first and second node of each segment */
+    private final double[] coordinates;
+    /** The cells of each segment, from {@code segmentCellOffsets[s]} to {@code segmentCellOffsets[s + 1]} */
+    private final int[] segmentCellOffsets;
+    private final int[] segmentCells;
+    /** The segments of each cell, from {@code cellOffsets[c]} to {@code cellOffsets[c + 1]} */
+    private final int[] cellOffsets;
+    private final int[] cellSegments;
+    /** The open addressing table of the cells: the key and the cell number + 1 of each slot, 0 for empty slots */
+    private final long[] cellKeys;
+    private final int[] cellSlots;
+    private final int cellCount;
+
+    /**
+     * The keys of the cells of the segments, in the order of the segments.
+     */
+    private static final class CellKeys implements ValUtil.CellConsumer {
+        private long[] keys;
+        private int size;
+
+        CellKeys(int capacity) {
+            keys = new long[capacity];
+        }
+
+        @Override
+        public void accept(long x, long y) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * keys.length);
+            }
+            keys[size++] = cellKey(x, y);
+        }
+    }
+
+    private SegmentIndex(Collection<? extends OsmPrimitive> primitives, double gridDetail) {
+        this.gridDetail = gridDetail;
+        this.firstSegments = new HashMap<>();
+        DataSet ds = null;
+        int capacity = 16;
+        for (OsmPrimitive p : primitives) {
+            if (p instanceof Way && p.isUsable()) {
+                capacity += Math.max(0, ((Way) p).getNodesCount() - 1);
+                if (ds == null) {
+                    ds = p.getDataSet();
+                }
+            }
+        }
+        this.dataSet = ds;
+
+        Way[] segmentWays = new Way[capacity];
+        int[] segmentIndexes = new int[capacity];
+        double[] segmentCoordinates = new double[4 * capacity];
+        int[] cellOffsetsOfSegments = new int[capacity + 1];
+        final CellKeys pairKeys = new CellKeys(2 * capacity);
+        int count = 0;
+        for (OsmPrimitive p : primitives) {
+            if (!(p instanceof Way) || !p.isUsable() || firstSegments.containsKey(p)) {
+                continue;
+            }
+            final Way w = (Way) p;
+            firstSegments.put(w, count);
+            for (int i = 0; i < w.getNodesCount() - 1; i++) {
+                final Node n1 = w.getNode(i);
+                final Node n2 = w.getNode(i + 1);
+                if (!n1.isLatLonKnown() || !n2.isLatLonKnown()) {
+                    continue;
+                }
+                final EastNorth en1 = n1.getEastNorth();
+                final EastNorth en2 = n2.getEastNorth();
+                if (en1 == null || en2 == null) {
+                    continue;
+                }
+                segmentWays[count] = w;
+                segmentIndexes[count] = i;
+                segmentCoordinates[4 * count] = en1.east();
+                segmentCoordinates[4 * count + 1] = en1.north();
+                segmentCoordinates[4 * count + 2] = en2.east();
+                segmentCoordinates[4 * count + 3] = en2.north();
+                ValUtil.forEachSegmentCell(en1, en2, gridDetail, pairKeys);
+                cellOffsetsOfSegments[++count] = pairKeys.size;
+            }
+        }
+        this.segmentCount = count;
+        this.ways = Arrays.copyOf(segmentWays, count);
+        this.lowerIndexes = Arrays.copyOf(segmentIndexes, count);
+        this.coordinates = Arrays.copyOf(segmentCoordinates, 4 * count);
+        this.segmentCellOffsets = Arrays.copyOf(cellOffsetsOfSegments, count + 1);
+
+        // assign a number to each distinct cell
+        final int pairCount = pairKeys.size;
+        int tableSize = 16;
+        while (tableSize < 2 * pairCount) {
+            tableSize *= 2;
+        }
+        this.cellKeys = new long[tableSize];
+        this.cellSlots = new int[tableSize];
+        this.segmentCells = new int[pairCount];
+        int cells = 0;
+        for (int i = 0; i < pairCount; i++) {
+            final long key = pairKeys.keys[i];
+            int slot = slot(key);
+            while (cellSlots[slot] != 0 && cellKeys[slot] != key) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            if (cellSlots[slot] == 0) {
+                cellKeys[slot] = key;
+                cellSlots[slot] = ++cells;
+            }
+            segmentCells[i] = cellSlots[slot] - 1;
+        }
+        this.cellCount = cells;
+
+        // group the segments by cell, they are added in ascending order
+        this.cellOffsets = new int[cells + 1];
+        for (int i = 0; i < pairCount; i++) {
+            cellOffsets[segmentCells[i] + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellOffsets[c + 1] += cellOffsets[c];
+        }
+        this.cellSegments = new int[pairCount];
+        final int[] fill = Arrays.copyOf(cellOffsets, cells);
+        for (int s = 0; s < count; s++) {
+            for (int i = segmentCellOffsets[s]; i < segmentCellOffsets[s + 1]; i++) {
+                cellSegments[fill[segmentCells[i]]++] = s;
+            }
+        }
+    }
+
+    /**
+     * Builds the index of the segments of the usable ways in a collection of primitives, with the grid of the validator.
+     * @param primitives The primitives, usually all primitives which are validated
+     * @return the index
+     * @see OsmValidator#getGridDetail()
+     */
+    public static SegmentIndex build(Collection<? extends OsmPrimitive> primitives) {
+        return build(primitives, OsmValidator.getGridDetail());
+    }
+
+    /**
+     * Builds the index of the segments of the usable ways in a collection of primitives.
+     * @param primitives The primitives, usually all primitives which are validated
+     * @param gridDetail The detail of the grid, see {@link ValUtil#forEachSegmentCell}
+     * @return the index
+     */
+    public static SegmentIndex build(Collection<? extends OsmPrimitive> primitives, double gridDetail) {
+        return new SegmentIndex(primitives, gridDetail);
+    }
+
+    private static long cellKey(long x, long y) {
+        // cells whose coordinates do not fit into an int may share a key, which only adds candidates
+        return (x << 32) ^ (y & 0xffff_ffffL);
+    }
+
+    private int slot(long key) {
+        final long hash = key * 0x9e37_79b9_7f4a_7c15L;
+        return (int) (hash ^ (hash >>> 32)) & (cellKeys.length - 1);
+    }
+
+    private int findCell(long key) {
+        int slot = slot(key);
+        while (cellSlots[slot] != 0) {
+            if (cellKeys[slot] == key) {
+                return cellSlots[slot] - 1;
+            }
+            slot = (slot + 1) & (cellKeys.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the data set of the indexed ways.
+     * @return the data set of the indexed ways, or {@code null} if there are none
+     */
+    public DataSet getDataSet() {
+        return dataSet;
+    }
+
+    /**
+     * Gets the detail of the grid.
+     * @return the detail of the grid
+     */
+    public double getGridDetail() {
+        return gridDetail;
+    }
+
+    /**
+     * Determines if a way is indexed.
+     * @param way The way
+     * @return {@code true} if the segments of the way are indexed
+     */
+    public boolean contains(Way way) {
+        return firstSegments.containsKey(way);
+    }
+
+    /**
+     * Gets the number of indexed segments.
+     * @return the number of indexed segments
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Gets the number of the grid cells with at least one segment.
+     * @return the number of cells
+     */
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Gets the way of a segment.
+     * @param segment The number of the segment
+     * @return the way
+     */
+    public Way getWay(int segment) {
+        return ways[segment];
+    }
+
+    /**
+     * Gets the index of the first node of a segment in its way.
+     * @param segment The number of the segment
+     * @return the index of the first node
+     */
+    public int getLowerIndex(int segment) {
+        return lowerIndexes[segment];
+    }
+
+    /**
+     * Gets the first node of a segment.
+     * @param segment The number of the segment
+     * @return the first node
+     */
+    public Node getFirstNode(int segment) {
+        return ways[segment].getNode(lowerIndexes[segment]);
+    }
+
+    /**
+     * Gets the second node of a segment.
+     * @param segment The number of the segment
+     * @return the second node
+     */
+    public Node getSecondNode(int segment) {
+        return ways[segment].getNode(lowerIndexes[segment] + 1);
+    }
+
+    /**
+     * Creates the way segment of a segment number.
+     * @param segment The number of the segment
+     * @return a new way segment
+     */
+    public WaySegment getWaySegment(int segment) {
+        return new WaySegment(ways[segment], lowerIndexes[segment]);
+    }
+
+    /**
+     * Determines if two segments cross, like {@link WaySegment#intersects}.
+     * @param segment1 The number of the first segment
+     * @param segment2 The number of the second segment
+     * @return {@code true} if the segments cross and have no common node
+     */
+    public boolean intersects(int segment1, int segment2) {
+        final Node a1 = getFirstNode(segment1);
+        final Node a2 = getSecondNode(segment1);
+        final Node b1 = getFirstNode(segment2);
+        final Node b2 = getSecondNode(segment2);
+        if (a1.equals(b1) || a2.equals(b2) || a1.equals(b2) || a2.equals(b1)) {
+            return false;
+        }
+        final int i = 4 * segment1;
+        final int j = 4 * segment2;
+        return Line2D.linesIntersect(coordinates[i], coordinates[i + 1], coordinates[i + 2], coordinates[i + 3],
+                coordinates[j], coordinates[j + 1], coordinates[j + 2], coordinates[j + 3]);
+    }
+
+    /**
+     * Visits the candidates for crossings with the segments of a way. A candidate is a segment with a lower number
+     * in a grid cell of a segment of the way, so each pair of crossing segments is visited once from the segment with
+     * the higher number. Like with {@code CrossingWays#getSegments}, a candidate which shares several cells
+     * with a segment is visited once per shared cell.
+     * @param way The way
+     * @param consumer The consumer of the segment of the way and the candidate
+     */
+    public void forEachCrossingCandidate(Way way, SegmentPairConsumer consumer) {
+        final Integer first = firstSegments.get(way);
+        if (first == null) {
+            return;
+        }
+        for (int s = first; s < segmentCount && ways[s] == way; s++) {
+            for (int i = segmentCellOffsets[s]; i < segmentCellOffsets[s + 1]; i++) {
+                final int cell = segmentCells[i];
+                for (int j = cellOffsets[cell]; j < cellOffsets[cell + 1]; j++) {
+                    final int candidate = cellSegments[j];
+                    if (candidate >= s) {
+                        break;
+                    }
+                    consumer.accept(s, candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines if a segment near a rectangle matches a predicate. The predicate is tested with the segments whose bounds
+     * intersect the rectangle spanned by two points, a segment may be tested more than once.
+     * @param en1 The first corner of the rectangle
+     * @param en2 The opposite corner of the rectangle
+     * @param predicate The predicate
+     * @return {@code true} if the predicate is true for a segment
+     */
+    public boolean anySegmentNear(EastNorth en1, EastNorth en2, IntPredicate predicate) {
+        final double minEast = Math.min(en1.east(), en2.east());
+        final double maxEast = Math.max(en1.east(), en2.east());
+        final double minNorth = Math.min(en1.north(), en2.north());
+        final double maxNorth = Math.max(en1.north(), en2.north());
+        // the same cell coordinates as ValUtil.forEachSegmentCell
+        final long minX = (long) Math.floor(minEast * gridDetail);
+        final long maxX = (long) Math.floor(maxEast * gridDetail);
+        final long minY = (long) Math.floor(minNorth * gridDetail + 1);
+        final long maxY = (long) Math.floor(maxNorth * gridDetail + 1);
+        if ((double) (maxX - minX + 1) * (maxY - minY + 1) > cellCount) {
+            for (int s = 0; s < segmentCount; s++) {
+                if (isNear(s, minEast, maxEast, minNorth, maxNorth) && predicate.test(s)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (long x = minX; x <= maxX; x++) {
+            for (long y = minY; y <= maxY; y++) {
+                final int cell = findCell(cellKey(x, y));
+                if (cell < 0) {
+                    continue;
+                }
+                for (int j = cellOffsets[cell]; j < cellOffsets[cell + 1]; j++) {
+                    final int s = cellSegments[j];
+                    if (isNear(s, minEast, maxEast, minNorth, maxNorth) && predicate.test(s)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isNear(int segment, double minEast, double maxEast, double minNorth, double maxNorth) {
+        final int i = 4 * segment;
+        return Math.max(coordinates[i], coordinates[i + 2]) >= minEast
+                && Math.min(coordinates[i], coordinates[i + 2]) <= maxEast
+                && Math.max(coordinates[i + 1], coordinates[i + 3]) >= minNorth
+                && Math.min(coordinates[i + 1], coordinates[i + 3]) <= maxNorth;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentIndex [segments=" + segmentCount + ", cells=" + cellCount + ", gridDetail=" + gridDetail + ']';
+    }
+}
@@ -23,6 +23,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.data.osm.RelationData;
 import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.TagStringPool;
 import org.openstreetmap.josm.data.osm.WayData;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
 import org.openstreetmap.josm.gui.ExtendedDialog;
@@ -100,6 +101,7 @@ public final class PrimitiveDataPaster extends AbstractOsmDataPaster {
                 continue;
             }
             PrimitiveData copy = data.makeCopy();
+            copy.setKeys(TagStringPool.getInstance().internTags(copy.getKeys()));
             // don't know why this is reset, but we need it to not crash on copying incomplete nodes.
             boolean wasIncomplete = copy.isIncomplete();
             copy.clearOsmMetadata();
@@ -49,6 +49,7 @@ import org.openstreetmap.josm.data.osm.event.SelectionEventManager;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.data.osm.visitor.PrimitiveVisitor;
 import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
+import org.openstreetmap.josm.data.validation.IncrementalValidator;
 import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.TestError;
@@ -107,6 +108,8 @@ public class ValidatorDialog extends ToggleDialog
     private final JPopupMenu popupMenu = new JPopupMenu();
     private final transient PopupMenuHandler popupMenuHandler = new PopupMenuHandler(popupMenu);
     private final transient DataSetListenerAdapter dataChangedAdapter = new DataSetListenerAdapter(this);
+    /** keeps the errors up to date while editing, if enabled */
+    private transient IncrementalValidator incrementalValidator;
 
     /** Last selected element */
     private DefaultMutableTreeNode lastSelectedNode;
@@ -257,7 +260,7 @@ public class ValidatorDialog extends ToggleDialog
             updateSelection(ds.getAllSelected());
         }
         MainApplication.getLayerManager().addAndFireActiveLayerChangeListener(this);
-
+        updateIncrementalValidator();
     }
 
     @Override
@@ -265,6 +268,45 @@ public class ValidatorDialog extends ToggleDialog
         DatasetEventManager.getInstance().removeDatasetListener(dataChangedAdapter);
         MainApplication.getLayerManager().removeActiveLayerChangeListener(this);
         SelectionEventManager.getInstance().removeSelectionListener(this);
+        stopIncrementalValidator();
+    }
+
+    private void updateIncrementalValidator() {
+        if (incrementalValidator == null && Boolean.TRUE.equals(ValidatorPrefHelper.PREF_INCREMENTAL.get())) {
+            incrementalValidator = new IncrementalValidator(OsmValidator.getEnabledTests(false), this::setIncrementalErrors);
+            incrementalValidator.setErrors(tree.getErrors());
+            DatasetEventManager.getInstance().addDatasetListener(incrementalValidator, FireMode.IN_EDT_CONSOLIDATED);
+        }
+    }
+
+    private void stopIncrementalValidator() {
+        if (incrementalValidator != null) {
+            DatasetEventManager.getInstance().removeDatasetListener(incrementalValidator);
+            incrementalValidator = null;
+        }
+    }
+
+    private void setIncrementalErrors(List<TestError> errors) {
+        if (incrementalValidator == null) {
+            return;
+        }
+        tree.setErrors(errors);
+        invalidateValidatorLayers();
+        if (!errors.isEmpty()) {
+            OsmValidator.initializeErrorLayer();
+        }
+    }
+
+    /**
+     * Shows the errors of a validation. If enabled, these errors are kept up to date while editing.
+     * @param errors the errors
+     * @since xxx
+     */
+    public void setErrors(List<TestError> errors) {
+        tree.setErrors(errors);
+        if (incrementalValidator != null) {
+            incrementalValidator.setErrors(tree.getErrors());
+        }
     }
 
     @Override
@@ -433,6 +475,9 @@ public class ValidatorDialog extends ToggleDialog
         } else {
             tree.setErrorList(editLayer.validationErrors);
         }
+        if (incrementalValidator != null) {
+            incrementalValidator.setErrors(tree.getErrors());
+        }
     }
 
     /**
@@ -748,6 +793,9 @@ public class ValidatorDialog extends ToggleDialog
             if (ds != null) {
                 updateSelection(ds.getAllSelected());
             }
+        } else if (ValidatorPrefHelper.PREF_INCREMENTAL.getKey().equals(e.getKey()) && isShowing()) {
+            stopIncrementalValidator();
+            updateIncrementalValidator();
         }
     }
 
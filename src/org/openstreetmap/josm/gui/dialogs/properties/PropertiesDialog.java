@@ -74,12 +74,16 @@ import org.openstreetmap.josm.data.osm.KeyValueVisitor;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmDataManager;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.Tag;
 import org.openstreetmap.josm.data.osm.Tags;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetChangeSet;
+import org.openstreetmap.josm.data.osm.event.DataSetChangeSet.Change;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
 import org.openstreetmap.josm.data.osm.event.DatasetEventManager;
 import org.openstreetmap.josm.data.osm.event.DatasetEventManager.FireMode;
@@ -925,9 +929,28 @@ implements DataSelectionListener, ActiveLayerChangeListener, PropertyChangeListe
 
     @Override
     public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+        if (event instanceof DataChangedEvent && !concernsSelection(((DataChangedEvent) event).getChangeSet())) {
+            return;
+        }
         updateSelection();
     }
 
+    /**
+     * Determines if the net changes of a large batch may concern the tags or the memberships of the selected primitives.
+     * @param changeSet the net changes, can be {@code null}
+     * @return {@code true} unless the selected primitives and the relations are unchanged
+     */
+    private static boolean concernsSelection(DataSetChangeSet changeSet) {
+        if (changeSet == null || changeSet.size(OsmPrimitiveType.RELATION, Change.ADDED) > 0
+                || changeSet.size(OsmPrimitiveType.RELATION, Change.REMOVED) > 0
+                || changeSet.size(OsmPrimitiveType.RELATION, Change.MODIFIED) > 0) {
+            return true;
+        }
+        final Collection<? extends IPrimitive> sel = OsmDataManager.getInstance().getInProgressISelection();
+        // the hovered primitive is displayed when nothing is selected
+        return sel.isEmpty() || sel.stream().anyMatch(p -> !(p instanceof OsmPrimitive) || changeSet.contains((OsmPrimitive) p));
+    }
+
     /**
      * Replies the tag popup menu handler.
      * @return The tag popup menu handler
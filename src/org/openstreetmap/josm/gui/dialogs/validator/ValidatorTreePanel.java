@@ -27,6 +27,8 @@ import javax.swing.tree.TreeSelectionModel;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetChangeSet;
+import org.openstreetmap.josm.data.osm.event.DataSetChangeSet.Change;
 import org.openstreetmap.josm.data.osm.event.DataSetListener;
 import org.openstreetmap.josm.data.osm.event.DatasetEventManager;
 import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
@@ -561,6 +563,10 @@ public class ValidatorTreePanel extends JTree implements Destroyable, DataSetLis
     }
 
     @Override public void dataChanged(DataChangedEvent event) {
+        final DataSetChangeSet changeSet = event.getChangeSet();
+        if (changeSet != null && changeSet.size(Change.REMOVED) == 0) {
+            return; // no primitive has been removed or deleted
+        }
         if (filterRemovedPrimitives()) {
             buildTree();
         }
@@ -17,12 +17,15 @@ import java.text.MessageFormat;
 import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.io.Compression;
 import org.openstreetmap.josm.io.OsmWriter;
 import org.openstreetmap.josm.io.OsmWriterFactory;
+import org.openstreetmap.josm.io.ParallelOsmWriter;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
@@ -76,14 +79,29 @@ public class OsmExporter extends FileExporter {
             throw new IllegalArgumentException(
                     MessageFormat.format("Expected instance of OsmDataLayer. Got ''{0}''.", layer.getClass().getName()));
         }
-        save(file, (OsmDataLayer) layer, isAutosave);
+        save(file, (OsmDataLayer) layer, null, isAutosave);
+    }
+
+    /**
+     * Exports the state of the data of a layer when a snapshot was taken to the given file. No post-save events are fired.
+     * The primitives are written from the snapshot, without creating a data set.
+     * @param file Output file
+     * @param snapshot the snapshot of the data set of a layer
+     * @param isAutosave if {@code true}, the potential backup file created if the output file already exists will be deleted
+     *                   after a successful export
+     * @throws IOException in case of IO errors
+     * @throws InvalidPathException when file name cannot be converted into a Path
+     * @since xxx
+     */
+    public void exportData(File file, DataSetSnapshot snapshot, boolean isAutosave) throws IOException {
+        save(file, null, snapshot, isAutosave);
     }
 
     protected static OutputStream getOutputStream(File file) throws IOException {
         return Compression.getCompressedFileOutputStream(file);
     }
 
-    private void save(File file, OsmDataLayer layer, boolean isAutosave) throws IOException {
+    private void save(File file, OsmDataLayer layer, DataSetSnapshot snapshot, boolean isAutosave) throws IOException {
         File tmpFile = null;
         try {
             if (file.exists() && !file.canWrite()) {
@@ -97,11 +115,15 @@ public class OsmExporter extends FileExporter {
                 Utils.copyFile(file, tmpFile);
             }
 
-            doSave(file, layer);
+            if (layer != null) {
+                doSave(file, layer);
+            } else {
+                doSave(file, snapshot);
+            }
             if ((isAutosave || !Config.getPref().getBoolean("save.keepbackup", false)) && tmpFile != null) {
                 Utils.deleteFile(tmpFile);
             }
-            if (!isAutosave) {
+            if (!isAutosave && layer != null) {
                 layer.onPostSaveToFile();
             }
         } catch (IOException | InvalidPathException e) {
@@ -128,17 +150,50 @@ public class OsmExporter extends FileExporter {
     }
 
     protected void doSave(File file, OsmDataLayer layer) throws IOException {
+        doSave(file, layer.data);
+    }
+
+    private static void doSave(File file, DataSetSnapshot snapshot) throws IOException {
+        try (
+            OutputStream out = getOutputStream(file);
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, snapshot.getVersion())
+        ) {
+            w.write(snapshot);
+        }
+    }
+
+    /**
+     * Writes a data set to the given file.
+     * @param file Output file
+     * @param data the data set
+     * @throws IOException in case of IO errors
+     * @since xxx
+     */
+    protected void doSave(File file, DataSet data) throws IOException {
+        if (ParallelOsmWriter.isUseful(data)) {
+            // the chunks are large enough to be written without buffering
+            try (OutputStream out = getOutputStream(file)) {
+                data.getReadLock().lock();
+                try {
+                    new ParallelOsmWriter(out, false, data.getVersion()).write(data);
+                } finally {
+                    data.getReadLock().unlock();
+                }
+            }
+            return;
+        }
         // create outputstream and wrap it with gzip, xz or bzip, if necessary
         try (
             OutputStream out = getOutputStream(file);
             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
-            OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, layer.data.getVersion())
+            OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, data.getVersion())
         ) {
-            layer.data.getReadLock().lock();
+            data.getReadLock().lock();
             try {
-                w.write(layer.data);
+                w.write(data);
             } finally {
-                layer.data.getReadLock().unlock();
+                data.getReadLock().unlock();
             }
         }
     }
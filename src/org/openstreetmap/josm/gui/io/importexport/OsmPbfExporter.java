@@ -0,0 +1,81 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.io.importexport;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.awt.GraphicsEnvironment;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+import javax.swing.JOptionPane;
+
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.ConditionalOptionPaneUtil;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.Layer;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.OsmPbfWriter;
+
+/**
+ * Exports data to an .osm.pbf file.
+ * @since xxx
+ */
+public class OsmPbfExporter extends OsmExporter {
+
+    /**
+     * The maximum number of primitives in a block of the written files
+     */
+    public static final IntegerProperty BLOCK_SIZE = new IntegerProperty("pbf.writer.block-size", OsmPbfWriter.DEFAULT_BLOCK_SIZE);
+
+    /**
+     * The zlib compression level of the written files, from 0 (not compressed) to 9, or -1 for the default level
+     */
+    public static final IntegerProperty COMPRESSION_LEVEL = new IntegerProperty("pbf.writer.compression-level",
+            Deflater.DEFAULT_COMPRESSION);
+
+    /**
+     * Constructs a new {@code OsmPbfExporter}.
+     */
+    public OsmPbfExporter() {
+        super(new ExtensionFileFilter(
+            "osm.pbf", "osm.pbf", tr("OSM PBF Files") + " (*.osm.pbf)"));
+    }
+
+    @Override
+    public void exportData(File file, Layer layer, boolean isAutosave) throws IOException {
+        setCanceled(false);
+        if (!isAutosave && !GraphicsEnvironment.isHeadless() && layer instanceof OsmDataLayer
+                && ((OsmDataLayer) layer).requiresUploadToServer()
+                && !GuiHelper.runInEDTAndWaitAndReturn(() -> ConditionalOptionPaneUtil.showConfirmationDialog(
+                        "pbf_export_modified",
+                        MainApplication.getMainFrame(),
+                        tr("<html>The OSM PBF format cannot store which objects were modified or deleted.<br>"
+                                + "Deleted objects will not be saved, and the other changes will not be uploaded after "
+                                + "opening the file again.<br>Save anyway?</html>"),
+                        tr("Save as OSM PBF"),
+                        JOptionPane.YES_NO_OPTION,
+                        JOptionPane.WARNING_MESSAGE,
+                        JOptionPane.YES_OPTION))) {
+            setCanceled(true);
+            return;
+        }
+        super.exportData(file, layer, isAutosave);
+    }
+
+    @Override
+    protected void doSave(File file, OsmDataLayer layer) throws IOException {
+        try (OutputStream out = getOutputStream(file);
+             OsmPbfWriter writer = new OsmPbfWriter(out, BLOCK_SIZE.get(), COMPRESSION_LEVEL.get())) {
+            layer.data.getReadLock().lock();
+            try {
+                writer.write(layer.data);
+            } finally {
+                layer.data.getReadLock().unlock();
+            }
+        }
+    }
+}
@@ -3,14 +3,31 @@ package org.openstreetmap.josm.gui.io.importexport;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.awt.BorderLayout;
+import java.awt.GraphicsEnvironment;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Locale;
+
+import javax.swing.JPanel;
 
 import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.ExtendedDialog;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.gui.widgets.BoundingBoxSelectionPanel;
+import org.openstreetmap.josm.gui.widgets.JMultilineLabel;
+import org.openstreetmap.josm.io.Compression;
 import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.io.OsmPbfReader;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * File importer that reads *.osm.pbf data files.
@@ -24,6 +41,20 @@ public class OsmPbfImporter extends OsmImporter {
             "osm.pbf", "osm.pbf", tr("OSM PBF Files") + " (*.osm.pbf, *.osm.pbf.gz, *.osm.pbf.bz2, *.osm.pbf.xz, *.osm.pbf.zip)",
             ExtensionFileFilter.AddArchiveExtension.NONE, Arrays.asList("gz", "bz", "bz2", "xz", "zip"));
 
+    /**
+     * The number of threads used to decode the data blobs of a PBF file
+     * @since xxx
+     */
+    public static final IntegerProperty DECODER_THREADS = new IntegerProperty("pbf.reader.threads",
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The size (in MiB) from which the user is asked whether only an area of a PBF file should be opened.
+     * A negative value disables the question.
+     * @since xxx
+     */
+    public static final IntegerProperty AREA_PROMPT_SIZE = new IntegerProperty("pbf.reader.area-prompt-size", 256);
+
     /**
      * Constructs a new {@code OsmPbfImporter}.
      */
@@ -39,8 +70,90 @@ public class OsmPbfImporter extends OsmImporter {
         super(filter);
     }
 
+    @Override
+    public void importData(File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        if (!GraphicsEnvironment.isHeadless() && AREA_PROMPT_SIZE.get() >= 0 && Compression.byExtension(file.getName()) == Compression.NONE
+                && file.length() >= AREA_PROMPT_SIZE.get() * 1024L * 1024L) {
+            final AreaChoice choice = GuiHelper.runInEDTAndWaitAndReturn(() -> askForArea(file));
+            if (choice == null) {
+                return;
+            } else if (choice.area != null) {
+                importArea(file, choice.area, progressMonitor);
+                return;
+            }
+        }
+        super.importData(file, progressMonitor);
+    }
+
+    /**
+     * Import the data of an area of a PBF file into a new layer. The file is memory-mapped, and only the blocks with data in the
+     * area are decoded. See {@link OsmPbfReader#parseDataSet(java.nio.file.Path, Bounds, ProgressMonitor, int)} for the data that
+     * is read.
+     * <p>
+     * The layer is not associated with the file, since saving it would overwrite the file with a fraction of its data.
+     *
+     * @param file            The file to read from. It must not be compressed.
+     * @param area            The area to read
+     * @param progressMonitor handler for progress monitoring and canceling
+     * @throws IOException          if the file could not be read
+     * @throws IllegalDataException if an error was found while parsing the data
+     * @since xxx
+     */
+    public void importArea(File file, Bounds area, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        final DataSet dataSet = OsmPbfReader.parseDataSet(file.toPath(), area, progressMonitor, DECODER_THREADS.get());
+        final String layerName = tr("{0} (area)", file.getName());
+        final OsmDataLayer layer = createLayer(dataSet, null, layerName);
+        final Runnable postLayerTask = createPostLayerTask(dataSet, null, layerName, layer);
+        MainApplication.getLayerManager().addLayer(layer);
+        GuiHelper.runInEDT(postLayerTask);
+    }
+
+    /**
+     * Ask the user whether the whole file or only an area should be opened
+     *
+     * @param file The file to open
+     * @return The choice of the user, or {@code null} if the user cancelled
+     */
+    private static AreaChoice askForArea(File file) {
+        final BoundingBoxSelectionPanel panel = new BoundingBoxSelectionPanel();
+        if (MainApplication.isDisplayingMapView()) {
+            panel.setBoundingBox(MainApplication.getMap().mapView.getRealBounds());
+        }
+        final JPanel content = new JPanel(new BorderLayout());
+        content.add(new JMultilineLabel(tr("The file ''{0}'' is large ({1}). You can open only the data in an area.",
+                file.getName(), Utils.getSizeString(file.length(), Locale.getDefault()))), BorderLayout.NORTH);
+        content.add(panel, BorderLayout.CENTER);
+        final ExtendedDialog dialog = new ExtendedDialog(MainApplication.getMainFrame(),
+                tr("Open area of file"),
+                tr("Open area"), tr("Open whole file"), tr("Cancel"))
+            .setButtonIcons("open", "open", "cancel")
+            .setContent(content)
+            .showDialog();
+        switch (dialog.getValue()) {
+            case 1:
+                final Bounds area = panel.getBoundingBox();
+                return area != null ? new AreaChoice(area) : null;
+            case 2:
+                return new AreaChoice(null);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * The answer of the user to {@link #askForArea(File)}
+     */
+    private static final class AreaChoice {
+        /** The area to open, or {@code null} for the whole file */
+        private final Bounds area;
+
+        AreaChoice(Bounds area) {
+            this.area = area;
+        }
+    }
+
     @Override
     protected DataSet parseDataSet(InputStream in, ProgressMonitor progressMonitor) throws IllegalDataException {
-        return OsmPbfReader.parseDataSet(in, progressMonitor);
+        return OsmPbfReader.parseDataSet(in, progressMonitor, DECODER_THREADS.get());
     }
 }
@@ -79,6 +79,7 @@ import org.openstreetmap.josm.data.osm.DataIntegrityProblemException;
 import org.openstreetmap.josm.data.osm.DataSelectionListener;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.DataSetMerger;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
 import org.openstreetmap.josm.data.osm.DatasetConsistencyTest;
 import org.openstreetmap.josm.data.osm.DownloadPolicy;
 import org.openstreetmap.josm.data.osm.HighlightUpdateListener;
@@ -104,6 +105,7 @@ import org.openstreetmap.josm.data.osm.visitor.paint.MapRendererFactory;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledTiledMapRenderer;
 import org.openstreetmap.josm.data.osm.visitor.paint.TileZXY;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
+import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache.PrecomputationStatus;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.preferences.NamedColorProperty;
@@ -770,6 +772,15 @@ public class OsmDataLayer extends AbstractOsmDataLayer
         p.add(new JLabel(relationText, ImageProvider.get("data", "relation"), JLabel.HORIZONTAL), GBC.eop().insets(15, 0, 0, 0));
         p.add(new JLabel(tr("API version: {0}", (data.getVersion() != null) ? data.getVersion() : tr("unset"))),
                 GBC.eop().insets(15, 0, 0, 0));
+        PrecomputationStatus multipolygons = MultipolygonCache.getInstance().getPrecomputationStatus(data);
+        if (multipolygons != null && multipolygons.getScheduled() > 0) {
+            String text = multipolygons.isDone()
+                    ? trn("{0} multipolygon precomputed in {1}", "{0} multipolygons precomputed in {1}",
+                            multipolygons.getComputed(), multipolygons.getComputed(),
+                            Utils.getDurationString(multipolygons.getElapsedTime()))
+                    : tr("Precomputing multipolygons: {0} of {1}", multipolygons.getComputed(), multipolygons.getScheduled());
+            p.add(new JLabel(text), GBC.eop().insets(15, 0, 0, 0));
+        }
         addConditionalInformation(p, tr("Layer is locked"), isLocked());
         addConditionalInformation(p, tr("Download is blocked"), data.getDownloadPolicy() == DownloadPolicy.BLOCKED);
         addConditionalInformation(p, tr("Upload is discouraged"), isUploadDiscouraged());
@@ -1550,7 +1561,10 @@ public class OsmDataLayer extends AbstractOsmDataLayer
 
     @Override
     public boolean autosave(File file) throws IOException {
-        new OsmExporter().exportData(file, this, true /* no backup with appended ~ */);
+        // write a snapshot, so that the data set is not locked while the file is written
+        try (DataSetSnapshot snapshot = data.snapshot()) {
+            new OsmExporter().exportData(file, snapshot, true /* no backup with appended ~ */);
+        }
         return true;
     }
 
@@ -105,6 +105,11 @@ public class ElemStyles implements PreferenceChangedListener {
             cacheIdx++;
             preferenceCache.clear();
             backgroundColorCache = null;
+            for (StyleSource s : styleSources) {
+                if (s instanceof MapCSSStyleSource) {
+                    ((MapCSSStyleSource) s).clearCascadeCache();
+                }
+            }
             MainApplication.getLayerManager().getLayersOfType(OsmDataLayer.class).forEach(
                     dl -> dl.data.clearMappaintCache());
         });
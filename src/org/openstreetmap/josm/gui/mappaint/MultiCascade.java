@@ -84,6 +84,28 @@ public class MultiCascade implements StyleKeys {
         return layers.entrySet();
     }
 
+    /**
+     * Replaces the layers and the range of this cascade by copies of the layers and the range of another cascade.
+     * @param other the cascade to copy
+     * @since xxx
+     */
+    public void copyFrom(MultiCascade other) {
+        layers.clear();
+        for (Entry<String, Cascade> e : other.layers.entrySet()) {
+            layers.put(e.getKey(), new Cascade(e.getValue()));
+        }
+        range = other.range;
+    }
+
+    /**
+     * Determines if this cascade is still in its initial state, i.e., no style has been applied to it.
+     * @return {@code true} if this cascade has no layers and its range is not restricted
+     * @since xxx
+     */
+    public boolean isEmpty() {
+        return layers.isEmpty() && Range.ZERO_TO_INFINITY.equals(range);
+    }
+
     /**
      * Check whether this cascade has a given layer
      * @param layer The layer to check for
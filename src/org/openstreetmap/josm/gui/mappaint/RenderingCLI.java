@@ -5,19 +5,36 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.DoubleSupplier;
 import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import javax.imageio.ImageIO;
 
@@ -45,12 +62,14 @@ import org.openstreetmap.josm.spi.preferences.MemoryPreferences;
 import org.openstreetmap.josm.tools.Http1Client;
 import org.openstreetmap.josm.tools.HttpClient;
 import org.openstreetmap.josm.tools.JosmDecimalFormatSymbolsProvider;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.OptionParser;
 import org.openstreetmap.josm.tools.OptionParser.OptionCount;
 import org.openstreetmap.josm.tools.OptionParser.OptionParseException;
 import org.openstreetmap.josm.tools.Stopwatch;
 import org.openstreetmap.josm.tools.Territories;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Command line interface for rendering osm data to an image file.
@@ -82,6 +101,8 @@ public class RenderingCLI implements CLIModule {
     private Integer argHeightPx;
     private String argProjection;
     private Integer argMaxImageSize;
+    private String argJobs;
+    private Integer argThreads;
 
     private StyleData argCurrentStyle;
 
@@ -102,7 +123,9 @@ public class RenderingCLI implements CLIModule {
         WIDTH_PX(true, '*'),
         HEIGHT_PX(true, '*'),
         PROJECTION(true, '*'),
-        MAX_IMAGE_SIZE(true, '*');
+        MAX_IMAGE_SIZE(true, '*'),
+        JOBS(true, '*'),
+        THREADS(true, '*');
 
         private final String name;
         private final boolean requiresArg;
@@ -139,6 +162,15 @@ public class RenderingCLI implements CLIModule {
         }
     }
 
+    /**
+     * The options which apply to all jobs of a job file, they cannot be given for a single job.
+     */
+    private static final Set<Option> GLOBAL_OPTIONS = EnumSet.of(Option.HELP, Option.DEBUG, Option.TRACE, Option.INPUT,
+            Option.PROJECTION, Option.JOBS, Option.THREADS);
+
+    /** An argument in a line of the job file, either quoted or without white space */
+    private static final Pattern JOB_ARGUMENT = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+
     /**
      * Data class to hold return values for {@link #determineRenderingArea(DataSet)}.
      *
@@ -163,16 +195,22 @@ public class RenderingCLI implements CLIModule {
         try {
             parseArguments(argArray);
             initialize();
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            String task = tr("Rendering {0} to {1}", argInput, argOutput);
-            System.err.println(task);
-            DataSet ds = loadDataset();
-            RenderingArea area = determineRenderingArea(ds);
-            RenderingHelper rh = new RenderingHelper(ds, area.bounds, area.scale, argStyles);
-            checkPreconditions(rh);
-            BufferedImage image = rh.render();
-            writeImageToFile(image);
-            System.err.println(stopwatch.toString(task));
+            if (argJobs != null) {
+                if (processJobs() > 0) {
+                    Lifecycle.exitJosm(true, 1);
+                }
+            } else {
+                Stopwatch stopwatch = Stopwatch.createStarted();
+                String task = tr("Rendering {0} to {1}", argInput, argOutput);
+                System.err.println(task);
+                DataSet ds = loadDataset();
+                RenderingArea area = determineRenderingArea(ds);
+                RenderingHelper rh = new RenderingHelper(ds, area.bounds, area.scale, argStyles);
+                checkPreconditions(rh);
+                BufferedImage image = rh.render();
+                writeImageToFile(image);
+                System.err.println(stopwatch.toString(task));
+            }
         } catch (FileNotFoundException | NoSuchFileException e) {
             if (Logging.isDebugEnabled()) {
                 e.printStackTrace();
@@ -197,9 +235,48 @@ public class RenderingCLI implements CLIModule {
      */
     void parseArguments(String[] argArray) {
         Logging.setLogLevel(Level.INFO);
+        createParser("JOSM rendering", false).parseOptionsOrExit(Arrays.asList(argArray));
+        finishStyles(null);
+    }
+
+    /**
+     * Parses a line of the job file.
+     * <p>
+     * The line contains the same options as the command line, except for the options which apply to all jobs.
+     * Arguments with white space can be enclosed in double quotes. If no style is given, the styles of the command line
+     * are used, and the style settings of the job apply to the last of them.
+     * @param line the line
+     * @return the job
+     * @throws OptionParseException if the line cannot be parsed
+     */
+    RenderingCLI parseJob(String line) {
+        List<String> arguments = new ArrayList<>();
+        Matcher m = JOB_ARGUMENT.matcher(line);
+        while (m.find()) {
+            arguments.add(m.group(1) != null ? m.group(1) : m.group(2));
+        }
+        RenderingCLI job = new RenderingCLI();
+        List<String> remaining = job.createParser("JOSM rendering job", true).parseOptions(arguments);
+        if (!remaining.isEmpty()) {
+            throw new OptionParseException(tr("Unexpected argument ''{0}''", remaining.get(0)));
+        }
+        if (job.argOutput == null) {
+            throw new OptionParseException(tr("Missing argument - output image file ({0})", "--output|-o"));
+        }
+        job.finishStyles(argStyles);
+        job.argInput = argInput;
+        if (job.argMaxImageSize == null) {
+            job.argMaxImageSize = argMaxImageSize;
+        }
+        return job;
+    }
 
-        OptionParser parser = new OptionParser("JOSM rendering");
+    private OptionParser createParser(String program, boolean job) {
+        OptionParser parser = new OptionParser(program);
         for (Option o : Option.values()) {
+            if (job && GLOBAL_OPTIONS.contains(o)) {
+                continue;
+            }
             if (o.requiresArgument()) {
                 parser.addArgumentParameter(o.getName(),
                         o == Option.SETTING ? OptionCount.MULTIPLE : OptionCount.OPTIONAL,
@@ -214,11 +291,24 @@ public class RenderingCLI implements CLIModule {
 
         argCurrentStyle = new StyleData();
         argStyles = new ArrayList<>();
+        return parser;
+    }
 
-        parser.parseOptionsOrExit(Arrays.asList(argArray));
-
+    /**
+     * Adds the last style given on the command line, or the default styles if no style was given.
+     * @param defaultStyles the styles to use if no style was given, {@code null} for the standard style
+     */
+    private void finishStyles(List<StyleData> defaultStyles) {
         if (argCurrentStyle.styleUrl != null) {
             argStyles.add(argCurrentStyle);
+        } else if (argStyles.isEmpty() && defaultStyles != null) {
+            for (StyleData sd : defaultStyles) {
+                StyleData copy = new StyleData();
+                copy.styleUrl = sd.styleUrl;
+                copy.settings.putAll(sd.settings);
+                argStyles.add(copy);
+            }
+            argStyles.get(argStyles.size() - 1).settings.putAll(argCurrentStyle.settings);
         } else if (argStyles.isEmpty()) {
             argCurrentStyle.styleUrl = "resource://styles/standard/elemstyles.mapcss";
             argStyles.add(argCurrentStyle);
@@ -372,6 +462,21 @@ public class RenderingCLI implements CLIModule {
                         tr("Expected integer number >= 0 for option {0}, but got ''{1}''", "--max-image-size", arg));
             }
             break;
+        case JOBS:
+            argJobs = arg;
+            break;
+        case THREADS:
+            try {
+                argThreads = Integer.valueOf(arg);
+            } catch (NumberFormatException nfe) {
+                throw new OptionParseException(
+                        tr("Expected integer number for option {0}, but got ''{1}''", "--threads", arg), nfe);
+            }
+            if (argThreads <= 0) {
+                throw new OptionParseException(
+                        tr("Expected integer number > 0 for option {0}, but got ''{1}''", "--threads", arg));
+            }
+            break;
         default:
             throw new AssertionError("Unexpected option index: " + o);
         }
@@ -416,6 +521,12 @@ public class RenderingCLI implements CLIModule {
                 "\t--projection <code>       "+tr("Projection to use, default value ''{0}'' (web-Mercator)", "epsg:3857")+"\n"+
                 "\t--max-image-size <number> "+tr("Maximum image width/height in pixel (''{0}'' means no limit), default value: {1}",
                                                    0, Integer.toString(DEFAULT_MAX_IMAGE_SIZE))+"\n"+
+                "\t--jobs <file>             "+tr("Render the jobs of a file, one job per line (''{0}'' for the standard input)", "-")+"\n"+
+                "\t                          "+tr("The data and the styles are loaded once, and the jobs are rendered concurrently.")+"\n"+
+                "\t                          "+tr("A job consists of the options of a single image, e.g. {0}, {1} and {2}.",
+                                                  "--output", "--bounds", "--zoom")+"\n"+
+                "\t                          "+tr("Jobs without {0} use the styles of the command line.", "--style")+"\n"+
+                "\t--threads <number>        "+tr("Number of jobs rendered at the same time, default: number of processors")+"\n"+
                 "\n"+
                 tr("To specify the rendered area and scale, the options can be combined in various ways")+":\n"+
                 "  * --bounds (--zoom|--scale|--width-px|--height-px)\n"+
@@ -434,7 +545,9 @@ public class RenderingCLI implements CLIModule {
                 "  josm render -i data.osm -s style.mapcss --bounds 21.151,51.401,21.152,51.402 -z 16\n"+
                 "  josm render -i data.osm -s style.mapcss --anchor 21.151,51.401 --width-m 500 --height-m 300 -z 16\n"+
                 "  josm render -i data.osm -s style.mapcss --anchor 21.151,51.401 --width-m 500 --height-m 300 --width-px 1800\n"+
-                "  josm render -i data.osm -s style.mapcss --scale 5000 --projection epsg:4326\n";
+                "  josm render -i data.osm -s style.mapcss --scale 5000 --projection epsg:4326\n"+
+                "  josm render -i data.osm -s style.mapcss --jobs jobs.txt --threads 4\n"+
+                "  echo \"-z 16 -b 21.151,51.401,21.152,51.402 -o image.png\" | josm render -i data.osm --jobs -\n";
     }
 
     /**
@@ -589,6 +702,140 @@ public class RenderingCLI implements CLIModule {
         }
     }
 
+    /**
+     * Renders the jobs of the job file, or of the standard input, as they are read.
+     * <p>
+     * The data and each style configuration are loaded only once, and the jobs are rendered concurrently, with one
+     * {@link RenderingHelper} per thread. Since the computed styles are cached in the primitives, only jobs with the
+     * same style configuration are rendered at the same time: the next configuration waits for the running jobs.
+     * @return the number of failed jobs
+     * @throws IOException if the data or the job file cannot be read
+     * @throws IllegalDataException if the data is invalid
+     */
+    private int processJobs() throws IOException, IllegalDataException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        DataSet ds = loadDataset();
+        System.err.println(stopwatch.toString(tr("Loading {0}", argInput)));
+
+        int threads = Optional.ofNullable(argThreads).orElse(Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                Utils.newThreadFactory("rendering-cli-%d", Thread.NORM_PRIORITY));
+        ThreadLocal<RenderingHelper> helpers = new ThreadLocal<>();
+        Map<String, ElemStyles> loadedStyles = new HashMap<>();
+        List<Future<?>> running = new ArrayList<>();
+        AtomicInteger rendered = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        stopwatch = Stopwatch.createStarted();
+        try (BufferedReader reader = "-".equals(argJobs)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(argJobs), StandardCharsets.UTF_8)) {
+            String currentStyles = null;
+            ElemStyles elemStyles = null;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                final int jobNumber = lineNumber;
+                try {
+                    RenderingCLI job = parseJob(line);
+                    String styles = job.getStylesKey();
+                    if (!styles.equals(currentStyles)) {
+                        awaitJobs(running);
+                        elemStyles = loadedStyles.get(styles);
+                        if (elemStyles == null) {
+                            elemStyles = RenderingHelper.loadStyles(job.argStyles);
+                            loadedStyles.put(styles, elemStyles);
+                        }
+                        ds.clearMappaintCache();
+                        currentStyles = styles;
+                    }
+                    final ElemStyles jobStyles = elemStyles;
+                    running.removeIf(Future::isDone);
+                    running.add(executor.submit(() -> {
+                        if (job.renderJob(jobNumber, ds, jobStyles, helpers)) {
+                            rendered.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    }));
+                } catch (OptionParseException | IllegalDataException e) {
+                    System.err.println(tr("Error in job {0}: {1}", jobNumber, e.getMessage()));
+                    failed.incrementAndGet();
+                }
+            }
+            awaitJobs(running);
+        } finally {
+            executor.shutdown();
+        }
+
+        long elapsed = stopwatch.elapsed();
+        System.err.println(tr("{0} images rendered, {1} jobs failed, in {2} ({3} renders per second)",
+                rendered.get(), failed.get(), stopwatch,
+                String.format(Locale.ROOT, "%.2f", elapsed > 0 ? rendered.get() * 1000.0 / elapsed : 0)));
+        return failed.get();
+    }
+
+    /**
+     * Renders a job of the job file.
+     * @param jobNumber the line of the job in the job file
+     * @param ds the data set
+     * @param elemStyles the loaded styles of the job
+     * @param helpers the rendering helper of each thread
+     * @return {@code true} if the image has been written, {@code false} if the job failed
+     */
+    private boolean renderJob(int jobNumber, DataSet ds, ElemStyles elemStyles, ThreadLocal<RenderingHelper> helpers) {
+        try {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            RenderingArea area = determineRenderingArea(ds);
+            RenderingHelper rh = helpers.get();
+            if (rh == null) {
+                rh = new RenderingHelper(ds, area.bounds, area.scale, argStyles);
+                helpers.set(rh);
+            } else {
+                rh.setArea(area.bounds, area.scale);
+            }
+            rh.setElemStyles(elemStyles);
+            checkPreconditions(rh);
+            writeImageToFile(rh.render());
+            Logging.info(stopwatch.toString(tr("Rendering job {0} to {1}", jobNumber, argOutput)));
+            return true;
+        } catch (IllegalDataException | IOException | RuntimeException e) {
+            if (Logging.isDebugEnabled()) {
+                e.printStackTrace();
+            }
+            System.err.println(tr("Error in job {0}: {1}", jobNumber, e.getMessage()));
+            return false;
+        }
+    }
+
+    private static void awaitJobs(List<Future<?>> jobs) {
+        for (Future<?> job : jobs) {
+            try {
+                job.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JosmRuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new JosmRuntimeException(e.getCause());
+            }
+        }
+        jobs.clear();
+    }
+
+    /**
+     * Returns a key of the styles and their settings, jobs with the same key can share the loaded styles.
+     * @return the key of the styles
+     */
+    String getStylesKey() {
+        return argStyles.stream()
+                .map(sd -> sd.styleUrl + new TreeMap<>(sd.settings))
+                .collect(Collectors.joining("\n"));
+    }
+
     private void checkPreconditions(RenderingHelper rh) {
         Dimension imgSize = rh.getImageSize();
         Logging.debug("image size (px): {0}x{1}", imgSize.width, imgSize.height);
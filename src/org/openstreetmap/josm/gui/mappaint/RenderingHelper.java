@@ -13,8 +13,10 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.ProjectionBounds;
@@ -27,6 +29,7 @@ import org.openstreetmap.josm.gui.NavigatableComponent;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
 import org.openstreetmap.josm.gui.mappaint.styleelement.StyleElement;
 import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.Logging;
 
@@ -37,10 +40,11 @@ import org.openstreetmap.josm.tools.Logging;
 public class RenderingHelper {
 
     private final DataSet ds;
-    private final Bounds bounds;
-    private final ProjectionBounds projBounds;
-    private final double scale;
+    private Bounds bounds;
+    private ProjectionBounds projBounds;
+    private double scale;
     private final Collection<StyleData> styles;
+    private ElemStyles elemStyles;
     private Color backgroundColor;
     private boolean fillBackground = true;
     private PrintStream debugStream;
@@ -62,18 +66,39 @@ public class RenderingHelper {
      */
     public RenderingHelper(DataSet ds, Bounds bounds, double scale, Collection<StyleData> styles) {
         CheckParameterUtil.ensureParameterNotNull(ds, "ds");
-        CheckParameterUtil.ensureParameterNotNull(bounds, "bounds");
         CheckParameterUtil.ensureParameterNotNull(styles, "styles");
         this.ds = ds;
+        this.styles = styles;
+        setArea(bounds, scale);
+    }
+
+    /**
+     * Sets the area to render, so that the helper and its loaded styles can be reused for another image.
+     * @param bounds the bounds of the are to render
+     * @param scale the scale to render at (east/north units per pixel)
+     * @since xxx
+     */
+    public void setArea(Bounds bounds, double scale) {
+        CheckParameterUtil.ensureParameterNotNull(bounds, "bounds");
         this.bounds = bounds;
         this.scale = scale;
-        this.styles = styles;
         Projection proj = ProjectionRegistry.getProjection();
         projBounds = new ProjectionBounds();
         projBounds.extend(proj.latlon2eastNorth(bounds.getMin()));
         projBounds.extend(proj.latlon2eastNorth(bounds.getMax()));
     }
 
+    /**
+     * Sets the styles to use for rendering, instead of loading them from the style data on the first call of {@link #render()}.
+     * This allows several helpers to share the same styles.
+     * @param elemStyles the loaded styles
+     * @see #loadStyles(Collection)
+     * @since xxx
+     */
+    public void setElemStyles(ElemStyles elemStyles) {
+        this.elemStyles = elemStyles;
+    }
+
     /**
      * Set the background color to use for rendering.
      *
@@ -96,23 +121,14 @@ public class RenderingHelper {
         this.fillBackground = fillBackground;
     }
 
-    Dimension getImageSize() {
-        double widthEn = projBounds.maxEast - projBounds.minEast;
-        double heightEn = projBounds.maxNorth - projBounds.minNorth;
-        int widthPx = (int) Math.round(widthEn / scale);
-        int heightPx = (int) Math.round(heightEn / scale);
-        return new Dimension(widthPx, heightPx);
-    }
-
     /**
-     * Invoke the renderer.
-     *
-     * @return the rendered image
-     * @throws IOException in case of an IOException
-     * @throws IllegalDataException when illegal data is encountered (style has errors, etc.)
+     * Loads styles and applies their settings. Settings which are not given are reset to their default values.
+     * @param styles the styles to load
+     * @return the loaded styles
+     * @throws IllegalDataException if a style has errors
+     * @since xxx
      */
-    public BufferedImage render() throws IOException, IllegalDataException {
-        // load the styles
+    public static ElemStyles loadStyles(Collection<StyleData> styles) throws IllegalDataException {
         ElemStyles elemStyles = new ElemStyles();
         MapCSSStyleSource.STYLE_SOURCE_LOCK.writeLock().lock();
         try {
@@ -123,10 +139,21 @@ public class RenderingHelper {
                 if (!source.getErrors().isEmpty()) {
                     throw new IllegalDataException("Failed to load style file. Errors: " + source.getErrors());
                 }
+                List<StyleSetting.PropertyStyleSetting<?>> settings = source.settings.stream()
+                        .filter(s -> s instanceof StyleSetting.PropertyStyleSetting)
+                        .map(s -> (StyleSetting.PropertyStyleSetting<?>) s)
+                        .collect(Collectors.toList());
+                boolean changed = false;
+                // the settings are stored in the preferences, they may have been changed for another style configuration
+                for (StyleSetting.PropertyStyleSetting<?> setting : settings) {
+                    if (sd.settings.keySet().stream().noneMatch(key -> setting.getKey().endsWith(":" + key))
+                            && Config.getPref().get(setting.getKey(), null) != null) {
+                        Config.getPref().put(setting.getKey(), null);
+                        changed = true;
+                    }
+                }
                 for (String key : sd.settings.keySet()) {
-                    StyleSetting.PropertyStyleSetting<?> match = source.settings.stream()
-                            .filter(s -> s instanceof StyleSetting.PropertyStyleSetting)
-                            .map(s -> (StyleSetting.PropertyStyleSetting<?>) s)
+                    StyleSetting.PropertyStyleSetting<?> match = settings.stream()
                             .filter(bs -> bs.getKey().endsWith(":" + key))
                             .findFirst().orElse(null);
                     if (match == null) {
@@ -135,15 +162,40 @@ public class RenderingHelper {
                         String value = sd.settings.get(key);
                         Logging.trace("setting applied: ''{0}:{1}''", key, value);
                         match.setStringValue(value);
+                        changed = true;
                     }
                 }
-                if (!sd.settings.isEmpty()) {
+                if (changed) {
                     source.loadStyleSource(); // reload to apply settings
                 }
             }
         } finally {
             MapCSSStyleSource.STYLE_SOURCE_LOCK.writeLock().unlock();
         }
+        return elemStyles;
+    }
+
+    Dimension getImageSize() {
+        double widthEn = projBounds.maxEast - projBounds.minEast;
+        double heightEn = projBounds.maxNorth - projBounds.minNorth;
+        int widthPx = (int) Math.round(widthEn / scale);
+        int heightPx = (int) Math.round(heightEn / scale);
+        return new Dimension(widthPx, heightPx);
+    }
+
+    /**
+     * Invoke the renderer.
+     * <p>
+     * The styles are loaded on the first call, unless they have been {@linkplain #setElemStyles(ElemStyles) set}.
+     *
+     * @return the rendered image
+     * @throws IOException in case of an IOException
+     * @throws IllegalDataException when illegal data is encountered (style has errors, etc.)
+     */
+    public BufferedImage render() throws IOException, IllegalDataException {
+        if (elemStyles == null) {
+            elemStyles = loadStyles(styles);
+        }
 
         Dimension imgDimPx = getImageSize();
         NavigatableComponent nc = new NavigatableComponent() {
@@ -0,0 +1,224 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.IWay;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.mappaint.MultiCascade;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Condition.TagCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.ClassCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.ExpressionCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.PseudoClassCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Instruction.AssignmentInstruction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.GeneralSelector;
+
+/**
+ * Caches the cascades computed by {@link MapCSSStyleSource#apply} for primitives with the same tags.
+ * <p>
+ * Thousands of primitives share the same tags, e.g. {@code building=yes} or {@code highway=service}. If all rules
+ * which may apply to a primitive are {@linkplain #isContextFree(MapCSSRule) context-free}, the computed cascades only
+ * depend on the type of the primitive, whether it is a closed way, its tags and the scale. They are stored per
+ * {@link Key} with the scale range they are valid for, and copied for the next primitive with the same key.
+ * <p>
+ * Only the first style source which is applied to a {@link MultiCascade} can use the cache, since the results of the
+ * following style sources also depend on the cascades computed before. The cache must be {@linkplain #clear() cleared}
+ * whenever the rules, the settings or the preferences used by the style change.
+ * @since xxx
+ */
+public final class CascadeCache {
+
+    /** Whether the cascades of primitives with the same tags are cached */
+    public static final BooleanProperty PREF_CASCADE_CACHE = new BooleanProperty("mappaint.mapcss.cascade-cache", true);
+    /** The maximum number of tag sets in the cache, the cache is cleared when it is full */
+    public static final IntegerProperty PREF_CASCADE_CACHE_SIZE = new IntegerProperty("mappaint.mapcss.cascade-cache.size", 50_000);
+
+    /** The maximum number of scale ranges which are cached for a tag set */
+    private static final int MAX_RANGES = 4;
+
+    /** Marks the keys of primitives which some context-dependent rules may apply to */
+    private static final MultiCascade[] CONTEXT_DEPENDENT = new MultiCascade[0];
+
+    private final Map<Key, MultiCascade[]> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a new {@code CascadeCache} with the size from the preferences.
+     */
+    public CascadeCache() {
+        this(PREF_CASCADE_CACHE_SIZE.get());
+    }
+
+    /**
+     * Constructs a new {@code CascadeCache}.
+     * @param maxSize the maximum number of tag sets in the cache
+     */
+    public CascadeCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * The key of a primitive in the cache: its type, whether it is a closed way, and its tags.
+     */
+    static final class Key {
+        private final OsmPrimitiveType type;
+        private final boolean closed;
+        private final Map<String, String> tags;
+        private final int hash;
+
+        Key(IPrimitive osm) {
+            type = osm.getType();
+            closed = osm instanceof IWay<?> && ((IWay<?>) osm).isClosed();
+            tags = osm.getKeys();
+            hash = Objects.hash(type, closed, tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Key other = (Key) obj;
+            return hash == other.hash && type == other.type && closed == other.closed && tags.equals(other.tags);
+        }
+    }
+
+    /**
+     * Looks up the cascades of a primitive.
+     * @param key the key of the primitive
+     * @param scale the scale
+     * @param mc the cascades to fill, must be {@linkplain MultiCascade#isEmpty() empty}
+     * @return {@code true} if the cascades were found in the cache and copied to {@code mc}
+     */
+    boolean get(Key key, double scale, MultiCascade mc) {
+        final MultiCascade[] cached = entries.get(key);
+        if (cached != null) {
+            for (MultiCascade c : cached) {
+                if (c.range.contains(scale)) {
+                    mc.copyFrom(c);
+                    hits.increment();
+                    return true;
+                }
+            }
+        }
+        misses.increment();
+        return false;
+    }
+
+    /**
+     * Stores the cascades computed for a primitive.
+     * @param key the key of the primitive
+     * @param mc the cascades computed for the primitive, starting with an empty {@link MultiCascade}
+     * @param contextFree {@code true} if all rules which may apply to the primitive are context-free
+     */
+    void put(Key key, MultiCascade mc, boolean contextFree) {
+        if (entries.size() >= maxSize) {
+            entries.clear();
+        }
+        if (!contextFree) {
+            entries.put(key, CONTEXT_DEPENDENT);
+            return;
+        }
+        final MultiCascade copy = new MultiCascade();
+        copy.copyFrom(mc);
+        entries.compute(key, (k, cached) -> {
+            if (cached == null || cached.length == 0) {
+                return new MultiCascade[] {copy};
+            }
+            // keep the ranges of the most recently used scales
+            final MultiCascade[] result = new MultiCascade[Math.min(cached.length + 1, MAX_RANGES)];
+            result[0] = copy;
+            System.arraycopy(cached, 0, result, 1, result.length - 1);
+            return result;
+        });
+    }
+
+    /**
+     * Removes all cascades from the cache. The hit and miss counters are not reset.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of tag sets in the cache.
+     * @return the number of tag sets in the cache
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of primitives whose cascades were found in the cache.
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of primitives whose cascades had to be computed.
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Determines if a rule is context-free, i.e., if the result of its selectors and its declaration only depends on
+     * the type of the primitive, whether it is a closed way, its tags, the cascade, the scale and the settings of the style.
+     * @param rule the rule
+     * @return {@code true} if the rule is context-free
+     */
+    public static boolean isContextFree(MapCSSRule rule) {
+        return rule.selectors.stream().allMatch(CascadeCache::isContextFree) && isContextFree(rule.declaration);
+    }
+
+    private static boolean isContextFree(Selector selector) {
+        return selector instanceof GeneralSelector
+                && selector.getSubpart() instanceof Subpart.StringSubpart
+                && selector.getConditions().stream().allMatch(CascadeCache::isContextFree);
+    }
+
+    private static boolean isContextFree(Condition condition) {
+        if (condition instanceof TagCondition || condition instanceof ClassCondition) {
+            return true;
+        } else if (condition instanceof ExpressionCondition) {
+            return ExpressionFactory.isContextFree(((ExpressionCondition) condition).getExpression());
+        }
+        // :closed is part of the key, :tagged only depends on the tags
+        return Arrays.asList("closed", "!closed", "tagged", "!tagged").stream()
+                .anyMatch(id -> condition == PseudoClassCondition.CONDITION_MAP.get(id));
+    }
+
+    private static boolean isContextFree(Declaration declaration) {
+        for (Instruction i : declaration.instructions) {
+            if (!(i instanceof AssignmentInstruction)) {
+                return false;
+            }
+            final Object val = ((AssignmentInstruction) i).val;
+            if (val instanceof Expression && !ExpressionFactory.isContextFree((Expression) val)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "CascadeCache [size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + ']';
+    }
+}
@@ -11,9 +11,11 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.DoubleBinaryOperator;
 import java.util.function.DoubleUnaryOperator;
@@ -242,6 +244,16 @@ public final class ExpressionFactory {
 
     static final Map<String, Factory> FACTORY_MAP = new HashMap<>();
 
+    /**
+     * The functions whose result depends on more than the type and the tags of the primitive, the cascade and the settings
+     * of the style, e.g. on the geometry, the parents, the children or the metadata of the primitive.
+     */
+    private static final Set<String> CONTEXT_FUNCTIONS = new HashSet<>(Arrays.asList(
+            "JOSM_search", "areasize", "at", "center", "child_tag", "count_roles", "gpx_distance", "index", "inside",
+            "is_anticlockwise", "is_clockwise", "is_right_hand_traffic", "osm_changeset_id", "osm_id", "osm_timestamp",
+            "osm_user_id", "osm_user_name", "osm_version", "outside", "parent_osm_id", "parent_osm_primitives", "parent_tag",
+            "parent_tags", "parent_way_angle", "random", "role", "waylength"));
+
     static {
         initFactories();
     }
@@ -379,6 +391,14 @@ public final class ExpressionFactory {
      * returns {@link NullExpression#INSTANCE}.
      */
     public static Expression createFunctionExpression(String name, List<Expression> args) {
+        final Expression e = createExpression(name, args);
+        if (e instanceof IsInsideFunction || (!CONTEXT_FUNCTIONS.contains(name) && args.stream().allMatch(ExpressionFactory::isContextFree))) {
+            return e;
+        }
+        return new ContextExpression(e);
+    }
+
+    private static Expression createExpression(String name, List<Expression> args) {
         if ("cond".equals(name) && args.size() == 3)
             return new CondOperator(args.get(0), args.get(1), args.get(2));
         else if ("and".equals(name))
@@ -403,6 +423,38 @@ public final class ExpressionFactory {
         return NullExpression.INSTANCE;
     }
 
+    /**
+     * Determines if the value of an expression only depends on the type and the tags of the primitive, the cascade
+     * and the settings of the style.
+     * @param e the expression
+     * @return {@code true} if the value of the expression does not depend on the context of the primitive
+     * @since xxx
+     */
+    public static boolean isContextFree(Expression e) {
+        return !(e instanceof ContextExpression || e instanceof IsInsideFunction || e instanceof PlaceholderExpression);
+    }
+
+    /**
+     * Expression whose value depends on the context of the primitive, see {@link #isContextFree(Expression)}.
+     */
+    static final class ContextExpression implements Expression {
+        private final Expression e;
+
+        ContextExpression(Expression e) {
+            this.e = e;
+        }
+
+        @Override
+        public Object evaluate(Environment env) {
+            return e.evaluate(env);
+        }
+
+        @Override
+        public String toString() {
+            return e.toString();
+        }
+    }
+
     /**
      * Expression that always evaluates to null.
      */
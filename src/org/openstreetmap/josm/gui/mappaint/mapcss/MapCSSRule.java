@@ -2,6 +2,7 @@
 package org.openstreetmap.josm.gui.mappaint.mapcss;
 
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.gui.mappaint.Environment;
@@ -24,6 +25,14 @@ public class MapCSSRule implements Comparable<MapCSSRule> {
      * The instructions for this selector
      */
     public final Declaration declaration;
+    /**
+     * The compiled selectors, in the order of the selectors, or {@code null} if the selectors are interpreted
+     */
+    private List<Predicate<Environment>> matchers;
+    /**
+     * Whether this rule is context-free, see {@link CascadeCache#isContextFree(MapCSSRule)}
+     */
+    private final boolean contextFree;
 
     /**
      * Constructs a new {@code MapCSSRule}.
@@ -33,6 +42,7 @@ public class MapCSSRule implements Comparable<MapCSSRule> {
     public MapCSSRule(List<Selector> selectors, Declaration declaration) {
         this.selectors = Utils.toUnmodifiableList(selectors);
         this.declaration = declaration;
+        this.contextFree = CascadeCache.isContextFree(this);
     }
 
     /**
@@ -45,7 +55,54 @@ public class MapCSSRule implements Comparable<MapCSSRule> {
      * @see Selector#matches
      */
     public boolean matches(Environment env) {
-        return selectors.stream().anyMatch(s -> s.matches(env));
+        for (int i = 0; i < selectors.size(); i++) {
+            if (matches(i, env)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Test whether one selector of this rule applies to the primitive, with the compiled selector if this rule is compiled.
+     *
+     * @param index the index of the selector in {@link #selectors}
+     * @param env the Environment, see {@link #matches(Environment)}
+     * @return true, if the selector applies
+     * @since xxx
+     */
+    public boolean matches(int index, Environment env) {
+        final List<Predicate<Environment>> compiled = matchers;
+        return compiled != null ? compiled.get(index).test(env) : selectors.get(index).matches(env);
+    }
+
+    /**
+     * Compiles the selectors of this rule, so that they are not interpreted any more.
+     * @see MapCSSRuleCompiler
+     * @since xxx
+     */
+    public void compile() {
+        matchers = Utils.toUnmodifiableList(selectors.stream().map(MapCSSRuleCompiler::compile).collect(Collectors.toList()));
+    }
+
+    /**
+     * Determines if this rule is context-free, i.e., if its result only depends on the type, the tags and the closedness
+     * of the primitive, the cascade, the scale and the settings of the style.
+     * @return {@code true} if this rule is context-free
+     * @see CascadeCache#isContextFree(MapCSSRule)
+     * @since xxx
+     */
+    public boolean isContextFree() {
+        return contextFree;
+    }
+
+    /**
+     * Determines if the selectors of this rule are compiled.
+     * @return {@code true} if the selectors of this rule are compiled
+     * @since xxx
+     */
+    public boolean isCompiled() {
+        return matchers != null;
     }
 
     /**
@@ -0,0 +1,221 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.IRelation;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.gui.mappaint.Environment;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyValueCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.SimpleKeyValueCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.GeneralSelector;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Compiles the selectors of MapCSS rules into matchers, which give the same results as {@link Selector#matches} in less time.
+ * <p>
+ * The base of a {@link GeneralSelector} is resolved once to the primitive types it matches. The common tag conditions
+ * are compiled to lambdas with folded literals: reference numbers are parsed once, lists are split with a precompiled
+ * pattern, and the tags are looked up directly. The {@link java.lang.invoke.LambdaMetafactory} generates a class for each
+ * lambda, which the JIT compiler can inline like hand-written code. All other selectors and conditions, e.g. child selectors,
+ * pseudo classes and expressions, fall back to the interpreter.
+ * <p>
+ * The declarations are not compiled, since their literal values are already evaluated when the style is parsed,
+ * see {@link Instruction.AssignmentInstruction}.
+ * @since xxx
+ */
+public final class MapCSSRuleCompiler {
+
+    /** Whether the rules of map paint styles are compiled when the style is loaded */
+    public static final BooleanProperty PREF_COMPILE_RULES = new BooleanProperty("mappaint.mapcss.compile-rules", true);
+
+    /** The same pattern as {@link org.openstreetmap.josm.data.osm.OsmUtils#splitMultipleValues} */
+    private static final Pattern MULTIPLE_VALUES = Pattern.compile("\\s*;\\s*");
+
+    private MapCSSRuleCompiler() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * Compiles a selector.
+     * @param selector The selector
+     * @return A matcher which gives the same results as {@link Selector#matches}
+     */
+    public static Predicate<Environment> compile(Selector selector) {
+        if (selector instanceof GeneralSelector) {
+            return new CompiledGeneralSelector((GeneralSelector) selector);
+        }
+        return selector::matches;
+    }
+
+    /**
+     * Compiles a condition of a primitive selector.
+     * @param condition The condition
+     * @return A condition which gives the same results in the primitive context, or {@code condition} itself
+     * if it is not supported by the compiler
+     */
+    static Condition compile(Condition condition) {
+        final Class<?> type = condition.getClass();
+        if (type == SimpleKeyValueCondition.class) {
+            final String k = ((SimpleKeyValueCondition) condition).k;
+            final String v = ((SimpleKeyValueCondition) condition).v;
+            return e -> v.equals(e.osm.get(k));
+        } else if (type == KeyValueCondition.class && !((KeyValueCondition) condition).considerValAsKey) {
+            return compileKeyValueCondition((KeyValueCondition) condition);
+        } else if (type == KeyCondition.class) {
+            return compileKeyCondition((KeyCondition) condition);
+        }
+        return condition;
+    }
+
+    private static Condition compileKeyValueCondition(KeyValueCondition condition) {
+        final String k = condition.k;
+        final String v = condition.v;
+        switch (condition.op) {
+        case NEQ:
+            return e -> !v.equals(e.osm.get(k));
+        case GREATER_OR_EQUAL:
+            return compileComparison(condition, result -> result >= 0);
+        case GREATER:
+            return compileComparison(condition, result -> result > 0);
+        case LESS_OR_EQUAL:
+            return compileComparison(condition, result -> result <= 0);
+        case LESS:
+            return compileComparison(condition, result -> result < 0);
+        case ONE_OF:
+            return e -> {
+                final String value = e.osm.get(k);
+                if (value == null) {
+                    return false;
+                } else if (value.indexOf(';') < 0) {
+                    return value.equals(v);
+                }
+                return MULTIPLE_VALUES.splitAsStream(value).anyMatch(v::equals);
+            };
+        case BEGINS_WITH:
+            return e -> {
+                final String value = e.osm.get(k);
+                return value != null && value.startsWith(v);
+            };
+        case ENDS_WITH:
+            return e -> {
+                final String value = e.osm.get(k);
+                return value != null && value.endsWith(v);
+            };
+        case CONTAINS:
+            return e -> {
+                final String value = e.osm.get(k);
+                return value != null && value.contains(v);
+            };
+        default:
+            return condition;
+        }
+    }
+
+    private static Condition compileComparison(KeyValueCondition condition, IntPredicate comparison) {
+        final String k = condition.k;
+        final float reference;
+        try {
+            reference = Float.parseFloat(condition.v);
+        } catch (NumberFormatException ex) {
+            // the interpreter reports the error for each primitive with a numeric value
+            Logging.trace(ex);
+            return condition;
+        }
+        return e -> {
+            final String value = e.osm.get(k);
+            if (value == null) {
+                return false;
+            }
+            try {
+                return comparison.test(Float.compare(Float.parseFloat(value), reference));
+            } catch (NumberFormatException ex) {
+                return false;
+            }
+        };
+    }
+
+    private static Condition compileKeyCondition(KeyCondition condition) {
+        final String label = condition.label;
+        final boolean negate = condition.negateResult;
+        switch (condition.matchType) {
+        case EQ:
+            return negate ? e -> !e.osm.hasKey(label) : e -> e.osm.hasKey(label);
+        case TRUE:
+            return e -> e.osm.isKeyTrue(label) ^ negate;
+        case FALSE:
+            return e -> e.osm.isKeyFalse(label) ^ negate;
+        default:
+            return condition;
+        }
+    }
+
+    /**
+     * A general selector with its base resolved to primitive types and compiled conditions.
+     */
+    private static final class CompiledGeneralSelector implements Predicate<Environment> {
+        private final boolean any;
+        private final boolean nodes;
+        private final boolean ways;
+        private final boolean relations;
+        private final boolean multipolygonsOnly;
+        private final boolean canvasOnly;
+        /** The original conditions, for the error messages */
+        private final Condition[] conditions;
+        private final Condition[] compiled;
+
+        CompiledGeneralSelector(GeneralSelector selector) {
+            final String base = selector.getBase();
+            any = Selector.BASE_ANY.equals(base);
+            nodes = Selector.BASE_NODE.equals(base);
+            ways = Selector.BASE_WAY.equals(base) || Selector.BASE_AREA.equals(base);
+            relations = Selector.BASE_AREA.equals(base) || Selector.BASE_RELATION.equals(base) || Selector.BASE_CANVAS.equals(base);
+            multipolygonsOnly = Selector.BASE_AREA.equals(base);
+            canvasOnly = Selector.BASE_CANVAS.equals(base);
+            conditions = selector.getConditions().toArray(new Condition[0]);
+            compiled = new Condition[conditions.length];
+            for (int i = 0; i < conditions.length; i++) {
+                compiled[i] = compile(conditions[i]);
+            }
+        }
+
+        private boolean matchesBase(IPrimitive p) {
+            if (any) {
+                return true;
+            }
+            switch (p.getType()) {
+            case NODE:
+                return nodes;
+            case WAY:
+                return ways;
+            case RELATION:
+                return relations
+                        && (!multipolygonsOnly || ((IRelation<?>) p).isMultipolygon())
+                        && (!canvasOnly || p.get("#canvas") != null);
+            default:
+                return false;
+            }
+        }
+
+        @Override
+        public boolean test(Environment env) {
+            if (!matchesBase(env.osm)) {
+                return false;
+            }
+            // the same error handling as Selector.AbstractSelector#matches
+            for (int i = 0; i < compiled.length; i++) {
+                try {
+                    if (!compiled[i].applies(env)) return false;
+                } catch (RuntimeException e) {
+                    Logging.log(Logging.LEVEL_ERROR, "Exception while applying condition" + conditions[i] + ':', e);
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
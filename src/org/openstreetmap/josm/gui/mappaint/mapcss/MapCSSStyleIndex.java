@@ -6,6 +6,7 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.text.MessageFormat;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -81,7 +82,7 @@ public final class MapCSSStyleIndex {
             } else {
                 selectorsByBase = rule.selectors.stream()
                         .collect(Collectors.groupingBy(Selector::getBase,
-                                Collectors.collectingAndThen(Collectors.toList(), selectors -> new MapCSSRule(selectors, rule.declaration))));
+                                Collectors.collectingAndThen(Collectors.toList(), selectors -> newRule(selectors, rule))));
             }
             selectorsByBase.forEach((base, optRule) -> {
                 switch (base) {
@@ -124,6 +125,14 @@ public final class MapCSSStyleIndex {
         initIndex();
     }
 
+    private static MapCSSRule newRule(List<Selector> selectors, MapCSSRule rule) {
+        final MapCSSRule newRule = new MapCSSRule(selectors, rule.declaration);
+        if (rule.isCompiled()) {
+            newRule.compile();
+        }
+        return newRule;
+    }
+
     private void initIndex() {
         nodeRules.initIndex();
         wayRules.initIndex();
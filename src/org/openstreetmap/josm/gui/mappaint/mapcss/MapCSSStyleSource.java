@@ -73,6 +73,10 @@ public class MapCSSStyleSource extends StyleSource {
      * Index of rules in this style file
      */
     private final MapCSSStyleIndex ruleIndex = new MapCSSStyleIndex();
+    /**
+     * Cache of the cascades of primitives with the same tags, or {@code null} if disabled
+     */
+    private volatile CascadeCache cascadeCache;
 
     private Color backgroundColorOverride;
     private String css;
@@ -158,6 +162,7 @@ public class MapCSSStyleSource extends StyleSource {
             init();
             rules.clear();
             ruleIndex.clear();
+            cascadeCache = null;
             // remove "areaStyle" pseudo classes intended only for validator (causes StackOverflowError otherwise), see #16183
             removeAreaStylePseudoClass = url == null || !url.contains("validator"); // resource://data/validator/ or xxx.validator.mapcss
             try (InputStream in = getSourceInputStream()) {
@@ -196,8 +201,13 @@ public class MapCSSStyleSource extends StyleSource {
             if (metadataOnly) {
                 return;
             }
+            if (Boolean.TRUE.equals(MapCSSRuleCompiler.PREF_COMPILE_RULES.get())) {
+                rules.forEach(MapCSSRule::compile);
+            }
             // optimization: filter rules for different primitive types
             ruleIndex.buildIndex(rules.stream());
+            // the cached cascades are computed with the previous rules
+            cascadeCache = Boolean.TRUE.equals(CascadeCache.PREF_CASCADE_CACHE.get()) ? new CascadeCache() : null;
             loaded = true;
         } finally {
             STYLE_SOURCE_LOCK.writeLock().unlock();
@@ -349,21 +359,62 @@ public class MapCSSStyleSource extends StyleSource {
         return backgroundColorOverride;
     }
 
+    /**
+     * Returns the cache of the cascades of primitives with the same tags.
+     * @return the cache of the cascades, or {@code null} if the style is not loaded or the cache is disabled
+     * @since xxx
+     */
+    public CascadeCache getCascadeCache() {
+        return cascadeCache;
+    }
+
+    /**
+     * Removes the cached cascades, e.g. when a preference used by this style has changed.
+     * @since xxx
+     */
+    public void clearCascadeCache() {
+        final CascadeCache cache = cascadeCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
     @Override
     public void apply(MultiCascade mc, IPrimitive osm, double scale, boolean pretendWayIsClosed) {
+        final CascadeCache cache = cascadeCache;
+        if (cache == null || !mc.isEmpty()) {
+            applyRules(mc, osm, scale);
+            return;
+        }
+        final CascadeCache.Key key = new CascadeCache.Key(osm);
+        if (!cache.get(key, scale, mc)) {
+            cache.put(key, mc, applyRules(mc, osm, scale));
+        }
+    }
 
+    /**
+     * Applies the matching rules to the primitive.
+     * @param mc the cascades to fill
+     * @param osm the primitive
+     * @param scale the scale
+     * @return {@code true} if all rules which may apply to the primitive are context-free
+     */
+    private boolean applyRules(MultiCascade mc, IPrimitive osm, double scale) {
         Environment env = new Environment(osm, mc, null, this);
         // the declaration indices are sorted, so it suffices to save the last used index
         int lastDeclUsed = -1;
+        boolean contextFree = true;
 
         Iterator<MapCSSRule> candidates = ruleIndex.getRuleCandidates(osm);
         while (candidates.hasNext()) {
             MapCSSRule r = candidates.next();
-            for (Selector s : r.selectors) {
+            contextFree &= r.isContextFree();
+            for (int i = 0; i < r.selectors.size(); i++) {
+                final Selector s = r.selectors.get(i);
                 env.clearSelectorMatchingInformation();
                 env.layer = s.getSubpart().getId(env);
                 String sub = env.layer;
-                if (!s.matches(env)) { // as side effect env.parent will be set (if s is a child selector)
+                if (!r.matches(i, env)) { // as side effect env.parent will be set (if s is a child selector)
                     continue;
                 }
                 if (s.getRange().contains(scale)) {
@@ -389,6 +440,7 @@ public class MapCSSStyleSource extends StyleSource {
                 r.execute(env);
             }
         }
+        return contextFree;
     }
 
     /**
@@ -50,6 +50,8 @@ public class ValidatorTestsPreference implements SubPreferenceSetting {
     private JCheckBox prefUseLayer;
     private JCheckBox prefOtherUpload;
     private JCheckBox prefOther;
+    private JCheckBox prefParallel;
+    private JCheckBox prefIncremental;
 
     /** The list of all tests */
     private Collection<Test> allTests;
@@ -80,6 +82,14 @@ public class ValidatorTestsPreference implements SubPreferenceSetting {
         prefOther.addActionListener(otherUploadEnabled);
         otherUploadEnabled.actionPerformed(null);
 
+        prefParallel = new JCheckBox(tr("Run tests in parallel."), ValidatorPrefHelper.PREF_PARALLEL.get());
+        prefParallel.setToolTipText(tr("Use several processor cores for the tests which support it."));
+        testPanel.add(prefParallel, GBC.eol());
+
+        prefIncremental = new JCheckBox(tr("Validate changes while editing."), ValidatorPrefHelper.PREF_INCREMENTAL.get());
+        prefIncremental.setToolTipText(tr("Keep the validation results up to date by validating the changed objects again."));
+        testPanel.add(prefIncremental, GBC.eol());
+
         GBC a = GBC.eol().insets(-5, 0, 0, 0);
         a.anchor = GBC.EAST;
         testPanel.add(new JLabel(tr("On demand")), GBC.std());
@@ -124,6 +134,8 @@ public class ValidatorTestsPreference implements SubPreferenceSetting {
         ValidatorPrefHelper.PREF_OTHER.put(prefOther.isSelected());
         ValidatorPrefHelper.PREF_OTHER_UPLOAD.put(prefOtherUpload.isSelected());
         ValidatorPrefHelper.PREF_LAYER.put(prefUseLayer.isSelected());
+        ValidatorPrefHelper.PREF_PARALLEL.put(prefParallel.isSelected());
+        ValidatorPrefHelper.PREF_INCREMENTAL.put(prefIncremental.isSelected());
         return false;
     }
 
@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 import org.openstreetmap.josm.data.Bounds;
@@ -35,6 +36,7 @@ import org.openstreetmap.josm.data.osm.RelationData;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.RelationMemberData;
 import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.TagStringPool;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.UploadPolicy;
 import org.openstreetmap.josm.data.osm.User;
@@ -87,9 +89,10 @@ public abstract class AbstractReader {
     }
 
     /**
-     * A lookup table to avoid calling {@link String#intern()} unnecessarily.
+     * The tag keys and values which were not found in the {@link TagStringPool}, so that they are deduplicated too.
+     * The readers which decode on several threads use it concurrently.
      */
-    private final Map<String, String> tagMap = new HashMap<>();
+    private final Map<String, String> tagMap = new ConcurrentHashMap<>();
 
     /**
      * The dataset to add parsed objects to.
@@ -374,6 +377,7 @@ public abstract class AbstractReader {
                     }
                 }
             }
+            Logging.debug("{0}, {1} other strings", TagStringPool.getInstance(), tagMap.size());
             this.tagMap.clear();
             progressMonitor.finishTask();
             progressMonitor.removeCancelListener(cancelListener);
@@ -610,10 +614,20 @@ public abstract class AbstractReader {
             // Drop the tag on import, but flag the primitive as modified
             ((AbstractPrimitive) t).setModified(true);
         } else {
-            t.put(this.tagMap.computeIfAbsent(key, Utils::intern), this.tagMap.computeIfAbsent(value, Utils::intern));
+            t.put(internTag(key), internTag(value));
         }
     }
 
+    /**
+     * Gets an equal instance of a tag key or value, from the {@link TagStringPool} or from the other strings of this reader.
+     * @param string the key or value, may be {@code null}
+     * @return a string which is equal to {@code string}
+     * @since xxx
+     */
+    protected final String internTag(String string) {
+        return TagStringPool.getInstance().intern(string, tagMap);
+    }
+
     @FunctionalInterface
     protected interface CommonReader {
         /**
@@ -0,0 +1,235 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * An input stream which decompresses a local file whose compressed blocks can be decoded independently, with several threads.
+ * <p>
+ * A producer thread splits the file into blocks and submits their decoding, in order, to a pool of decoding threads. The
+ * decoded blocks are read in order, and a bounded number of blocks is decoded ahead. If the blocks cannot be decoded, e.g.
+ * because the file is corrupted or not split as expected, the rest of the file is decoded sequentially, after the data which
+ * has already been read, so that the errors are the ones of the sequential decoder.
+ * @since xxx
+ */
+abstract class BlockParallelInputStream extends InputStream {
+
+    private static final Object END_OF_BLOCKS = new Object();
+
+    /** The path of the compressed file */
+    protected final Path path;
+    private final String name;
+    private final int threads;
+    /** The decoded blocks, in order: futures, then {@link #END_OF_BLOCKS} or the exception of the producer */
+    private final BlockingQueue<Object> blocks;
+    private ExecutorService decoders;
+    private Thread producer;
+    private byte[] block;
+    private int position;
+    private long delivered;
+    private InputStream sequential;
+    private boolean eof;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new {@code BlockParallelInputStream}.
+     * @param path the path of the compressed file
+     * @param name the name of the compression, used for the names of the threads
+     * @param threads the number of decoding threads
+     */
+    protected BlockParallelInputStream(Path path, String name, int threads) {
+        this.path = Objects.requireNonNull(path);
+        this.name = name;
+        this.threads = Math.max(1, threads);
+        this.blocks = new ArrayBlockingQueue<>(this.threads + 1);
+    }
+
+    /**
+     * Splits the file into blocks, and submits their decoding, in order, with {@link #submit}. Called by the producer thread.
+     * @throws IOException if the file cannot be read or split
+     * @throws InterruptedException if the stream has been closed
+     */
+    protected abstract void splitBlocks() throws IOException, InterruptedException;
+
+    /**
+     * Opens the sequential decoder of the whole file, used if the blocks cannot be decoded independently.
+     * @return the sequential decoder
+     * @throws IOException if the file cannot be opened
+     */
+    protected abstract InputStream openSequential() throws IOException;
+
+    /**
+     * Submits the decoding of the next block. Waits if too many blocks are decoded ahead.
+     * @param decoder the decoding task, returning the decoded data
+     * @throws InterruptedException if the stream has been closed
+     */
+    protected final void submit(Callable<byte[]> decoder) throws InterruptedException {
+        if (closed) {
+            throw new InterruptedException();
+        }
+        blocks.put(decoders.submit(decoder));
+    }
+
+    private void start() {
+        decoders = Executors.newFixedThreadPool(threads, Utils.newThreadFactory(name + "-decoder-%d", Thread.NORM_PRIORITY));
+        producer = Utils.newThreadFactory(name + "-producer-%d", Thread.NORM_PRIORITY).newThread(this::produce);
+        producer.start();
+    }
+
+    private void produce() {
+        Object last = END_OF_BLOCKS;
+        try {
+            splitBlocks();
+        } catch (InterruptedException e) {
+            return;
+        } catch (IOException | RuntimeException e) {
+            last = e;
+        }
+        try {
+            blocks.put(last);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void nextBlock() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        } else if (producer == null) {
+            start();
+        }
+        try {
+            final Object next = blocks.take();
+            if (next == END_OF_BLOCKS) {
+                eof = true;
+                decoders.shutdown();
+            } else if (next instanceof Throwable) {
+                decodeSequentially((Throwable) next);
+            } else {
+                block = ((Future<byte[]>) next).get();
+                position = 0;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException().initCause(e);
+        } catch (ExecutionException e) {
+            decodeSequentially(e.getCause());
+        }
+    }
+
+    private void decodeSequentially(Throwable cause) throws IOException {
+        Logging.debug("Decoding {0} sequentially after {1} bytes: {2}", path, delivered, cause);
+        stop();
+        // if the sequential decoder fails too, the stream ends after its exception
+        eof = true;
+        final InputStream in = openSequential();
+        try {
+            long remaining = delivered;
+            while (remaining > 0) {
+                final long skipped = in.skip(remaining);
+                if (skipped > 0) {
+                    remaining -= skipped;
+                } else if (in.read() == -1) {
+                    throw new IOException("Unexpected end of " + path);
+                } else {
+                    remaining--;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+        sequential = in;
+    }
+
+    /**
+     * Makes sure that data can be read, from the current block or from the sequential decoder.
+     * @return {@code false} at the end of the file
+     * @throws IOException if the file cannot be decoded
+     */
+    private boolean ensureData() throws IOException {
+        while (sequential == null && (block == null || position == block.length)) {
+            if (eof) {
+                return false;
+            }
+            nextBlock();
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        } else if (sequential != null) {
+            return sequential.read();
+        }
+        delivered++;
+        return block[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        } else if (!ensureData()) {
+            return -1;
+        } else if (sequential != null) {
+            return sequential.read(b, off, len);
+        }
+        final int n = Math.min(len, block.length - position);
+        System.arraycopy(block, position, b, off, n);
+        position += n;
+        delivered += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (sequential != null) {
+            return sequential.available();
+        }
+        return block == null ? 0 : block.length - position;
+    }
+
+    private void stop() {
+        if (producer != null) {
+            producer.interrupt();
+            decoders.shutdownNow();
+        }
+        for (Object next : blocks) {
+            if (next instanceof Future) {
+                ((Future<?>) next).cancel(true);
+            }
+        }
+        blocks.clear();
+        block = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            stop();
+            if (sequential != null) {
+                sequential.close();
+            }
+        }
+    }
+}
@@ -19,6 +19,8 @@ import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
 import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
 
@@ -47,6 +49,19 @@ public enum Compression {
      */
     XZ;
 
+    /**
+     * The size, in MiB, from which local bzip2 and xz files are decompressed by several threads, see
+     * {@link #getUncompressedFileInputStream(Path)}. A negative value disables the parallel decompression.
+     * @since xxx
+     */
+    public static final IntegerProperty PARALLEL_DECOMPRESSION_THRESHOLD = new IntegerProperty("compression.parallel.threshold", 32);
+
+    /**
+     * The number of threads which decompress a file in parallel, or {@code 0} for the number of processors.
+     * @since xxx
+     */
+    public static final IntegerProperty PARALLEL_DECOMPRESSION_THREADS = new IntegerProperty("compression.parallel.threads", 0);
+
     /**
      * Determines the compression type depending on the suffix of {@code name}.
      * @param name File name including extension
@@ -191,15 +206,39 @@ public enum Compression {
      * @since 16816
      */
     public static InputStream getUncompressedFileInputStream(Path path) throws IOException {
+        final Compression compression = byExtension(path.getFileName().toString());
+        final int threads = getParallelDecompressionThreads(compression, path);
+        if (threads > 1) {
+            return compression == BZIP2 ? new ParallelBZip2InputStream(path, threads) : new ParallelXZInputStream(path, threads);
+        }
         InputStream in = Files.newInputStream(path); // NOPMD
         try {
-            return byExtension(path.getFileName().toString()).getUncompressedInputStream(in);
+            return compression.getUncompressedInputStream(in);
         } catch (IOException e) {
             Utils.close(in);
             throw e;
         }
     }
 
+    /**
+     * Returns the number of threads which decompress a file, if it is worth decompressing it in parallel.
+     * @param compression the compression of the file
+     * @param path the path of the file
+     * @return the number of threads, {@code 1} if the file should be decompressed sequentially
+     * @throws IOException if the size of the file cannot be read
+     */
+    private static int getParallelDecompressionThreads(Compression compression, Path path) throws IOException {
+        if ((compression != BZIP2 && compression != XZ) || Config.getPref() == null) {
+            return 1;
+        }
+        final int threshold = PARALLEL_DECOMPRESSION_THRESHOLD.get();
+        if (threshold < 0 || Files.size(path) < threshold * 1024L * 1024L) {
+            return 1;
+        }
+        final int threads = PARALLEL_DECOMPRESSION_THREADS.get();
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
     /**
      * Returns a compressing {@link OutputStream} for {@code out}.
      * @param out raw output stream
@@ -380,7 +380,7 @@ public class GeoJSONReader extends AbstractReader {
      * @param <O> The primitive type
      * @return The primitive passed in as {@code primitive} for easier chaining
      */
-    private static <O extends OsmPrimitive> O fillTagsFromFeature(final JsonObject feature, final O primitive) {
+    private <O extends OsmPrimitive> O fillTagsFromFeature(final JsonObject feature, final O primitive) {
         if (feature != null) {
             TagCollection featureTags = getTags(feature);
             primitive.setKeys(new TagMap(primitive.isTagged() ? mergeAllTagValues(primitive, featureTags) : featureTags));
@@ -406,7 +406,7 @@ public class GeoJSONReader extends AbstractReader {
         Logging.warn(tr("Geometry of feature {0} is null", feature));
     }
 
-    private static TagCollection getTags(final JsonObject feature) {
+    private TagCollection getTags(final JsonObject feature) {
         final TagCollection tags = new TagCollection();
 
         if (feature.containsKey(PROPERTIES) && !feature.isNull(PROPERTIES)) {
@@ -416,7 +416,7 @@ public class GeoJSONReader extends AbstractReader {
                     final JsonValue value = stringJsonValueEntry.getValue();
 
                     if (value instanceof JsonString) {
-                        tags.add(new Tag(stringJsonValueEntry.getKey(), ((JsonString) value).getString()));
+                        tags.add(new Tag(internTag(stringJsonValueEntry.getKey()), internTag(((JsonString) value).getString())));
                     } else if (value instanceof JsonObject) {
                         Logging.warn(
                             "The GeoJSON contains an object with property '" + stringJsonValueEntry.getKey()
@@ -424,7 +424,7 @@ public class GeoJSONReader extends AbstractReader {
                                 + "'. That key-value pair is ignored!"
                         );
                     } else if (value.getValueType() != JsonValue.ValueType.NULL) {
-                        tags.add(new Tag(stringJsonValueEntry.getKey(), value.toString()));
+                        tags.add(new Tag(internTag(stringJsonValueEntry.getKey()), internTag(value.toString())));
                     }
                 }
             }
@@ -0,0 +1,209 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.io.MultiFetchServerObjectReader.FetchResult;
+
+/**
+ * Coordinates the multi-fetch requests of the {@link MultiFetchServerObjectReader}s to a server.
+ * <p>
+ * The number of concurrent requests and the number of ids per request are tuned from the observed latencies and errors:
+ * <ul>
+ * <li>after an error, both are halved,</li>
+ * <li>if a request takes much longer than the fastest ones of the same size, the server queues the requests, and one request
+ * less is run,</li>
+ * <li>after a round of successful requests, one request more is run, and the number of ids per request is doubled.</li>
+ * </ul>
+ * The limit of concurrent requests is shared by all readers of a server. The ids being fetched are registered, so that a
+ * reader waits for the request of another reader instead of fetching the same primitives again.
+ * @since xxx
+ */
+final class MultiFetchController {
+
+    /** The minimal number of ids per request */
+    static final int MIN_BATCH_SIZE = 10;
+    /** The factor of the best latency from which a request is considered as queued by the server */
+    private static final double LATENCY_TOLERANCE = 2;
+    /** The factor by which the best latency grows with each request, so that it follows the changes of the server */
+    private static final double LATENCY_DECAY = 1.01;
+
+    private static final Map<String, MultiFetchController> CONTROLLERS = new ConcurrentHashMap<>();
+
+    /** The requests in progress of all readers, by primitive id */
+    private final Map<PrimitiveId, CompletableFuture<FetchResult>> inFlight = new ConcurrentHashMap<>();
+    private int maxRequests;
+    private int maxBatchSize;
+    private int requests;
+    private int batchSize;
+    private int running;
+    /** The number of successful requests since the last increase */
+    private int successes;
+    private double bestLatency = Double.MAX_VALUE;
+
+    /**
+     * Constructs a new {@code MultiFetchController}.
+     * @param maxRequests the maximal number of concurrent requests
+     * @param maxBatchSize the maximal number of ids per request
+     */
+    MultiFetchController(int maxRequests, int maxBatchSize) {
+        setLimits(maxRequests, maxBatchSize);
+        this.requests = this.maxRequests;
+        this.batchSize = this.maxBatchSize;
+    }
+
+    /**
+     * Returns the controller of a server, and updates its limits.
+     * @param baseUrl the base URL of the server
+     * @param maxRequests the maximal number of concurrent requests
+     * @param maxBatchSize the maximal number of ids per request
+     * @return the controller
+     */
+    static MultiFetchController forServer(String baseUrl, int maxRequests, int maxBatchSize) {
+        final MultiFetchController controller = CONTROLLERS.computeIfAbsent(baseUrl, url -> new MultiFetchController(maxRequests, maxBatchSize));
+        controller.setLimits(maxRequests, maxBatchSize);
+        return controller;
+    }
+
+    private synchronized void setLimits(int maxRequests, int maxBatchSize) {
+        this.maxRequests = Math.max(1, maxRequests);
+        this.maxBatchSize = Math.max(MIN_BATCH_SIZE, maxBatchSize);
+        requests = Math.min(requests, this.maxRequests);
+        setBatchSize(batchSize);
+    }
+
+    /**
+     * Returns the current number of concurrent requests.
+     * @return the current number of concurrent requests
+     */
+    synchronized int getRequests() {
+        return requests;
+    }
+
+    /**
+     * Returns the current number of ids per request.
+     * @return the current number of ids per request
+     */
+    synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Starts a request, if the number of concurrent requests allows it. Each started request must be {@linkplain #finished}.
+     * @return {@code true} if the request can be started
+     */
+    synchronized boolean tryStart() {
+        if (running < requests) {
+            running++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Starts a request, waiting until the number of concurrent requests allows it.
+     * @param timeout the maximal time to wait, in milliseconds
+     * @return {@code true} if the request can be started, {@code false} if the time has elapsed
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    synchronized boolean start(long timeout) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        long remaining = timeout;
+        while (running >= requests && remaining > 0) {
+            wait(remaining);
+            remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        }
+        return tryStart();
+    }
+
+    /**
+     * Ends a request, and tunes the number of concurrent requests and the number of ids per request.
+     * @param latency the duration of the request, in nanoseconds
+     * @param size the number of ids of the request
+     * @param failed {@code true} if the request failed, e.g. with a server error or a timeout
+     */
+    synchronized void finished(long latency, int size, boolean failed) {
+        running--;
+        notifyAll();
+        if (failed) {
+            requests = Math.max(1, requests / 2);
+            setBatchSize(batchSize / 2);
+            successes = 0;
+            return;
+        }
+        // the latency grows with the number of ids, so only the latencies of requests of the current size are compared
+        if (size == batchSize) {
+            bestLatency = Math.min(bestLatency * LATENCY_DECAY, latency);
+            if (latency > LATENCY_TOLERANCE * bestLatency) {
+                requests = Math.max(1, requests - 1);
+                successes = 0;
+                return;
+            }
+        }
+        if (++successes >= requests) {
+            successes = 0;
+            requests = Math.min(maxRequests, requests + 1);
+            setBatchSize(2 * batchSize);
+        }
+    }
+
+    private void setBatchSize(int size) {
+        final int newSize = Math.max(MIN_BATCH_SIZE, Math.min(maxBatchSize, size));
+        if (newSize != batchSize) {
+            batchSize = newSize;
+            bestLatency = Double.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Ends a request which has been cancelled, without tuning.
+     */
+    synchronized void cancelled() {
+        running--;
+        notifyAll();
+    }
+
+    /**
+     * Registers the ids of a request. The ids which are already requested by another reader are removed from {@code ids}.
+     * @param type the type of the primitives
+     * @param ids the ids to request
+     * @param request the result of the request
+     * @return the ids requested by other readers, by request
+     */
+    Map<CompletableFuture<FetchResult>, Set<Long>> claim(OsmPrimitiveType type, Set<Long> ids,
+            CompletableFuture<FetchResult> request) {
+        final Map<CompletableFuture<FetchResult>, Set<Long>> others = new LinkedHashMap<>();
+        for (Iterator<Long> it = ids.iterator(); it.hasNext();) {
+            final long id = it.next();
+            final CompletableFuture<FetchResult> other = inFlight.putIfAbsent(new SimplePrimitiveId(id, type), request);
+            if (other != null && other != request) {
+                others.computeIfAbsent(other, k -> new HashSet<>()).add(id);
+                it.remove();
+            }
+        }
+        return others;
+    }
+
+    /**
+     * Unregisters the ids of a request.
+     * @param type the type of the primitives
+     * @param ids the requested ids
+     * @param request the result of the request
+     */
+    void release(OsmPrimitiveType type, Collection<Long> ids, CompletableFuture<FetchResult> request) {
+        for (long id : ids) {
+            inFlight.remove(new SimplePrimitiveId(id, type), request);
+        }
+    }
+}
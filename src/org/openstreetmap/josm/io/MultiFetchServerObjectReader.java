@@ -7,9 +7,12 @@ import static org.openstreetmap.josm.tools.I18n.trn;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -19,12 +22,16 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.data.Bounds;
@@ -70,6 +77,11 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
      */
     private static final int MAX_IDS_PER_REQUEST = 170;
 
+    /** The HTTP response code of the servers which limit the rate of requests */
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    /** The interval at which the fetch of primitives checks whether it has been canceled */
+    private static final long POLL_MILLIS = 100;
+
     private final Set<Long> nodes;
     private final Set<Long> ways;
     private final Set<Long> relations;
@@ -245,15 +257,28 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
      * @return the subset of ids
      */
     protected Set<Long> extractIdPackage(Set<Long> ids) {
+        return extractIdPackage(ids, MAX_IDS_PER_REQUEST);
+    }
+
+    /**
+     * extracts a subset of max <code>size</code> ids from <code>ids</code> and
+     * replies the subset. The extracted subset is removed from <code>ids</code>.
+     *
+     * @param ids a set of ids
+     * @param size the maximal number of ids of the subset
+     * @return the subset of ids
+     * @since xxx
+     */
+    protected Set<Long> extractIdPackage(Set<Long> ids, int size) {
         Set<Long> pkg = new HashSet<>();
         if (ids.isEmpty())
             return pkg;
-        if (ids.size() > MAX_IDS_PER_REQUEST) {
+        if (ids.size() > size) {
             Iterator<Long> it = ids.iterator();
-            for (int i = 0; i < MAX_IDS_PER_REQUEST; i++) {
+            for (int i = 0; i < size; i++) {
                 pkg.add(it.next());
+                it.remove();
             }
-            ids.removeAll(pkg);
         } else {
             pkg.addAll(ids);
             ids.clear();
@@ -315,58 +340,267 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
         }
         progressMonitor.setTicksCount(ids.size());
         progressMonitor.setTicks(0);
-        // The complete set containing all primitives to fetch
-        Set<Long> toFetch = new HashSet<>(ids);
-        // Build a list of fetchers that will  download smaller sets containing only MAX_IDS_PER_REQUEST (200) primitives each.
-        // we will run up to MAX_DOWNLOAD_THREADS concurrent fetchers.
+        // we will run up to MAX_DOWNLOAD_THREADS concurrent fetchers, fewer if the server is slow or fails.
         int threadsNumber = Config.getPref().getInt("osm.download.threads", OsmApi.MAX_DOWNLOAD_THREADS);
         threadsNumber = Utils.clamp(threadsNumber, 1, OsmApi.MAX_DOWNLOAD_THREADS);
         exec = Executors.newFixedThreadPool(
                 threadsNumber, Utils.newThreadFactory(getClass() + "-%d", Thread.NORM_PRIORITY));
-        CompletionService<FetchResult> ecs = new ExecutorCompletionService<>(exec);
-        List<Future<FetchResult>> jobs = new ArrayList<>();
-        // There exists a race condition where this is cancelled after isCanceled is called, such that
-        // the exec ThreadPool has been shut down. This can cause a RejectedExecutionException.
-        synchronized (this) {
-            while (!toFetch.isEmpty() && !isCanceled()) {
-                jobs.add(ecs.submit(new Fetcher(type, extractIdPackage(toFetch), progressMonitor)));
+        try {
+            new PrimitivesFetch(type, ids, progressMonitor, msg,
+                    MultiFetchController.forServer(baseUrl, threadsNumber, MAX_IDS_PER_REQUEST)).run();
+        } finally {
+            exec.shutdown();
+            exec = null;
+        }
+    }
+
+    /**
+     * Extracts primitives, with the primitives they refer to, from a data set into a new data set.
+     * @param from the data set
+     * @param primitives the primitives to extract
+     * @return the new data set
+     */
+    static DataSet extract(DataSet from, Collection<? extends OsmPrimitive> primitives) {
+        final Set<Node> extractedNodes = new LinkedHashSet<>();
+        final Set<Way> extractedWays = new LinkedHashSet<>();
+        final Set<Relation> extractedRelations = new LinkedHashSet<>();
+        final Deque<OsmPrimitive> toExtract = new ArrayDeque<>(primitives);
+        while (!toExtract.isEmpty()) {
+            final OsmPrimitive p = toExtract.pop();
+            if (p instanceof Node) {
+                extractedNodes.add((Node) p);
+            } else if (p instanceof Way) {
+                if (extractedWays.add((Way) p)) {
+                    extractedNodes.addAll(((Way) p).getNodes());
+                }
+            } else if (p instanceof Relation && extractedRelations.add((Relation) p)) {
+                ((Relation) p).getMemberPrimitivesList().forEach(toExtract::push);
             }
         }
-        // Run the fetchers
-        for (int i = 0; i < jobs.size() && !isCanceled(); i++) {
-            progressMonitor.subTask(msg + "... " + progressMonitor.getTicks() + '/' + progressMonitor.getTicksCount());
+        final DataSet ds = new DataSet();
+        ds.setVersion(from.getVersion());
+        ds.clonePrimitives(extractedNodes, extractedWays, extractedRelations);
+        return ds;
+    }
+
+    /**
+     * Determines if a failed request may succeed later.
+     * @param e the error of the request
+     * @return {@code true} for server errors and connection problems
+     */
+    static boolean isTransientError(Throwable e) {
+        if (e instanceof OsmApiException) {
+            final int code = ((OsmApiException) e).getResponseCode();
+            return code == HTTP_TOO_MANY_REQUESTS || code == HttpURLConnection.HTTP_INTERNAL_ERROR
+                    || code == HttpURLConnection.HTTP_BAD_GATEWAY || code == HttpURLConnection.HTTP_UNAVAILABLE
+                    || code == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+        }
+        return e instanceof OsmTransferException && !(e instanceof OsmTransferCanceledException) && e.getCause() instanceof IOException;
+    }
+
+    /**
+     * The fetch of a set of ids of a given {@link OsmPrimitiveType}, see {@link #fetchPrimitives}.
+     * <p>
+     * The ids are requested in packages whose size and concurrency are tuned by the {@link MultiFetchController} of the server.
+     * The results are merged as the requests complete. Failed requests are retried with smaller packages, if the error may be
+     * transient. The ids requested by another reader are not requested again, the result of its request is used instead.
+     */
+    private final class PrimitivesFetch {
+        private final OsmPrimitiveType type;
+        private final ProgressMonitor progressMonitor;
+        private final String msg;
+        private final MultiFetchController controller;
+        private final CompletionService<FetchResult> ecs = new ExecutorCompletionService<>(exec);
+        private final int maxRetries = Math.max(0, Config.getPref().getInt("osm-server.max-num-retries", OsmApi.DEFAULT_MAX_NUM_RETRIES));
+        /** The ids which are not requested yet */
+        private final Set<Long> toFetch;
+        /** The packages of ids to request as they are, after a 404 error */
+        private final Deque<Set<Long>> packages = new ArrayDeque<>();
+        /** The requests in progress */
+        private final Map<Future<FetchResult>, Request> requests = new HashMap<>();
+        /** The ids requested by other readers, by request */
+        private final Map<CompletableFuture<FetchResult>, Set<Long>> borrowed = new LinkedHashMap<>();
+        /** The number of failed requests since the last successful one */
+        private int errors;
+
+        PrimitivesFetch(OsmPrimitiveType type, Set<Long> ids, ProgressMonitor progressMonitor, String msg,
+                MultiFetchController controller) {
+            this.type = type;
+            this.toFetch = new LinkedHashSet<>(ids);
+            this.progressMonitor = progressMonitor;
+            this.msg = msg;
+            this.controller = controller;
+        }
+
+        void run() throws OsmTransferException {
             try {
-                FetchResult result = ecs.take().get();
-                if (result.rc404 != null) {
-                    List<Long> toSplit = new ArrayList<>(result.rc404);
-                    int n = toSplit.size() / 2;
-                    jobs.add(ecs.submit(new Fetcher(type, new HashSet<>(toSplit.subList(0, n)), progressMonitor)));
-                    jobs.add(ecs.submit(new Fetcher(type, new HashSet<>(toSplit.subList(n, toSplit.size())), progressMonitor)));
+                while (!isCanceled() && (!toFetch.isEmpty() || !packages.isEmpty() || !requests.isEmpty() || !borrowed.isEmpty())) {
+                    submitRequests();
+                    takeBorrowed(requests.isEmpty() && toFetch.isEmpty() && packages.isEmpty());
+                    if (!requests.isEmpty()) {
+                        final Future<FetchResult> done = ecs.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                        if (done != null) {
+                            progressMonitor.subTask(msg + "... " + progressMonitor.getTicks() + '/' + progressMonitor.getTicksCount());
+                            takeResult(requests.remove(done), done);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Logging.error(e);
+            } finally {
+                // Cancel requests if the user chose to
+                for (Entry<Future<FetchResult>, Request> e : requests.entrySet()) {
+                    e.getKey().cancel(true);
+                    e.getValue().result.cancel(true);
+                    controller.release(type, e.getValue().ids, e.getValue().result);
+                    controller.cancelled();
                 }
-                if (result.missingPrimitives != null) {
-                    missingPrimitives.addAll(result.missingPrimitives);
+            }
+        }
+
+        private void submitRequests() throws InterruptedException {
+            while (!toFetch.isEmpty() || !packages.isEmpty()) {
+                if (!(requests.isEmpty() ? controller.start(POLL_MILLIS) : controller.tryStart())) {
+                    return;
                 }
-                if (result.dataSet != null && !isCanceled()) {
-                    rememberNodesOfIncompleteWaysToLoad(result.dataSet);
-                    merge(result.dataSet);
+                final Request request = new Request(type,
+                        packages.isEmpty() ? extractIdPackage(toFetch, controller.getBatchSize()) : packages.removeFirst(), progressMonitor);
+                controller.claim(type, request.ids, request.result)
+                        .forEach((other, ids) -> borrowed.computeIfAbsent(other, k -> new HashSet<>()).addAll(ids));
+                // There exists a race condition where this is cancelled after isCanceled is called, such that
+                // the exec ThreadPool has been shut down. This can cause a RejectedExecutionException.
+                synchronized (MultiFetchServerObjectReader.this) {
+                    if (request.ids.isEmpty() || isCanceled()) {
+                        // the ids may have been borrowed by other readers in between
+                        request.result.cancel(true);
+                        controller.release(type, request.ids, request.result);
+                        controller.cancelled();
+                        continue;
+                    }
+                    requests.put(ecs.submit(request), request);
                 }
-            } catch (InterruptedException | ExecutionException e) {
-                if (e instanceof InterruptedException) {
-                    Thread.currentThread().interrupt();
+            }
+        }
+
+        private void takeResult(Request request, Future<FetchResult> done) throws OsmTransferException, InterruptedException {
+            controller.release(type, request.ids, request.result);
+            final FetchResult result;
+            try {
+                result = done.get();
+            } catch (ExecutionException e) {
+                final boolean retry = isTransientError(e.getCause()) && ++errors <= maxRetries;
+                controller.finished(request.latency, request.ids.size(), true);
+                if (retry) {
+                    Logging.info(tr("Request failed with ''{0}'', retrying with {1} objects per request.",
+                            e.getCause().getMessage(), controller.getBatchSize()));
+                    toFetch.addAll(request.ids);
+                    return;
                 }
                 Logging.error(e);
                 if (e.getCause() instanceof OsmTransferException)
                     throw (OsmTransferException) e.getCause(); // NOPMD
+                return;
+            }
+            controller.finished(request.latency, request.ids.size(), false);
+            errors = 0;
+            if (result == null) {
+                return;
+            }
+            if (result.rc404 != null) {
+                List<Long> toSplit = new ArrayList<>(result.rc404);
+                int n = toSplit.size() / 2;
+                packages.add(new HashSet<>(toSplit.subList(0, n)));
+                packages.add(new HashSet<>(toSplit.subList(n, toSplit.size())));
+            }
+            if (result.missingPrimitives != null) {
+                missingPrimitives.addAll(result.missingPrimitives);
+            }
+            if (result.dataSet != null && !isCanceled()) {
+                rememberNodesOfIncompleteWaysToLoad(result.dataSet);
+                merge(result.dataSet);
+            }
+        }
+
+        /**
+         * Takes the results of the requests of other readers which are complete.
+         * @param wait if {@code true}, waits for one of the requests
+         * @throws InterruptedException if the current thread is interrupted while waiting
+         */
+        private void takeBorrowed(boolean wait) throws InterruptedException {
+            boolean mayWait = wait;
+            for (Iterator<Entry<CompletableFuture<FetchResult>, Set<Long>>> it = borrowed.entrySet().iterator(); it.hasNext();) {
+                final Entry<CompletableFuture<FetchResult>, Set<Long>> e = it.next();
+                if (!mayWait && !e.getKey().isDone()) {
+                    continue;
+                }
+                FetchResult result;
+                try {
+                    result = e.getKey().get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException ex) {
+                    mayWait = false;
+                    continue;
+                } catch (ExecutionException | CancellationException ex) {
+                    Logging.trace(ex);
+                    result = null;
+                }
+                mayWait = false;
+                it.remove();
+                takeBorrowedResult(e.getValue(), result);
+            }
+        }
+
+        private void takeBorrowedResult(Set<Long> ids, FetchResult result) {
+            final List<OsmPrimitive> found = new ArrayList<>();
+            for (long id : ids) {
+                final OsmPrimitive p = result != null && result.dataSet != null ? result.dataSet.getPrimitiveById(id, type) : null;
+                if (p != null && !p.isIncomplete()) {
+                    found.add(p);
+                } else if (result != null && result.missingPrimitives != null
+                        && result.missingPrimitives.contains(new SimplePrimitiveId(id, type))) {
+                    missingPrimitives.add(new SimplePrimitiveId(id, type));
+                } else {
+                    // the other reader failed, or has split its request after a 404 error
+                    toFetch.add(id);
+                }
+            }
+            if (!found.isEmpty() && !isCanceled()) {
+                final DataSet ds = extract(result.dataSet, found);
+                progressMonitor.worked(found.size());
+                rememberNodesOfIncompleteWaysToLoad(ds);
+                merge(ds);
             }
         }
-        exec.shutdown();
-        // Cancel requests if the user chose to
-        if (isCanceled()) {
-            for (Future<FetchResult> job : jobs) {
-                job.cancel(true);
+    }
+
+    /**
+     * A request of {@link PrimitivesFetch}, whose result can be used by other readers.
+     */
+    private final class Request extends Fetcher {
+        private final Set<Long> ids;
+        private final CompletableFuture<FetchResult> result = new CompletableFuture<>();
+        /** The duration of the request in nanoseconds, read once the request is complete */
+        private long latency;
+
+        Request(OsmPrimitiveType type, Set<Long> ids, ProgressMonitor progressMonitor) {
+            super(type, ids, progressMonitor);
+            this.ids = ids;
+        }
+
+        @Override
+        public FetchResult call() throws Exception {
+            final long start = System.nanoTime();
+            try {
+                final FetchResult r = super.call();
+                result.complete(r);
+                return r;
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+                throw e;
+            } finally {
+                latency = System.nanoTime() - start;
             }
         }
-        exec = null;
     }
 
     /**
@@ -591,34 +591,66 @@ public class OsmApi extends OsmConnection {
 
             // prepare upload request
             //
-            OsmChangeBuilder changeBuilder = new OsmChangeBuilder(changeset);
             monitor.subTask(tr("Preparing upload request..."));
-            changeBuilder.start();
-            changeBuilder.append(list);
-            changeBuilder.finish();
-            String diffUploadRequest = changeBuilder.getDocument();
+            String diffUploadRequest = createDiffUploadRequest(list);
 
             // Upload to the server
             //
-            monitor.indeterminateSubTask(
-                    trn("Uploading {0} object...", "Uploading {0} objects...", list.size(), list.size()));
-            String diffUploadResponse = sendPostRequest(CHANGESET_SLASH + changeset.getId() + "/upload", diffUploadRequest, monitor);
+            DiffResultProcessor reader = sendDiffUploadRequest(list, diffUploadRequest, monitor);
 
             // Process the response from the server
             //
-            DiffResultProcessor reader = new DiffResultProcessor(list);
-            reader.parse(diffUploadResponse, monitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false));
             return reader.postProcess(
                     getChangeset(),
                     monitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false)
             );
+        } finally {
+            monitor.finishTask();
+        }
+    }
+
+    /**
+     * Creates the "diff" upload request of a list of changes to the current changeset.
+     *
+     * @param list the list of changed OSM Primitives
+     * @return the OsmChange document
+     * @since xxx
+     */
+    String createDiffUploadRequest(Collection<? extends OsmPrimitive> list) {
+        OsmChangeBuilder changeBuilder = new OsmChangeBuilder(changeset);
+        changeBuilder.start();
+        changeBuilder.append(list);
+        changeBuilder.finish();
+        return changeBuilder.getDocument();
+    }
+
+    /**
+     * Uploads a "diff" upload request to the current changeset, and parses the response from the server.
+     * The diff result still has to be {@linkplain DiffResultProcessor#postProcess applied} to the primitives.
+     *
+     * @param list the list of changed OSM Primitives
+     * @param diffUploadRequest the OsmChange document of {@code list}, see {@link #createDiffUploadRequest}
+     * @param monitor the progress monitor
+     * @return the diff result
+     * @throws OsmTransferException if something is wrong
+     * @since xxx
+     */
+    DiffResultProcessor sendDiffUploadRequest(Collection<? extends OsmPrimitive> list, String diffUploadRequest,
+            ProgressMonitor monitor) throws OsmTransferException {
+        try {
+            ensureValidChangeset();
+            monitor.indeterminateSubTask(
+                    trn("Uploading {0} object...", "Uploading {0} objects...", list.size(), list.size()));
+            String diffUploadResponse = sendPostRequest(CHANGESET_SLASH + changeset.getId() + "/upload", diffUploadRequest, monitor);
+
+            DiffResultProcessor reader = new DiffResultProcessor(list);
+            reader.parse(diffUploadResponse, monitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false));
+            return reader;
         } catch (ChangesetClosedException e) {
             e.setSource(ChangesetClosedException.Source.UPLOAD_DATA);
             throw e;
         } catch (XmlParsingException e) {
             throw new OsmTransferException(e);
-        } finally {
-            monitor.finishTask();
         }
     }
 
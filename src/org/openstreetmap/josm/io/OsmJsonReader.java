@@ -128,11 +128,11 @@ public class OsmJsonReader extends AbstractReader {
         }
     }
 
-    private static void readTags(JsonObject item, Tagged t) {
+    private void readTags(JsonObject item, Tagged t) {
         JsonObject tags = item.getJsonObject("tags");
         if (tags != null) {
             for (Entry<String, JsonValue> entry : tags.entrySet()) {
-                t.put(entry.getKey(), ((JsonString) entry.getValue()).getString());
+                t.put(internTag(entry.getKey()), internTag(((JsonString) entry.getValue()).getString()));
             }
         }
     }
@@ -146,7 +146,7 @@ public class OsmJsonReader extends AbstractReader {
         parseWay(wd -> readCommon(item, wd), (w, nodeIds) -> readWayNodesAndTags(item, w, nodeIds));
     }
 
-    private static void readWayNodesAndTags(JsonObject item, WayData w, Collection<Long> nodeIds) {
+    private void readWayNodesAndTags(JsonObject item, WayData w, Collection<Long> nodeIds) {
         for (JsonValue v : item.getJsonArray("nodes")) {
             nodeIds.add(((JsonNumber) v).longValue());
         }
@@ -2,18 +2,35 @@
 package org.openstreetmap.josm.io;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.DataSource;
@@ -33,12 +50,14 @@ import org.openstreetmap.josm.data.osm.pbf.Blob;
 import org.openstreetmap.josm.data.osm.pbf.BlobHeader;
 import org.openstreetmap.josm.data.osm.pbf.HeaderBlock;
 import org.openstreetmap.josm.data.osm.pbf.Info;
-import org.openstreetmap.josm.data.protobuf.ProtobufPacked;
+import org.openstreetmap.josm.data.protobuf.ProtobufCursor;
 import org.openstreetmap.josm.data.protobuf.ProtobufParser;
 import org.openstreetmap.josm.data.protobuf.ProtobufRecord;
 import org.openstreetmap.josm.data.protobuf.WireType;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Utils;
 
 import jakarta.annotation.Nonnull;
@@ -134,9 +153,39 @@ public final class OsmPbfReader extends AbstractReader {
      * The maximum Blob size. Blobs should (but not must) be less than half this
      */
     private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+    /**
+     * The blob indexes of the files that were recently read with {@link #parseDataSet(Path, Bounds, ProgressMonitor, int)}.
+     * This is keyed by the path, size and modification time of the file, so that opening another area of the same file does not
+     * need to scan the whole file again.
+     */
+    private static final Map<String, BlobIndex> INDEX_CACHE = Collections.synchronizedMap(new LinkedHashMap<String, BlobIndex>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BlobIndex> eldest) {
+            return size() > 4;
+        }
+    });
+
+    /**
+     * The number of threads used to decode data blobs
+     */
+    private final int threads;
+    /**
+     * The file to read an area from, or {@code null} if the whole input stream is read
+     */
+    private final Path file;
+    /**
+     * The area to read, or {@code null} if everything is read
+     */
+    private final Bounds area;
+
+    private OsmPbfReader(int threads) {
+        this(threads, null, null);
+    }
 
-    private OsmPbfReader() {
-        // Hide constructor
+    private OsmPbfReader(int threads, Path file, Bounds area) {
+        this.threads = Math.max(1, threads);
+        this.file = file;
+        this.area = area;
     }
 
     /**
@@ -149,7 +198,57 @@ public final class OsmPbfReader extends AbstractReader {
      * @throws IllegalArgumentException if source is null
      */
     public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
-        return new OsmPbfReader().doParseDataSet(source, progressMonitor);
+        return parseDataSet(source, progressMonitor, 1);
+    }
+
+    /**
+     * Parse the given input source and return the dataset, decoding the data blobs on several threads.
+     * <p>
+     * Blobs are still read sequentially, and the decoded primitives are added to the dataset in file order, so the result is
+     * identical to the result of {@link #parseDataSet(InputStream, ProgressMonitor)}.
+     *
+     * @param source          the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     * @param threads         the number of threads to use for decoding. {@code 1} (or less) decodes on the calling thread.
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException     if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     * @since xxx
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor, int threads) throws IllegalDataException {
+        return new OsmPbfReader(threads).doParseDataSet(source, progressMonitor);
+    }
+
+    /**
+     * Parse the data of a PBF file that is inside an area, and return the dataset.
+     * <p>
+     * The file is memory-mapped instead of being read as a stream. On the first read of a file, the offsets of all blobs are
+     * indexed, together with the area and id ranges of the nodes, way node references and relation members of each data blob. This
+     * only reads the ids and coordinates, without creating any primitive. Then only the blobs that may contain data of interest are
+     * decoded. The dataset contains:
+     * <ul>
+     *     <li>all nodes inside the area</li>
+     *     <li>all ways with at least one node inside the area, and all their nodes (so the ways are complete)</li>
+     *     <li>all relations with at least one member in the dataset, recursively. Other members are incomplete.</li>
+     * </ul>
+     * This is the same closure as the {@code map} call of the OSM API. Files sorted by type and id (as written by osmium,
+     * osmosis, etc.) have narrow id ranges per blob, so few blobs need to be decoded.
+     *
+     * @param file            the PBF file to read. It must not be compressed.
+     * @param area            the area to read
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     * @param threads         the number of threads to use for decoding. {@code 1} (or less) decodes on the calling thread.
+     * @return the dataset with the parsed data
+     * @throws IOException          if the file could not be opened
+     * @throws IllegalDataException if an error was found while parsing the data from the file
+     * @since xxx
+     */
+    public static DataSet parseDataSet(Path file, Bounds area, ProgressMonitor progressMonitor, int threads)
+            throws IOException, IllegalDataException {
+        CheckParameterUtil.ensureParameterNotNull(area, "area");
+        try (FileInputStream source = new FileInputStream(file.toFile())) {
+            return new OsmPbfReader(threads, file, area).doParseDataSet(source, progressMonitor);
+        }
     }
 
     @Override
@@ -158,12 +257,21 @@ public final class OsmPbfReader extends AbstractReader {
     }
 
     private void parse(InputStream source) throws IllegalDataException, IOException {
+        if (this.area != null && source instanceof FileInputStream) {
+            parseArea(((FileInputStream) source).getChannel());
+            return;
+        }
         final BoundedInputStream inputStream;
         if (source.markSupported()) {
             inputStream = new BoundedInputStream(source);
         } else {
             inputStream = new BoundedInputStream(new BufferedInputStream(source));
         }
+        // Blobs are always read sequentially; only the inflation and decoding of the data blobs is done on the worker threads.
+        final ExecutorService executor = this.threads > 1
+                ? Executors.newFixedThreadPool(this.threads, Utils.newThreadFactory("pbf-decoder-%d", Thread.NORM_PRIORITY))
+                : null;
+        final Deque<Future<DecodedBlock>> pending = new ArrayDeque<>();
         try (ProtobufParser parser = new ProtobufParser(inputStream)) {
             final ByteArrayOutputStream baos = new ByteArrayOutputStream();
             HeaderBlock headerBlock = null;
@@ -177,7 +285,7 @@ public final class OsmPbfReader extends AbstractReader {
                     }
                     // OSM PBF is fun -- it has *nested* pbf data
                     final Blob blob = parseBlob(blobHeader, inputStream, parser, baos);
-                    headerBlock = parseHeaderBlock(blob, baos);
+                    headerBlock = parseHeaderBlock(blob);
                     checkRequiredFeatures(headerBlock);
                     blobHeader = null;
                 } else if ("OSMData".equals(blobHeader.type())) {
@@ -185,10 +293,229 @@ public final class OsmPbfReader extends AbstractReader {
                         throw new IllegalStateException("A header block must occur before the first data block");
                     }
                     final Blob blob = parseBlob(blobHeader, inputStream, parser, baos);
-                    parseDataBlock(baos, headerBlock, blob);
+                    if (executor == null) {
+                        mergeBlock(headerBlock, decodeDataBlock(blob));
+                    } else {
+                        pending.add(executor.submit(() -> decodeDataBlock(blob)));
+                        // Keep the number of blobs in memory bounded; results are merged in file order
+                        while (pending.size() > 2 * this.threads) {
+                            mergeBlock(headerBlock, waitFor(pending.remove()));
+                        }
+                    }
                     blobHeader = null;
                 } // Other software *may* extend the FileBlocks (from just "OSMHeader" and "OSMData"), so don't throw an error.
             }
+            while (!pending.isEmpty() && !this.cancel) {
+                mergeBlock(headerBlock, waitFor(pending.remove()));
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Parse the data in {@link #area} from a file channel
+     *
+     * @param channel The channel of {@link #file}
+     * @throws IOException          if the file could not be read
+     * @throws IllegalDataException if the file is not a valid PBF file
+     */
+    private void parseArea(FileChannel channel) throws IOException, IllegalDataException {
+        final String key = this.file.toAbsolutePath() + ":" + channel.size() + ":" + Files.getLastModifiedTime(this.file).toMillis();
+        final ExecutorService executor = this.threads > 1
+                ? Executors.newFixedThreadPool(this.threads, Utils.newThreadFactory("pbf-decoder-%d", Thread.NORM_PRIORITY))
+                : null;
+        final DecodedBlock result = new DecodedBlock(false);
+        final LongSet nodeIds = new LongSet();
+        final LongSet wayIds = new LongSet();
+        final LongSet relationIds = new LongSet();
+        final List<RelationData> relationCandidates = new ArrayList<>();
+        final HeaderBlock headerBlock;
+        try {
+            BlobIndex index = INDEX_CACHE.get(key);
+            if (index == null) {
+                index = BlobIndex.create(channel, executor, () -> this.cancel);
+                if (index == null) {
+                    return;
+                }
+                INDEX_CACHE.put(key, index);
+            }
+            headerBlock = index.headerBlock;
+            // First pass: the nodes in the area, from the blobs whose nodes intersect it
+            decodeBlobs(channel, select(index.entries, summary -> summary.nodeBounds != null && summary.nodeBounds.intersects(this.area)),
+                    executor, block -> {
+                for (PrimitiveData primitive : block.primitives) {
+                    if (primitive instanceof NodeData && this.area.contains(((NodeData) primitive).getCoor())
+                            && nodeIds.add(primitive.getUniqueId())) {
+                        result.primitives.add(primitive);
+                    }
+                }
+                result.missingInfo |= block.missingInfo;
+            });
+            // Second pass: the ways that use them, from the blobs whose node references may contain one of them
+            final long[] areaNodeIds = nodeIds.toSortedArray();
+            final LongSet missingNodeIds = new LongSet();
+            decodeBlobs(channel, select(index.entries, summary -> containsAny(areaNodeIds, summary.minWayNodeId, summary.maxWayNodeId)),
+                    executor, block -> {
+                for (PrimitiveData primitive : block.primitives) {
+                    if (primitive instanceof WayData) {
+                        final Collection<Long> refs = block.ways.get(primitive.getUniqueId());
+                        if (refs.stream().anyMatch(nodeIds::contains) && wayIds.add(primitive.getUniqueId())) {
+                            result.ways.put(primitive.getUniqueId(), refs);
+                            result.primitives.add(primitive);
+                            refs.stream().filter(ref -> !nodeIds.contains(ref)).forEach(missingNodeIds::add);
+                            result.missingInfo |= block.missingInfo;
+                        }
+                    }
+                }
+            });
+            // Third pass: the nodes outside the area that are needed to complete the ways
+            final long[] sortedMissingNodeIds = missingNodeIds.toSortedArray();
+            decodeBlobs(channel, select(index.entries, summary -> containsAny(sortedMissingNodeIds, summary.minNodeId, summary.maxNodeId)),
+                    executor, block -> {
+                for (PrimitiveData primitive : block.primitives) {
+                    if (primitive instanceof NodeData && missingNodeIds.contains(primitive.getUniqueId())
+                            && nodeIds.add(primitive.getUniqueId())) {
+                        result.primitives.add(primitive);
+                    }
+                }
+            });
+            // Last passes: the relations with a member in the result, from the blobs whose member ids may contain one of them.
+            // Each pass finds the parents of the relations found by the previous one.
+            final long[] sortedNodeIds = nodeIds.toSortedArray();
+            final long[] sortedWayIds = wayIds.toSortedArray();
+            final List<BlobEntry> relationBlobs = select(index.entries, summary -> summary.hasRelations);
+            Predicate<BlobSummary> filter = summary -> containsAny(sortedNodeIds, summary.minMemberIds[0], summary.maxMemberIds[0])
+                    || containsAny(sortedWayIds, summary.minMemberIds[1], summary.maxMemberIds[1]);
+            while (!this.cancel) {
+                final Predicate<BlobSummary> currentFilter = filter;
+                final List<BlobEntry> blobs = select(relationBlobs, currentFilter);
+                if (blobs.isEmpty()) {
+                    break;
+                }
+                relationBlobs.removeIf(entry -> currentFilter.test(entry.summary));
+                decodeBlobs(channel, blobs, executor, block -> {
+                    for (PrimitiveData primitive : block.primitives) {
+                        if (primitive instanceof RelationData) {
+                            result.relations.put(primitive.getUniqueId(), block.relations.get(primitive.getUniqueId()));
+                            relationCandidates.add((RelationData) primitive);
+                        }
+                    }
+                });
+                addRelationClosure(result, relationCandidates, nodeIds, wayIds, relationIds);
+                final long[] sortedRelationIds = relationIds.toSortedArray();
+                filter = summary -> containsAny(sortedRelationIds, summary.minMemberIds[2], summary.maxMemberIds[2]);
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        result.relations.keySet().removeIf(id -> !relationIds.contains(id));
+        if (!this.cancel) {
+            getDataSet().addDataSource(new DataSource(this.area,
+                    headerBlock.source() != null ? headerBlock.source() : this.file.getFileName().toString()));
+            mergeBlock(headerBlock, result);
+        }
+    }
+
+    /**
+     * Select the blobs whose summary matches a filter
+     *
+     * @param entries The blobs to select from
+     * @param filter  The filter for the summaries
+     * @return The selected blobs, in file order
+     */
+    private static List<BlobEntry> select(List<BlobEntry> entries, Predicate<BlobSummary> filter) {
+        final List<BlobEntry> selected = new ArrayList<>();
+        for (BlobEntry entry : entries) {
+            if (filter.test(entry.summary)) {
+                selected.add(entry);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Check if an id range contains one of the given ids
+     *
+     * @param sortedIds The ids to look for, sorted
+     * @param min       The lowest id of the range
+     * @param max       The highest id of the range, lower than {@code min} for an empty range
+     * @return {@code true} if at least one id is in the range
+     */
+    private static boolean containsAny(long[] sortedIds, long min, long max) {
+        if (min > max) {
+            return false;
+        }
+        int index = Arrays.binarySearch(sortedIds, min);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < sortedIds.length && sortedIds[index] <= max;
+    }
+
+    /**
+     * Add the relations that have at least one member in the result, until no more relations are found
+     *
+     * @param result      The block to add the relations to. Its {@link DecodedBlock#relations} must contain the members of all candidates.
+     * @param candidates  The relations to check
+     * @param nodeIds     The ids of the nodes in the result
+     * @param wayIds      The ids of the ways in the result
+     * @param relationIds The ids of the relations in the result, which is updated with the added relations
+     */
+    private static void addRelationClosure(DecodedBlock result, List<RelationData> candidates, LongSet nodeIds, LongSet wayIds,
+            LongSet relationIds) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (RelationData relation : candidates) {
+                if (!relationIds.contains(relation.getUniqueId())) {
+                    for (RelationMemberData member : result.relations.get(relation.getUniqueId())) {
+                        final LongSet ids = member.getMemberType() == OsmPrimitiveType.NODE ? nodeIds
+                                : member.getMemberType() == OsmPrimitiveType.WAY ? wayIds : relationIds;
+                        if (ids.contains(member.getMemberId())) {
+                            relationIds.add(relation.getUniqueId());
+                            result.primitives.add(relation);
+                            changed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Decode data blobs from a file channel, and pass the decoded blocks to a consumer in file order
+     *
+     * @param channel  The channel to map the blobs from
+     * @param entries  The blobs to decode
+     * @param executor The executor to decode the blobs on, or {@code null} to decode on the calling thread
+     * @param consumer The consumer for the decoded blocks, called on the calling thread
+     * @throws IOException          if a blob could not be read
+     * @throws IllegalDataException if a blob could not be decoded
+     */
+    private void decodeBlobs(FileChannel channel, List<BlobEntry> entries, ExecutorService executor, Consumer<DecodedBlock> consumer)
+            throws IOException, IllegalDataException {
+        final Deque<Future<DecodedBlock>> pending = new ArrayDeque<>();
+        for (BlobEntry entry : entries) {
+            if (this.cancel) {
+                return;
+            }
+            if (executor == null) {
+                consumer.accept(decodeDataBlock(entry.read(channel)));
+            } else {
+                pending.add(executor.submit(() -> decodeDataBlock(entry.read(channel))));
+                while (pending.size() > 2 * this.threads) {
+                    consumer.accept(waitFor(pending.remove()));
+                }
+            }
+        }
+        while (!pending.isEmpty() && !this.cancel) {
+            consumer.accept(waitFor(pending.remove()));
         }
     }
 
@@ -299,59 +626,136 @@ public final class OsmPbfReader extends AbstractReader {
         return new Blob(size, type, bytes);
     }
 
+    /**
+     * Parse a blob header from a buffer
+     *
+     * @param cursor The cursor over the BlobHeader message
+     * @return The BlobHeader message
+     * @throws IllegalDataException If the OSM PBF is (probably) corrupted
+     */
+    @Nonnull
+    private static BlobHeader parseBlobHeader(ProtobufCursor cursor) throws IllegalDataException {
+        String type = null;
+        byte[] indexData = null;
+        int datasize = Integer.MIN_VALUE;
+        while (cursor.nextField()) {
+            switch (cursor.getField()) {
+                case 1:
+                    type = cursor.readString();
+                    break;
+                case 2:
+                    indexData = cursor.readByteArray();
+                    break;
+                case 3:
+                    datasize = (int) cursor.readVarInt();
+                    break;
+                default: // Pass, since someone might have extended the format
+            }
+        }
+        if (type == null || Integer.MIN_VALUE == datasize) {
+            throw new IllegalDataException("OSM PBF BlobHeader could not be read. PBF is probably corrupted.");
+        } else if (datasize < 0 || datasize > MAX_BLOB_SIZE) {
+            throw new IllegalDataException("OSM PBF Blob size is too large. PBF is probably corrupted. ("
+                    + Utils.getSizeString(MAX_BLOB_SIZE, Locale.ENGLISH) + " < " + Utils.getSizeString(datasize, Locale.ENGLISH));
+        }
+        return new BlobHeader(type, indexData, datasize);
+    }
+
+    /**
+     * Parse a blob from a buffer
+     *
+     * @param cursor The cursor over the Blob message
+     * @return The blob to use elsewhere
+     * @throws IllegalDataException if the blob does not have any data
+     */
+    @Nonnull
+    private static Blob parseBlob(ProtobufCursor cursor) throws IllegalDataException {
+        int size = Integer.MIN_VALUE;
+        Blob.CompressionType type = null;
+        byte[] bytes = null;
+        while (cursor.nextField()) {
+            switch (cursor.getField()) {
+                case 1:
+                    type = Blob.CompressionType.raw;
+                    break;
+                case 2:
+                    size = (int) cursor.readVarInt();
+                    continue;
+                case 3:
+                    type = Blob.CompressionType.zlib;
+                    break;
+                case 4:
+                    type = Blob.CompressionType.lzma;
+                    break;
+                case 5:
+                    type = Blob.CompressionType.bzip2;
+                    break;
+                case 6:
+                    type = Blob.CompressionType.lz4;
+                    break;
+                case 7:
+                    type = Blob.CompressionType.zstd;
+                    break;
+                default:
+                    throw new IllegalDataException("Unknown compression type: " + cursor.getField());
+            }
+            bytes = cursor.readByteArray();
+        }
+        if (type == null) {
+            throw new IllegalDataException("Compression type not found, pbf may be malformed");
+        }
+        return new Blob(size, type, bytes);
+    }
+
     /**
      * Parse a header block. This assumes that the parser has hit a string with the text "OSMHeader".
      *
      * @param blob The blob with the header block data
-     * @param baos The reusable output stream to use
      * @return The parsed HeaderBlock
-     * @throws IOException if one of the {@link InputStream}s has a problem
+     * @throws IOException if the blob could not be decompressed
      */
     @Nonnull
-    private static HeaderBlock parseHeaderBlock(Blob blob, ByteArrayOutputStream baos) throws IOException {
-        try (InputStream blobInput = blob.inputStream();
-             ProtobufParser parser = new ProtobufParser(blobInput)) {
-            BBox bbox = null;
-            List<String> required = new ArrayList<>();
-            List<String> optional = new ArrayList<>();
-            String program = null;
-            String source = null;
-            Long osmosisReplicationTimestamp = null;
-            Long osmosisReplicationSequenceNumber = null;
-            String osmosisReplicationBaseUrl = null;
-            while (parser.hasNext()) {
-                final ProtobufRecord current = new ProtobufRecord(baos, parser);
-                switch (current.getField()) {
-                    case 1: // bbox
-                        bbox = parseBBox(baos, current);
-                        break;
-                    case 4: // repeated required features
-                        required.add(current.asString());
-                        break;
-                    case 5: // repeated optional features
-                        optional.add(current.asString());
-                        break;
-                    case 16: // writing program
-                        program = current.asString();
-                        break;
-                    case 17: // source
-                        source = current.asString();
-                        break;
-                    case 32: // osmosis replication timestamp
-                        osmosisReplicationTimestamp = current.asSignedVarInt().longValue();
-                        break;
-                    case 33: // osmosis replication sequence number
-                        osmosisReplicationSequenceNumber = current.asSignedVarInt().longValue();
-                        break;
-                    case 34: // osmosis replication base url
-                        osmosisReplicationBaseUrl = current.asString();
-                        break;
-                    default: // fall through -- unknown header block field
-                }
+    private static HeaderBlock parseHeaderBlock(Blob blob) throws IOException {
+        final ProtobufCursor cursor = new ProtobufCursor(blob.decompress());
+        BBox bbox = null;
+        List<String> required = new ArrayList<>();
+        List<String> optional = new ArrayList<>();
+        String program = null;
+        String source = null;
+        Long osmosisReplicationTimestamp = null;
+        Long osmosisReplicationSequenceNumber = null;
+        String osmosisReplicationBaseUrl = null;
+        while (cursor.nextField()) {
+            switch (cursor.getField()) {
+                case 1: // bbox
+                    bbox = parseBBox(cursor.readMessage());
+                    break;
+                case 4: // repeated required features
+                    required.add(cursor.readString());
+                    break;
+                case 5: // repeated optional features
+                    optional.add(cursor.readString());
+                    break;
+                case 16: // writing program
+                    program = cursor.readString();
+                    break;
+                case 17: // source
+                    source = cursor.readString();
+                    break;
+                case 32: // osmosis replication timestamp
+                    osmosisReplicationTimestamp = cursor.readSignedVarInt();
+                    break;
+                case 33: // osmosis replication sequence number
+                    osmosisReplicationSequenceNumber = cursor.readSignedVarInt();
+                    break;
+                case 34: // osmosis replication base url
+                    osmosisReplicationBaseUrl = cursor.readString();
+                    break;
+                default: // fall through -- unknown header block field
             }
-            return new HeaderBlock(bbox, required.toArray(new String[0]), optional.toArray(new String[0]), program,
-                    source, osmosisReplicationTimestamp, osmosisReplicationSequenceNumber, osmosisReplicationBaseUrl);
         }
+        return new HeaderBlock(bbox, required.toArray(new String[0]), optional.toArray(new String[0]), program,
+                source, osmosisReplicationTimestamp, osmosisReplicationSequenceNumber, osmosisReplicationBaseUrl);
     }
 
     /**
@@ -370,111 +774,153 @@ public final class OsmPbfReader extends AbstractReader {
     }
 
     /**
-     * Parse a data blob (should be "OSMData")
+     * Decode a data blob (should be "OSMData"). This does not touch the {@link DataSet}, so it may be called concurrently
+     * for different blobs.
      *
-     * @param baos        The reusable stream
-     * @param headerBlock The header block with data source information
-     * @param blob        The blob to read OSM data from
+     * @param blob The blob to read OSM data from
+     * @return The decoded primitives, which still need to be {@link #mergeBlock merged} into the dataset
      * @throws IOException          if we don't support the compression type
      * @throws IllegalDataException If an invalid OSM primitive was read
      */
-    private void parseDataBlock(ByteArrayOutputStream baos, HeaderBlock headerBlock, Blob blob) throws IOException, IllegalDataException {
+    @Nonnull
+    private DecodedBlock decodeDataBlock(Blob blob) throws IOException, IllegalDataException {
+        final ProtobufCursor cursor = new ProtobufCursor(blob.decompress());
+        // field 2 -- we cannot parse these live just in case the following fields come later, so we do a second pass
+        final ProtobufCursor primitiveGroups = cursor.duplicate();
+        boolean hasGroups = false;
         String[] stringTable = null; // field 1, note that stringTable[0] is a delimiter, so it is always blank and unused
-        // field 2 -- we cannot parse these live just in case the following fields come later
-        final List<ProtobufRecord> primitiveGroups = new ArrayList<>();
         int granularity = 100; // field 17
         long latOffset = 0; // field 19
         long lonOffset = 0; // field 20
         int dateGranularity = 1000; // field 18, default is milliseconds since the 1970 epoch
-        try (InputStream inputStream = blob.inputStream();
-             ProtobufParser parser = new ProtobufParser(inputStream)) {
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
+        try {
+            while (cursor.nextField()) {
+                switch (cursor.getField()) {
                     case 1:
-                        stringTable = parseStringTable(baos, protobufRecord.getBytes());
+                        stringTable = parseStringTable(cursor.readMessage());
                         break;
                     case 2:
-                        primitiveGroups.add(protobufRecord);
+                        hasGroups = true;
                         break;
                     case 17:
-                        granularity = protobufRecord.asUnsignedVarInt().intValue();
+                        granularity = (int) cursor.readVarInt();
                         break;
                     case 18:
-                        dateGranularity = protobufRecord.asUnsignedVarInt().intValue();
+                        dateGranularity = (int) cursor.readVarInt();
                         break;
                     case 19:
-                        latOffset = protobufRecord.asUnsignedVarInt().longValue();
+                        latOffset = cursor.readVarInt();
                         break;
                     case 20:
-                        lonOffset = protobufRecord.asUnsignedVarInt().longValue();
+                        lonOffset = cursor.readVarInt();
                         break;
                     default: // Pass, since someone might have extended the format
                 }
             }
+            final PrimitiveBlockRecord primitiveBlockRecord = new PrimitiveBlockRecord(stringTable, granularity, latOffset, lonOffset,
+                    dateGranularity);
+            final DecodedBlock block = new DecodedBlock(hasGroups);
+            final ProtobufCursor primitiveGroup = new ProtobufCursor();
+            while (primitiveGroups.nextField()) {
+                if (primitiveGroups.getField() == 2) {
+                    parsePrimitiveGroup(primitiveGroups.readMessage(primitiveGroup), primitiveBlockRecord, block);
+                }
+            }
+            return block;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalDataException("OSM PBF data block is malformed", e);
         }
-        final PrimitiveBlockRecord primitiveBlockRecord = new PrimitiveBlockRecord(stringTable, granularity, latOffset, lonOffset,
-                dateGranularity);
-        final DataSet ds = getDataSet();
-        if (!primitiveGroups.isEmpty() && headerBlock.bbox() != null) {
-            try {
-                ds.beginUpdate();
-                ds.addDataSource(new DataSource(new Bounds((LatLon) headerBlock.bbox().getMin(), (LatLon) headerBlock.bbox().getMax()),
+    }
+
+    /**
+     * Add a decoded data block to the dataset. Blocks must be merged in file order.
+     *
+     * @param headerBlock The header block with data source information
+     * @param block       The decoded block
+     */
+    private void mergeBlock(HeaderBlock headerBlock, DecodedBlock block) {
+        final DataSet dataSet = getDataSet();
+        try {
+            dataSet.beginUpdate();
+            if (block.hasGroups && headerBlock.bbox() != null) {
+                dataSet.addDataSource(new DataSource(new Bounds((LatLon) headerBlock.bbox().getMin(), (LatLon) headerBlock.bbox().getMax()),
                         headerBlock.source()));
-            } finally {
-                ds.endUpdate();
             }
+            if (block.missingInfo) {
+                dataSet.setUploadPolicy(UploadPolicy.DISCOURAGED);
+            }
+            for (PrimitiveData primitiveData : block.primitives) {
+                buildPrimitive(primitiveData);
+            }
+            this.ways.putAll(block.ways);
+            this.relations.putAll(block.relations);
+        } finally {
+            dataSet.endUpdate();
         }
-        for (ProtobufRecord primitiveGroup : primitiveGroups) {
-            try (primitiveGroup) {
-                ds.beginUpdate();
-                parsePrimitiveGroup(baos, primitiveGroup.getBytes(), primitiveBlockRecord);
-            } finally {
-                ds.endUpdate();
+    }
+
+    /**
+     * Wait for a block that is being decoded (or a blob that is being scanned) on a worker thread
+     *
+     * @param future The pending task
+     * @param <T>    The type of the result
+     * @return The result of the task
+     * @throws IOException          if the decoding failed due to an I/O problem, or if we were interrupted
+     * @throws IllegalDataException if the decoding failed due to invalid data
+     */
+    private static <T> T waitFor(Future<T> future) throws IOException, IllegalDataException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof IllegalDataException) {
+                throw (IllegalDataException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
+            throw new JosmRuntimeException(cause);
         }
     }
 
     /**
      * This parses a bbox from a record (HeaderBBox message)
      *
-     * @param baos    The reusable {@link ByteArrayOutputStream} to avoid unnecessary allocations
-     * @param current The current record
+     * @param cursor The cursor over the HeaderBBox message
      * @return The <i>immutable</i> bbox, or {@code null}
-     * @throws IOException If something happens with the {@link InputStream}s (probably won't happen)
      */
     @Nullable
-    private static BBox parseBBox(ByteArrayOutputStream baos, ProtobufRecord current) throws IOException {
-        try (ByteArrayInputStream bboxInputStream = new ByteArrayInputStream(current.getBytes());
-             ProtobufParser bboxParser = new ProtobufParser(bboxInputStream)) {
-            double left = Double.NaN;
-            double right = Double.NaN;
-            double top = Double.NaN;
-            double bottom = Double.NaN;
-            while (bboxParser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, bboxParser);
-                if (protobufRecord.getType() == WireType.VARINT) {
-                    double value = protobufRecord.asSignedVarInt().longValue() * NANO_DEGREES;
-                    switch (protobufRecord.getField()) {
-                        case 1:
-                            left = value;
-                            break;
-                        case 2:
-                            right = value;
-                            break;
-                        case 3:
-                            top = value;
-                            break;
-                        case 4:
-                            bottom = value;
-                            break;
-                        default: // Fall through -- someone might have extended the format
-                    }
+    private static BBox parseBBox(ProtobufCursor cursor) {
+        double left = Double.NaN;
+        double right = Double.NaN;
+        double top = Double.NaN;
+        double bottom = Double.NaN;
+        while (cursor.nextField()) {
+            if (cursor.getWireType() == WireType.VARINT) {
+                double value = cursor.readSignedVarInt() * NANO_DEGREES;
+                switch (cursor.getField()) {
+                    case 1:
+                        left = value;
+                        break;
+                    case 2:
+                        right = value;
+                        break;
+                    case 3:
+                        top = value;
+                        break;
+                    case 4:
+                        bottom = value;
+                        break;
+                    default: // Fall through -- someone might have extended the format
                 }
             }
-            if (!Double.isNaN(left) && !Double.isNaN(top) && !Double.isNaN(right) && !Double.isNaN(bottom)) {
-                return new BBox(left, top, right, bottom).toImmutable();
-            }
+        }
+        if (!Double.isNaN(left) && !Double.isNaN(top) && !Double.isNaN(right) && !Double.isNaN(bottom)) {
+            return new BBox(left, top, right, bottom).toImmutable();
         }
         return null;
     }
@@ -482,59 +928,49 @@ public final class OsmPbfReader extends AbstractReader {
     /**
      * Parse the string table
      *
-     * @param baos  The reusable stream
-     * @param bytes The message bytes
-     * @return The parsed table (reminder: index 0 is empty, note that all strings are already interned by {@link String#intern()})
-     * @throws IOException if something happened while reading a {@link ByteArrayInputStream}
+     * @param cursor The cursor over the StringTable message
+     * @return The parsed table (reminder: index 0 is empty, note that all strings are already deduplicated by {@link #internTag})
      */
     @Nonnull
-    private static String[] parseStringTable(ByteArrayOutputStream baos, byte[] bytes) throws IOException {
-        try (ByteArrayInputStream is = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(is)) {
-            final List<String> list = new ArrayList<>();
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                if (protobufRecord.getField() == 1) {
-                    list.add(protobufRecord.asString().intern()); // field is technically repeated bytes
-                }
+    private String[] parseStringTable(ProtobufCursor cursor) {
+        final List<String> list = new ArrayList<>();
+        while (cursor.nextField()) {
+            if (cursor.getField() == 1) {
+                list.add(cursor.readString(this::internTag)); // field is technically repeated bytes
             }
-            return list.toArray(new String[0]);
         }
+        return list.toArray(new String[0]);
     }
 
     /**
      * Parse a PrimitiveGroup. Note: this parsing implementation doesn't check and make certain that all primitives in the group are the same
      * type.
      *
-     * @param baos                 The reusable stream
-     * @param bytes                The bytes to decode
+     * @param cursor               The cursor over the PrimitiveGroup message
      * @param primitiveBlockRecord The record to use for creating the primitives
+     * @param block                The decoded block to add the primitives to
      * @throws IllegalDataException if one of the primitive records was invalid
-     * @throws IOException          if something happened while reading a {@link ByteArrayInputStream}
      */
-    private void parsePrimitiveGroup(ByteArrayOutputStream baos, byte[] bytes, PrimitiveBlockRecord primitiveBlockRecord)
-            throws IllegalDataException, IOException {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1: // Nodes, repeated
-                        parseNode(baos, protobufRecord.getBytes(), primitiveBlockRecord);
-                        break;
-                    case 2: // Dense nodes, not repeated
-                        parseDenseNodes(baos, protobufRecord.getBytes(), primitiveBlockRecord);
-                        break;
-                    case 3: // Ways, repeated
-                        parseWay(baos, protobufRecord.getBytes(), primitiveBlockRecord);
-                        break;
-                    case 4: // relations, repeated
-                        parseRelation(baos, protobufRecord.getBytes(), primitiveBlockRecord);
-                        break;
-                    case 5: // Changesets, repeated
-                        // Skip -- we don't have a good way to store changeset information in JOSM
-                    default: // OSM PBF could be extended
-                }
+    private static void parsePrimitiveGroup(ProtobufCursor cursor, PrimitiveBlockRecord primitiveBlockRecord, DecodedBlock block)
+            throws IllegalDataException {
+        final ProtobufCursor message = new ProtobufCursor();
+        while (cursor.nextField()) {
+            switch (cursor.getField()) {
+                case 1: // Nodes, repeated
+                    parseNode(cursor.readMessage(message), primitiveBlockRecord, block);
+                    break;
+                case 2: // Dense nodes, not repeated
+                    parseDenseNodes(cursor.readMessage(message), primitiveBlockRecord, block);
+                    break;
+                case 3: // Ways, repeated
+                    parseWay(cursor.readMessage(message), primitiveBlockRecord, block);
+                    break;
+                case 4: // relations, repeated
+                    parseRelation(cursor.readMessage(message), primitiveBlockRecord, block);
+                    break;
+                case 5: // Changesets, repeated
+                    // Skip -- we don't have a good way to store changeset information in JOSM
+                default: // OSM PBF could be extended
             }
         }
     }
@@ -542,124 +978,119 @@ public final class OsmPbfReader extends AbstractReader {
     /**
      * Parse a singular node
      *
-     * @param baos                 The reusable stream
-     * @param bytes                The bytes to decode
+     * @param cursor               The cursor over the Node message
      * @param primitiveBlockRecord The record to use (mostly for tags and lat/lon calculations)
+     * @param block                The decoded block to add the node to
      * @throws IllegalDataException if the PBF did not provide all the data necessary for node creation
-     * @throws IOException          if something happened while reading a {@link ByteArrayInputStream}
      */
-    private void parseNode(ByteArrayOutputStream baos, byte[] bytes, PrimitiveBlockRecord primitiveBlockRecord)
-            throws IllegalDataException, IOException {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            long id = Long.MIN_VALUE;
-            final List<String> keys = new ArrayList<>();
-            final List<String> values = new ArrayList<>();
-            Info info = null;
-            long lat = Long.MIN_VALUE;
-            long lon = Long.MIN_VALUE;
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1:
-                        id = protobufRecord.asSignedVarInt().intValue();
-                        break;
-                    case 2:
-                        for (long number : new ProtobufPacked(protobufRecord.getBytes()).getArray()) {
-                            keys.add(primitiveBlockRecord.stringTable[(int) number]);
-                        }
-                        break;
-                    case 3:
-                        for (long number : new ProtobufPacked(protobufRecord.getBytes()).getArray()) {
-                            values.add(primitiveBlockRecord.stringTable[(int) number]);
-                        }
-                        break;
-                    case 4:
-                        info = parseInfo(baos, protobufRecord.getBytes());
-                        break;
-                    case 8:
-                        lat = protobufRecord.asSignedVarInt().longValue();
-                        break;
-                    case 9:
-                        lon = protobufRecord.asSignedVarInt().longValue();
-                        break;
-                    default: // Fall through -- PBF could be extended (unlikely)
-                }
-            }
-            if (id == Long.MIN_VALUE || lat == Long.MIN_VALUE || lon == Long.MIN_VALUE) {
-                throw new IllegalDataException("OSM PBF did not provide all the required node information");
-            }
-            final NodeData node = new NodeData(id);
-            node.setCoor(calculateLatLon(primitiveBlockRecord, lat, lon));
-            addTags(node, keys, values);
-            if (info != null) {
-                setOsmPrimitiveData(primitiveBlockRecord, node, info);
-            } else {
-                ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
+    private static void parseNode(ProtobufCursor cursor, PrimitiveBlockRecord primitiveBlockRecord, DecodedBlock block)
+            throws IllegalDataException {
+        long id = Long.MIN_VALUE;
+        final List<String> keys = new ArrayList<>();
+        final List<String> values = new ArrayList<>();
+        Info info = null;
+        long lat = Long.MIN_VALUE;
+        long lon = Long.MIN_VALUE;
+        while (cursor.nextField()) {
+            switch (cursor.getField()) {
+                case 1:
+                    id = cursor.readSignedVarInt();
+                    break;
+                case 2:
+                    addStrings(cursor.readMessage(block.packed), primitiveBlockRecord, keys);
+                    break;
+                case 3:
+                    addStrings(cursor.readMessage(block.packed), primitiveBlockRecord, values);
+                    break;
+                case 4:
+                    info = parseInfo(cursor.readMessage(block.packed));
+                    break;
+                case 8:
+                    lat = cursor.readSignedVarInt();
+                    break;
+                case 9:
+                    lon = cursor.readSignedVarInt();
+                    break;
+                default: // Fall through -- PBF could be extended (unlikely)
             }
-            buildPrimitive(node);
         }
+        if (id == Long.MIN_VALUE || lat == Long.MIN_VALUE || lon == Long.MIN_VALUE) {
+            throw new IllegalDataException("OSM PBF did not provide all the required node information");
+        }
+        final NodeData node = new NodeData(id);
+        node.setCoor(calculateLatLon(primitiveBlockRecord, lat, lon));
+        addTags(node, keys, values);
+        if (info != null) {
+            setOsmPrimitiveData(primitiveBlockRecord, node, info);
+        } else {
+            block.missingInfo = true;
+        }
+        block.primitives.add(node);
     }
 
     /**
      * Parse dense nodes from a record
      *
-     * @param baos                 The reusable output stream
-     * @param bytes                The bytes for the dense node
+     * @param cursor               The cursor over the DenseNodes message
      * @param primitiveBlockRecord Used for data that is common between several different objects.
+     * @param block                The decoded block to add the nodes to
      * @throws IllegalDataException if the nodes could not be parsed, or one of the nodes would be malformed
-     * @throws IOException          if something happened while reading a {@link ByteArrayInputStream}
      */
-    private void parseDenseNodes(ByteArrayOutputStream baos, byte[] bytes, PrimitiveBlockRecord primitiveBlockRecord)
-            throws IllegalDataException, IOException {
+    private static void parseDenseNodes(ProtobufCursor cursor, PrimitiveBlockRecord primitiveBlockRecord, DecodedBlock block)
+            throws IllegalDataException {
         long[] ids = EMPTY_LONG;
         long[] lats = EMPTY_LONG;
         long[] lons = EMPTY_LONG;
         long[] keyVals = EMPTY_LONG; // technically can be int
-        Info[] denseInfo = null;
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1: // packed node ids, DELTA encoded
-                        long[] tids = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        ids = joinArrays(ids, tids);
-                        break;
-                    case 5: // DenseInfo
-                        denseInfo = parseDenseInfo(baos, protobufRecord.getBytes()); // not repeated or packed
-                        break;
-                    case 8: // packed lat, DELTA encoded
-                        long[] tlats = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        lats = joinArrays(lats, tlats);
-                        break;
-                    case 9: // packed lon, DELTA encoded
-                        long[] tlons = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        lons = joinArrays(lons, tlons);
-                        break;
-                    case 10: // key_val mappings, packed. '0' used as separator between nodes
-                        long[] tkeyVal = new ProtobufPacked(protobufRecord.getBytes()).getArray();
-                        keyVals = joinArrays(keyVals, tkeyVal);
-                        break;
-                    default: // Someone might have extended the PBF format
-                }
+        DenseInfo denseInfo = null;
+        while (cursor.nextField()) {
+            switch (cursor.getField()) {
+                case 1: // packed node ids, DELTA encoded
+                    ids = appendPacked(ids, cursor.readMessage(block.packed), true);
+                    break;
+                case 5: // DenseInfo
+                    denseInfo = parseDenseInfo(cursor.readMessage(block.packed)); // not repeated or packed
+                    break;
+                case 8: // packed lat, DELTA encoded
+                    lats = appendPacked(lats, cursor.readMessage(block.packed), true);
+                    break;
+                case 9: // packed lon, DELTA encoded
+                    lons = appendPacked(lons, cursor.readMessage(block.packed), true);
+                    break;
+                case 10: // key_val mappings, packed. '0' used as separator between nodes
+                    keyVals = appendPacked(keyVals, cursor.readMessage(block.packed), false);
+                    break;
+                default: // Someone might have extended the PBF format
             }
         }
 
         int keyValIndex = 0; // This index must not reset between nodes, and must always increment
-        if (ids.length == lats.length && lats.length == lons.length && (denseInfo == null || denseInfo.length == lons.length)) {
+        if (ids.length == lats.length && lats.length == lons.length && (denseInfo == null || denseInfo.version.length == lons.length)) {
             long id = 0;
             long lat = 0;
             long lon = 0;
+            // DenseInfo is DELTA encoded as well, except for the version and visible fields
+            long timestamp = 0;
+            long changeset = 0;
+            long uid = 0;
+            long userSid = 0; // string id for username
             for (int i = 0; i < ids.length; i++) {
                 final NodeData node;
                 id += ids[i];
                 node = new NodeData(id);
                 if (denseInfo != null) {
-                    final Info info = denseInfo[i];
-                    setOsmPrimitiveData(primitiveBlockRecord, node, info);
+                    if (denseInfo.timestamp.length > i)
+                        timestamp += denseInfo.timestamp[i];
+                    if (denseInfo.changeset.length > i)
+                        changeset += denseInfo.changeset[i];
+                    if (denseInfo.uid.length > i && denseInfo.userSid.length > i) {
+                        uid += denseInfo.uid[i];
+                        userSid += denseInfo.userSid[i];
+                    }
+                    setOsmPrimitiveData(primitiveBlockRecord, node, denseInfo.visible.length == 0 || denseInfo.visible[i] == 1,
+                            (int) denseInfo.version[i], timestamp, changeset, (int) uid, (int) userSid);
                 } else {
-                    ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
+                    block.missingInfo = true;
                 }
                 lat += lats[i];
                 lon += lons[i];
@@ -683,7 +1114,7 @@ public final class OsmPbfReader extends AbstractReader {
                     }
                 }
                 // Just add the nodes as we make them -- avoid creating another list that expands every time we parse a node
-                buildPrimitive(node);
+                block.primitives.add(node);
             }
         } else {
             throw new IllegalDataException("OSM PBF has mismatched DenseNode lengths");
@@ -693,14 +1124,13 @@ public final class OsmPbfReader extends AbstractReader {
     /**
      * Parse a way from the PBF
      *
-     * @param baos                 The reusable stream
-     * @param bytes                The bytes for the way
+     * @param cursor               The cursor over the Way message
      * @param primitiveBlockRecord Used for common information, like tags
+     * @param block                The decoded block to add the way to
      * @throws IllegalDataException if an invalid way could have been created
-     * @throws IOException          if something happened while reading a {@link ByteArrayInputStream}
      */
-    private void parseWay(ByteArrayOutputStream baos, byte[] bytes, PrimitiveBlockRecord primitiveBlockRecord)
-            throws IllegalDataException, IOException {
+    private static void parseWay(ProtobufCursor cursor, PrimitiveBlockRecord primitiveBlockRecord, DecodedBlock block)
+            throws IllegalDataException {
         long id = Long.MIN_VALUE;
         List<String> keys = new ArrayList<>();
         List<String> values = new ArrayList<>();
@@ -708,35 +1138,26 @@ public final class OsmPbfReader extends AbstractReader {
         long[] refs = EMPTY_LONG; // DELTA encoded
         // We don't do live drawing, so we don't care about lats and lons (we essentially throw them away with the current parser)
         // This is for the optional feature "LocationsOnWays"
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1:
-                        id = protobufRecord.asUnsignedVarInt().longValue();
-                        break;
-                    case 2:
-                        for (long number : new ProtobufPacked(protobufRecord.getBytes()).getArray()) {
-                            keys.add(primitiveBlockRecord.stringTable[(int) number]);
-                        }
-                        break;
-                    case 3:
-                        for (long number : new ProtobufPacked(protobufRecord.getBytes()).getArray()) {
-                            values.add(primitiveBlockRecord.stringTable[(int) number]);
-                        }
-                        break;
-                    case 4:
-                        info = parseInfo(baos, protobufRecord.getBytes());
-                        break;
-                    case 8:
-                        long[] tRefs = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        refs = joinArrays(refs, tRefs);
-                        break;
-                    // case 9 and 10 are for "LocationsOnWays" -- this is only usable if we can create the way geometry directly
-                    // if this is ever supported, lats = joinArrays(lats, decodePackedSInt64(...))
-                    default: // PBF could be expanded by other people
-                }
+        while (cursor.nextField()) {
+            switch (cursor.getField()) {
+                case 1:
+                    id = cursor.readVarInt();
+                    break;
+                case 2:
+                    addStrings(cursor.readMessage(block.packed), primitiveBlockRecord, keys);
+                    break;
+                case 3:
+                    addStrings(cursor.readMessage(block.packed), primitiveBlockRecord, values);
+                    break;
+                case 4:
+                    info = parseInfo(cursor.readMessage(block.packed));
+                    break;
+                case 8:
+                    refs = appendPacked(refs, cursor.readMessage(block.packed), true);
+                    break;
+                // case 9 and 10 are for "LocationsOnWays" -- this is only usable if we can create the way geometry directly
+                // if this is ever supported, lats = appendPacked(lats, ...)
+                default: // PBF could be expanded by other people
             }
         }
         if (refs.length == 0 || id == Long.MIN_VALUE) {
@@ -749,27 +1170,26 @@ public final class OsmPbfReader extends AbstractReader {
             ref += tRef;
             nodeIds.add(ref);
         }
-        this.ways.put(wayData.getUniqueId(), nodeIds);
+        block.ways.put(wayData.getUniqueId(), nodeIds);
         addTags(wayData, keys, values);
         if (info != null) {
             setOsmPrimitiveData(primitiveBlockRecord, wayData, info);
         } else {
-            ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
+            block.missingInfo = true;
         }
-        buildPrimitive(wayData);
+        block.primitives.add(wayData);
     }
 
     /**
      * Parse a relation from a PBF
      *
-     * @param baos                 The reusable stream
-     * @param bytes                The bytes to use
+     * @param cursor               The cursor over the Relation message
      * @param primitiveBlockRecord Mostly used for tags
+     * @param block                The decoded block to add the relation to
      * @throws IllegalDataException if the PBF had a bad relation definition
-     * @throws IOException          if something happened while reading a {@link ByteArrayInputStream}
      */
-    private void parseRelation(ByteArrayOutputStream baos, byte[] bytes, PrimitiveBlockRecord primitiveBlockRecord)
-            throws IllegalDataException, IOException {
+    private static void parseRelation(ProtobufCursor cursor, PrimitiveBlockRecord primitiveBlockRecord, DecodedBlock block)
+            throws IllegalDataException {
         long id = Long.MIN_VALUE;
         final List<String> keys = new ArrayList<>();
         final List<String> values = new ArrayList<>();
@@ -777,41 +1197,30 @@ public final class OsmPbfReader extends AbstractReader {
         long[] rolesStringId = EMPTY_LONG; // Technically int
         long[] memids = EMPTY_LONG;
         long[] types = EMPTY_LONG; // Technically an enum
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1:
-                        id = protobufRecord.asUnsignedVarInt().longValue();
-                        break;
-                    case 2:
-                        for (long number : new ProtobufPacked(protobufRecord.getBytes()).getArray()) {
-                            keys.add(primitiveBlockRecord.stringTable[(int) number]);
-                        }
-                        break;
-                    case 3:
-                        for (long number : new ProtobufPacked(protobufRecord.getBytes()).getArray()) {
-                            values.add(primitiveBlockRecord.stringTable[(int) number]);
-                        }
-                        break;
-                    case 4:
-                        info = parseInfo(baos, protobufRecord.getBytes());
-                        break;
-                    case 8:
-                        long[] tRoles = new ProtobufPacked(protobufRecord.getBytes()).getArray();
-                        rolesStringId = joinArrays(rolesStringId, tRoles);
-                        break;
-                    case 9:
-                        long[] tMemids = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        memids = joinArrays(memids, tMemids);
-                        break;
-                    case 10:
-                        long[] tTypes = new ProtobufPacked(protobufRecord.getBytes()).getArray();
-                        types = joinArrays(types, tTypes);
-                        break;
-                    default: // Fall through for PBF extensions
-                }
+        while (cursor.nextField()) {
+            switch (cursor.getField()) {
+                case 1:
+                    id = cursor.readVarInt();
+                    break;
+                case 2:
+                    addStrings(cursor.readMessage(block.packed), primitiveBlockRecord, keys);
+                    break;
+                case 3:
+                    addStrings(cursor.readMessage(block.packed), primitiveBlockRecord, values);
+                    break;
+                case 4:
+                    info = parseInfo(cursor.readMessage(block.packed));
+                    break;
+                case 8:
+                    rolesStringId = appendPacked(rolesStringId, cursor.readMessage(block.packed), false);
+                    break;
+                case 9:
+                    memids = appendPacked(memids, cursor.readMessage(block.packed), true);
+                    break;
+                case 10:
+                    types = appendPacked(types, cursor.readMessage(block.packed), false);
+                    break;
+                default: // Fall through for PBF extensions
             }
         }
         if (keys.size() != values.size() || rolesStringId.length != memids.length || memids.length != types.length || id == Long.MIN_VALUE) {
@@ -821,7 +1230,7 @@ public final class OsmPbfReader extends AbstractReader {
         if (info != null) {
             setOsmPrimitiveData(primitiveBlockRecord, data, info);
         } else {
-            ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
+            block.missingInfo = true;
         }
         addTags(data, keys, values);
         OsmPrimitiveType[] valueTypes = OsmPrimitiveType.values();
@@ -833,53 +1242,60 @@ public final class OsmPbfReader extends AbstractReader {
             OsmPrimitiveType type = valueTypes[(int) types[i]];
             members.add(new RelationMemberData(role, type, memberId));
         }
-        this.relations.put(data.getUniqueId(), members);
-        buildPrimitive(data);
+        block.relations.put(data.getUniqueId(), members);
+        block.primitives.add(data);
     }
 
     /**
      * Parse info for an object
      *
-     * @param baos  The reusable stream to use
-     * @param bytes The bytes to decode
+     * @param cursor The cursor over the Info message
      * @return The info for an object
-     * @throws IOException if something happened while reading a {@link ByteArrayInputStream}
      */
     @Nonnull
-    private static Info parseInfo(ByteArrayOutputStream baos, byte[] bytes) throws IOException {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            int version = -1;
-            Long timestamp = null;
-            Long changeset = null;
-            Integer uid = null;
-            Integer userSid = null;
-            boolean visible = true;
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1:
-                        version = protobufRecord.asUnsignedVarInt().intValue();
-                        break;
-                    case 2:
-                        timestamp = protobufRecord.asUnsignedVarInt().longValue();
-                        break;
-                    case 3:
-                        changeset = protobufRecord.asUnsignedVarInt().longValue();
-                        break;
-                    case 4:
-                        uid = protobufRecord.asUnsignedVarInt().intValue();
-                        break;
-                    case 5:
-                        userSid = protobufRecord.asUnsignedVarInt().intValue();
-                        break;
-                    case 6:
-                        visible = protobufRecord.asUnsignedVarInt().byteValue() == 1;
-                        break;
-                    default: // Fall through, since the PBF format could be extended
-                }
+    private static Info parseInfo(ProtobufCursor cursor) {
+        int version = -1;
+        Long timestamp = null;
+        Long changeset = null;
+        Integer uid = null;
+        Integer userSid = null;
+        boolean visible = true;
+        while (cursor.nextField()) {
+            switch (cursor.getField()) {
+                case 1:
+                    version = (int) cursor.readVarInt();
+                    break;
+                case 2:
+                    timestamp = cursor.readVarInt();
+                    break;
+                case 3:
+                    changeset = cursor.readVarInt();
+                    break;
+                case 4:
+                    uid = (int) cursor.readVarInt();
+                    break;
+                case 5:
+                    userSid = (int) cursor.readVarInt();
+                    break;
+                case 6:
+                    visible = cursor.readVarInt() == 1;
+                    break;
+                default: // Fall through, since the PBF format could be extended
             }
-            return new Info(version, timestamp, changeset, uid, userSid, visible);
+        }
+        return new Info(version, timestamp, changeset, uid, userSid, visible);
+    }
+
+    /**
+     * Add the strings referenced by a packed string table index field
+     *
+     * @param packed               The cursor over the packed indexes
+     * @param primitiveBlockRecord The record with the string table
+     * @param strings              The list to add the strings to
+     */
+    private static void addStrings(ProtobufCursor packed, PrimitiveBlockRecord primitiveBlockRecord, List<String> strings) {
+        while (packed.hasRemaining()) {
+            strings.add(primitiveBlockRecord.stringTable[(int) packed.readVarInt()]);
         }
     }
 
@@ -942,108 +1358,86 @@ public final class OsmPbfReader extends AbstractReader {
     }
 
     /**
-     * Convert an array of numbers to an array of longs, decoded from uint (zig zag decoded)
+     * Set the primitive data for an object from DenseInfo, where all fields are present. This avoids creating an {@link Info}
+     * object for every node.
      *
-     * @param numbers The numbers to convert
-     * @return The long array (the same array that was passed in)
+     * @param primitiveBlockRecord The record with data for the current primitive
+     * @param primitive            The primitive to add the information to
+     * @param visible              {@code true} if the primitive is visible
+     * @param version              The version of the primitive
+     * @param timestamp            The timestamp, in units of {@link PrimitiveBlockRecord#dateGranularity}
+     * @param changeset            The changeset id
+     * @param uid                  The user id
+     * @param userSid              The string table index of the user name
      */
-    @Nonnull
-    private static long[] decodePackedSInt64(long[] numbers) {
-        for (int i = 0; i < numbers.length; i++) {
-            numbers[i] = ProtobufParser.decodeZigZag(numbers[i]);
+    private static void setOsmPrimitiveData(PrimitiveBlockRecord primitiveBlockRecord, PrimitiveData primitive, boolean visible,
+            int version, long timestamp, long changeset, int uid, int userSid) {
+        primitive.setVisible(visible);
+        primitive.setRawTimestamp(Math.toIntExact(timestamp * primitiveBlockRecord.dateGranularity / 1000));
+        // uid 0 with the empty user name means that there is no user (e.g. for new nodes written by OsmPbfWriter)
+        if (uid != 0 || userSid != 0) {
+            primitive.setUser(User.createOsmUser(uid, primitiveBlockRecord.stringTable[userSid]));
         }
-        return numbers;
+        if (version > 0) {
+            primitive.setVersion(version);
+        }
+        primitive.setChangesetId(Math.toIntExact(changeset));
     }
 
     /**
-     * Join two different arrays
+     * Read a packed field and append the values to an array. Packed fields may be split over several records.
      *
-     * @param array1 The first array
-     * @param array2 The second array
-     * @return The joined arrays -- may return one of the original arrays, if the other is empty
+     * @param array  The array to append to
+     * @param packed The cursor over the packed values
+     * @param zigZag {@code true} if the values are zig-zag encoded ({@code sint32}, {@code sint64})
+     * @return The joined array
      */
     @Nonnull
-    private static long[] joinArrays(long[] array1, long[] array2) {
-        if (array1.length == 0) {
-            return array2;
-        }
-        if (array2.length == 0) {
-            return array1;
+    private static long[] appendPacked(long[] array, ProtobufCursor packed, boolean zigZag) {
+        final int offset = array.length;
+        final long[] result = Arrays.copyOf(array, offset + packed.countVarInts());
+        for (int i = offset; i < result.length; i++) {
+            result[i] = zigZag ? packed.readSignedVarInt() : packed.readVarInt();
         }
-        long[] result = Arrays.copyOf(array1, array1.length + array2.length);
-        System.arraycopy(array2, 0, result, array1.length, array2.length);
         return result;
     }
 
     /**
      * Parse dense info
      *
-     * @param baos  The reusable stream
-     * @param bytes The bytes to decode
-     * @return The dense info array
+     * @param cursor The cursor over the DenseInfo message
+     * @return The dense info arrays (still DELTA encoded)
      * @throws IllegalDataException If the data has mismatched array lengths
-     * @throws IOException          if something happened while reading a {@link ByteArrayInputStream}
      */
     @Nonnull
-    private static Info[] parseDenseInfo(ByteArrayOutputStream baos, byte[] bytes) throws IllegalDataException, IOException {
-        long[] version = EMPTY_LONG; // technically ints
-        long[] timestamp = EMPTY_LONG;
-        long[] changeset = EMPTY_LONG;
-        long[] uid = EMPTY_LONG; // technically int
-        long[] userSid = EMPTY_LONG; // technically int
-        long[] visible = EMPTY_LONG; // optional, true if not set, technically booleans
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-             ProtobufParser parser = new ProtobufParser(bais)) {
-            while (parser.hasNext()) {
-                final ProtobufRecord protobufRecord = new ProtobufRecord(baos, parser);
-                switch (protobufRecord.getField()) {
-                    case 1:
-                        long[] tVersion = new ProtobufPacked(protobufRecord.getBytes()).getArray();
-                        version = joinArrays(version, tVersion);
-                        break;
-                    case 2:
-                        long[] tTimestamp = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        timestamp = joinArrays(timestamp, tTimestamp);
-                        break;
-                    case 3:
-                        long[] tChangeset = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        changeset = joinArrays(changeset, tChangeset);
-                        break;
-                    case 4:
-                        long[] tUid = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        uid = joinArrays(uid, tUid);
-                        break;
-                    case 5:
-                        long[] tUserSid = decodePackedSInt64(new ProtobufPacked(protobufRecord.getBytes()).getArray());
-                        userSid = joinArrays(userSid, tUserSid);
-                        break;
-                    case 6:
-                        long[] tVisible = new ProtobufPacked(protobufRecord.getBytes()).getArray();
-                        visible = joinArrays(visible, tVisible);
-                        break;
-                    default: // Fall through
-                }
+    private static DenseInfo parseDenseInfo(ProtobufCursor cursor) throws IllegalDataException {
+        final DenseInfo denseInfo = new DenseInfo();
+        final ProtobufCursor packed = new ProtobufCursor();
+        while (cursor.nextField()) {
+            switch (cursor.getField()) {
+                case 1:
+                    denseInfo.version = appendPacked(denseInfo.version, cursor.readMessage(packed), false);
+                    break;
+                case 2:
+                    denseInfo.timestamp = appendPacked(denseInfo.timestamp, cursor.readMessage(packed), true);
+                    break;
+                case 3:
+                    denseInfo.changeset = appendPacked(denseInfo.changeset, cursor.readMessage(packed), true);
+                    break;
+                case 4:
+                    denseInfo.uid = appendPacked(denseInfo.uid, cursor.readMessage(packed), true);
+                    break;
+                case 5:
+                    denseInfo.userSid = appendPacked(denseInfo.userSid, cursor.readMessage(packed), true);
+                    break;
+                case 6:
+                    denseInfo.visible = appendPacked(denseInfo.visible, cursor.readMessage(packed), false);
+                    break;
+                default: // Fall through
             }
         }
-        if (version.length > 0) {
-            final Info[] infos = new Info[version.length];
-            long lastTimestamp = 0; // delta encoded
-            long lastChangeset = 0; // delta encoded
-            long lastUid = 0; // delta encoded,
-            long lastUserSid = 0; // delta encoded, string id for username
-            for (int i = 0; i < version.length; i++) {
-                if (timestamp.length > i)
-                    lastTimestamp += timestamp[i];
-                if (changeset.length > i)
-                    lastChangeset += changeset[i];
-                if (uid.length > i && userSid.length > i) {
-                    lastUid += uid[i];
-                    lastUserSid += userSid[i];
-                }
-                infos[i] = new Info((int) version[i], lastTimestamp, lastChangeset, (int) lastUid, (int) lastUserSid,
-                        visible == EMPTY_LONG || visible[i] == 1);
-            }
-            return infos;
+        if (denseInfo.version.length > 0) {
+            return denseInfo;
         }
         throw new IllegalDataException("OSM PBF has mismatched DenseInfo lengths");
     }
@@ -1077,4 +1471,432 @@ public final class OsmPbfReader extends AbstractReader {
         }
 
     }
+
+    /**
+     * The primitives decoded from a single data blob, not yet added to the {@link DataSet}
+     */
+    private static final class DecodedBlock {
+        private final boolean hasGroups;
+        private final List<PrimitiveData> primitives = new ArrayList<>();
+        private final Map<Long, Collection<Long>> ways = new HashMap<>();
+        private final Map<Long, Collection<RelationMemberData>> relations = new HashMap<>();
+        /** A reusable cursor for nested messages and packed fields, so we don't need a new one for every primitive */
+        private final ProtobufCursor packed = new ProtobufCursor();
+        /** {@code true} if at least one primitive did not have any metadata */
+        private boolean missingInfo;
+
+        /**
+         * Create a new decoded block
+         *
+         * @param hasGroups {@code true} if the blob contained at least one PrimitiveGroup
+         */
+        DecodedBlock(boolean hasGroups) {
+            this.hasGroups = hasGroups;
+        }
+    }
+
+    /**
+     * The offsets of the blobs in a PBF file, and a summary of their content
+     */
+    private static final class BlobIndex {
+        private final HeaderBlock headerBlock;
+        private final List<BlobEntry> entries;
+
+        private BlobIndex(HeaderBlock headerBlock, List<BlobEntry> entries) {
+            this.headerBlock = headerBlock;
+            this.entries = entries;
+        }
+
+        /**
+         * Index the blobs of a file. This reads the blob headers and the header block, and {@link BlobSummary#scan scans} the
+         * data blobs for their ids and coordinates.
+         *
+         * @param channel  The channel to read
+         * @param executor The executor to scan the data blobs on, or {@code null} to scan them on the calling thread
+         * @param canceled Whether the read was canceled
+         * @return The index, or {@code null} if the read was canceled
+         * @throws IOException          if the file could not be read
+         * @throws IllegalDataException if the file is not a valid PBF file
+         */
+        static BlobIndex create(FileChannel channel, ExecutorService executor, BooleanSupplier canceled)
+                throws IOException, IllegalDataException {
+            final List<BlobEntry> entries = new ArrayList<>();
+            final List<Future<BlobSummary>> summaries = new ArrayList<>();
+            final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            final long size = channel.size();
+            HeaderBlock headerBlock = null;
+            long position = 0;
+            while (position < size) {
+                if (canceled.getAsBoolean()) {
+                    return null;
+                }
+                length.clear();
+                readFully(channel, length, position);
+                final int headerLength = length.getInt(0);
+                if (headerLength < 0 || headerLength > MAX_BLOBHEADER_SIZE) {
+                    throw new IllegalDataException("OSM PBF BlobHeader is too large. PBF is probably corrupted. (" +
+                            Utils.getSizeString(MAX_BLOBHEADER_SIZE, Locale.ENGLISH) + " < " +
+                            Utils.getSizeString(headerLength, Locale.ENGLISH));
+                }
+                final ByteBuffer headerBuffer = ByteBuffer.allocate(headerLength);
+                readFully(channel, headerBuffer, position + Integer.BYTES);
+                headerBuffer.flip();
+                final BlobHeader blobHeader;
+                try {
+                    blobHeader = parseBlobHeader(new ProtobufCursor(headerBuffer));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalDataException("OSM PBF BlobHeader is malformed", e);
+                }
+                final BlobEntry entry = new BlobEntry(position + Integer.BYTES + headerLength, blobHeader.dataSize());
+                if ("OSMHeader".equals(blobHeader.type())) {
+                    if (headerBlock != null) {
+                        throw new IllegalDataException("Too many header blocks in protobuf");
+                    }
+                    headerBlock = parseHeaderBlock(entry.read(channel));
+                    checkRequiredFeatures(headerBlock);
+                } else if ("OSMData".equals(blobHeader.type())) {
+                    if (headerBlock == null) {
+                        throw new IllegalStateException("A header block must occur before the first data block");
+                    }
+                    if (executor == null) {
+                        entry.summary = BlobSummary.scan(entry.read(channel));
+                    } else {
+                        summaries.add(executor.submit(() -> BlobSummary.scan(entry.read(channel))));
+                    }
+                    entries.add(entry);
+                }
+                position = entry.offset + entry.size;
+            }
+            if (headerBlock == null) {
+                throw new IllegalDataException("OSM PBF does not have a header block");
+            }
+            for (int i = 0; i < summaries.size(); i++) {
+                if (canceled.getAsBoolean()) {
+                    return null;
+                }
+                entries.get(i).summary = waitFor(summaries.get(i));
+            }
+            return new BlobIndex(headerBlock, entries);
+        }
+
+        private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException, IllegalDataException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IllegalDataException("OSM PBF is truncated");
+                }
+            }
+        }
+    }
+
+    /**
+     * The location of a data blob in a PBF file, and a summary of its content
+     */
+    private static final class BlobEntry {
+        private final long offset;
+        private final int size;
+        /** The summary of the content, set by {@link BlobIndex#create} before the index is used */
+        private BlobSummary summary;
+
+        BlobEntry(long offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        /**
+         * Read the blob. The data is memory-mapped, so this may be called concurrently.
+         *
+         * @param channel The channel to read from
+         * @return The blob
+         * @throws IOException          if the blob could not be mapped
+         * @throws IllegalDataException if the blob is malformed
+         */
+        Blob read(FileChannel channel) throws IOException, IllegalDataException {
+            try {
+                return parseBlob(new ProtobufCursor(channel.map(FileChannel.MapMode.READ_ONLY, this.offset, this.size)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalDataException("OSM PBF Blob is malformed", e);
+            }
+        }
+    }
+
+    /**
+     * What a data blob contains: the bounds and id range of its nodes, the range of the node ids used by its ways, and the ranges
+     * of the member ids of its relations. Empty ranges have a minimum that is greater than the maximum.
+     */
+    private static final class BlobSummary {
+        private boolean hasRelations;
+        /** The bounds of the nodes in the blob, or {@code null} if there are no nodes */
+        private Bounds nodeBounds;
+        private long minNodeId = Long.MAX_VALUE;
+        private long maxNodeId = Long.MIN_VALUE;
+        private long minWayNodeId = Long.MAX_VALUE;
+        private long maxWayNodeId = Long.MIN_VALUE;
+        /** The lowest member ids of the relations, by {@link OsmPrimitiveType#ordinal()} (node, way, relation) */
+        private final long[] minMemberIds = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+        /** The highest member ids of the relations, by {@link OsmPrimitiveType#ordinal()} (node, way, relation) */
+        private final long[] maxMemberIds = {Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE};
+        private long minLat = Long.MAX_VALUE;
+        private long maxLat = Long.MIN_VALUE;
+        private long minLon = Long.MAX_VALUE;
+        private long maxLon = Long.MIN_VALUE;
+
+        /**
+         * Summarize a data blob. This only reads the ids, coordinates, node references and members of the primitives; it does
+         * not read the string table, the tags or the metadata, and does not create any primitive.
+         *
+         * @param blob The data blob
+         * @return The summary of the blob
+         * @throws IOException          if we don't support the compression type
+         * @throws IllegalDataException if the blob is malformed
+         */
+        static BlobSummary scan(Blob blob) throws IOException, IllegalDataException {
+            final ProtobufCursor cursor = new ProtobufCursor(blob.decompress());
+            final ProtobufCursor primitiveGroups = cursor.duplicate();
+            int granularity = 100; // field 17
+            long latOffset = 0; // field 19
+            long lonOffset = 0; // field 20
+            final BlobSummary summary = new BlobSummary();
+            try {
+                while (cursor.nextField()) {
+                    switch (cursor.getField()) {
+                        case 17:
+                            granularity = (int) cursor.readVarInt();
+                            break;
+                        case 19:
+                            latOffset = cursor.readVarInt();
+                            break;
+                        case 20:
+                            lonOffset = cursor.readVarInt();
+                            break;
+                        default: // The string table and the primitive groups are not needed here
+                    }
+                }
+                final ProtobufCursor primitiveGroup = new ProtobufCursor();
+                final ProtobufCursor message = new ProtobufCursor();
+                final ProtobufCursor packed = new ProtobufCursor();
+                while (primitiveGroups.nextField()) {
+                    if (primitiveGroups.getField() == 2) {
+                        primitiveGroups.readMessage(primitiveGroup);
+                        while (primitiveGroup.nextField()) {
+                            switch (primitiveGroup.getField()) {
+                                case 1:
+                                    summary.scanNode(primitiveGroup.readMessage(message));
+                                    break;
+                                case 2:
+                                    summary.scanDenseNodes(primitiveGroup.readMessage(message), packed);
+                                    break;
+                                case 3:
+                                    summary.scanWay(primitiveGroup.readMessage(message), packed);
+                                    break;
+                                case 4:
+                                    summary.scanRelation(primitiveGroup.readMessage(message), packed);
+                                    break;
+                                default: // Changesets, or extensions of the format
+                            }
+                        }
+                    }
+                }
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalDataException("OSM PBF data block is malformed", e);
+            }
+            if (summary.minLat <= summary.maxLat && summary.minLon <= summary.maxLon) {
+                summary.nodeBounds = new Bounds(NANO_DEGREES * (latOffset + (granularity * summary.minLat)),
+                        NANO_DEGREES * (lonOffset + (granularity * summary.minLon)),
+                        NANO_DEGREES * (latOffset + (granularity * summary.maxLat)),
+                        NANO_DEGREES * (lonOffset + (granularity * summary.maxLon)));
+            }
+            return summary;
+        }
+
+        private void scanNode(ProtobufCursor cursor) {
+            while (cursor.nextField()) {
+                switch (cursor.getField()) {
+                    case 1:
+                        addNodeId(cursor.readSignedVarInt());
+                        break;
+                    case 8:
+                        addLat(cursor.readSignedVarInt());
+                        break;
+                    case 9:
+                        addLon(cursor.readSignedVarInt());
+                        break;
+                    default: // Tags and metadata
+                }
+            }
+        }
+
+        private void scanDenseNodes(ProtobufCursor cursor, ProtobufCursor packed) {
+            // The values are DELTA encoded, also across the records of a packed field that is split
+            long id = 0;
+            long lat = 0;
+            long lon = 0;
+            while (cursor.nextField()) {
+                switch (cursor.getField()) {
+                    case 1:
+                        cursor.readMessage(packed);
+                        while (packed.hasRemaining()) {
+                            id += packed.readSignedVarInt();
+                            addNodeId(id);
+                        }
+                        break;
+                    case 8:
+                        cursor.readMessage(packed);
+                        while (packed.hasRemaining()) {
+                            lat += packed.readSignedVarInt();
+                            addLat(lat);
+                        }
+                        break;
+                    case 9:
+                        cursor.readMessage(packed);
+                        while (packed.hasRemaining()) {
+                            lon += packed.readSignedVarInt();
+                            addLon(lon);
+                        }
+                        break;
+                    default: // DenseInfo and tags
+                }
+            }
+        }
+
+        private void scanWay(ProtobufCursor cursor, ProtobufCursor packed) {
+            long ref = 0;
+            while (cursor.nextField()) {
+                if (cursor.getField() == 8) {
+                    cursor.readMessage(packed);
+                    while (packed.hasRemaining()) {
+                        ref += packed.readSignedVarInt();
+                        this.minWayNodeId = Math.min(this.minWayNodeId, ref);
+                        this.maxWayNodeId = Math.max(this.maxWayNodeId, ref);
+                    }
+                }
+            }
+        }
+
+        private void scanRelation(ProtobufCursor cursor, ProtobufCursor packed) {
+            long[] memids = EMPTY_LONG;
+            long[] types = EMPTY_LONG;
+            while (cursor.nextField()) {
+                switch (cursor.getField()) {
+                    case 9:
+                        memids = appendPacked(memids, cursor.readMessage(packed), true);
+                        break;
+                    case 10:
+                        types = appendPacked(types, cursor.readMessage(packed), false);
+                        break;
+                    default: // Tags, metadata and roles
+                }
+            }
+            this.hasRelations = true;
+            long memberId = 0;
+            for (int i = 0; i < Math.min(memids.length, types.length); i++) {
+                memberId += memids[i];
+                final int type = (int) types[i];
+                if (type >= 0 && type < this.minMemberIds.length) {
+                    this.minMemberIds[type] = Math.min(this.minMemberIds[type], memberId);
+                    this.maxMemberIds[type] = Math.max(this.maxMemberIds[type], memberId);
+                }
+            }
+        }
+
+        private void addNodeId(long id) {
+            this.minNodeId = Math.min(this.minNodeId, id);
+            this.maxNodeId = Math.max(this.maxNodeId, id);
+        }
+
+        private void addLat(long lat) {
+            this.minLat = Math.min(this.minLat, lat);
+            this.maxLat = Math.max(this.maxLat, lat);
+        }
+
+        private void addLon(long lon) {
+            this.minLon = Math.min(this.minLon, lon);
+            this.maxLon = Math.max(this.maxLon, lon);
+        }
+    }
+
+    /**
+     * A set of ids, which does not box them. This is an open addressing table with linear probing, like
+     * {@link org.openstreetmap.josm.data.osm.PrimitiveIdStorage}.
+     */
+    private static final class LongSet {
+        private static final double LOAD_FACTOR = 0.6d;
+        /** 2<sup>64</sup> divided by the golden ratio, see Knuth's multiplicative (Fibonacci) hashing */
+        private static final long GOLDEN_RATIO = 0x9E37_79B9_7F4A_7C15L;
+        /** The key of the free slots. It may be an id as well, so whether the set contains it is stored separately. */
+        private static final long FREE = Long.MIN_VALUE;
+
+        private long[] keys = newTable(16);
+        /** The number of ids in {@link #keys} */
+        private int count;
+        private boolean containsFree;
+
+        private static long[] newTable(int capacity) {
+            final long[] table = new long[capacity];
+            Arrays.fill(table, FREE);
+            return table;
+        }
+
+        private int find(long[] table, long id) {
+            final long h = id * GOLDEN_RATIO;
+            int slot = (int) (h ^ (h >>> 32)) & (table.length - 1);
+            while (table[slot] != FREE && table[slot] != id) {
+                slot = (slot + 1) & (table.length - 1);
+            }
+            return slot;
+        }
+
+        boolean contains(long id) {
+            return id == FREE ? this.containsFree : this.keys[find(this.keys, id)] == id;
+        }
+
+        boolean add(long id) {
+            if (id == FREE) {
+                final boolean added = !this.containsFree;
+                this.containsFree = true;
+                return added;
+            }
+            final int slot = find(this.keys, id);
+            if (this.keys[slot] == id) {
+                return false;
+            }
+            this.keys[slot] = id;
+            if (++this.count > this.keys.length * LOAD_FACTOR) {
+                final long[] resized = newTable(2 * this.keys.length);
+                for (long key : this.keys) {
+                    if (key != FREE) {
+                        resized[find(resized, key)] = key;
+                    }
+                }
+                this.keys = resized;
+            }
+            return true;
+        }
+
+        long[] toSortedArray() {
+            final long[] sorted = new long[this.count + (this.containsFree ? 1 : 0)];
+            int i = 0;
+            if (this.containsFree) {
+                sorted[i++] = FREE;
+            }
+            for (long key : this.keys) {
+                if (key != FREE) {
+                    sorted[i++] = key;
+                }
+            }
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    /**
+     * The (still DELTA encoded) DenseInfo arrays for a DenseNodes message
+     */
+    private static final class DenseInfo {
+        private long[] version = EMPTY_LONG; // technically ints
+        private long[] timestamp = EMPTY_LONG;
+        private long[] changeset = EMPTY_LONG;
+        private long[] uid = EMPTY_LONG; // technically int
+        private long[] userSid = EMPTY_LONG; // technically int
+        private long[] visible = EMPTY_LONG; // optional, true if not set, technically booleans
+    }
 }
@@ -0,0 +1,435 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.protobuf.ProtobufWriter;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+
+/**
+ * Save a dataset into a stream in the OSM PBF format.
+ * <p>
+ * Nodes are written as {@code DenseNodes}, and ids, coordinates, node references and member ids are delta coded, like most
+ * other PBF writers do. Each block holds primitives of a single type, sorted by id, with its own string table (most frequent
+ * strings first).
+ * <p>
+ * The PBF format cannot store everything that a JOSM data layer knows about its primitives:
+ * <ul>
+ *     <li>modified primitives are written with their current state, but are not marked as modified</li>
+ *     <li>deleted and incomplete primitives, nodes without coordinates and ways without nodes are not written</li>
+ *     <li>coordinates are rounded to 1e-7 degrees, the precision of the OSM database</li>
+ *     <li>all data sources are merged into the single bounding box of the header</li>
+ * </ul>
+ * New primitives keep their negative ids, so they are still new when the file is read again.
+ *
+ * @since xxx
+ */
+public class OsmPbfWriter implements Closeable {
+    /** The default number of primitives in a block, the same as osmosis uses */
+    public static final int DEFAULT_BLOCK_SIZE = 8000;
+
+    /** Nano degrees per unit of the coordinates we write (the default PBF granularity) */
+    private static final double GRANULARITY = 1e-7;
+    private static final double NANO_DEGREES = 1e-9;
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final Deflater deflater;
+
+    /** Reused for every block, to avoid growing new buffers over and over */
+    private final ProtobufWriter block = new ProtobufWriter(1 << 20);
+    private final ProtobufWriter group = new ProtobufWriter(1 << 20);
+    private final ProtobufWriter message = new ProtobufWriter();
+    private final ProtobufWriter info = new ProtobufWriter();
+    private final ProtobufWriter blob = new ProtobufWriter(1 << 20);
+    private final ProtobufWriter blobHeader = new ProtobufWriter();
+    private byte[] compressed = new byte[1 << 16];
+
+    /**
+     * Constructs a new {@code OsmPbfWriter} with the default block size and compression level
+     * @param out The stream to write to. It is closed by {@link #close()}.
+     */
+    public OsmPbfWriter(OutputStream out) {
+        this(out, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructs a new {@code OsmPbfWriter}
+     * @param out The stream to write to. It is closed by {@link #close()}.
+     * @param blockSize The maximum number of primitives in a block
+     * @param compressionLevel The zlib compression level, from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION},
+     *                         or {@link Deflater#DEFAULT_COMPRESSION}. With {@code 0}, the blocks are written uncompressed.
+     */
+    public OsmPbfWriter(OutputStream out, int blockSize, int compressionLevel) {
+        CheckParameterUtil.ensureParameterNotNull(out, "out");
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.out = out;
+        this.blockSize = blockSize;
+        this.deflater = compressionLevel == Deflater.NO_COMPRESSION ? null : new Deflater(compressionLevel);
+    }
+
+    /**
+     * Writes the full PBF file for the given data set (header, nodes, ways, relations).
+     * The caller is responsible for holding the read lock of the dataset.
+     * @param data OSM data set
+     * @throws IOException if the data could not be written
+     */
+    public void write(DataSet data) throws IOException {
+        writeHeader(data);
+        writeBlocks(data.getNodes(), this::writeNodes);
+        writeBlocks(data.getWays(), this::writeWays);
+        writeBlocks(data.getRelations(), this::writeRelations);
+        this.out.flush();
+    }
+
+    /**
+     * Get the user of a primitive, if it is an OSM user. Local users cannot be stored in a PBF file.
+     * @param primitive The primitive
+     * @return The user, or {@code null}
+     */
+    private static User osmUser(OsmPrimitive primitive) {
+        final User user = primitive.getUser();
+        return user != null && user.isOsmUser() ? user : null;
+    }
+
+    private static boolean shouldWrite(OsmPrimitive osm) {
+        return !osm.isIncomplete() && !osm.isDeleted() && osm.isVisible();
+    }
+
+    private <T extends OsmPrimitive> void writeBlocks(Collection<T> primitives, BlockEncoder<T> encoder) throws IOException {
+        final List<T> sorted = new ArrayList<>(primitives.size());
+        for (T primitive : primitives) {
+            if (shouldWrite(primitive) && (!(primitive instanceof Node) || ((Node) primitive).isLatLonKnown())
+                    && (!(primitive instanceof Way) || ((Way) primitive).getNodesCount() > 0)) {
+                sorted.add(primitive);
+            }
+        }
+        sorted.sort(OsmWriter.byIdComparator);
+        for (int start = 0; start < sorted.size(); start += this.blockSize) {
+            final List<T> primitivesInBlock = sorted.subList(start, Math.min(sorted.size(), start + this.blockSize));
+            final StringTable stringTable = new StringTable(primitivesInBlock);
+            this.group.reset();
+            encoder.encode(primitivesInBlock, stringTable);
+            this.block.reset();
+            stringTable.write(this.block);
+            this.block.writeMessage(2, this.group);
+            writeBlob("OSMData", this.block);
+        }
+    }
+
+    private void writeHeader(DataSet data) throws IOException {
+        this.block.reset();
+        Bounds bounds = null;
+        String source = null;
+        for (DataSource dataSource : data.getDataSources()) {
+            if (bounds == null) {
+                bounds = new Bounds(dataSource.bounds);
+                source = dataSource.origin;
+            } else {
+                bounds.extend(dataSource.bounds);
+            }
+        }
+        if (bounds != null) {
+            this.message.reset();
+            this.message.writeSignedVarInt(1, Math.round(bounds.getMinLon() / NANO_DEGREES));
+            this.message.writeSignedVarInt(2, Math.round(bounds.getMaxLon() / NANO_DEGREES));
+            this.message.writeSignedVarInt(3, Math.round(bounds.getMaxLat() / NANO_DEGREES));
+            this.message.writeSignedVarInt(4, Math.round(bounds.getMinLat() / NANO_DEGREES));
+            this.block.writeMessage(1, this.message);
+        }
+        this.block.writeString(4, "OsmSchema-V0.6");
+        this.block.writeString(4, "DenseNodes");
+        this.block.writeString(16, "JOSM");
+        if (source != null) {
+            this.block.writeString(17, source);
+        }
+        writeBlob("OSMHeader", this.block);
+    }
+
+    private void writeNodes(List<Node> nodes, StringTable stringTable) {
+        final int count = nodes.size();
+        final long[] ids = new long[count];
+        final long[] lats = new long[count];
+        final long[] lons = new long[count];
+        final long[] versions = new long[count];
+        final long[] timestamps = new long[count];
+        final long[] changesets = new long[count];
+        final long[] uids = new long[count];
+        final long[] userSids = new long[count];
+        int keyValCount = 0;
+        for (Node node : nodes) {
+            keyValCount += 2 * node.getNumKeys() + 1;
+        }
+        final long[] keyVals = new long[keyValCount];
+        int keyValIndex = 0;
+        boolean hasTags = false;
+        Node previous = null;
+        for (int i = 0; i < count; i++) {
+            final Node node = nodes.get(i);
+            final long lat = Math.round(node.lat() / GRANULARITY);
+            final long lon = Math.round(node.lon() / GRANULARITY);
+            final User user = osmUser(node);
+            final long uid = user != null ? user.getId() : 0;
+            final long userSid = user != null ? stringTable.indexOf(user.getName()) : 0;
+            if (previous == null) {
+                ids[i] = node.getUniqueId();
+                lats[i] = lat;
+                lons[i] = lon;
+                timestamps[i] = node.getRawTimestamp();
+                changesets[i] = node.getChangesetId();
+                uids[i] = uid;
+                userSids[i] = userSid;
+            } else {
+                final User previousUser = osmUser(previous);
+                ids[i] = node.getUniqueId() - previous.getUniqueId();
+                lats[i] = lat - Math.round(previous.lat() / GRANULARITY);
+                lons[i] = lon - Math.round(previous.lon() / GRANULARITY);
+                timestamps[i] = (long) node.getRawTimestamp() - previous.getRawTimestamp();
+                changesets[i] = (long) node.getChangesetId() - previous.getChangesetId();
+                uids[i] = uid - (previousUser != null ? previousUser.getId() : 0);
+                userSids[i] = userSid - (previousUser != null ? stringTable.indexOf(previousUser.getName()) : 0);
+            }
+            versions[i] = node.getVersion();
+            if (node.hasKeys()) {
+                hasTags = true;
+                final int start = keyValIndex;
+                node.visitKeys((p, key, value) -> {
+                    final int index = start + 2 * stringTable.tagCount++;
+                    keyVals[index] = stringTable.indexOf(key);
+                    keyVals[index + 1] = stringTable.indexOf(value);
+                });
+                keyValIndex += 2 * stringTable.tagCount;
+                stringTable.tagCount = 0;
+            }
+            keyVals[keyValIndex++] = 0;
+            previous = node;
+        }
+        this.info.reset();
+        this.info.writePackedVarInts(1, versions, count, false);
+        this.info.writePackedVarInts(2, timestamps, count, true);
+        this.info.writePackedVarInts(3, changesets, count, true);
+        this.info.writePackedVarInts(4, uids, count, true);
+        this.info.writePackedVarInts(5, userSids, count, true);
+        this.message.reset();
+        this.message.writePackedVarInts(1, ids, count, true);
+        this.message.writeMessage(5, this.info);
+        this.message.writePackedVarInts(8, lats, count, true);
+        this.message.writePackedVarInts(9, lons, count, true);
+        if (hasTags) {
+            this.message.writePackedVarInts(10, keyVals, keyValIndex, false);
+        }
+        this.group.writeMessage(2, this.message);
+    }
+
+    private void writeWays(List<Way> ways, StringTable stringTable) {
+        long[] refs = new long[0];
+        for (Way way : ways) {
+            this.message.reset();
+            this.message.writeVarInt(1, way.getUniqueId());
+            writeTagsAndInfo(way, stringTable);
+            final int count = way.getNodesCount();
+            if (refs.length < count) {
+                refs = new long[count];
+            }
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                final long ref = way.getNodeId(i);
+                refs[i] = ref - previous;
+                previous = ref;
+            }
+            this.message.writePackedVarInts(8, refs, count, true);
+            this.group.writeMessage(3, this.message);
+        }
+    }
+
+    private void writeRelations(List<Relation> relations, StringTable stringTable) {
+        long[] roles = new long[0];
+        long[] memberIds = new long[0];
+        long[] types = new long[0];
+        for (Relation relation : relations) {
+            this.message.reset();
+            this.message.writeVarInt(1, relation.getUniqueId());
+            writeTagsAndInfo(relation, stringTable);
+            final int count = relation.getMembersCount();
+            if (roles.length < count) {
+                roles = new long[count];
+                memberIds = new long[count];
+                types = new long[count];
+            }
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                final RelationMember member = relation.getMember(i);
+                roles[i] = stringTable.indexOf(member.getRole());
+                memberIds[i] = member.getUniqueId() - previous;
+                previous = member.getUniqueId();
+                switch (member.getType()) {
+                    case NODE:
+                        types[i] = 0;
+                        break;
+                    case WAY:
+                        types[i] = 1;
+                        break;
+                    default:
+                        types[i] = 2;
+                }
+            }
+            this.message.writePackedVarInts(8, roles, count, false);
+            this.message.writePackedVarInts(9, memberIds, count, true);
+            this.message.writePackedVarInts(10, types, count, false);
+            this.group.writeMessage(4, this.message);
+        }
+    }
+
+    /**
+     * Write the tags (fields 2 and 3) and the info (field 4) of a way or relation to {@link #message}
+     * @param primitive The primitive to write
+     * @param stringTable The string table of the block
+     */
+    private void writeTagsAndInfo(OsmPrimitive primitive, StringTable stringTable) {
+        if (primitive.hasKeys()) {
+            final int numKeys = primitive.getNumKeys();
+            final long[] keys = new long[numKeys];
+            final long[] values = new long[numKeys];
+            primitive.visitKeys((p, key, value) -> {
+                keys[stringTable.tagCount] = stringTable.indexOf(key);
+                values[stringTable.tagCount++] = stringTable.indexOf(value);
+            });
+            stringTable.tagCount = 0;
+            this.message.writePackedVarInts(2, keys, numKeys, false);
+            this.message.writePackedVarInts(3, values, numKeys, false);
+        }
+        this.info.reset();
+        this.info.writeVarInt(1, primitive.getVersion());
+        if (!primitive.isNew()) {
+            this.info.writeVarInt(2, primitive.getRawTimestamp());
+            this.info.writeVarInt(3, primitive.getChangesetId());
+            final User user = osmUser(primitive);
+            if (user != null) {
+                this.info.writeVarInt(4, user.getId());
+                this.info.writeVarInt(5, stringTable.indexOf(user.getName()));
+            }
+        }
+        this.message.writeMessage(4, this.info);
+    }
+
+    /**
+     * Write a blob (BlobHeader length, BlobHeader and Blob) to the stream
+     * @param type The blob type, {@code OSMHeader} or {@code OSMData}
+     * @param data The uncompressed blob data
+     * @throws IOException if the stream could not be written
+     */
+    private void writeBlob(String type, ProtobufWriter data) throws IOException {
+        this.blob.reset();
+        final byte[] raw = data.toByteArray();
+        if (this.deflater == null) {
+            this.blob.writeBytes(1, raw);
+        } else {
+            this.deflater.reset();
+            this.deflater.setInput(raw);
+            this.deflater.finish();
+            int length = 0;
+            while (!this.deflater.finished()) {
+                if (length == this.compressed.length) {
+                    this.compressed = Arrays.copyOf(this.compressed, 2 * this.compressed.length);
+                }
+                length += this.deflater.deflate(this.compressed, length, this.compressed.length - length);
+            }
+            this.blob.writeVarInt(2, raw.length);
+            this.blob.writeBytes(3, this.compressed, 0, length);
+        }
+        this.blobHeader.reset();
+        this.blobHeader.writeString(1, type);
+        this.blobHeader.writeVarInt(3, this.blob.size());
+        this.out.write(ByteBuffer.allocate(Integer.BYTES).putInt(this.blobHeader.size()).array());
+        this.blobHeader.writeTo(this.out);
+        this.blob.writeTo(this.out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.deflater != null) {
+            this.deflater.end();
+        }
+        this.out.close();
+    }
+
+    /**
+     * Encodes a block of primitives into {@link #group}
+     * @param <T> The primitive type
+     */
+    @FunctionalInterface
+    private interface BlockEncoder<T extends OsmPrimitive> {
+        void encode(List<T> primitives, StringTable stringTable);
+    }
+
+    /**
+     * The string table of a block. Index 0 is reserved, since DenseNodes uses it as a separator, and holds an unused empty
+     * string; the other strings, including the empty string, are sorted by descending frequency, so the most used strings get
+     * the shortest var ints.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings;
+        /** A counter for the tags of the primitive that is being written, since it is updated from {@code visitKeys} lambdas */
+        private int tagCount;
+
+        StringTable(List<? extends OsmPrimitive> primitives) {
+            final Map<String, int[]> counts = new HashMap<>();
+            for (OsmPrimitive primitive : primitives) {
+                primitive.visitKeys((p, key, value) -> {
+                    counts.computeIfAbsent(key, k -> new int[1])[0]++;
+                    counts.computeIfAbsent(value, k -> new int[1])[0]++;
+                });
+                final User user = osmUser(primitive);
+                if (user != null) {
+                    counts.computeIfAbsent(user.getName(), k -> new int[1])[0]++;
+                }
+                if (primitive instanceof Relation) {
+                    for (RelationMember member : ((Relation) primitive).getMembers()) {
+                        counts.computeIfAbsent(member.getRole(), k -> new int[1])[0]++;
+                    }
+                }
+            }
+            this.strings = new ArrayList<>(counts.size() + 1);
+            this.strings.addAll(counts.keySet());
+            this.strings.sort((s1, s2) -> Integer.compare(counts.get(s2)[0], counts.get(s1)[0]));
+            this.strings.add(0, "");
+            for (int i = 1; i < this.strings.size(); i++) {
+                this.indexes.put(this.strings.get(i), i);
+            }
+        }
+
+        int indexOf(String string) {
+            return this.indexes.get(string);
+        }
+
+        void write(ProtobufWriter block) {
+            final ProtobufWriter table = new ProtobufWriter();
+            for (String string : this.strings) {
+                table.writeString(1, string);
+            }
+            block.writeMessage(1, table);
+        }
+    }
+}
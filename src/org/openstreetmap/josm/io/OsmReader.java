@@ -3,13 +3,23 @@ package org.openstreetmap.josm.io;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -22,6 +32,7 @@ import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationData;
@@ -29,10 +40,14 @@ import org.openstreetmap.josm.data.osm.RelationMemberData;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.UncheckedParseException;
+import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.XmlUtils;
 
 /**
@@ -60,6 +75,21 @@ public class OsmReader extends AbstractReader {
         SAVE_ORIGINAL_ID
     }
 
+    /**
+     * Whether the data is read by a pipeline of three threads: one reads, and decompresses, the input, one parses the xml data
+     * and one builds the primitives. Subclasses always read the data in a single thread.
+     * @since xxx
+     */
+    public static final BooleanProperty PREF_PIPELINED = new BooleanProperty("osm.reader.pipelined", true);
+
+    /** The number of primitives handed over at once from the xml parsing thread */
+    private static final int BATCH_SIZE = 1024;
+    /** The number of batches which can wait to be built */
+    private static final int QUEUED_BATCHES = 16;
+    private static final List<PrimitiveData> END_OF_DATA = Collections.emptyList();
+    private static final ExecutorService PIPELINE =
+            Executors.newCachedThreadPool(Utils.newThreadFactory("osm-reader-pipeline-%d", Thread.NORM_PRIORITY));
+
     protected XMLStreamReader parser;
 
     /** The {@link OsmReader.Options} to use when parsing the xml data */
@@ -499,28 +529,131 @@ public class OsmReader extends AbstractReader {
         }
     }
 
+    /**
+     * The xml parsing stage of the pipeline, see {@link #PREF_PIPELINED}. It hands the data of the primitives over in batches,
+     * instead of building the primitives.
+     */
+    private static final class Tokenizer extends OsmReader {
+        private final BlockingQueue<List<PrimitiveData>> batches;
+        private List<PrimitiveData> batch = new ArrayList<>(BATCH_SIZE);
+
+        Tokenizer(Collection<Options> options, DataSet ds, BlockingQueue<List<PrimitiveData>> batches) {
+            super(options.toArray(new Options[0]));
+            this.ds = ds;
+            this.batches = batches;
+        }
+
+        @Override
+        protected OsmPrimitive buildPrimitive(PrimitiveData pd) {
+            batch.add(pd);
+            if (batch.size() == BATCH_SIZE) {
+                flush();
+            }
+            // the primitives are built by the reader which consumes the batches
+            return null;
+        }
+
+        void flush() {
+            if (!batch.isEmpty()) {
+                try {
+                    batches.put(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new JosmRuntimeException(e);
+                }
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+    }
+
+    private boolean isPipelined() {
+        // subclasses may override the parsing methods, and need the primitives while parsing
+        return getClass() == OsmReader.class && Config.getPref() != null && PREF_PIPELINED.get()
+                && Runtime.getRuntime().availableProcessors() > 1;
+    }
+
     @Override
     protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
-        return doParseDataSet(source, progressMonitor, (ParserWorker) ir -> {
+        if (source != null && isPipelined()) {
+            // the source is read, and decompressed, by another thread
+            return doParseDataSet(new ReadAheadInputStream(source, PIPELINE), progressMonitor, (ParserWorker) this::parsePipelined);
+        }
+        return doParseDataSet(source, progressMonitor, (ParserWorker) this::parseXml);
+    }
+
+    private void parseXml(InputStreamReader ir) throws IllegalDataException {
+        try {
+            setParser(XmlUtils.newSafeXMLInputFactory().createXMLStreamReader(ir));
+            parse();
+        } catch (XmlStreamParsingException | UncheckedParseException e) {
+            throw new IllegalDataException(e.getMessage(), e);
+        } catch (XMLStreamException e) {
+            String msg = e.getMessage();
+            Pattern p = Pattern.compile("Message: (.+)");
+            Matcher m = p.matcher(msg);
+            if (m.find()) {
+                msg = m.group(1);
+            }
+            if (e.getLocation() != null)
+                throw new IllegalDataException(tr("Line {0} column {1}: ",
+                        e.getLocation().getLineNumber(), e.getLocation().getColumnNumber()) + msg, e);
+            else
+                throw new IllegalDataException(msg, e);
+        }
+    }
+
+    /**
+     * Parses the xml data in another thread, and builds the primitives from the batches of primitive data which it hands over.
+     * @param ir the reader of the xml data
+     * @throws IllegalDataException if an error was found while parsing the data
+     * @throws IOException if the data cannot be read
+     */
+    private void parsePipelined(InputStreamReader ir) throws IllegalDataException, IOException {
+        final BlockingQueue<List<PrimitiveData>> batches = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+        final Tokenizer tokenizer = new Tokenizer(options, ds, batches);
+        final Future<?> parsing = PIPELINE.submit(() -> {
             try {
-                setParser(XmlUtils.newSafeXMLInputFactory().createXMLStreamReader(ir));
-                parse();
-            } catch (XmlStreamParsingException | UncheckedParseException e) {
-                throw new IllegalDataException(e.getMessage(), e);
-            } catch (XMLStreamException e) {
-                String msg = e.getMessage();
-                Pattern p = Pattern.compile("Message: (.+)");
-                Matcher m = p.matcher(msg);
-                if (m.find()) {
-                    msg = m.group(1);
-                }
-                if (e.getLocation() != null)
-                    throw new IllegalDataException(tr("Line {0} column {1}: ",
-                            e.getLocation().getLineNumber(), e.getLocation().getColumnNumber()) + msg, e);
-                else
-                    throw new IllegalDataException(msg, e);
+                ((OsmReader) tokenizer).parseXml(ir);
+                tokenizer.flush();
+            } finally {
+                batches.put(END_OF_DATA);
             }
+            return null;
         });
+        try {
+            List<PrimitiveData> batch;
+            while ((batch = batches.take()) != END_OF_DATA) {
+                if (cancel) {
+                    cancel = false;
+                    tokenizer.cancel = true;
+                }
+                for (PrimitiveData pd : batch) {
+                    buildPrimitive(pd);
+                }
+            }
+            parsing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalDataException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IllegalDataException) {
+                throw (IllegalDataException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalDataException(cause);
+        } finally {
+            parsing.cancel(true);
+        }
+        // the references are resolved by prepareDataSet, in this thread
+        ways.putAll(tokenizer.ways);
+        relations.putAll(tokenizer.relations);
+        uploadChangeset = tokenizer.uploadChangeset;
     }
 
     /**
@@ -8,19 +8,30 @@ import static org.openstreetmap.josm.tools.I18n.trn;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.openstreetmap.josm.data.UserIdentityManager;
 import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.io.ChangesetClosedException.Source;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Class that uploads all changes to the osm server.
@@ -30,6 +41,12 @@ import org.openstreetmap.josm.tools.CheckParameterUtil;
  * deleted. - All remaining objects with modified flag set are updated.
  */
 public class OsmServerWriter {
+    /**
+     * Whether the chunks of a chunked upload are prepared and post-processed while the previous chunk is uploaded.
+     * @since xxx
+     */
+    public static final BooleanProperty PREF_PIPELINED_UPLOAD = new BooleanProperty("osm-server.upload-pipelined", true);
+
     /**
      * This list contains all successfully processed objects. The caller of
      * upload* has to check this after the call and update its dataset.
@@ -155,6 +172,10 @@ public class OsmServerWriter {
             throws OsmTransferException {
         if (chunkSize <= 0)
             throw new IllegalArgumentException(tr("Value >0 expected for parameter ''{0}'', got {1}", "chunkSize", chunkSize));
+        if (primitives.size() > chunkSize && Config.getPref() != null && PREF_PIPELINED_UPLOAD.get()) {
+            uploadChangesInPipelinedChunks(primitives, progressMonitor, chunkSize);
+            return;
+        }
         try {
             progressMonitor.beginTask(tr("Starting to upload in chunks..."));
             List<OsmPrimitive> chunk = new ArrayList<>(chunkSize);
@@ -186,6 +207,149 @@ public class OsmServerWriter {
         }
     }
 
+    /**
+     * Upload all changes in chunks, like {@link #uploadChangesInChunks}, while keeping the connection busy.
+     * <p>
+     * The chunks are uploaded one after the other, but a single background thread does the work on the primitives: it builds
+     * the OsmChange document of the next chunk while the current chunk is uploaded, and applies the diff result of each
+     * chunk to the data set, in one update, while the next chunk is uploaded. A chunk which refers to primitives created by
+     * the previous chunk is only built once the new ids of these primitives are known.
+     *
+     * @param primitives the collection of primitives to upload
+     * @param progressMonitor  the progress monitor
+     * @param chunkSize the size of the individual upload chunks. &gt; 0 required.
+     * @throws OsmTransferException if an exception occurs
+     * @since xxx
+     */
+    protected void uploadChangesInPipelinedChunks(Collection<? extends OsmPrimitive> primitives, ProgressMonitor progressMonitor,
+            int chunkSize) throws OsmTransferException {
+        final int maxChunkSize = api.getCapabilities().getMaxChangesetSize();
+        final List<List<OsmPrimitive>> chunks = new ArrayList<>();
+        int size = 0;
+        for (Iterator<? extends OsmPrimitive> it = primitives.iterator(); it.hasNext() && processed.size() + size < maxChunkSize; size++) {
+            if (size % chunkSize == 0) {
+                chunks.add(new ArrayList<>(chunkSize));
+            }
+            chunks.get(chunks.size() - 1).add(it.next());
+        }
+        // determined before the upload, since the diff results modify the primitives
+        final boolean[] dependent = new boolean[chunks.size()];
+        for (int i = 1; i < chunks.size(); i++) {
+            dependent[i] = refersToCreated(chunks.get(i), chunks.get(i - 1));
+        }
+        final Changeset changeset = api.getChangeset();
+        final ExecutorService worker = Executors.newSingleThreadExecutor(Utils.newThreadFactory("upload-pipeline-%d", Thread.NORM_PRIORITY));
+        final List<Future<Set<OsmPrimitive>>> results = new ArrayList<>(chunks.size());
+        try {
+            progressMonitor.beginTask(tr("Starting to upload in chunks..."));
+            Future<String> next = worker.submit(() -> api.createDiffUploadRequest(chunks.get(0)));
+            for (int i = 0; i < chunks.size(); i++) {
+                if (canceled) return;
+                final List<OsmPrimitive> chunk = chunks.get(i);
+                final String request = getPreparedRequest(next);
+                next = null;
+                final boolean hasNext = i + 1 < chunks.size();
+                if (hasNext && !dependent[i + 1]) {
+                    final List<OsmPrimitive> nextChunk = chunks.get(i + 1);
+                    next = worker.submit(() -> api.createDiffUploadRequest(nextChunk));
+                }
+                progressMonitor.setCustomText(
+                        trn("({0}/{1}) Uploading {2} object...",
+                                "({0}/{1}) Uploading {2} objects...",
+                                chunk.size(), i + 1, chunks.size(), chunk.size()));
+                final DiffResultProcessor result = api.sendDiffUploadRequest(chunk, request,
+                        progressMonitor.createSubTaskMonitor(ProgressMonitor.ALL_TICKS, false));
+                results.add(worker.submit(() -> result.postProcess(changeset, NullProgressMonitor.INSTANCE)));
+                if (hasNext && next == null) {
+                    // runs after the diff result has been applied
+                    final List<OsmPrimitive> nextChunk = chunks.get(i + 1);
+                    next = worker.submit(() -> api.createDiffUploadRequest(nextChunk));
+                }
+            }
+            awaitResults(results);
+            // see #23738: server will close CS if maximum changeset size was reached
+            if (processed.size() >= maxChunkSize) {
+                throw new ChangesetClosedException(changeset.getId(), Instant.now(), Source.UPLOAD_DATA);
+            }
+        } finally {
+            try {
+                // the processed primitives must be known even if the upload fails
+                awaitResults(results);
+            } catch (JosmRuntimeException e) {
+                Logging.error(e);
+            }
+            worker.shutdownNow();
+            progressMonitor.finishTask();
+        }
+    }
+
+    /**
+     * Determines if a chunk refers to primitives which are created by the previous chunk, and get their id from its diff result.
+     * @param chunk the chunk
+     * @param previous the previous chunk
+     * @return {@code true} if the OsmChange document of {@code chunk} depends on the diff result of {@code previous}
+     */
+    private static boolean refersToCreated(List<OsmPrimitive> chunk, List<OsmPrimitive> previous) {
+        final Set<OsmPrimitive> created = new HashSet<>();
+        for (OsmPrimitive p : previous) {
+            if (p.isNew() && !p.isDeleted()) {
+                created.add(p);
+            }
+        }
+        if (!created.isEmpty()) {
+            for (OsmPrimitive p : chunk) {
+                if (!p.isDeleted() && p.getChildren().stream().anyMatch(created::contains)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String getPreparedRequest(Future<String> request) throws OsmTransferException {
+        try {
+            return request.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OsmTransferCanceledException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JosmRuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Waits until the diff results have been applied, and adds the processed primitives, in order.
+     * @param results the pending diff results
+     */
+    private void awaitResults(List<Future<Set<OsmPrimitive>>> results) {
+        boolean interrupted = false;
+        try {
+            for (Iterator<Future<Set<OsmPrimitive>>> it = results.iterator(); it.hasNext();) {
+                final Future<Set<OsmPrimitive>> result = it.next();
+                while (true) {
+                    try {
+                        processed.addAll(result.get());
+                        break;
+                    } catch (InterruptedException e) {
+                        // the data set must not be modified once the upload is over
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        it.remove();
+                        throw new JosmRuntimeException(e.getCause());
+                    }
+                }
+                it.remove();
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * Send the dataset to the server.
      *
@@ -17,6 +17,7 @@ import org.openstreetmap.josm.data.coor.conversion.DecimalDegreesCoordinateForma
 import org.openstreetmap.josm.data.osm.AbstractPrimitive;
 import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
 import org.openstreetmap.josm.data.osm.DownloadPolicy;
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.IPrimitive;
@@ -24,6 +25,7 @@ import org.openstreetmap.josm.data.osm.IRelation;
 import org.openstreetmap.josm.data.osm.IWay;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.UploadPolicy;
@@ -106,7 +108,7 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         header(download, upload, false);
     }
 
-    private void header(DownloadPolicy download, UploadPolicy upload, boolean locked) {
+    void header(DownloadPolicy download, UploadPolicy upload, boolean locked) {
         out.println("<?xml version='1.0' encoding='UTF-8'?>");
         out.print("<osm version='");
         out.print(version);
@@ -163,6 +165,26 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
         footer();
     }
 
+    /**
+     * Writes the full OSM file for the state of a data set when a snapshot was taken, without creating a data set.
+     * @param snapshot the snapshot of a data set
+     * @throws IllegalStateException if the snapshot has been closed
+     * @since xxx
+     */
+    public void write(DataSetSnapshot snapshot) {
+        final List<PrimitiveData> primitives = snapshot.getPrimitives();
+        primitives.sort(Comparator.comparing(PrimitiveData::getType).thenComparing(byIdComparator));
+        header(snapshot.getDownloadPolicy(), snapshot.getUploadPolicy(), snapshot.isLocked());
+        writeDataSources(snapshot.getDataSources());
+        setWithVisible(UploadPolicy.NORMAL == snapshot.getUploadPolicy());
+        for (PrimitiveData p : primitives) {
+            if (!p.isNewOrUndeleted() || !p.isDeleted()) {
+                p.accept(this);
+            }
+        }
+        footer();
+    }
+
     /**
      * Writes the contents of the given dataset (nodes, then ways, then relations)
      * @param ds The dataset to write
@@ -222,7 +244,11 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
      * @param ds data set
      */
     public void writeDataSources(DataSet ds) {
-        for (DataSource s : ds.getDataSources()) {
+        writeDataSources(ds.getDataSources());
+    }
+
+    private void writeDataSources(Collection<DataSource> dataSources) {
+        for (DataSource s : dataSources) {
             out.append("  <bounds minlat='").append(DecimalDegreesCoordinateFormat.INSTANCE.latToString(s.bounds.getMin()));
             out.append("' minlon='").append(DecimalDegreesCoordinateFormat.INSTANCE.lonToString(s.bounds.getMin()));
             out.append("' maxlat='").append(DecimalDegreesCoordinateFormat.INSTANCE.latToString(s.bounds.getMax()));
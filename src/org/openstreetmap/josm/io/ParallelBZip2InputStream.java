@@ -0,0 +1,202 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+/**
+ * Decompresses a local bzip2 file with several threads.
+ * <p>
+ * The blocks of a bzip2 stream are compressed independently, but they are not aligned on bytes and their length is not stored.
+ * The producer thread scans the file for the 48 bit magic numbers which start the blocks and end the streams. Each block is
+ * copied into a stream of its own, byte aligned, which ends with the CRC of the block as CRC of the stream, and is decoded
+ * with {@link BZip2CompressorInputStream}. Files with several streams, e.g. compressed by {@code pbzip2}, are supported.
+ * <p>
+ * The magic numbers may appear by chance inside the compressed data, or the file may be corrupted: the rest of the file is
+ * then decoded sequentially, see {@link BlockParallelInputStream}.
+ * @since xxx
+ */
+final class ParallelBZip2InputStream extends BlockParallelInputStream {
+
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long END_OF_STREAM_MAGIC = 0x177245385090L;
+    private static final long MAGIC_MASK = (1L << 48) - 1;
+    /**
+     * The values of the second last byte read when a magic number may end in the last byte read. A magic number always
+     * covers this byte, whatever its bit offset, which avoids checking the 8 offsets for each byte of the file.
+     */
+    private static final boolean[] MAGIC_BYTES = new boolean[256];
+    /** The maximal size of a compressed block, blocks have at most 900 kB before compression */
+    private static final int MAX_BLOCK_BYTES = 4 * 1024 * 1024;
+
+    static {
+        for (int shift = 0; shift < 8; shift++) {
+            MAGIC_BYTES[(int) (BLOCK_MAGIC << shift >>> 8) & 0xff] = true;
+            MAGIC_BYTES[(int) (END_OF_STREAM_MAGIC << shift >>> 8) & 0xff] = true;
+        }
+    }
+
+    /**
+     * Constructs a new {@code ParallelBZip2InputStream}.
+     * @param path the path of the bzip2 file
+     * @param threads the number of decoding threads
+     */
+    ParallelBZip2InputStream(Path path, int threads) {
+        super(path, "bzip2", threads);
+    }
+
+    @Override
+    protected InputStream openSequential() throws IOException {
+        return Compression.getBZip2InputStream(Files.newInputStream(path));
+    }
+
+    @Override
+    protected void splitBlocks() throws IOException, InterruptedException {
+        try (InputStream in = Files.newInputStream(path)) {
+            final byte[] chunk = new byte[64 * 1024];
+            // the bytes of the current block, or the last bytes read if there is no current block
+            byte[] buffer = new byte[1024 * 1024];
+            int length = 0;
+            long base = 0; // the position of buffer[0] in the file
+            long count = 0; // the number of bytes read
+            long bits = 0; // the last bits read
+            long blockStart = -1; // the position of the current block in bits, or -1
+            byte level = '9'; // the block size of the current stream
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    if (length == buffer.length) {
+                        if (blockStart >= 0 && length >= MAX_BLOCK_BYTES) {
+                            throw new IOException("bzip2 block too large at position " + blockStart / 8);
+                        } else if (blockStart >= 0) {
+                            buffer = Arrays.copyOf(buffer, 2 * length);
+                        } else {
+                            // between streams, only the bytes of a magic number have to be kept
+                            System.arraycopy(buffer, length - 8, buffer, 0, 8);
+                            base += length - 8;
+                            length = 8;
+                        }
+                    }
+                    buffer[length++] = chunk[i];
+                    count++;
+                    bits = bits << 8 | (chunk[i] & 0xff);
+                    if (count < 6 || !MAGIC_BYTES[(int) (bits >>> 8) & 0xff]) {
+                        continue;
+                    }
+                    for (int shift = 0; shift < 8 && 48 + shift <= 8 * count; shift++) {
+                        final long candidate = (bits >>> shift) & MAGIC_MASK;
+                        if (candidate == BLOCK_MAGIC || candidate == END_OF_STREAM_MAGIC) {
+                            final long magic = 8 * count - shift - 48;
+                            if (blockStart >= 0) {
+                                submitBlock(buffer, base, blockStart, magic, level);
+                            } else if (candidate == BLOCK_MAGIC && magic >= 32 && magic % 8 == 0) {
+                                // the first block of a stream follows its header, e.g. "BZh9"
+                                final int header = (int) (magic / 8 - base) - 1;
+                                if (header >= 0 && buffer[header] >= '1' && buffer[header] <= '9') {
+                                    level = buffer[header];
+                                }
+                            }
+                            blockStart = candidate == BLOCK_MAGIC ? magic : -1;
+                            // drop the bytes before the magic number
+                            final int keep = (int) (magic / 8 - base);
+                            System.arraycopy(buffer, keep, buffer, 0, length - keep);
+                            base += keep;
+                            length -= keep;
+                            break;
+                        }
+                    }
+                }
+            }
+            if (blockStart >= 0) {
+                throw new IOException("Unexpected end of bzip2 stream");
+            }
+        }
+    }
+
+    private void submitBlock(byte[] buffer, long base, long start, long end, byte level) throws InterruptedException {
+        final int from = (int) (start / 8 - base);
+        final byte[] data = Arrays.copyOfRange(buffer, from, (int) ((end + 7) / 8 - base));
+        final int offset = (int) (start % 8);
+        final long length = end - start;
+        submit(() -> decodeBlock(data, offset, length, level));
+    }
+
+    /**
+     * Decodes a block, as a stream of its own.
+     * @param data the bytes of the block
+     * @param offset the position of the block in the first byte, in bits
+     * @param length the length of the block in bits, from its magic number to the next magic number
+     * @param level the block size of the stream of the block, from {@code '1'} to {@code '9'}
+     * @return the decoded block
+     * @throws IOException if the block cannot be decoded
+     */
+    static byte[] decodeBlock(byte[] data, int offset, long length, byte level) throws IOException {
+        if (length < 80) {
+            throw new IOException("Invalid bzip2 block");
+        }
+        final BitWriter out = new BitWriter(data.length + 16);
+        for (byte b : new byte[] {'B', 'Z', 'h', level}) {
+            out.write(8, b);
+        }
+        final long bytes = length / 8;
+        for (long i = 0; i < bytes; i++) {
+            out.write(8, byteAt(data, offset + 8 * i));
+        }
+        final int rest = (int) (length % 8);
+        out.write(rest, byteAt(data, offset + 8 * bytes) >>> (8 - rest));
+        // the CRC of the stream of a single block is the CRC of the block, which follows its magic number
+        long crc = 0;
+        for (int i = 0; i < 4; i++) {
+            crc = crc << 8 | byteAt(data, offset + 48 + 8L * i);
+        }
+        out.write(48, END_OF_STREAM_MAGIC);
+        out.write(32, crc);
+        try (InputStream in = new BZip2CompressorInputStream(new ByteArrayInputStream(out.toByteArray()), false)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static int byteAt(byte[] data, long bitPosition) {
+        final int index = (int) (bitPosition / 8);
+        final int shift = (int) (bitPosition % 8);
+        final int high = index < data.length ? (data[index] & 0xff) << shift : 0;
+        final int low = shift > 0 && index + 1 < data.length ? (data[index + 1] & 0xff) >>> (8 - shift) : 0;
+        return (high | low) & 0xff;
+    }
+
+    /**
+     * Writes bits, most significant first, into a byte array.
+     */
+    private static final class BitWriter {
+        private final byte[] bytes;
+        private int position;
+        private long pending;
+        private int pendingBits;
+
+        BitWriter(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void write(int count, long value) {
+            pending = pending << count | (value & ((1L << count) - 1));
+            pendingBits += count;
+            while (pendingBits >= 8) {
+                pendingBits -= 8;
+                bytes[position++] = (byte) (pending >>> pendingBits);
+            }
+        }
+
+        byte[] toByteArray() {
+            if (pendingBits > 0) {
+                write(8 - pendingBits, 0);
+            }
+            return Arrays.copyOf(bytes, position);
+        }
+    }
+}
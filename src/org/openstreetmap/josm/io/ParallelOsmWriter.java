@@ -0,0 +1,183 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.UploadPolicy;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Writes a data set into a stream as osm xml, with several threads, producing the same bytes as {@link OsmWriter#write}.
+ * <p>
+ * The nodes, ways and relations are sorted by id and partitioned into chunks of consecutive primitives. Each chunk is
+ * serialized by an {@link OsmWriter} of its own into an UTF-8 encoded buffer, in a thread pool, and the buffers are written to
+ * the stream in order by the calling thread. A bounded number of chunks is serialized ahead, so the memory needed does not
+ * depend on the size of the data set.
+ * <p>
+ * As for {@link OsmWriter}, the data set must not be modified while it is written, e.g. by holding its read lock.
+ * @since xxx
+ */
+public final class ParallelOsmWriter {
+
+    /** Whether large data sets are saved with several threads, see {@link #isUseful} */
+    public static final BooleanProperty PREF_PARALLEL = new BooleanProperty("osm.writer.parallel", true);
+
+    /** The number of primitives of a chunk */
+    static final int CHUNK_SIZE = 2048;
+    /** The minimal number of primitives of the data sets written with several threads */
+    private static final int MIN_PRIMITIVES = 8 * CHUNK_SIZE;
+
+    private static ForkJoinPool threadPool;
+
+    private final OutputStream out;
+    private final boolean osmConform;
+    private final String version;
+    /** The chunks being serialized, in order */
+    private final Deque<Future<ByteArrayOutputStream>> chunks = new ArrayDeque<>();
+    private final int maxChunks;
+    private boolean withVisible = true;
+
+    /**
+     * Constructs a new {@code ParallelOsmWriter}.
+     * @param out the output stream, which is not closed
+     * @param osmConform if {@code true}, prevents modification attributes to be written to the common part
+     * @param version OSM API version (0.6)
+     */
+    public ParallelOsmWriter(OutputStream out, boolean osmConform, String version) {
+        this.out = Objects.requireNonNull(out);
+        this.osmConform = osmConform;
+        this.version = version;
+        this.maxChunks = 2 * getThreadPool().getParallelism();
+    }
+
+    private static synchronized ForkJoinPool getThreadPool() {
+        if (threadPool == null) {
+            threadPool = Utils.newForkJoinPool("osm.writer.parallel.numberOfThreads", "osm-writer-%d", Thread.NORM_PRIORITY);
+        }
+        return threadPool;
+    }
+
+    /**
+     * Determines if it is worth writing the given data set with several threads. This requires several processors, a large data
+     * set, and the default {@link OsmWriter}, since plugins may {@linkplain OsmWriterFactory#setDefaultFactory substitute} it.
+     * @param data the data set
+     * @return {@code true} if the data set should be written by a {@code ParallelOsmWriter}
+     */
+    public static boolean isUseful(DataSet data) {
+        if (Config.getPref() == null || !PREF_PARALLEL.get() || Runtime.getRuntime().availableProcessors() < 2
+                || data.allPrimitives().stream().limit(MIN_PRIMITIVES).count() < MIN_PRIMITIVES) {
+            return false;
+        }
+        try (OsmWriter writer = OsmWriterFactory.createOsmWriter(new PrintWriter(Writer.nullWriter()), false, null)) {
+            return writer.getClass() == OsmWriter.class;
+        } catch (IOException e) {
+            Logging.trace(e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the full OSM file for the given data set (header, data sources, osm data, footer).
+     * @param data OSM data set
+     * @throws IOException if an I/O error occurs
+     * @see OsmWriter#write
+     */
+    public void write(DataSet data) throws IOException {
+        withVisible = UploadPolicy.NORMAL == data.getUploadPolicy();
+        try {
+            writeDirectly(writer -> {
+                writer.header(data.getDownloadPolicy(), data.getUploadPolicy(), data.isLocked());
+                writer.writeDataSources(data);
+            });
+            writePrimitives(data.getNodes());
+            writePrimitives(data.getWays());
+            writePrimitives(data.getRelations());
+            writeDirectly(OsmWriter::footer);
+        } finally {
+            for (Future<?> chunk : chunks) {
+                chunk.cancel(true);
+            }
+            chunks.clear();
+        }
+    }
+
+    private void writePrimitives(Collection<? extends OsmPrimitive> primitives) throws IOException {
+        final OsmPrimitive[] sorted = primitives.toArray(new OsmPrimitive[0]);
+        Arrays.parallelSort(sorted, OsmWriter.byIdComparator);
+        for (int start = 0; start < sorted.length; start += CHUNK_SIZE) {
+            final int from = start;
+            final int to = Math.min(sorted.length, start + CHUNK_SIZE);
+            if (chunks.size() >= maxChunks) {
+                writeFirstChunk();
+            }
+            chunks.add(getThreadPool().submit(() -> serialize(writer -> {
+                for (int i = from; i < to; i++) {
+                    if (writer.shouldWrite(sorted[i])) {
+                        sorted[i].accept(writer);
+                    }
+                }
+            })));
+        }
+    }
+
+    /**
+     * Writes the content produced by a writer after the pending chunks, e.g. the header or the footer.
+     * @param content the content
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeDirectly(Consumer<OsmWriter> content) throws IOException {
+        while (!chunks.isEmpty()) {
+            writeFirstChunk();
+        }
+        serialize(content).writeTo(out);
+    }
+
+    private void writeFirstChunk() throws IOException {
+        try {
+            chunks.removeFirst().get().writeTo(out);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException().initCause(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JosmRuntimeException(e.getCause());
+        }
+    }
+
+    private ByteArrayOutputStream serialize(Consumer<OsmWriter> content) {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+        try (OsmWriter writer = new OsmWriter(new PrintWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8)),
+                osmConform, version)) {
+            writer.setWithVisible(withVisible);
+            content.accept(writer);
+        } catch (IOException e) {
+            // cannot happen with a ByteArrayOutputStream
+            throw new JosmRuntimeException(e);
+        }
+        return buffer;
+    }
+}
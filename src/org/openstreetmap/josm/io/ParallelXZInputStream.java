@@ -0,0 +1,79 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.tukaani.xz.SeekableFileInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
+
+/**
+ * Decompresses a local xz file with several threads.
+ * <p>
+ * The index of a xz stream stores the position and the size of its blocks, so the blocks of a multi-block file, e.g.
+ * compressed by {@code xz -T0} or {@code pixz}, are decoded independently with {@link SeekableXZInputStream}. A file with a
+ * single block, as compressed by {@code xz} in single-threaded mode, or with huge blocks, is decoded sequentially, see
+ * {@link BlockParallelInputStream}.
+ * @since xxx
+ */
+final class ParallelXZInputStream extends BlockParallelInputStream {
+
+    /** The maximal size of a decoded block */
+    private static final long MAX_BLOCK_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Constructs a new {@code ParallelXZInputStream}.
+     * @param path the path of the xz file
+     * @param threads the number of decoding threads
+     */
+    ParallelXZInputStream(Path path, int threads) {
+        super(path, "xz", threads);
+    }
+
+    @Override
+    protected InputStream openSequential() throws IOException {
+        return Compression.getXZInputStream(Files.newInputStream(path));
+    }
+
+    private SeekableXZInputStream openSeekable() throws IOException {
+        return new SeekableXZInputStream(new SeekableFileInputStream(path.toFile()));
+    }
+
+    @Override
+    protected void splitBlocks() throws IOException, InterruptedException {
+        final int count;
+        try (SeekableXZInputStream in = openSeekable()) {
+            count = in.getBlockCount();
+            if (count < 2) {
+                throw new IOException("Single block xz file");
+            }
+            for (int i = 0; i < count; i++) {
+                if (in.getBlockSize(i) > MAX_BLOCK_SIZE) {
+                    throw new IOException("xz block too large: " + in.getBlockSize(i));
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            final int block = i;
+            submit(() -> decodeBlock(block));
+        }
+    }
+
+    private byte[] decodeBlock(int block) throws IOException {
+        try (SeekableXZInputStream in = openSeekable()) {
+            in.seekToBlock(block);
+            final byte[] data = new byte[(int) in.getBlockSize(block)];
+            int length = 0;
+            int read;
+            while (length < data.length && (read = in.read(data, length, data.length - length)) != -1) {
+                length += read;
+            }
+            if (length < data.length) {
+                throw new IOException("Unexpected end of xz block " + block);
+            }
+            return data;
+        }
+    }
+}
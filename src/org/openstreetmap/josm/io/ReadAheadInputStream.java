@@ -0,0 +1,149 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An input stream which reads its source in a background thread, ahead of its reader, so that the reading of the source,
+ * e.g. the decompression of a file, and the processing of its content run in parallel.
+ * <p>
+ * The source is read in chunks of 64 KiB, up to 16 chunks ahead. The background reading starts with the first read and
+ * stops when this stream is closed. The exceptions of the source are thrown by the read methods of this stream.
+ * This stream is not thread safe, it must be read by one thread at a time.
+ * @since xxx
+ */
+final class ReadAheadInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int CHUNKS = 16;
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final InputStream source;
+    private final ExecutorService executor;
+    /** The chunks read ahead: byte arrays, then {@link #END_OF_STREAM} or the exception of the source */
+    private final BlockingQueue<Object> chunks = new ArrayBlockingQueue<>(CHUNKS);
+    private Future<?> reading;
+    private byte[] chunk;
+    private int position;
+    private boolean eof;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new {@code ReadAheadInputStream}.
+     * @param source the source stream, which is closed with this stream
+     * @param executor the executor running the background reading, it must not be bounded
+     */
+    ReadAheadInputStream(InputStream source, ExecutorService executor) {
+        this.source = Objects.requireNonNull(source);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    private Void readAhead() throws InterruptedException {
+        Object last = END_OF_STREAM;
+        int length = CHUNK_SIZE;
+        while (length == CHUNK_SIZE && last == END_OF_STREAM && !closed) {
+            final byte[] buffer = new byte[CHUNK_SIZE];
+            length = 0;
+            try {
+                int read;
+                while (length < CHUNK_SIZE && (read = source.read(buffer, length, CHUNK_SIZE - length)) != -1) {
+                    length += read;
+                }
+            } catch (IOException | RuntimeException e) {
+                last = e;
+            }
+            // the data read before an exception is delivered first
+            if (length > 0) {
+                chunks.put(length == CHUNK_SIZE ? buffer : Arrays.copyOf(buffer, length));
+            }
+        }
+        // do not wait forever if the reader has closed the stream meanwhile
+        while (!chunks.offer(last, 100, TimeUnit.MILLISECONDS)) {
+            if (closed) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    private boolean nextChunk() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        } else if (eof) {
+            return false;
+        } else if (reading == null) {
+            reading = executor.submit(this::readAhead);
+        }
+        final Object next;
+        try {
+            next = chunks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException().initCause(e);
+        }
+        if (next instanceof byte[] && next != END_OF_STREAM) {
+            chunk = (byte[]) next;
+            position = 0;
+            return true;
+        }
+        eof = true;
+        if (next instanceof IOException) {
+            throw (IOException) next;
+        } else if (next instanceof RuntimeException) {
+            throw (RuntimeException) next;
+        }
+        return false;
+    }
+
+    private boolean isChunkConsumed() {
+        return chunk == null || position == chunk.length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (isChunkConsumed() && !nextChunk()) {
+            return -1;
+        }
+        return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        } else if (isChunkConsumed() && !nextChunk()) {
+            return -1;
+        }
+        final int n = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return isChunkConsumed() ? 0 : chunk.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            if (reading != null) {
+                reading.cancel(true);
+            }
+            chunks.clear();
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+
+/**
+ * This test measures the contention of {@link DataSet} readers with each other and with an editing thread.
+ * <p>
+ * Several reader threads search the dataset or read nodes by their id, while another thread moves nodes. The throughput
+ * of the readers and of the editor is measured with a single lock stripe, which behaves like the former single
+ * {@code ReentrantReadWriteLock}, and with the default number of stripes. The number of reader threads can be set with the
+ * system property {@code josm.datasetlock.readers}, it defaults to the number of processors.
+ */
+@BasicPreferences
+@PerformanceTest
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class DataSetLockPerformanceTest {
+
+    private static final int NODES = 100_000;
+    private static final long DURATION_MS = 3_000;
+
+    private enum Reader {
+        /** Searches of small areas, with the read lock */
+        SEARCH,
+        /** Reads of the coordinates of a few nodes, with the read lock */
+        LOCKED_READ,
+        /** Reads of the coordinates of a few nodes, with {@link DataSet#readOptimistically} */
+        OPTIMISTIC_READ
+    }
+
+    private static DataSet createDataSet(List<Node> nodes) {
+        final Random random = new Random(42);
+        final DataSet ds = new DataSet();
+        ds.update(() -> {
+            for (int i = 0; i < NODES; i++) {
+                final Node node = new Node(new LatLon(random.nextDouble(), random.nextDouble()));
+                ds.addPrimitive(node);
+                nodes.add(node);
+            }
+        });
+        return ds;
+    }
+
+    private static double read(DataSet ds, List<Node> nodes, Reader reader) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Node node = nodes.get(random.nextInt(nodes.size()));
+        switch (reader) {
+        case SEARCH:
+            return ds.searchNodes(new BBox(node.lon(), node.lat(), node.lon() + 0.01, node.lat() + 0.01)).size();
+        case LOCKED_READ:
+            final Lock readLock = ds.getReadLock();
+            readLock.lock();
+            try {
+                return readCoordinates(nodes, random.nextInt(nodes.size() - 10));
+            } finally {
+                readLock.unlock();
+            }
+        default:
+            final int start = random.nextInt(nodes.size() - 10);
+            return ds.readOptimistically(() -> readCoordinates(nodes, start));
+        }
+    }
+
+    private static double readCoordinates(List<Node> nodes, int start) {
+        double sum = 0;
+        for (int i = start; i < start + 10; i++) {
+            sum += nodes.get(i).lat() + nodes.get(i).lon();
+        }
+        return sum;
+    }
+
+    /**
+     * Measures the throughput of the readers and of the editor, for several kinds of readers.
+     * @param stripes the number of lock stripes, {@code 0} for the default
+     * @throws InterruptedException if the test is interrupted
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 0})
+    void testContention(int stripes) throws InterruptedException {
+        DataSet.PREF_LOCK_STRIPES.put(stripes);
+        final int readers = Integer.getInteger("josm.datasetlock.readers", Runtime.getRuntime().availableProcessors());
+        final List<Node> nodes = new ArrayList<>(NODES);
+        final DataSet ds = createDataSet(nodes);
+        final String name = (stripes == 1 ? "single lock" : "striped lock") + ", " + readers + " readers";
+
+        for (Reader reader : Reader.values()) {
+            final AtomicBoolean running = new AtomicBoolean(true);
+            final LongAdder reads = new LongAdder();
+            final LongAdder edits = new LongAdder();
+            final List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                threads.add(new Thread(() -> {
+                    double blackhole = 0;
+                    while (running.get()) {
+                        blackhole += read(ds, nodes, reader);
+                        reads.increment();
+                    }
+                    assertTrue(blackhole >= 0);
+                }, "reader-" + i));
+            }
+            threads.add(new Thread(() -> {
+                final Random random = new Random(1);
+                while (running.get()) {
+                    final Node node = nodes.get(random.nextInt(NODES));
+                    ds.update(() -> node.setCoor(new LatLon(random.nextDouble(), random.nextDouble())));
+                    edits.increment();
+                }
+            }, "editor"));
+            threads.forEach(Thread::start);
+            Thread.sleep(DURATION_MS);
+            running.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            PerformanceTestUtils.measurementPlotsPluginOutput(name + " " + reader + " reads per second",
+                    reads.sum() * 1000.0 / DURATION_MS);
+            PerformanceTestUtils.measurementPlotsPluginOutput(name + " " + reader + " edits per second",
+                    edits.sum() * 1000.0 / DURATION_MS);
+        }
+    }
+}
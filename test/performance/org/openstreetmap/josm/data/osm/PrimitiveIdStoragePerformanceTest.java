@@ -0,0 +1,84 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+import org.openstreetmap.josm.tools.Stopwatch;
+
+/**
+ * This test measures the insert and lookup throughput of {@link PrimitiveIdStorage}, compared to the {@link Storage} it replaces
+ * in {@link DataSet}.
+ */
+@PerformanceTest
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class PrimitiveIdStoragePerformanceTest {
+    /** Approximate number of bytes needed per id for the ids and both indexes */
+    private static final long BYTES_PER_ID = 120;
+    /** A prime, so that the lookups visit all ids in an order that is unrelated to the insertion order */
+    private static final long STRIDE = 7_919;
+
+    private static SimplePrimitiveId[] createIds(int count) {
+        final SimplePrimitiveId[] ids = new SimplePrimitiveId[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = new SimplePrimitiveId(i + 1L, OsmPrimitiveType.NODE);
+        }
+        return ids;
+    }
+
+    private static void report(String name, int count, Stopwatch stopwatch) {
+        PerformanceTestUtils.measurementPlotsPluginOutput(name + " " + count + " (ids/s)",
+                count / (Math.max(1, stopwatch.elapsed()) / 1000d));
+    }
+
+    /**
+     * Measure inserting and looking up the given number of ids
+     * @param count The number of ids
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1_000_000, 10_000_000, 50_000_000})
+    void testInsertAndLookup(int count) {
+        Assumptions.assumeTrue(Runtime.getRuntime().maxMemory() > count * BYTES_PER_ID,
+                () -> "Not enough memory for " + count + " ids, increase -Xmx");
+        SimplePrimitiveId[] ids = createIds(count);
+
+        PrimitiveIdStorage<SimplePrimitiveId> idStorage = new PrimitiveIdStorage<>();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        for (SimplePrimitiveId id : ids) {
+            idStorage.add(id);
+        }
+        report("PrimitiveIdStorage insert", count, stopwatch);
+        stopwatch = Stopwatch.createStarted();
+        for (int i = 0; i < count; i++) {
+            final int index = (int) (i * STRIDE % count);
+            assertSame(ids[index], idStorage.get(index + 1L, OsmPrimitiveType.NODE));
+        }
+        report("PrimitiveIdStorage lookup", count, stopwatch);
+        assertEquals(count, idStorage.size());
+        idStorage = null;
+
+        Storage<SimplePrimitiveId> storage = new Storage<>(new Storage.PrimitiveIdHash(), true);
+        final Map<PrimitiveId, SimplePrimitiveId> map = storage.foreignKey(new Storage.PrimitiveIdHash());
+        stopwatch = Stopwatch.createStarted();
+        for (SimplePrimitiveId id : ids) {
+            storage.add(id);
+        }
+        report("Storage insert", count, stopwatch);
+        stopwatch = Stopwatch.createStarted();
+        for (int i = 0; i < count; i++) {
+            final int index = (int) (i * STRIDE % count);
+            assertSame(ids[index], map.get(ids[index]));
+        }
+        report("Storage lookup", count, stopwatch);
+        assertEquals(count, storage.size());
+    }
+}
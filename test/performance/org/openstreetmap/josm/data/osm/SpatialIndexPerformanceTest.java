@@ -0,0 +1,107 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+
+/**
+ * This test compares the search latency, the build time and the memory of the {@link SpatialIndex} implementations.
+ * <p>
+ * The number of nodes can be set with the system property {@code josm.spatialindex.sizes}, e.g. {@code 1000000,10000000}.
+ * Ten million nodes need a heap of about 4 GiB.
+ */
+@PerformanceTest
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class SpatialIndexPerformanceTest {
+
+    private static final int SEARCHES = 20_000;
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Several collections, since a single System.gc() call does not guarantee that all garbage is collected
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static List<BBox> searchBoxes(Random random, double size) {
+        final List<BBox> boxes = new ArrayList<>(SEARCHES);
+        for (int i = 0; i < SEARCHES; i++) {
+            final double lat = random.nextDouble() * 10;
+            final double lon = random.nextDouble() * 10;
+            boxes.add(new BBox(lon, lat, lon + size, lat + size));
+        }
+        return boxes;
+    }
+
+    /**
+     * Measures the build time, the memory and the search latency of an index of random nodes, spread over 10° x 10°.
+     * @param type the type of the spatial index
+     */
+    @ParameterizedTest
+    @EnumSource(SpatialIndex.Type.class)
+    void testSearchNodes(SpatialIndex.Type type) {
+        final Random random = new Random(42);
+        for (String sizeString : System.getProperty("josm.spatialindex.sizes", "1000000").split(",", -1)) {
+            final int size = Integer.parseInt(sizeString.trim());
+            final String name = type + " " + size + " nodes";
+            final List<Node> nodes = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final Node node = new Node(i + 1L);
+                node.setCoor(new LatLon(random.nextDouble() * 10, random.nextDouble() * 10));
+                nodes.add(node);
+            }
+            final long before = usedMemory();
+
+            // the first search after a download packs the R-tree
+            PerformanceTestTimer timer = PerformanceTestUtils.startTimer(name + " build");
+            final SpatialIndex<Node> index = type.create();
+            nodes.forEach(index::add);
+            index.search(new BBox(0, 0, 0.001, 0.001));
+            timer.done();
+            PerformanceTestUtils.measurementPlotsPluginOutput(name + " heap per node (bytes)",
+                    (double) (usedMemory() - before) / size);
+
+            for (double boxSize : new double[] {0.001, 0.01, 0.1}) {
+                final List<BBox> boxes = searchBoxes(random, boxSize);
+                long found = 0;
+                final long start = System.nanoTime();
+                for (BBox bbox : boxes) {
+                    found += index.search(bbox).size();
+                }
+                final long elapsed = System.nanoTime() - start;
+                PerformanceTestUtils.measurementPlotsPluginOutput(name + " search " + boxSize + "° (µs)",
+                        elapsed / 1000.0 / SEARCHES);
+                PerformanceTestUtils.measurementPlotsPluginOutput(name + " nodes per search " + boxSize + "°",
+                        (double) found / SEARCHES);
+            }
+
+            // editing: remove and add a node, then search
+            final long start = System.nanoTime();
+            for (int i = 0; i < SEARCHES; i++) {
+                final Node node = nodes.get(random.nextInt(size));
+                index.remove(node);
+                index.add(node);
+                index.search(new BBox(node.lon(), node.lat(), node.lon() + 0.01, node.lat() + 0.01));
+            }
+            PerformanceTestUtils.measurementPlotsPluginOutput(name + " remove, add and search (µs)",
+                    (System.nanoTime() - start) / 1000.0 / SEARCHES);
+            assertEquals(size, index.size());
+        }
+    }
+}
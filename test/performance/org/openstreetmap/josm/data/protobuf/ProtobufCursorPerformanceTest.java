@@ -0,0 +1,110 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.protobuf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.imagery.vectortile.mapbox.Layer;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmPbfReader;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+
+/**
+ * Counts the bytes allocated while decoding protobuf data with {@link ProtobufParser}/{@link ProtobufRecord} and with
+ * {@link ProtobufCursor}.
+ */
+@PerformanceTest
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class ProtobufCursorPerformanceTest {
+    private static final int TIMES = 50;
+
+    /**
+     * Compare the allocations for decoding a Mapbox Vector Tile
+     * @throws IOException if the tile could not be read
+     */
+    @Test
+    void testVectorTileAllocations() throws IOException {
+        final byte[] tile = Files.readAllBytes(Paths.get(TestUtils.getTestDataRoot(), "pbf", "mapillary", "14", "3248", "6258.mvt"));
+        final long recordBytes = allocatedBytes(() -> {
+            final List<Layer> layers = new ArrayList<>();
+            for (ProtobufRecord protobufRecord : new ProtobufParser(tile).allRecords()) {
+                try (ProtobufParser parser = new ProtobufParser(protobufRecord.getBytes())) {
+                    layers.add(new Layer(parser.allRecords()));
+                }
+            }
+            return layers;
+        });
+        final long cursorBytes = allocatedBytes(() -> {
+            final List<Layer> layers = new ArrayList<>();
+            final ProtobufCursor cursor = new ProtobufCursor(tile);
+            while (cursor.nextField()) {
+                layers.add(new Layer(cursor.readMessage()));
+            }
+            return layers;
+        });
+        PerformanceTestUtils.measurementPlotsPluginOutput("mvt decode allocations with ProtobufRecord (bytes)", recordBytes);
+        PerformanceTestUtils.measurementPlotsPluginOutput("mvt decode allocations with ProtobufCursor (bytes)", cursorBytes);
+        assertTrue(cursorBytes < recordBytes);
+    }
+
+    /**
+     * Report the allocations per primitive for decoding an OSM PBF file. Set {@code josm.perf.pbf} to use a larger file.
+     * @throws IOException if the file could not be read
+     */
+    @Test
+    void testOsmPbfAllocations() throws IOException {
+        final String file = System.getProperty("josm.perf.pbf");
+        final byte[] data = Files.readAllBytes(file != null ? Paths.get(file)
+                : Paths.get(TestUtils.getTestDataRoot(), "pbf", "osm", "simple.osm.pbf"));
+        final int primitives = parse(data).allPrimitives().size();
+        final long bytes = allocatedBytes(() -> parse(data));
+        PerformanceTestUtils.measurementPlotsPluginOutput("pbf decode allocations per primitive (bytes)", (double) bytes / primitives);
+        assertEquals(primitives, parse(data).allPrimitives().size());
+    }
+
+    private static DataSet parse(byte[] data) throws IOException {
+        try {
+            return OsmPbfReader.parseDataSet(new ByteArrayInputStream(data), NullProgressMonitor.INSTANCE);
+        } catch (IllegalDataException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Get the average number of bytes allocated on the current thread by a decoder
+     * @param decoder The decoder to run
+     * @return The average bytes allocated per run
+     * @throws IOException if the decoder throws one
+     */
+    private static long allocatedBytes(Decoder decoder) throws IOException {
+        final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        // warm up
+        decoder.decode();
+        final long start = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < TIMES; i++) {
+            decoder.decode();
+        }
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - start) / TIMES;
+    }
+
+    @FunctionalInterface
+    private interface Decoder {
+        Object decode() throws IOException;
+    }
+}
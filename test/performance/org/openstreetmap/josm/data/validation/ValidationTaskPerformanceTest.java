@@ -1,10 +1,14 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.validation;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -20,6 +24,7 @@ import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
 import org.openstreetmap.josm.testutils.annotations.Projection;
 import org.openstreetmap.josm.testutils.annotations.Territories;
+import org.openstreetmap.josm.tools.Stopwatch;
 
 /**
  * Performance test of {@code ValidationTask}.
@@ -62,4 +67,55 @@ class ValidationTaskPerformanceTest {
             assertTrue(validationTask.getErrors().size() > 3000);
         });
     }
+
+    /**
+     * Runs the validation task sequentially and in parallel with an increasing number of threads, and reports the speedup.
+     */
+    @Test
+    void testParallel() {
+        DataSet dataSet = MainApplication.getLayerManager().getActiveDataSet();
+        Collection<OsmPrimitive> primitives = dataSet.allPrimitives();
+
+        List<String> sequentialErrors = new ArrayList<>();
+        long sequential = validate(primitives, null, sequentialErrors);
+        PerformanceTestUtils.measurementPlotsPluginOutput("ValidationTask#realRun sequential (ms)", sequential);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(2 * threads, cores) : threads + 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                List<String> parallelErrors = new ArrayList<>();
+                long parallel = validate(primitives, pool, parallelErrors);
+                PerformanceTestUtils.measurementPlotsPluginOutput("ValidationTask#realRun with " + threads + " threads (ms)", parallel);
+                PerformanceTestUtils.measurementPlotsPluginOutput("ValidationTask#realRun speedup with " + threads + " threads",
+                        (double) sequential / Math.max(1, parallel));
+                assertEquals(sequentialErrors, parallelErrors);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Validates the primitives three times and returns the median run time.
+     * @param primitives the primitives to validate
+     * @param pool the pool for parallel validation, or {@code null}
+     * @param errors the list to which the found errors are added, as strings
+     * @return the median run time in milliseconds
+     */
+    private long validate(Collection<OsmPrimitive> primitives, ForkJoinPool pool, List<String> errors) {
+        List<Long> times = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ValidationTask validationTask = new ValidationTask(NullProgressMonitor.INSTANCE, tests, primitives, primitives);
+            validationTask.setForkJoinPool(pool);
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            validationTask.realRun();
+            times.add(stopwatch.elapsed());
+            errors.clear();
+            validationTask.getErrors().forEach(e -> errors.add(e.getTester().getName() + ' ' + e.getCode() + ' '
+                    + e.getDescription() + ' ' + e.getPrimitives()));
+        }
+        Collections.sort(times);
+        return times.get(1);
+    }
 }
@@ -0,0 +1,119 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.validation.OsmValidator;
+import org.openstreetmap.josm.data.validation.tests.CrossingWays;
+import org.openstreetmap.josm.data.validation.tests.DuplicateNode;
+import org.openstreetmap.josm.data.validation.tests.LongSegment;
+import org.openstreetmap.josm.data.validation.tests.OverlappingWays;
+import org.openstreetmap.josm.data.validation.tests.UnconnectedWays;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Measures the time and the allocations of the geometry tests, with and without a shared {@link SegmentIndex}.
+ */
+@BasicPreferences
+@PerformanceTest
+@Projection
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class SegmentIndexPerformanceTest {
+
+    private static final int RUNS = 3;
+
+    private List<org.openstreetmap.josm.data.validation.Test> tests;
+    private Collection<OsmPrimitive> primitives;
+
+    /**
+     * Setup test.
+     * @throws Exception if the data set could not be read
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        OsmValidator.initialize();
+        tests = Arrays.asList(new CrossingWays.Ways(), new CrossingWays.Boundaries(), new CrossingWays.SelfCrossing(),
+                new UnconnectedWays.UnconnectedHighways(), new UnconnectedWays.UnconnectedRailways(),
+                new UnconnectedWays.UnconnectedWaterways(), new UnconnectedWays.UnconnectedNaturalOrLanduse(),
+                new UnconnectedWays.UnconnectedPower(), new OverlappingWays(), new DuplicateNode(), new LongSegment());
+        OsmValidator.initializeTests(tests);
+
+        DataSet dataSet = PerformanceTestUtils.getNeubrandenburgDataSet();
+        // some tests obtain the active dataset
+        MainApplication.getLayerManager().addLayer(new OsmDataLayer(dataSet, dataSet.getName(), null));
+        primitives = dataSet.allNonDeletedPrimitives();
+    }
+
+    /**
+     * Runs the geometry tests on the neubrandenburg data set, first with their own grids, then with a shared index,
+     * and reports the total time and the allocated bytes.
+     */
+    @Test
+    void testGeometryTests() {
+        List<Integer> errorCounts = new ArrayList<>();
+        long[] before = measure(false, errorCounts);
+        List<Integer> indexedErrorCounts = new ArrayList<>();
+        long[] after = measure(true, indexedErrorCounts);
+
+        PerformanceTestUtils.measurementPlotsPluginOutput("geometry tests (ms)", before[0]);
+        PerformanceTestUtils.measurementPlotsPluginOutput("geometry tests with segment index (ms)", after[0]);
+        PerformanceTestUtils.measurementPlotsPluginOutput("geometry tests (MiB allocated)", before[1] / 1_048_576.0);
+        PerformanceTestUtils.measurementPlotsPluginOutput("geometry tests with segment index (MiB allocated)",
+                after[1] / 1_048_576.0);
+        PerformanceTestUtils.measurementPlotsPluginOutput("geometry tests speedup with segment index",
+                (double) before[0] / Math.max(1, after[0]));
+        assertEquals(errorCounts, indexedErrorCounts);
+    }
+
+    /**
+     * Runs all tests several times.
+     * @param useIndex {@code true} to build a shared index before the tests
+     * @param errorCounts the list to which the number of errors of each test is added
+     * @return the median time in milliseconds and the median number of allocated bytes of a run of all tests
+     */
+    private long[] measure(boolean useIndex, List<Integer> errorCounts) {
+        final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        List<Long> times = new ArrayList<>();
+        List<Long> allocations = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            errorCounts.clear();
+            final long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+            final long start = System.nanoTime();
+            final SegmentIndex index = useIndex ? SegmentIndex.build(primitives) : null;
+            for (org.openstreetmap.josm.data.validation.Test test : tests) {
+                test.setPartialSelection(false);
+                test.setSegmentIndex(test.usesSegmentIndex() ? index : null);
+                test.startTest(null);
+                test.visit(primitives);
+                test.endTest();
+                errorCounts.add(test.getErrors().size());
+                test.clear();
+                test.setSegmentIndex(null);
+            }
+            times.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            allocations.add(threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore);
+        }
+        Collections.sort(times);
+        Collections.sort(allocations);
+        return new long[] {times.get(RUNS / 2), allocations.get(RUNS / 2)};
+    }
+}
@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 import javax.imageio.ImageIO;
@@ -33,6 +34,7 @@ import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.visitor.paint.RenderBenchmarkCollector.CapturingBenchmark;
+import org.openstreetmap.josm.data.osm.visitor.paint.RenderBenchmarkCollector.TileTimes;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecord;
 import org.openstreetmap.josm.data.preferences.sources.SourceEntry;
@@ -199,6 +201,9 @@ public class MapRendererPerformanceTest {
         private final List<Long> sortTimes = new ArrayList<>();
         private final List<Long> drawTimes = new ArrayList<>();
         private final List<Long> totalTimes = new ArrayList<>();
+        private final List<Long> tileSelectTimes = new ArrayList<>();
+        private final List<Long> tilePaintTimes = new ArrayList<>();
+        private final List<Long> tileCompositeTimes = new ArrayList<>();
 
         @SuppressFBWarnings(value = "DM_GC")
         public void run() throws IOException {
@@ -238,6 +243,11 @@ public class MapRendererPerformanceTest {
                     sortTimes.add(data.getSortTime());
                     drawTimes.add(data.getDrawTime());
                     totalTimes.add(data.getGenerateTime() + data.getSortTime() + data.getDrawTime());
+                    if (!data.getTileTimes().isEmpty()) {
+                        tileSelectTimes.add(data.sumTileTimes(TileTimes::getSelectTime));
+                        tilePaintTimes.add(data.sumTileTimes(TileTimes::getPaintTime));
+                        tileCompositeTimes.add(data.sumTileTimes(TileTimes::getCompositeTime));
+                    }
                 }
                 if (i == 1) {
                     data.dumpElementCount();
@@ -256,6 +266,11 @@ public class MapRendererPerformanceTest {
             }
             if (mpDraw) {
                 processTimes(drawTimes, "draw");
+                if (!tilePaintTimes.isEmpty()) {
+                    processTimes(tileSelectTimes, "tiles select");
+                    processTimes(tilePaintTimes, "tiles paint");
+                    processTimes(tileCompositeTimes, "tiles composite");
+                }
             }
             if (mpTotal) {
                 processTimes(totalTimes, "total");
@@ -322,6 +337,28 @@ public class MapRendererPerformanceTest {
         }
     }
 
+    /**
+     * Test phase 2 with all features, with the style records painted in parallel tiles of the view.
+     * The times of the tiles are the sums over all tiles, so the paint time is the CPU time.
+     * @throws IOException in case of an I/O error
+     */
+    @Test
+    void testPerformanceDrawParallelTiles() throws IOException {
+        setFilterStyleActive(false);
+        MapPaintStyleLoader.reloadStyles(filterStyleIdx);
+        dsCity.clearMappaintCache();
+        PerformanceTester test = new PerformanceTester();
+        test.label = "all (parallel tiles)";
+        test.mpDraw = true;
+        test.clearStyleCache = false;
+        StyledMapRenderer.PREFERENCE_PARALLEL_TILES.put(true);
+        try {
+            test.run();
+        } finally {
+            StyledMapRenderer.PREFERENCE_PARALLEL_TILES.remove();
+        }
+    }
+
     /**
      * Resets MapPaintStyles to a single source.
      * @param source new map paint style source
@@ -362,6 +399,13 @@ public class MapRendererPerformanceTest {
 
         public void dumpTimes() {
             System.out.printf("gen. %4d, sort %4d, draw %4d%n", getGenerateTime(), getSortTime(), getDrawTime());
+            for (TileTimes tile : getTileTimes()) {
+                System.out.println("  " + tile);
+            }
+        }
+
+        long sumTileTimes(ToLongFunction<TileTimes> phase) {
+            return TimeUnit.NANOSECONDS.toMillis(getTileTimes().stream().mapToLong(phase).sum());
         }
 
         public void dumpElementCount() {
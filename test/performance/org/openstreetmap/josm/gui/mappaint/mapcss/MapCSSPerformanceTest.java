@@ -1,24 +1,33 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.mappaint.mapcss;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.PerformanceTestUtils;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
 import org.openstreetmap.josm.data.preferences.sources.SourceEntry;
 import org.openstreetmap.josm.data.preferences.sources.SourceType;
 import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.Cascade;
 import org.openstreetmap.josm.gui.mappaint.MapRendererPerformanceTest;
+import org.openstreetmap.josm.gui.mappaint.MultiCascade;
 import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
 import org.openstreetmap.josm.testutils.annotations.Projection;
 
@@ -58,6 +67,12 @@ class MapCSSPerformanceTest {
 
     void loadStyle() {
         System.out.print("Loading style '"+STYLE_FILE+"' ...");
+        MapCSSStyleSource source = newStyleSource();
+        MapRendererPerformanceTest.resetStylesToSingle(source);
+        System.out.println("DONE");
+    }
+
+    static MapCSSStyleSource newStyleSource() {
         MapCSSStyleSource source = new MapCSSStyleSource(
             new SourceEntry(
                 SourceType.MAP_PAINT_STYLE,
@@ -72,8 +87,7 @@ class MapCSSPerformanceTest {
         if (!errors.isEmpty()) {
             fail("Failed to load style file ''"+STYLE_FILE+"''. Errors: "+errors);
         }
-        MapRendererPerformanceTest.resetStylesToSingle(source);
-        System.out.println("DONE");
+        return source;
     }
 
     void loadData() throws IllegalDataException, IOException {
@@ -109,4 +123,92 @@ class MapCSSPerformanceTest {
         System.out.println("");
         System.out.println("Rendering took "+time+" ms.");
     }
+
+    /**
+     * Measures the time to apply the style to all primitives, with interpreted and with compiled rules.
+     * @throws IOException if any I/O error occurs
+     * @throws IllegalDataException if any invalid data is found
+     * @see MapCSSRuleCompiler
+     */
+    @Test
+    @BasicPreferences
+    void measureTimeForStyleApplication() throws IllegalDataException, IOException {
+        loadData();
+        final int runs = 5;
+
+        CascadeCache.PREF_CASCADE_CACHE.put(false);
+        MapCSSRuleCompiler.PREF_COMPILE_RULES.put(false);
+        final MapCSSStyleSource interpreted = newStyleSource();
+        MapCSSRuleCompiler.PREF_COMPILE_RULES.put(true);
+        final MapCSSStyleSource compiled = newStyleSource();
+
+        final List<String> interpretedCascades = new ArrayList<>();
+        final List<String> compiledCascades = new ArrayList<>();
+        long interpretedTime = Long.MAX_VALUE;
+        long compiledTime = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            interpretedCascades.clear();
+            compiledCascades.clear();
+            interpretedTime = Math.min(interpretedTime, timed(() -> applyToAll(interpreted, interpretedCascades)));
+            compiledTime = Math.min(compiledTime, timed(() -> applyToAll(compiled, compiledCascades)));
+        }
+        assertEquals(interpretedCascades, compiledCascades);
+
+        PerformanceTestUtils.measurementPlotsPluginOutput("MapCSSStyleSource#apply(...) interpreted (ms)", interpretedTime);
+        PerformanceTestUtils.measurementPlotsPluginOutput("MapCSSStyleSource#apply(...) compiled (ms)", compiledTime);
+        PerformanceTestUtils.measurementPlotsPluginOutput("MapCSSStyleSource#apply(...) speedup of compiled rules",
+                (double) interpretedTime / Math.max(1, compiledTime));
+    }
+
+    /**
+     * Measures the time to apply the style to all primitives for the first time, without and with the cascade cache.
+     * @throws IOException if any I/O error occurs
+     * @throws IllegalDataException if any invalid data is found
+     * @see CascadeCache
+     */
+    @Test
+    @BasicPreferences
+    void measureTimeForStyleApplicationWithCascadeCache() throws IllegalDataException, IOException {
+        loadData();
+        final int runs = 5;
+
+        CascadeCache.PREF_CASCADE_CACHE.put(false);
+        final MapCSSStyleSource uncached = newStyleSource();
+        CascadeCache.PREF_CASCADE_CACHE.put(true);
+        final MapCSSStyleSource cached = newStyleSource();
+
+        final List<String> uncachedCascades = new ArrayList<>();
+        final List<String> cachedCascades = new ArrayList<>();
+        long uncachedTime = Long.MAX_VALUE;
+        long cachedTime = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            uncachedCascades.clear();
+            cachedCascades.clear();
+            uncachedTime = Math.min(uncachedTime, timed(() -> applyToAll(uncached, uncachedCascades)));
+            // start with an empty cache, like the first paint of a layer
+            cached.clearCascadeCache();
+            cachedTime = Math.min(cachedTime, timed(() -> applyToAll(cached, cachedCascades)));
+        }
+        assertEquals(uncachedCascades, cachedCascades);
+
+        final CascadeCache cache = cached.getCascadeCache();
+        PerformanceTestUtils.measurementPlotsPluginOutput("MapCSSStyleSource#apply(...) without cascade cache (ms)", uncachedTime);
+        PerformanceTestUtils.measurementPlotsPluginOutput("MapCSSStyleSource#apply(...) with cascade cache (ms)", cachedTime);
+        PerformanceTestUtils.measurementPlotsPluginOutput("MapCSSStyleSource#apply(...) speedup of cascade cache",
+                (double) uncachedTime / Math.max(1, cachedTime));
+        PerformanceTestUtils.measurementPlotsPluginOutput("MapCSSStyleSource#apply(...) cascade cache hit ratio",
+                (double) cache.getHits() / Math.max(1, cache.getHits() + cache.getMisses()));
+    }
+
+    void applyToAll(MapCSSStyleSource source, List<String> cascades) {
+        for (OsmPrimitive osm : ds.allPrimitives()) {
+            MultiCascade mc = new MultiCascade();
+            source.apply(mc, osm, 1, false);
+            Map<String, String> layers = new TreeMap<>();
+            for (Map.Entry<String, Cascade> layer : mc.getLayers()) {
+                layers.put(layer.getKey(), layer.getValue().toString());
+            }
+            cascades.add(layers.toString());
+        }
+    }
 }
@@ -0,0 +1,109 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * This test tests how fast we are at decompressing large bzip2 and xz files, sequentially and with several threads.
+ * <p>
+ * The neubrandenburg-file is used as bzip2 file, and compressed into a xz file with several blocks, as {@code xz -T0} does.
+ */
+@PerformanceTest
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class CompressionPerformanceTest {
+    private static final int TIMES = 4;
+    /** The size of the uncompressed xz blocks, which is 3 times the dictionary size in {@code xz -T0} */
+    private static final int XZ_BLOCK_SIZE = 3 * 1024 * 1024;
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path bzip2File;
+    private static Path xzFile;
+    private static long uncompressedSize;
+
+    /**
+     * Creates the xz file.
+     * @throws IOException if an error occurs
+     */
+    @BeforeAll
+    static void createFiles() throws IOException {
+        bzip2File = Paths.get(PerformanceTestUtils.DATA_FILE);
+        final byte[] data;
+        try (InputStream in = Compression.getBZip2InputStream(Files.newInputStream(bzip2File))) {
+            data = in.readAllBytes();
+        }
+        uncompressedSize = data.length;
+        xzFile = tempDir.resolve("data.osm.xz");
+        try (XZOutputStream out = new XZOutputStream(Files.newOutputStream(xzFile), new LZMA2Options())) {
+            for (int i = 0; i < data.length; i += XZ_BLOCK_SIZE) {
+                out.write(data, i, Math.min(XZ_BLOCK_SIZE, data.length - i));
+                out.endBlock();
+            }
+        }
+    }
+
+    /**
+     * Reports the throughput of the bzip2 decompression
+     * @param threads the number of decoding threads, {@code 1} for the sequential decompression
+     * @throws IOException if an error occurs
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 8})
+    void testBZip2(int threads) throws IOException {
+        runTest("bzip2", threads, () -> threads > 1 ? new ParallelBZip2InputStream(bzip2File, threads)
+                : Compression.getBZip2InputStream(Files.newInputStream(bzip2File)));
+    }
+
+    /**
+     * Reports the throughput of the xz decompression
+     * @param threads the number of decoding threads, {@code 1} for the sequential decompression
+     * @throws IOException if an error occurs
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 8})
+    void testXZ(int threads) throws IOException {
+        runTest("xz", threads, () -> threads > 1 ? new ParallelXZInputStream(xzFile, threads)
+                : Compression.getXZInputStream(Files.newInputStream(xzFile)));
+    }
+
+    @FunctionalInterface
+    private interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+
+    private static void runTest(String what, int threads, StreamOpener opener) throws IOException {
+        final byte[] buffer = new byte[64 * 1024];
+        final long start = System.nanoTime();
+        for (int i = 0; i < TIMES; i++) {
+            long size = 0;
+            try (InputStream in = opener.open()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                }
+            }
+            assertEquals(uncompressedSize, size);
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        PerformanceTestUtils.measurementPlotsPluginOutput(what + " decompression with " + threads + " threads MB per second",
+                uncompressedSize * TIMES / 1e6 / seconds);
+    }
+}
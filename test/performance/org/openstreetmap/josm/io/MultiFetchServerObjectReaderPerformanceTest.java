@@ -0,0 +1,79 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.MultiFetchServerObjectReaderTest.MultiFetchStub;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.HTTP;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+
+/**
+ * This test tests how fast we are at fetching primitives by id from a stub of the OSM API, which replies with a given latency.
+ */
+@BasicPreferences
+@HTTP
+@PerformanceTest
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class MultiFetchServerObjectReaderPerformanceTest {
+    private static final int NODES = 20_000;
+
+    static final MultiFetchStub STUB = new MultiFetchStub();
+
+    @RegisterExtension
+    static WireMockExtension wml = WireMockExtension.newInstance()
+            .options(WireMockConfiguration.wireMockConfig().dynamicPort()
+                    .usingFilesUnderDirectory(TestUtils.getTestDataRoot()).extensions(STUB))
+            .build();
+
+    /**
+     * Setup test.
+     */
+    @BeforeEach
+    void setUp() {
+        STUB.reset();
+        Config.getPref().put("osm-server.url", wml.getRuntimeInfo().getHttpBaseUrl() + "/__files/api");
+    }
+
+    /**
+     * Reports the number of nodes fetched per second.
+     * @param latency the latency of the stub, in milliseconds
+     * @throws OsmTransferException if an error occurs
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100, 500})
+    void testFetchNodes(int latency) throws OsmTransferException {
+        wml.getRuntimeInfo().getWireMock().register(WireMock.get(WireMock.urlPathEqualTo("/__files/api/0.6/nodes"))
+                .willReturn(WireMock.ok().withFixedDelay(latency)));
+        final MultiFetchServerObjectReader reader = MultiFetchServerObjectReader.create(false);
+        for (long id = 1; id <= NODES; id++) {
+            reader.append(new SimplePrimitiveId(id, OsmPrimitiveType.NODE));
+        }
+        final long start = System.nanoTime();
+        final DataSet ds = reader.parseOsm(NullProgressMonitor.INSTANCE);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(NODES, ds.getNodes().size());
+        PerformanceTestUtils.measurementPlotsPluginOutput("multi-fetch with " + latency + " ms latency objects per second",
+                NODES / seconds);
+        PerformanceTestUtils.measurementPlotsPluginOutput("multi-fetch with " + latency + " ms latency requests",
+                STUB.requests.get());
+    }
+}
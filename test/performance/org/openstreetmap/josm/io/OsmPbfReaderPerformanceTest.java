@@ -0,0 +1,72 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+import org.openstreetmap.josm.tools.Stopwatch;
+
+/**
+ * This test tests how fast we are at reading an OSM PBF file with a varying number of decoder threads.
+ * <p>
+ * By default, the (small) PBF test file is used. A larger real world extract can be used by setting the
+ * {@code josm.perf.pbf} system property to its path; only files with many data blobs benefit from parallel decoding.
+ */
+@PerformanceTest
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class OsmPbfReaderPerformanceTest {
+    private static final int TIMES = 20;
+
+    /**
+     * Read the PBF file with the given number of threads and report the throughput
+     * @param threads The number of decoder threads
+     * @throws Exception if an error occurs
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 8})
+    void testThreads(int threads) throws Exception {
+        final byte[] data = loadFile();
+        final int expected = OsmPbfReader.parseDataSet(new ByteArrayInputStream(data), NullProgressMonitor.INSTANCE).allPrimitives().size();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load .osm.pbf-file with " + threads + " threads " + TIMES + " times");
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        DataSet ds = null;
+        for (int i = 0; i < TIMES; i++) {
+            try (InputStream is = new ByteArrayInputStream(data)) {
+                ds = OsmPbfReader.parseDataSet(is, NullProgressMonitor.INSTANCE, threads);
+            }
+        }
+        final long elapsed = Math.max(1, stopwatch.elapsed());
+        timer.done();
+        assertNotNull(ds);
+        assertEquals(expected, ds.allPrimitives().size());
+        PerformanceTestUtils.measurementPlotsPluginOutput("pbf throughput with " + threads + " threads (MiB/s)",
+                (double) data.length * TIMES / (1024 * 1024) / (elapsed / 1000d));
+        PerformanceTestUtils.measurementPlotsPluginOutput("pbf throughput with " + threads + " threads (primitives/s)",
+                (double) expected * TIMES / (elapsed / 1000d));
+    }
+
+    private static byte[] loadFile() throws IOException {
+        final String file = System.getProperty("josm.perf.pbf");
+        if (file != null) {
+            return Files.readAllBytes(new File(file).toPath());
+        }
+        return Files.readAllBytes(Paths.get(TestUtils.getTestDataRoot(), "pbf", "osm", "simple.osm.pbf"));
+    }
+}
@@ -0,0 +1,97 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+import org.openstreetmap.josm.tools.Stopwatch;
+
+/**
+ * This test tests how fast we are at writing an OSM PBF file, compared to the .osm files of {@link OsmWriterPerformanceTest}.
+ * <p>
+ * For this, we use the neubrandenburg-file, which is a good real world example of an OSM file.
+ */
+@PerformanceTest
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class OsmPbfWriterPerformanceTest {
+    private static final int TIMES = 4;
+    private DataSet neubrandenburgDataSet;
+
+    /**
+     * Setup test
+     * @throws Exception if an error occurs
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        neubrandenburgDataSet = PerformanceTestUtils.getNeubrandenburgDataSet();
+    }
+
+    /**
+     * Tests writing PBF data with the given compression level, and report the throughput and the file size
+     * @param compressionLevel The zlib compression level
+     * @throws Exception if an error occurs
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION})
+    void testWriter(int compressionLevel) throws Exception {
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("write .osm.pbf-file with compression level "
+                + compressionLevel + " " + TIMES + " times");
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        ByteArrayOutputStream out = null;
+        for (int i = 0; i < TIMES; i++) {
+            out = new ByteArrayOutputStream();
+            try (OsmPbfWriter writer = new OsmPbfWriter(out, OsmPbfWriter.DEFAULT_BLOCK_SIZE, compressionLevel)) {
+                writer.write(neubrandenburgDataSet);
+            }
+        }
+        final long elapsed = Math.max(1, stopwatch.elapsed());
+        timer.done();
+        final int primitives = neubrandenburgDataSet.allPrimitives().size();
+        PerformanceTestUtils.measurementPlotsPluginOutput("pbf write with compression level " + compressionLevel + " (primitives/s)",
+                (double) primitives * TIMES / (elapsed / 1000d));
+        PerformanceTestUtils.measurementPlotsPluginOutput("pbf size with compression level " + compressionLevel + " (KiB)",
+                out.size() / 1024d);
+        assertEquals(primitives, OsmPbfReader.parseDataSet(new ByteArrayInputStream(out.toByteArray()), NullProgressMonitor.INSTANCE)
+                .allPrimitives().size());
+    }
+
+    /**
+     * Tests writing the same data as .osm, for comparison of the throughput and the file size
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testXmlWriter() throws Exception {
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("write .osm-file for comparison " + TIMES + " times");
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        ByteArrayOutputStream out = null;
+        for (int i = 0; i < TIMES; i++) {
+            out = new ByteArrayOutputStream();
+            try (OsmWriter osmWriter = OsmWriterFactory.createOsmWriter(
+                    new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), true, OsmWriter.DEFAULT_API_VERSION)) {
+                osmWriter.write(neubrandenburgDataSet);
+            }
+        }
+        final long elapsed = Math.max(1, stopwatch.elapsed());
+        timer.done();
+        PerformanceTestUtils.measurementPlotsPluginOutput("osm write (primitives/s)",
+                (double) neubrandenburgDataSet.allPrimitives().size() * TIMES / (elapsed / 1000d));
+        PerformanceTestUtils.measurementPlotsPluginOutput("osm size (KiB)", out.size() / 1024d);
+    }
+}
@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import java.io.ByteArrayInputStream;
@@ -9,22 +10,37 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.openstreetmap.josm.PerformanceTestUtils;
 import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.TagStringPool;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
 
 /**
  * This test tests how fast we are at reading an OSM file.
  * <p>
  * For this, we use the neubrandenburg-file, which is a good real world example of an OSM file. We ignore disk access times.
+ * <p>
+ * The throughput on compressed input is measured with the pipelined reader, see {@link OsmReader#PREF_PIPELINED}, and with
+ * the sequential reader.
  *
  * @author Michael Zangl
  */
+@BasicPreferences
 @PerformanceTest
 @Timeout(value = 15, unit = TimeUnit.MINUTES)
 class OsmReaderPerformanceTest {
@@ -48,6 +64,102 @@ class OsmReaderPerformanceTest {
         runTest(".osm-file", true);
     }
 
+    /**
+     * Reports the hit rate of the {@link TagStringPool} when reading a .osm file
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testTagStringPool() throws Exception {
+        InputStream is = loadFile(true);
+        TagStringPool pool = TagStringPool.getInstance();
+        pool.resetStatistics();
+        DataSet ds = OsmReader.parseDataSet(is, null);
+        assertNotNull(ds);
+        PerformanceTestUtils.measurementPlotsPluginOutput("tag string pool hit rate", pool.getHitRate());
+        PerformanceTestUtils.measurementPlotsPluginOutput("tag string pool misses", pool.getMisses());
+    }
+
+    /**
+     * Reports the heap retained by the data set read from a .osm file, with the tag strings deduplicated by the reader, and
+     * with a copy of every tag string, as without deduplication. Also reports the number of string instances per distinct
+     * tag string, which is 1 if every repeated string of the file is deduplicated.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testTagStringHeap() throws Exception {
+        final InputStream is = loadFile(true);
+        final long before = usedMemory();
+        final DataSet ds = OsmReader.parseDataSet(is, null);
+        final long deduplicated = usedMemory() - before;
+
+        final Set<String> strings = new HashSet<>();
+        final Set<String> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            p.visitKeys((primitive, key, value) -> {
+                strings.add(key);
+                strings.add(value);
+                instances.add(key);
+                instances.add(value);
+            });
+        }
+        final double instancesPerString = (double) instances.size() / strings.size();
+        strings.clear();
+        instances.clear();
+
+        ds.update(() -> {
+            for (OsmPrimitive p : ds.allPrimitives()) {
+                final Map<String, String> copy = new HashMap<>();
+                p.visitKeys((primitive, key, value) -> copy.put(new String(key), new String(value)));
+                p.setKeys(copy);
+            }
+        });
+        final long copied = usedMemory() - before;
+
+        PerformanceTestUtils.measurementPlotsPluginOutput("retained heap with deduplicated tag strings (MB)", deduplicated / 1e6);
+        PerformanceTestUtils.measurementPlotsPluginOutput("retained heap with copied tag strings (MB)", copied / 1e6);
+        PerformanceTestUtils.measurementPlotsPluginOutput("tag string instances per distinct string", instancesPerString);
+        assertEquals(1d, instancesPerString, 1e-9);
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Several collections, since a single System.gc() call does not guarantee that all garbage is collected
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * Reports the throughput of the pipelined and of the sequential reader on compressed input
+     * @param pipelined whether the pipelined reader is used
+     * @throws Exception if an error occurs
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testCompressedThroughput(boolean pipelined) throws Exception {
+        final InputStream is = loadFile(false);
+        final long uncompressedSize = loadFile(true).available();
+        OsmReader.PREF_PIPELINED.put(pipelined);
+        try {
+            final String what = (pipelined ? "pipelined" : "sequential") + " reader";
+            final long start = System.nanoTime();
+            for (int i = 0; i < TIMES; i++) {
+                is.reset();
+                final DataSet ds = OsmReader.parseDataSet(Compression.byExtension(PerformanceTestUtils.DATA_FILE)
+                        .getUncompressedInputStream(is), null);
+                assertNotNull(ds);
+            }
+            final double seconds = (System.nanoTime() - start) / 1e9;
+            PerformanceTestUtils.measurementPlotsPluginOutput(what + " MB of xml per second (.osm.bz2)",
+                    uncompressedSize * TIMES / 1e6 / seconds);
+        } finally {
+            OsmReader.PREF_PIPELINED.remove();
+        }
+    }
+
     private void runTest(String what, boolean decompressBeforeRead) throws IllegalDataException, IOException {
         InputStream is = loadFile(decompressBeforeRead);
         PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load " + what + " " + TIMES + " times");
@@ -0,0 +1,74 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.OsmServerWriterTest.DiffUploadStub;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.HTTP;
+import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+
+/**
+ * This test tests how fast we are at uploading a large changeset in chunks to a stub of the OSM API, which replies with a
+ * given latency, sequentially and pipelined.
+ */
+@BasicPreferences
+@HTTP
+@PerformanceTest
+@Timeout(value = 15, unit = TimeUnit.MINUTES)
+class OsmServerWriterPerformanceTest {
+    private static final int NODES = 40_000;
+    private static final int WAYS = 10_000;
+    private static final int CHUNK_SIZE = 1000;
+
+    static final DiffUploadStub STUB = new DiffUploadStub(10 * (NODES + WAYS));
+
+    @RegisterExtension
+    static WireMockExtension wml = WireMockExtension.newInstance()
+            .options(WireMockConfiguration.wireMockConfig().dynamicPort().extensions(STUB))
+            .build();
+
+    /**
+     * Setup test.
+     */
+    @BeforeEach
+    void setUp() {
+        STUB.reset();
+    }
+
+    /**
+     * Reports the time needed to upload 50k new primitives.
+     * @param latency the latency of the stub, in milliseconds
+     * @param pipelined whether the upload is pipelined
+     * @throws OsmTransferException if an error occurs
+     */
+    @ParameterizedTest
+    @CsvSource({"10, false", "10, true", "100, false", "100, true"})
+    void testUploadInChunks(int latency, boolean pipelined) throws OsmTransferException {
+        OsmServerWriterTest.setUpApi(wml, latency);
+        OsmApi.getOsmApi().initialize(NullProgressMonitor.INSTANCE);
+        final List<OsmPrimitive> primitives = OsmServerWriterTest.createPrimitives(NODES, WAYS);
+        final OsmServerWriter writer = new OsmServerWriter();
+        final long start = System.nanoTime();
+        OsmServerWriterTest.upload(writer, primitives, CHUNK_SIZE, pipelined);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(primitives.size(), writer.getProcessedPrimitives().size());
+        assertEquals(0, STUB.unresolved.get());
+        PerformanceTestUtils.measurementPlotsPluginOutput((pipelined ? "pipelined" : "sequential") + " upload of "
+                + primitives.size() + " objects with " + latency + " ms latency (s)", seconds);
+    }
+}
@@ -1,8 +1,14 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io;
 
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -11,13 +17,17 @@ import org.junit.jupiter.api.Timeout;
 import org.openstreetmap.josm.PerformanceTestUtils;
 import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 import org.openstreetmap.josm.testutils.annotations.PerformanceTest;
 
 /**
  * This test tests how fast we are at writing an OSM file.
  * <p>
  * For this, we use the neubrandenburg-file, which is a good real world example of an OSM file.
+ * <p>
+ * The speedup and the peak memory of the {@link ParallelOsmWriter} are compared with the sequential writer.
  */
+@BasicPreferences
 @PerformanceTest
 @Timeout(value = 15, unit = TimeUnit.MINUTES)
 class OsmWriterPerformanceTest {
@@ -49,4 +59,52 @@ class OsmWriterPerformanceTest {
         timer.done();
     }
 
+    /**
+     * Reports the speedup and the peak memory of the parallel writer, compared with the sequential writer
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testParallelWriter() throws Exception {
+        resetPeakMemory();
+        final long sequentialStart = System.nanoTime();
+        for (int i = 0; i < TIMES; i++) {
+            try (OsmWriter osmWriter = OsmWriterFactory.createOsmWriter(new PrintWriter(
+                    new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8)), false, OsmWriter.DEFAULT_API_VERSION)) {
+                osmWriter.write(neubrandenburgDataSet);
+            }
+        }
+        final double sequentialSeconds = (System.nanoTime() - sequentialStart) / 1e9;
+        final long sequentialMemory = getPeakMemory();
+
+        resetPeakMemory();
+        final long parallelStart = System.nanoTime();
+        for (int i = 0; i < TIMES; i++) {
+            new ParallelOsmWriter(OutputStream.nullOutputStream(), false, OsmWriter.DEFAULT_API_VERSION).write(neubrandenburgDataSet);
+        }
+        final double parallelSeconds = (System.nanoTime() - parallelStart) / 1e9;
+        final long parallelMemory = getPeakMemory();
+
+        PerformanceTestUtils.measurementPlotsPluginOutput("parallel writer speedup", sequentialSeconds / parallelSeconds);
+        PerformanceTestUtils.measurementPlotsPluginOutput("sequential writer peak heap MB", sequentialMemory / 1e6);
+        PerformanceTestUtils.measurementPlotsPluginOutput("parallel writer peak heap MB", parallelMemory / 1e6);
+    }
+
+    private static void resetPeakMemory() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long getPeakMemory() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
 }
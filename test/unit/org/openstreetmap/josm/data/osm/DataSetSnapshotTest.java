@@ -0,0 +1,131 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Unit tests of {@link DataSetSnapshot}.
+ */
+class DataSetSnapshotTest {
+
+    /**
+     * Checks that a snapshot keeps the state of the data set when it was taken, and only saves the changed primitives.
+     */
+    @Test
+    void testSnapshot() {
+        final DataSet ds = new DataSet();
+        ds.setName("test");
+        ds.addDataSource(new DataSource(new Bounds(0, 0, 1, 1), "test"));
+        final Node a = new Node(1, 1);
+        a.setCoor(new LatLon(0.1, 0.1));
+        final Node b = new Node(2, 1);
+        b.setCoor(new LatLon(0.2, 0.2));
+        final Node c = new Node(3, 1);
+        c.setCoor(new LatLon(0.3, 0.3));
+        final Way way = new Way(1, 1);
+        way.setNodes(Arrays.asList(a, b));
+        way.put("highway", "residential");
+        final Relation relation = new Relation(1, 1);
+        relation.addMember(new RelationMember("outer", way));
+        ds.addPrimitive(a);
+        ds.addPrimitive(b);
+        ds.addPrimitive(c);
+        ds.addPrimitive(way);
+        ds.addPrimitive(relation);
+
+        final DataSetSnapshot snapshot = ds.snapshot();
+        assertEquals(0, snapshot.getChangedCount());
+
+        // edit the data set
+        a.setCoor(new LatLon(0.5, 0.5));
+        way.put("highway", "service");
+        way.addNode(c);
+        final Node d = new Node(new LatLon(0.4, 0.4));
+        ds.addPrimitive(d);
+        d.put("amenity", "bench");
+        ds.removePrimitive(relation);
+        assertEquals(4, snapshot.getChangedCount());
+
+        assertEquals(new LatLon(0.1, 0.1), ((NodeData) snapshot.get(a)).getCoor());
+        assertEquals(new LatLon(0.2, 0.2), ((NodeData) snapshot.get(b)).getCoor());
+        assertNull(snapshot.get(d));
+        assertEquals(5, snapshot.getPrimitives().size());
+
+        final DataSet copy = snapshot.toDataSet();
+        assertEquals("test", copy.getName());
+        assertEquals(1, copy.getDataSources().size());
+        assertEquals(3, copy.getNodes().size());
+        assertEquals(new LatLon(0.1, 0.1), ((Node) copy.getPrimitiveById(1, OsmPrimitiveType.NODE)).getCoor());
+        final Way wayCopy = (Way) copy.getPrimitiveById(1, OsmPrimitiveType.WAY);
+        assertEquals("residential", wayCopy.get("highway"));
+        assertEquals(2, wayCopy.getNodesCount());
+        final Relation relationCopy = (Relation) copy.getPrimitiveById(1, OsmPrimitiveType.RELATION);
+        assertNotNull(relationCopy);
+        assertEquals(wayCopy, relationCopy.getMember(0).getMember());
+
+        // the data set is not modified
+        assertEquals(4, ds.getNodes().size());
+        assertEquals(3, way.getNodesCount());
+        assertNull(relation.getDataSet());
+
+        snapshot.close();
+        assertTrue(snapshot.isClosed());
+        assertFalse(ds.hasSnapshots());
+        assertThrows(IllegalStateException.class, snapshot::getPrimitives);
+        b.setCoor(new LatLon(0.6, 0.6));
+        assertEquals(0, snapshot.getChangedCount());
+    }
+
+    /**
+     * Checks that a removed primitive which is added again, e.g. by undo, keeps its state, and that a primitive which has
+     * been added and removed after the snapshot was taken is not part of it.
+     */
+    @Test
+    void testRemoveAndAddAgain() {
+        final DataSet ds = new DataSet();
+        final Node a = new Node(new LatLon(1, 1));
+        ds.addPrimitive(a);
+        try (DataSetSnapshot snapshot = ds.snapshot()) {
+            ds.removePrimitive(a);
+            ds.addPrimitive(a);
+            a.setCoor(new LatLon(2, 2));
+            final Node b = new Node(new LatLon(3, 3));
+            ds.addPrimitive(b);
+            ds.removePrimitive(b);
+            assertEquals(1, snapshot.getPrimitives().size());
+            assertEquals(new LatLon(1, 1), ((NodeData) snapshot.get(a)).getCoor());
+            assertNull(snapshot.get(b));
+        }
+    }
+
+    /**
+     * Checks that the snapshot is consistent after the data set is cleared, and after a new primitive got its id.
+     */
+    @Test
+    void testClearAndSetOsmId() {
+        final DataSet ds = new DataSet();
+        final Node a = new Node(new LatLon(1, 1));
+        final Way way = new Way();
+        way.setNodes(Arrays.asList(a, new Node(new LatLon(2, 2))));
+        ds.addPrimitiveRecursive(way);
+        try (DataSetSnapshot snapshot = ds.snapshot()) {
+            a.setOsmId(42, 1);
+            assertEquals(3, snapshot.toDataSet().allPrimitives().size());
+            ds.clear();
+            assertEquals(3, snapshot.getPrimitives().size());
+            assertEquals(2, snapshot.toDataSet().getWays().iterator().next().getNodesCount());
+        }
+    }
+}
@@ -11,6 +11,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.TestUtils;
@@ -337,4 +338,36 @@ class DataSetTest {
         assertEquals(4, copy.allPrimitives().size());
         assertTrue(copy.isLocked());
     }
+
+    /**
+     * Unit test of {@link DataSet#readOptimistically}
+     */
+    @Test
+    void testReadOptimistically() {
+        DataSet ds = new DataSet();
+        Node node = new Node(new LatLon(1, 2));
+        ds.addPrimitive(node);
+        assertEquals(3, ds.readOptimistically(() -> node.lat() + node.lon()), 1e-9);
+
+        // a modification during the read makes it run again, with the read lock
+        AtomicInteger runs = new AtomicInteger();
+        double sum = ds.readOptimistically(() -> {
+            double lat = node.lat();
+            if (runs.getAndIncrement() == 0) {
+                Thread editor = new Thread(() -> node.setCoor(new LatLon(5, 6)));
+                editor.start();
+                try {
+                    editor.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return lat + node.lon();
+        });
+        assertEquals(11, sum, 1e-9);
+        assertEquals(2, runs.get());
+
+        // the thread which modifies the data set reads with the read lock
+        ds.update(() -> assertEquals(11, ds.readOptimistically(() -> node.lat() + node.lon()), 1e-9));
+    }
 }
@@ -0,0 +1,174 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Unit tests of {@link PackedRTree}.
+ */
+class PackedRTreeTest {
+
+    private static final Random RANDOM = new Random(42);
+
+    private static Node randomNode(long id) {
+        Node n = new Node(id);
+        n.setCoor(new LatLon(RANDOM.nextDouble() * 10, RANDOM.nextDouble() * 10));
+        return n;
+    }
+
+    private static BBox randomBBox() {
+        double lat = RANDOM.nextDouble() * 10;
+        double lon = RANDOM.nextDouble() * 10;
+        return new BBox(lon, lat, lon + RANDOM.nextDouble(), lat + RANDOM.nextDouble());
+    }
+
+    private static <T extends OsmPrimitive> Set<T> search(SpatialIndex<T> index, BBox bbox) {
+        List<T> result = index.search(bbox);
+        Set<T> set = new HashSet<>(result);
+        assertEquals(result.size(), set.size(), "duplicate results");
+        return set;
+    }
+
+    /**
+     * Checks that the search results are the same as those of {@link QuadBuckets}, while nodes are added and removed.
+     */
+    @Test
+    void testSameResultsAsQuadBuckets() {
+        PackedRTree<Node> tree = new PackedRTree<>();
+        QuadBuckets<Node> quadBuckets = new QuadBuckets<>();
+        List<Node> nodes = new ArrayList<>();
+        long id = 1;
+        for (int round = 0; round < 5; round++) {
+            // many nodes at once, as after a download, and a few nodes, as when editing
+            int count = round % 2 == 0 ? 20_000 : 100;
+            for (int i = 0; i < count; i++) {
+                Node n = randomNode(id++);
+                nodes.add(n);
+                tree.add(n);
+                quadBuckets.add(n);
+            }
+            for (int i = 0; i < 50; i++) {
+                BBox bbox = randomBBox();
+                assertEquals(search(quadBuckets, bbox), search(tree, bbox));
+            }
+            Collections.shuffle(nodes, RANDOM);
+            for (Node n : nodes.subList(0, nodes.size() / 3)) {
+                assertTrue(tree.remove(n));
+                assertTrue(quadBuckets.remove(n));
+                assertFalse(tree.contains(n));
+            }
+            nodes.subList(0, nodes.size() / 3).clear();
+            assertEquals(nodes.size(), tree.size());
+            assertTrue(nodes.stream().allMatch(tree::contains));
+            for (int i = 0; i < 50; i++) {
+                BBox bbox = randomBBox();
+                assertEquals(search(quadBuckets, bbox), search(tree, bbox));
+            }
+        }
+        tree.trimToSize();
+        assertEquals(new HashSet<>(nodes), new HashSet<>(tree));
+    }
+
+    /**
+     * Checks that ways are found if their bounding box crosses the search box.
+     */
+    @Test
+    void testWays() {
+        PackedRTree<Way> tree = new PackedRTree<>();
+        Node a = new Node(new LatLon(0, 0));
+        Node b = new Node(new LatLon(1, 1));
+        Node c = new Node(new LatLon(5, 5));
+        Way ab = new Way(1);
+        ab.setNodes(Arrays.asList(a, b));
+        Way ac = new Way(2);
+        ac.setNodes(Arrays.asList(a, c));
+        tree.addAll(Arrays.asList(ab, ac));
+        assertEquals(new HashSet<>(Arrays.asList(ab, ac)), search(tree, new BBox(0.5, 0.5, 0.6, 0.6)));
+        assertEquals(Collections.singleton(ac), search(tree, new BBox(3, 3, 4, 4)));
+        assertTrue(search(tree, new BBox(6, 6, 7, 7)).isEmpty());
+    }
+
+    /**
+     * Test handling of objects with invalid bbox, and of the iterator.
+     */
+    @Test
+    void testSpecialBBox() {
+        PackedRTree<Way> tree = new PackedRTree<>();
+        Way w1 = new Way(1);
+        Way w2 = new Way(2);
+        Node n1 = new Node(1);
+        Node n2 = new Node(new LatLon(10, 20));
+        w2.setNodes(Arrays.asList(n1, n2));
+        tree.add(w1);
+        tree.add(w2);
+        assertEquals(2, tree.size());
+        assertTrue(tree.contains(w1));
+        assertTrue(tree.contains(w2));
+        assertEquals(Collections.singleton(w2), search(tree, new BBox(19, 9, 21, 11)));
+
+        Iterator<Way> iter = tree.iterator();
+        int count = 2;
+        while (iter.hasNext()) {
+            iter.next();
+            iter.remove();
+            assertEquals(--count, tree.size());
+        }
+        assertTrue(tree.isEmpty());
+        assertFalse(tree.contains(w1));
+        assertFalse(tree.contains(w2));
+    }
+
+    /**
+     * Checks that several threads can search the index at the same time, while it is packed by the first search.
+     */
+    @Test
+    void testConcurrentSearch() {
+        PackedRTree<Node> tree = new PackedRTree<>();
+        QuadBuckets<Node> quadBuckets = new QuadBuckets<>();
+        for (int i = 1; i <= 100_000; i++) {
+            Node n = randomNode(i);
+            tree.add(n);
+            quadBuckets.add(n);
+        }
+        List<BBox> boxes = IntStream.range(0, 200).mapToObj(i -> randomBBox()).collect(Collectors.toList());
+        List<Set<Node>> expected = boxes.stream().map(b -> search(quadBuckets, b)).collect(Collectors.toList());
+        IntStream.range(0, boxes.size()).parallel().forEach(i -> assertEquals(expected.get(i), search(tree, boxes.get(i))));
+    }
+
+    /**
+     * Checks that a data set can use the packed R-tree.
+     */
+    @Test
+    void testDataSetStore() {
+        QuadBucketPrimitiveStore<Node, Way, Relation> store = new QuadBucketPrimitiveStore<>(SpatialIndex.Type.PACKED_R_TREE);
+        Node a = new Node(new LatLon(0, 0));
+        Node b = new Node(new LatLon(1, 1));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(a, b));
+        store.addPrimitive(a);
+        store.addPrimitive(b);
+        store.addPrimitive(w);
+        assertEquals(Collections.singletonList(a), store.searchNodes(new BBox(-0.5, -0.5, 0.5, 0.5)));
+        assertEquals(Collections.singletonList(w), store.searchWays(new BBox(-0.5, -0.5, 0.5, 0.5)));
+        assertTrue(store.containsWay(w));
+        store.removePrimitive(w);
+        assertFalse(store.containsWay(w));
+        assertTrue(store.searchWays(new BBox(-0.5, -0.5, 0.5, 0.5)).isEmpty());
+    }
+}
@@ -0,0 +1,99 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for class {@link PrimitiveIdStorage}.
+ */
+class PrimitiveIdStorageTest {
+    /**
+     * Test adding, getting and removing primitives of different types with the same id
+     */
+    @Test
+    void testTypes() {
+        final PrimitiveIdStorage<SimplePrimitiveId> storage = new PrimitiveIdStorage<>();
+        final SimplePrimitiveId node = new SimplePrimitiveId(1, OsmPrimitiveType.NODE);
+        final SimplePrimitiveId way = new SimplePrimitiveId(1, OsmPrimitiveType.WAY);
+        assertTrue(storage.add(node));
+        assertTrue(storage.add(way));
+        assertFalse(storage.add(new SimplePrimitiveId(1, OsmPrimitiveType.NODE)));
+        assertEquals(2, storage.size());
+        assertSame(node, storage.get(1, OsmPrimitiveType.NODE));
+        assertSame(way, storage.get(new SimplePrimitiveId(1, OsmPrimitiveType.WAY)));
+        assertNull(storage.get(1, OsmPrimitiveType.RELATION));
+        assertNull(storage.get(1, OsmPrimitiveType.CLOSEDWAY));
+        assertNull(storage.get(null));
+        assertTrue(storage.contains(new SimplePrimitiveId(1, OsmPrimitiveType.NODE)));
+        assertFalse(storage.contains("n1"));
+        assertSame(node, storage.foreignKey().get(new SimplePrimitiveId(1, OsmPrimitiveType.NODE)));
+        assertTrue(storage.remove(new SimplePrimitiveId(1, OsmPrimitiveType.NODE)));
+        assertFalse(storage.remove(node));
+        assertNull(storage.get(1, OsmPrimitiveType.NODE));
+        assertEquals(1, storage.size());
+        assertThrows(IllegalArgumentException.class, () -> storage.add(new SimplePrimitiveId(2, OsmPrimitiveType.CLOSEDWAY)));
+        storage.clear();
+        assertTrue(storage.isEmpty());
+        assertNull(storage.get(1, OsmPrimitiveType.WAY));
+    }
+
+    /**
+     * Compare random additions and removals with a {@link HashMap}, so that the tables grow and entries are moved back
+     */
+    @Test
+    void testRandomOperations() {
+        final PrimitiveIdStorage<SimplePrimitiveId> storage = new PrimitiveIdStorage<>();
+        final Map<SimplePrimitiveId, SimplePrimitiveId> expected = new HashMap<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            final SimplePrimitiveId id = new SimplePrimitiveId(random.nextInt(20_000) - 10_000,
+                    random.nextBoolean() ? OsmPrimitiveType.NODE : OsmPrimitiveType.RELATION);
+            if (random.nextInt(3) == 0) {
+                assertSame(expected.remove(id), storage.removeElem(id));
+            } else {
+                assertSame(expected.computeIfAbsent(id, k -> id), storage.putUnique(id));
+            }
+        }
+        assertEquals(expected.size(), storage.size());
+        for (SimplePrimitiveId id : expected.keySet()) {
+            assertSame(expected.get(id), storage.get(id.getUniqueId(), id.getType()));
+        }
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(storage));
+        assertEquals(expected.size(), storage.foreignKey().entrySet().size());
+    }
+
+    /**
+     * Test that iterators are not affected by modifications
+     */
+    @Test
+    void testSafeIterator() {
+        final PrimitiveIdStorage<SimplePrimitiveId> storage = new PrimitiveIdStorage<>();
+        for (int i = 1; i <= 100; i++) {
+            storage.add(new SimplePrimitiveId(i, OsmPrimitiveType.WAY));
+        }
+        final List<SimplePrimitiveId> iterated = new ArrayList<>();
+        for (SimplePrimitiveId id : storage) {
+            iterated.add(id);
+            storage.remove(id);
+            storage.add(new SimplePrimitiveId(-id.getUniqueId(), OsmPrimitiveType.WAY));
+        }
+        assertEquals(100, iterated.size());
+        assertTrue(iterated.stream().allMatch(id -> id.getUniqueId() > 0));
+        assertEquals(100, storage.size());
+        assertTrue(storage.stream().allMatch(id -> id.getUniqueId() < 0));
+    }
+}
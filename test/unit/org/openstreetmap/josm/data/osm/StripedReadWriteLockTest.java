@@ -0,0 +1,87 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link StripedReadWriteLock}.
+ */
+class StripedReadWriteLockTest {
+
+    private static boolean tryLockInOtherThread(Lock lock) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (lock.tryLock()) {
+                lock.unlock();
+                return true;
+            }
+            return false;
+        }).join();
+    }
+
+    /**
+     * Checks the number of stripes.
+     */
+    @Test
+    void testStripeCount() {
+        assertEquals(1, new StripedReadWriteLock(1).getStripeCount());
+        assertEquals(4, new StripedReadWriteLock(3).getStripeCount());
+        assertEquals(16, new StripedReadWriteLock(16).getStripeCount());
+        final int stripes = new StripedReadWriteLock(0).getStripeCount();
+        assertTrue(stripes >= 1 && stripes <= 16 && Integer.bitCount(stripes) == 1);
+    }
+
+    /**
+     * Checks that readers exclude the writer, and that the writer excludes the readers.
+     */
+    @Test
+    void testExclusion() {
+        final StripedReadWriteLock lock = new StripedReadWriteLock(8);
+        lock.readLock().lock();
+        assertTrue(tryLockInOtherThread(lock.readLock()));
+        assertFalse(tryLockInOtherThread(lock.writeLock()));
+        lock.readLock().unlock();
+        assertTrue(tryLockInOtherThread(lock.writeLock()));
+
+        lock.writeLock().lock();
+        assertTrue(lock.isWriteLockedByCurrentThread());
+        assertFalse(tryLockInOtherThread(lock.readLock()));
+        assertFalse(tryLockInOtherThread(lock.writeLock()));
+        lock.writeLock().unlock();
+        assertFalse(lock.isWriteLockedByCurrentThread());
+        assertTrue(tryLockInOtherThread(lock.readLock()));
+    }
+
+    /**
+     * Checks that the write lock is reentrant and can be downgraded to the read lock.
+     * @throws InterruptedException never
+     */
+    @Test
+    void testReentrancyAndDowngrade() throws InterruptedException {
+        final StripedReadWriteLock lock = new StripedReadWriteLock(4);
+        lock.writeLock().lock();
+        assertTrue(lock.writeLock().tryLock());
+        assertTrue(lock.writeLock().tryLock(1, TimeUnit.SECONDS));
+        lock.writeLock().unlock();
+        lock.writeLock().unlock();
+        assertTrue(lock.isWriteLockedByCurrentThread());
+
+        lock.readLock().lock();
+        lock.writeLock().unlock();
+        assertFalse(lock.isWriteLockedByCurrentThread());
+        assertTrue(tryLockInOtherThread(lock.readLock()));
+        assertFalse(tryLockInOtherThread(lock.writeLock()));
+        lock.readLock().unlock();
+        assertTrue(tryLockInOtherThread(lock.writeLock()));
+
+        assertThrows(IllegalMonitorStateException.class, () -> lock.writeLock().unlock());
+    }
+}
@@ -0,0 +1,91 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for class {@link TagStringPool}.
+ */
+class TagStringPoolTest {
+    private static String copy(String string) {
+        return new StringBuilder(string).toString();
+    }
+
+    /**
+     * Test that equal strings are deduplicated, and the statistics
+     */
+    @Test
+    void testIntern() {
+        final TagStringPool pool = new TagStringPool(16);
+        final String highway = copy("highway");
+        assertSame(highway, pool.intern(highway));
+        assertSame(highway, pool.intern(copy("highway")));
+        assertSame(highway, pool.intern(copy("highway")));
+        assertNull(pool.intern(null));
+        final String longValue = "x".repeat(TagStringPool.MAX_LENGTH + 1);
+        assertNotSame(pool.intern(copy(longValue)), pool.intern(copy(longValue)));
+        assertEquals(2, pool.getHits());
+        assertEquals(1, pool.getMisses());
+        assertEquals(2d / 3, pool.getHitRate(), 1e-9);
+        pool.resetStatistics();
+        assertEquals(0d, pool.getHitRate());
+        assertSame(highway, pool.intern(copy("highway")));
+    }
+
+    /**
+     * Test that the pool is bounded, and keeps the most recently used strings
+     */
+    @Test
+    void testBounded() {
+        final TagStringPool pool = new TagStringPool(2);
+        final String first = pool.intern(copy("first"));
+        final String second = pool.intern(copy("second"));
+        assertSame(first, pool.intern(copy("first")));
+        pool.intern(copy("third"));
+        // "second" was the least recently used string
+        assertSame(first, pool.intern(copy("first")));
+        assertNotSame(second, pool.intern(copy("second")));
+    }
+
+    /**
+     * Test that the strings which are not pooled, since they are too long or were evicted, are deduplicated by the fallback map
+     */
+    @Test
+    void testFallback() {
+        final TagStringPool pool = new TagStringPool(2);
+        final Map<String, String> fallback = new HashMap<>();
+        final String longValue = copy("x".repeat(TagStringPool.MAX_LENGTH + 1));
+        final String pooledLongValue = pool.intern(longValue, fallback);
+        assertSame(pooledLongValue, pool.intern(copy(longValue), fallback));
+
+        final String first = pool.intern(copy("first"), fallback);
+        pool.intern(copy("second"), fallback);
+        pool.intern(copy("third"), fallback);
+        // "first" was evicted from the pool, but not from the fallback map
+        assertSame(first, pool.intern(copy("first"), fallback));
+        assertSame(first, pool.intern(copy("first"), fallback));
+        assertNull(pool.intern(null, fallback));
+    }
+
+    /**
+     * Test deduplicating tags and using the pool from several threads
+     */
+    @Test
+    void testConcurrentTags() {
+        final TagStringPool pool = new TagStringPool(1024);
+        IntStream.range(0, 100_000).parallel().forEach(i -> {
+            final TagMap tags = pool.internTags(new TagMap(copy("highway"), copy("road" + (i % 100))));
+            assertEquals("road" + (i % 100), tags.get("highway"));
+        });
+        assertEquals(200_000, pool.getHits() + pool.getMisses());
+    }
+}
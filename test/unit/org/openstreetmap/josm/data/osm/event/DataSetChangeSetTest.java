@@ -0,0 +1,206 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.event;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+import org.openstreetmap.josm.data.osm.event.DataSetChangeSet.Change;
+
+/**
+ * Unit tests of {@link DataSetChangeSet} class.
+ */
+class DataSetChangeSetTest {
+
+    /**
+     * Records the events fired by a data set.
+     */
+    private static final class Recorder implements DataSetListenerAdapter.Listener {
+        private final List<AbstractDatasetChangedEvent> events = new ArrayList<>();
+
+        Recorder(DataSet ds) {
+            ds.addDataSetListener(new DataSetListenerAdapter(this));
+        }
+
+        @Override
+        public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+            events.add(event);
+        }
+    }
+
+    /**
+     * Checks that the changes of a primitive are coalesced.
+     */
+    @Test
+    void testCoalescing() {
+        final DataSet ds = new DataSet();
+        final Node existing = new Node(new LatLon(0, 0));
+        final Node removed = new Node(new LatLon(1, 1));
+        final Node removedAndAdded = new Node(new LatLon(2, 2));
+        ds.addPrimitive(existing);
+        ds.addPrimitive(removed);
+        ds.addPrimitive(removedAndAdded);
+
+        final Recorder recorder = new Recorder(ds);
+        final Node added = new Node(new LatLon(3, 3));
+        final Node addedAndRemoved = new Node(new LatLon(4, 4));
+        ds.update(() -> {
+            ds.addPrimitive(added);
+            added.put("name", "added");
+            ds.addPrimitive(addedAndRemoved);
+            ds.removePrimitive(addedAndRemoved);
+            ds.removePrimitive(removed);
+            ds.removePrimitive(removedAndAdded);
+            ds.addPrimitive(removedAndAdded);
+            existing.setCoor(new LatLon(5, 5));
+        });
+        final DataSetChangeSet changes = DataSetChangeSet.of(ds, recorder.events);
+
+        assertEquals(Arrays.asList(added), changes.getPrimitives(Change.ADDED));
+        assertEquals(Arrays.asList(removed), changes.getPrimitives(Change.REMOVED));
+        assertEquals(2, changes.size(Change.MODIFIED));
+        assertTrue(changes.contains(existing, Change.MODIFIED));
+        assertTrue(changes.contains(removedAndAdded, Change.MODIFIED));
+        assertFalse(changes.contains(addedAndRemoved));
+        assertEquals(4, changes.size());
+        assertEquals(0, changes.size(OsmPrimitiveType.WAY, Change.MODIFIED));
+        assertTrue(changes.getEventTypes().contains(DatasetEventType.NODE_MOVED));
+    }
+
+    /**
+     * Checks that the ids of the primitives are sorted.
+     */
+    @Test
+    void testGetIds() {
+        final DataSet ds = new DataSet();
+        final Recorder recorder = new Recorder(ds);
+        final List<Node> nodes = new ArrayList<>();
+        ds.update(() -> {
+            for (int i = 0; i < 100; i++) {
+                final Node node = new Node(i % 2 == 0 ? 1000 - i : 1 + i, 1);
+                node.setCoor(new LatLon(0, 0));
+                ds.addPrimitive(node);
+                nodes.add(node);
+            }
+        });
+        final DataSetChangeSet changes = DataSetChangeSet.of(ds, recorder.events);
+        final long[] expected = nodes.stream().mapToLong(Node::getUniqueId).sorted().toArray();
+        assertArrayEquals(expected, changes.getIds(OsmPrimitiveType.NODE, Change.ADDED));
+        nodes.forEach(n -> assertTrue(changes.contains(n, Change.ADDED)));
+    }
+
+    /**
+     * Checks that a large batch, whose events are not kept, still delivers its net changes.
+     */
+    @Test
+    void testLargeBatch() {
+        final DataSet ds = new DataSet();
+        final Way way = new Way();
+        final List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final Node node = new Node(new LatLon(i, i));
+            ds.addPrimitive(node);
+            nodes.add(node);
+        }
+        way.setNodes(nodes);
+        ds.addPrimitive(way);
+
+        final Recorder recorder = new Recorder(ds);
+        ds.update(() -> {
+            for (int i = 0; i < 2000; i++) {
+                ds.addPrimitive(new Node(new LatLon(i / 100.0, 0)));
+            }
+            nodes.get(0).setCoor(new LatLon(20, 20));
+            way.put("highway", "road");
+        });
+
+        assertEquals(1, recorder.events.size());
+        final DataChangedEvent event = (DataChangedEvent) recorder.events.get(0);
+        assertNull(event.getEvents());
+        assertFalse(event.isFullChange());
+        final DataSetChangeSet changes = event.getChangeSet();
+        assertNotNull(changes);
+        assertEquals(2000, changes.size(Change.ADDED));
+        assertEquals(Arrays.asList(nodes.get(0)), changes.getPrimitives(OsmPrimitiveType.NODE, Change.MODIFIED));
+        assertEquals(Arrays.asList(way), changes.getPrimitives(OsmPrimitiveType.WAY, Change.MODIFIED));
+        assertEquals(0, changes.size(Change.REMOVED));
+    }
+
+    /**
+     * Checks that a primitive whose id changes is modified, whether the changes are recorded while the events are fired
+     * or afterwards.
+     */
+    @Test
+    void testIdChange() {
+        final DataSet ds = new DataSet();
+        final Node node = new Node(new LatLon(0, 0));
+        final List<Node> others = new ArrayList<>();
+        ds.addPrimitive(node);
+        for (int i = 0; i < 50; i++) {
+            final Node other = new Node(new LatLon(i, i));
+            ds.addPrimitive(other);
+            others.add(other);
+        }
+
+        final Recorder recorder = new Recorder(ds);
+        ds.update(() -> {
+            node.setOsmId(42, 1);
+            others.forEach(n -> n.put("name", "other"));
+        });
+        assertEquals(1, recorder.events.size());
+        final DataChangedEvent event = (DataChangedEvent) recorder.events.get(0);
+        final DataSetChangeSet eager = event.getChangeSet();
+        final DataSetChangeSet lazy = DataSetChangeSet.of(ds, event.getEvents());
+        for (DataSetChangeSet changes : Arrays.asList(eager, lazy)) {
+            assertEquals(0, changes.size(Change.ADDED));
+            assertEquals(0, changes.size(Change.REMOVED));
+            assertEquals(51, changes.size(Change.MODIFIED));
+            assertTrue(changes.contains(node, Change.MODIFIED));
+            assertEquals(42, changes.getIds(OsmPrimitiveType.NODE, Change.MODIFIED)[50]);
+        }
+    }
+
+    /**
+     * Unit test of {@link DataSetChangeSet#then}.
+     */
+    @Test
+    void testThen() {
+        final DataSet ds = new DataSet();
+        final Node node = new Node(new LatLon(0, 0));
+        final Node other = new Node(new LatLon(1, 1));
+        ds.addPrimitive(other);
+
+        final Recorder recorder = new Recorder(ds);
+        ds.update(() -> ds.addPrimitive(node));
+        final DataSetChangeSet first = DataSetChangeSet.of(ds, recorder.events);
+        recorder.events.clear();
+        ds.update(() -> {
+            node.put("name", "node");
+            ds.removePrimitive(other);
+        });
+        final DataSetChangeSet second = DataSetChangeSet.of(ds, recorder.events);
+
+        final DataSetChangeSet both = first.then(second);
+        assertEquals(Arrays.asList(node), both.getPrimitives(Change.ADDED));
+        assertEquals(Arrays.asList(other), both.getPrimitives(Change.REMOVED));
+        assertEquals(0, both.size(Change.MODIFIED));
+        assertTrue(both.getEventTypes().containsAll(Arrays.asList(DatasetEventType.PRIMITIVES_ADDED,
+                DatasetEventType.TAGS_CHANGED, DatasetEventType.PRIMITIVES_REMOVED)));
+        // a full change cannot be combined
+        assertNull(DataSetChangeSet.of(ds, Arrays.asList(new DataChangedEvent(ds))));
+    }
+}
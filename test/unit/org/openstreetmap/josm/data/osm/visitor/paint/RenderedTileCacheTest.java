@@ -0,0 +1,92 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.ElemStyles;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Unit tests of {@link RenderedTileCache}.
+ */
+@BasicPreferences
+@Projection
+class RenderedTileCacheTest {
+
+    /**
+     * Checks that only the revisions of the areas which contain a changed primitive change.
+     */
+    @Test
+    void testDataDigest() {
+        final DataSet ds = new DataSet();
+        final Node a = new Node(new LatLon(1, 1));
+        final Node b = new Node(new LatLon(2, 2));
+        final Node c = new Node(new LatLon(1.5, 0));
+        final Node d = new Node(new LatLon(1.5, 3));
+        final Way way = new Way();
+        way.setNodes(Arrays.asList(c, d));
+        way.put("highway", "residential");
+        ds.addPrimitive(a);
+        ds.addPrimitive(b);
+        ds.addPrimitiveRecursive(way);
+        final BBox areaA = new BBox(0.9, 0.9, 1.1, 1.1);
+        final BBox areaB = new BBox(1.9, 1.9, 2.1, 2.1);
+        final BBox areaWay = new BBox(1.4, 1.4, 1.6, 1.6);
+
+        final String digestA = RenderedTileCache.getDataDigest(ds, areaA);
+        final String digestB = RenderedTileCache.getDataDigest(ds, areaB);
+        final String digestWay = RenderedTileCache.getDataDigest(ds, areaWay);
+        assertNotEquals(digestA, digestB);
+        assertEquals(digestA, RenderedTileCache.getDataDigest(ds, areaA));
+
+        b.put("amenity", "bench");
+        assertEquals(digestA, RenderedTileCache.getDataDigest(ds, areaA));
+        assertNotEquals(digestB, RenderedTileCache.getDataDigest(ds, areaB));
+
+        // the geometry of a way which crosses the area changes outside of the area
+        d.setCoor(new LatLon(1.6, 3));
+        assertNotEquals(digestWay, RenderedTileCache.getDataDigest(ds, areaWay));
+        assertEquals(digestA, RenderedTileCache.getDataDigest(ds, areaA));
+
+        // selected primitives are painted differently
+        ds.setSelected(a);
+        assertNotEquals(digestA, RenderedTileCache.getDataDigest(ds, areaA));
+        ds.clearSelection();
+        assertEquals(digestA, RenderedTileCache.getDataDigest(ds, areaA));
+    }
+
+    /**
+     * Checks that the digest of the styles depends on the rules and on the rendering preferences.
+     */
+    @Test
+    void testStyleDigest() {
+        final ElemStyles styles = newStyles("way { width: 2; }");
+        final String digest = RenderedTileCache.getStyleDigest(styles);
+        assertEquals(digest, RenderedTileCache.getStyleDigest(newStyles("way { width: 2; }")));
+        assertNotEquals(digest, RenderedTileCache.getStyleDigest(newStyles("way { width: 3; }")));
+
+        Config.getPref().putBoolean("mappaint.use-antialiasing", false);
+        assertNotEquals(digest, RenderedTileCache.getStyleDigest(styles));
+        Config.getPref().put("mappaint.use-antialiasing", null);
+        assertEquals(digest, RenderedTileCache.getStyleDigest(styles));
+    }
+
+    private static ElemStyles newStyles(String css) {
+        final MapCSSStyleSource source = new MapCSSStyleSource(css);
+        source.loadStyleSource();
+        return new ElemStyles(Collections.singleton(source));
+    }
+}
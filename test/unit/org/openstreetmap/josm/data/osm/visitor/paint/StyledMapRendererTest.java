@@ -3,10 +3,32 @@ package org.openstreetmap.josm.data.osm.visitor.paint;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.openstreetmap.josm.testutils.ImageTestUtils.assertImageEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.visitor.paint.RenderBenchmarkCollector.CapturingBenchmark;
+import org.openstreetmap.josm.data.osm.visitor.paint.RenderBenchmarkCollector.TileTimes;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer.StyleRecord;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.ElemStyles;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Main;
+import org.openstreetmap.josm.testutils.annotations.Projection;
 
 import nl.jqno.equalsverifier.EqualsVerifier;
 import nl.jqno.equalsverifier.Warning;
@@ -90,4 +112,87 @@ class StyledMapRendererTest {
             .suppress(Warning.NONFINAL_FIELDS)
             .verify();
     }
+
+    /**
+     * Checks that painting the style records in parallel tiles gives the same image as painting them at once.
+     */
+    @Test
+    @BasicPreferences
+    @Main
+    @Projection
+    void testParallelTiles() {
+        final DataSet ds = new DataSet();
+        // lines, areas and labels which cross the borders of the tiles
+        for (int i = 0; i < 10; i++) {
+            final Node a = new Node(new LatLon(0.001 * i, 0));
+            final Node b = new Node(new LatLon(0.01 - 0.001 * i, 0.01));
+            final Node c = new Node(new LatLon(0.0005 * i, 0.001 * i));
+            final Node d = new Node(new LatLon(0.0005 * i + 0.0004, 0.001 * i + 0.0008));
+            final Node e = new Node(new LatLon(0.0005 * i, 0.001 * i + 0.0008));
+            c.put("name", "Node " + i);
+            final Way line = new Way();
+            line.setNodes(Arrays.asList(a, b));
+            line.put("name", "Line " + i);
+            final Way area = new Way();
+            area.setNodes(Arrays.asList(c, d, e, c));
+            area.put("building", "yes");
+            ds.addPrimitiveRecursive(line);
+            ds.addPrimitiveRecursive(area);
+        }
+        final MapCSSStyleSource source = new MapCSSStyleSource(String.join("\n",
+                "way { width: 3; color: red; text: name; font-size: 12; }",
+                "area[building] { fill-color: green; text: \"A long label of a building\"; }",
+                "node[name] { symbol-shape: circle; symbol-size: 10; symbol-fill-color: blue; text: name; }"));
+        source.loadStyleSource();
+        assertTrue(source.getErrors().isEmpty(), source.getErrors()::toString);
+        final ElemStyles styles = new ElemStyles(Collections.singleton(source));
+
+        final NavigatableComponent nc = new NavigatableComponent() {
+            @Override
+            public int getWidth() {
+                return 400;
+            }
+
+            @Override
+            public int getHeight() {
+                return 300;
+            }
+        };
+        nc.zoomTo(new Bounds(-0.001, -0.001, 0.011, 0.011));
+
+        final BufferedImage expected = render(ds, nc, styles, null);
+        final List<TileTimes> tiles = new ArrayList<>();
+        StyledMapRenderer.PREFERENCE_PARALLEL_TILES.put(true);
+        StyledMapRenderer.PREFERENCE_PARALLEL_TILES_SIZE.put(100);
+        try {
+            final BufferedImage actual = render(ds, nc, styles, tiles);
+            assertImageEquals("parallel tiles", expected, actual, 0, 0, null);
+        } finally {
+            StyledMapRenderer.PREFERENCE_PARALLEL_TILES.remove();
+            StyledMapRenderer.PREFERENCE_PARALLEL_TILES_SIZE.remove();
+        }
+        // the renderer falls back to painting at once if there is only one thread
+        if (!tiles.isEmpty()) {
+            assertEquals(12, tiles.size());
+            assertTrue(tiles.stream().allMatch(t -> t.getTile().width == 100 && t.getTile().height == 100));
+            assertTrue(tiles.stream().mapToInt(TileTimes::getRecordCount).sum() > 0);
+        }
+    }
+
+    private static BufferedImage render(DataSet ds, NavigatableComponent nc, ElemStyles styles, List<TileTimes> tiles) {
+        final BufferedImage image = new BufferedImage(nc.getWidth(), nc.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, nc.getWidth(), nc.getHeight());
+        final StyledMapRenderer renderer = new StyledMapRenderer(g, nc, false);
+        renderer.setStyles(styles);
+        final CapturingBenchmark benchmark = new CapturingBenchmark();
+        renderer.setBenchmarkFactory(() -> benchmark);
+        renderer.render(ds, false, nc.getRealBounds());
+        g.dispose();
+        if (tiles != null) {
+            tiles.addAll(benchmark.getTileTimes());
+        }
+        return image;
+    }
 }
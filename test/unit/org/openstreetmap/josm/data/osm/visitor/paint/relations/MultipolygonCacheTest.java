@@ -0,0 +1,84 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint.relations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache.PrecomputationStatus;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Unit tests of {@link MultipolygonCache}.
+ */
+@BasicPreferences
+@Projection
+class MultipolygonCacheTest {
+
+    private static Relation addMultipolygon(DataSet ds, double lat) {
+        Node a = new Node(new LatLon(lat, 0));
+        Node b = new Node(new LatLon(lat, 1));
+        Node c = new Node(new LatLon(lat + 1, 1));
+        Way way = new Way();
+        way.setNodes(Arrays.asList(a, b, c, a));
+        ds.addPrimitiveRecursive(way);
+        Relation r = new Relation();
+        r.put("type", "multipolygon");
+        r.put("landuse", "forest");
+        r.addMember(new RelationMember("outer", way));
+        ds.addPrimitive(r);
+        return r;
+    }
+
+    /**
+     * Checks that the multipolygons are computed in the background, and again after a change.
+     */
+    @Test
+    void testPrecompute() {
+        MultipolygonCache cache = MultipolygonCache.getInstance();
+        DataSet ds = new DataSet();
+        Relation r1 = addMultipolygon(ds, 0);
+        Relation r2 = addMultipolygon(ds, 2);
+        ds.addDataSetListener(cache);
+        try {
+            assertNull(cache.getPrecomputationStatus(ds));
+            cache.precompute(ds);
+            PrecomputationStatus status = cache.getPrecomputationStatus(ds);
+            Awaitility.await().atMost(10, TimeUnit.SECONDS).until(() -> cache.contains(r1) && cache.contains(r2));
+            Awaitility.await().atMost(10, TimeUnit.SECONDS).until(status::isDone);
+            assertEquals(2, status.getComputed());
+
+            // a change of a member removes the multipolygon from the cache, it is computed again
+            Way way = r1.getMember(0).getWay();
+            way.put("name", "forest");
+            Awaitility.await().atMost(10, TimeUnit.SECONDS).until(() -> cache.contains(r1) && status.isDone());
+            assertEquals(1, status.getComputed());
+            assertTrue(cache.contains(r2));
+
+            // an added multipolygon, e.g. after a merge
+            Relation r3 = addMultipolygon(ds, 4);
+            Awaitility.await().atMost(10, TimeUnit.SECONDS).until(() -> cache.contains(r3));
+
+            cache.stopPrecomputation(ds);
+            way.put("name", "wood");
+            assertFalse(cache.contains(r1));
+            assertNull(cache.getPrecomputationStatus(ds));
+        } finally {
+            ds.removeDataSetListener(cache);
+            cache.clear(ds);
+        }
+    }
+}
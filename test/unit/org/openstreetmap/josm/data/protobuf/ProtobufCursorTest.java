@@ -0,0 +1,133 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.protobuf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link ProtobufCursor}
+ */
+class ProtobufCursorTest {
+    /**
+     * field 1 = 150 (varint), field 2 = [1, -2, 150] (packed sint64), field 3 = "hi", field 4 = 1 (fixed32), field 5 = 1.5 (double)
+     */
+    private static final byte[] MESSAGE = ProtobufTest.toByteArray(new int[] {
+            0x08, 0x96, 0x01,
+            0x12, 0x04, 0x02, 0x03, 0xac, 0x02,
+            0x1a, 0x02, 'h', 'i',
+            0x25, 0x01, 0x00, 0x00, 0x00,
+            0x29, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0xf8, 0x3f
+    });
+
+    @Test
+    void testReadFields() {
+        final ProtobufCursor cursor = new ProtobufCursor(MESSAGE);
+        final ProtobufCursor packed = new ProtobufCursor();
+        assertTrue(cursor.nextField());
+        assertEquals(1, cursor.getField());
+        assertEquals(WireType.VARINT, cursor.getWireType());
+        assertEquals(150, cursor.readVarInt());
+
+        assertTrue(cursor.nextField());
+        assertEquals(2, cursor.getField());
+        assertEquals(WireType.LENGTH_DELIMITED, cursor.getWireType());
+        cursor.readMessage(packed);
+        assertEquals(3, packed.countVarInts());
+        assertEquals(1, packed.readSignedVarInt());
+        assertEquals(-2, packed.readSignedVarInt());
+        assertEquals(150, packed.readSignedVarInt());
+        assertFalse(packed.hasRemaining());
+
+        assertTrue(cursor.nextField());
+        assertEquals("hi", cursor.readString());
+        assertTrue(cursor.nextField());
+        assertEquals(WireType.THIRTY_TWO_BIT, cursor.getWireType());
+        assertEquals(1, cursor.readFixed32());
+        assertTrue(cursor.nextField());
+        assertEquals(WireType.SIXTY_FOUR_BIT, cursor.getWireType());
+        assertEquals(1.5, cursor.readDouble());
+        assertFalse(cursor.nextField());
+    }
+
+    @Test
+    void testSkipUnreadFields() {
+        final ProtobufCursor cursor = new ProtobufCursor(MESSAGE);
+        int fields = 0;
+        while (cursor.nextField()) {
+            fields++;
+            assertEquals(fields, cursor.getField());
+        }
+        assertEquals(5, fields);
+    }
+
+    @Test
+    void testDuplicate() {
+        final ProtobufCursor cursor = new ProtobufCursor(MESSAGE);
+        final ProtobufCursor copy = cursor.duplicate();
+        assertTrue(cursor.nextField());
+        assertEquals(150, cursor.readVarInt());
+        assertTrue(copy.nextField());
+        assertEquals(150, copy.readVarInt());
+    }
+
+    @Test
+    void testDirectBuffer() {
+        final ByteBuffer direct = ByteBuffer.allocateDirect(MESSAGE.length);
+        direct.put(MESSAGE).flip();
+        final ProtobufCursor cursor = new ProtobufCursor(direct);
+        while (cursor.nextField()) {
+            if (cursor.getField() == 3) {
+                assertEquals("hi", cursor.readString());
+            }
+        }
+        // The position of the buffer must not change
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    void testReadBytes() {
+        final ProtobufCursor cursor = new ProtobufCursor(MESSAGE);
+        while (cursor.nextField() && cursor.getField() != 3) {
+            // skip to field 3
+        }
+        final ByteBuffer bytes = cursor.readBytes();
+        assertEquals(2, bytes.remaining());
+        assertEquals('h', bytes.get(0));
+        assertTrue(cursor.nextField());
+        assertEquals(4, cursor.getField());
+    }
+
+    @Test
+    void testLargeVarInt() {
+        final ProtobufCursor cursor = new ProtobufCursor(ProtobufTest.toByteArray(new int[] {
+                0xFE, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x7F}));
+        assertEquals(9223372036854775806L, cursor.readVarInt());
+    }
+
+    @Test
+    void testTruncated() {
+        final ProtobufCursor cursor = new ProtobufCursor(Arrays.copyOf(MESSAGE, 2));
+        assertTrue(cursor.nextField());
+        assertThrows(IllegalArgumentException.class, cursor::readVarInt);
+    }
+
+    @Test
+    void testTruncatedFixed() {
+        // a nested message of 3 bytes, with a 32 bit field truncated to 2 bytes, followed by bytes of the enclosing message
+        final ProtobufCursor cursor = new ProtobufCursor(new byte[] {0x0A, 0x03, 0x0D, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06});
+        assertTrue(cursor.nextField());
+        final ProtobufCursor nested = cursor.readMessage();
+        assertTrue(nested.nextField());
+        assertEquals(WireType.THIRTY_TWO_BIT, nested.getWireType());
+        assertThrows(IllegalArgumentException.class, nested::readFixed32);
+        assertThrows(IllegalArgumentException.class, nested::readFixed64);
+        assertEquals(2, nested.remaining());
+    }
+}
@@ -0,0 +1,58 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.protobuf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link ProtobufWriter}
+ */
+class ProtobufWriterTest {
+    @Test
+    void testWriteFields() {
+        final ProtobufWriter writer = new ProtobufWriter();
+        writer.writeVarInt(1, 150);
+        writer.writePackedVarInts(2, new long[] {1, -2, 150, 0}, 3, true);
+        writer.writeString(3, "hi");
+        assertArrayEquals(ProtobufTest.toByteArray(new int[] {
+                0x08, 0x96, 0x01,
+                0x12, 0x04, 0x02, 0x03, 0xac, 0x02,
+                0x1a, 0x02, 'h', 'i'
+        }), writer.toByteArray());
+    }
+
+    @Test
+    void testRoundTrip() {
+        final ProtobufWriter nested = new ProtobufWriter();
+        nested.writeSignedVarInt(1, Long.MIN_VALUE);
+        final ProtobufWriter writer = new ProtobufWriter(1);
+        writer.writeVarInt(1, -1);
+        writer.writeVarInt(2, Long.MAX_VALUE);
+        writer.writeMessage(3, nested);
+        writer.writePackedVarInts(4, new long[0], 0, false);
+
+        final ProtobufCursor cursor = new ProtobufCursor(writer.toByteArray());
+        assertTrue(cursor.nextField());
+        assertEquals(-1, cursor.readVarInt());
+        assertTrue(cursor.nextField());
+        assertEquals(Long.MAX_VALUE, cursor.readVarInt());
+        assertTrue(cursor.nextField());
+        final ProtobufCursor message = cursor.readMessage();
+        assertTrue(message.nextField());
+        assertEquals(Long.MIN_VALUE, message.readSignedVarInt());
+        // empty packed fields are not written at all
+        assertFalse(cursor.nextField());
+    }
+
+    @Test
+    void testVarIntSize() {
+        assertEquals(1, ProtobufWriter.varIntSize(0));
+        assertEquals(1, ProtobufWriter.varIntSize(127));
+        assertEquals(2, ProtobufWriter.varIntSize(128));
+        assertEquals(10, ProtobufWriter.varIntSize(-1));
+    }
+}
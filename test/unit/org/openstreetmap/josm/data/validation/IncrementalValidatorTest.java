@@ -0,0 +1,120 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+import org.openstreetmap.josm.data.validation.tests.DuplicatedWayNodes;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests of {@link IncrementalValidator} class.
+ */
+@BasicPreferences
+class IncrementalValidatorTest {
+    private DataSet ds;
+    private Node a;
+    private Node b;
+    private Node c;
+    private Way way;
+
+    @BeforeEach
+    void setUp() {
+        ds = new DataSet();
+        a = new Node(new LatLon(1, 1));
+        b = new Node(new LatLon(1, 1.0001));
+        c = new Node(new LatLon(1, 1.0002));
+        ds.addPrimitiveRecursive(a);
+        ds.addPrimitiveRecursive(b);
+        ds.addPrimitiveRecursive(c);
+        way = new Way();
+        way.setNodes(Arrays.asList(a, b, c));
+        way.put("highway", "residential");
+        ds.addPrimitive(way);
+    }
+
+    private static List<TestError> sync(IncrementalValidator validator) throws Exception {
+        MainApplication.worker.submit(() -> { /* Sync worker thread */ }).get();
+        return validator.getErrors();
+    }
+
+    /**
+     * Checks that the errors follow the changes of way nodes, added and removed primitives.
+     * @throws Exception if the worker thread fails
+     */
+    @Test
+    void testWayNodesChanged() throws Exception {
+        final IncrementalValidator validator = new IncrementalValidator(Collections.singleton(new DuplicatedWayNodes()), null);
+        ds.addDataSetListener(validator);
+
+        way.setNodes(Arrays.asList(a, b, b, c));
+        List<TestError> errors = sync(validator);
+        assertEquals(1, errors.size());
+        assertEquals(Collections.singletonList(way), errors.get(0).getPrimitives());
+
+        way.setNodes(Arrays.asList(a, b, c));
+        assertTrue(sync(validator).isEmpty());
+
+        final Way other = new Way();
+        other.setNodes(Arrays.asList(c, c));
+        ds.addPrimitive(other);
+        errors = sync(validator);
+        assertEquals(1, errors.size());
+        assertEquals(Collections.singletonList(other), errors.get(0).getPrimitives());
+
+        ds.removePrimitive(other);
+        assertTrue(sync(validator).isEmpty());
+        ds.removeDataSetListener(validator);
+    }
+
+    /**
+     * Checks that the errors of unchanged primitives are kept, and that unaffected tests do not run again.
+     * @throws Exception if the worker thread fails
+     */
+    @Test
+    void testUnaffected() throws Exception {
+        final DuplicatedWayNodes test = new DuplicatedWayNodes() {
+            @Override
+            public boolean isAffectedBy(DatasetEventType type) {
+                return type != DatasetEventType.TAGS_CHANGED;
+            }
+        };
+        final Way other = new Way();
+        other.setNodes(Arrays.asList(c, c));
+        ds.addPrimitive(other);
+        test.startTest(null);
+        test.visit(Arrays.<OsmPrimitive>asList(way, other));
+        test.endTest();
+        final IncrementalValidator validator = new IncrementalValidator(Collections.singleton(test), null);
+        validator.setErrors(test.getErrors());
+        test.clear();
+        assertEquals(1, validator.getErrors().size());
+
+        // fix the way before listening, so that only a new run of the test can remove the error
+        other.setNodes(Arrays.asList(b, c));
+        ds.addDataSetListener(validator);
+
+        other.put("highway", "service");
+        assertEquals(1, sync(validator).size());
+
+        way.setNodes(Arrays.asList(a, c));
+        assertEquals(1, sync(validator).size());
+
+        other.setNodes(Arrays.asList(a, b, c));
+        assertTrue(sync(validator).isEmpty());
+        ds.removeDataSetListener(validator);
+    }
+}
@@ -7,8 +7,11 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
@@ -24,6 +27,7 @@ import org.openstreetmap.josm.data.validation.TestError;
 import org.openstreetmap.josm.data.validation.tests.CrossingWays.Boundaries;
 import org.openstreetmap.josm.data.validation.tests.CrossingWays.SelfCrossing;
 import org.openstreetmap.josm.data.validation.tests.CrossingWays.Ways;
+import org.openstreetmap.josm.data.validation.util.SegmentIndex;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.io.OsmReader;
@@ -224,6 +228,34 @@ class CrossingWaysTest {
         assertEquals(2, crossingBoundaries.getErrors().size());
     }
 
+    /**
+     * Checks that the crossings found with a shared {@link SegmentIndex} are the same as without it.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testCoverageWithSegmentIndex() throws Exception {
+        DataSet ds = OsmReader.parseDataSet(
+                Files.newInputStream(Paths.get(TestUtils.getTestDataRoot(), "crossingWays.osm")), null);
+        SegmentIndex index = SegmentIndex.build(ds.allPrimitives());
+        for (CrossingWays test : Arrays.asList(new CrossingWays.Ways(), new CrossingWays.SelfCrossing(), new CrossingWays.Boundaries())) {
+            test.startTest(null);
+            test.visit(ds.allPrimitives());
+            test.endTest();
+            Set<Set<OsmPrimitive>> expected = test.getErrors().stream()
+                    .map(e -> new HashSet<OsmPrimitive>(e.getPrimitives())).collect(Collectors.toSet());
+            test.clear();
+
+            test.setSegmentIndex(index);
+            test.startTest(null);
+            test.visit(ds.allPrimitives());
+            test.endTest();
+            assertEquals(expected.size(), test.getErrors().size(), test.getName());
+            assertEquals(expected, test.getErrors().stream()
+                    .map(e -> new HashSet<OsmPrimitive>(e.getPrimitives())).collect(Collectors.toSet()), test.getName());
+            test.setSegmentIndex(null);
+        }
+    }
+
     /**
      * Check if partial selection find crossings with unselected objects.
      * @throws Exception if an error occurs
@@ -4,12 +4,20 @@ package org.openstreetmap.josm.data.validation.tests;
 import static org.CustomMatchers.hasSize;
 import static org.CustomMatchers.isEmpty;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.validation.TestError;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.io.OsmReader;
 import org.openstreetmap.josm.testutils.annotations.Projection;
@@ -53,4 +61,45 @@ class UntaggedNodeTest {
             assertThat(test.getErrors(), hasSize(1));
         }
     }
+
+    /**
+     * Checks that visiting the primitives in parallel finds the same errors in the same order.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testParallel() throws Exception {
+        final String[] keys = {"fixme", "note", "created_by", "watch", "source", "other"};
+        final DataSet ds = new DataSet();
+        final List<OsmPrimitive> nodes = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            final Node node = new Node(new LatLon(i / 1000d, i % 1000 / 1000d));
+            if (i % 7 != 0) {
+                node.put(keys[i % keys.length], Integer.toString(i));
+            }
+            ds.addPrimitive(node);
+            nodes.add(node);
+        }
+
+        test.initialize();
+        test.startTest(null);
+        test.visit(nodes);
+        test.endTest();
+        final List<TestError> expected = new ArrayList<>(test.getErrors());
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            test.setForkJoinPool(pool);
+            test.startTest(null);
+            test.visit(nodes);
+            test.endTest();
+        } finally {
+            test.setForkJoinPool(null);
+            pool.shutdown();
+        }
+        assertEquals(expected.size(), test.getErrors().size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getCode(), test.getErrors().get(i).getCode());
+            assertEquals(expected.get(i).getPrimitives(), test.getErrors().get(i).getPrimitives());
+        }
+    }
 }
@@ -0,0 +1,112 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Unit tests of {@link SegmentIndex} class.
+ */
+@Projection
+class SegmentIndexTest {
+    private DataSet ds;
+    private Way horizontal;
+    private Way vertical;
+    private Way far;
+
+    private Way newWay(LatLon... coordinates) {
+        final Way way = new Way();
+        for (LatLon ll : coordinates) {
+            final Node node = new Node(ll);
+            ds.addPrimitive(node);
+            way.addNode(node);
+        }
+        ds.addPrimitive(way);
+        return way;
+    }
+
+    @BeforeEach
+    void setUp() {
+        ds = new DataSet();
+        horizontal = newWay(new LatLon(1, 1), new LatLon(1, 1.001), new LatLon(1, 1.002));
+        vertical = newWay(new LatLon(0.9995, 1.0015), new LatLon(1.0005, 1.0015));
+        far = newWay(new LatLon(2, 2), new LatLon(2, 2.001));
+    }
+
+    /**
+     * Test of the numbering of the segments.
+     */
+    @Test
+    void testSegments() {
+        final SegmentIndex index = SegmentIndex.build(Arrays.asList(horizontal, vertical, far), 0.01);
+        assertEquals(4, index.getSegmentCount());
+        // the segments are numbered in the order of the ways
+        assertSame(horizontal, index.getWay(0));
+        assertSame(horizontal, index.getWay(1));
+        assertSame(vertical, index.getWay(2));
+        assertSame(far, index.getWay(3));
+        assertSame(ds, index.getDataSet());
+        assertTrue(index.contains(horizontal));
+        assertTrue(index.contains(vertical));
+        assertFalse(index.contains(new Way()));
+        for (int s = 0; s < index.getSegmentCount(); s++) {
+            final Way way = index.getWay(s);
+            assertSame(way.getNode(index.getLowerIndex(s)), index.getFirstNode(s));
+            assertSame(way.getNode(index.getLowerIndex(s) + 1), index.getSecondNode(s));
+            assertEquals(index.getLowerIndex(s), index.getWaySegment(s).getLowerIndex());
+        }
+    }
+
+    /**
+     * Test of {@link SegmentIndex#forEachCrossingCandidate} and {@link SegmentIndex#intersects}.
+     */
+    @Test
+    void testCrossingCandidates() {
+        final SegmentIndex index = SegmentIndex.build(Arrays.asList(horizontal, vertical, far), 0.01);
+        // a candidate is visited once per shared cell
+        final Set<List<Integer>> crossings = new HashSet<>();
+        for (Way way : Arrays.asList(horizontal, vertical, far)) {
+            index.forEachCrossingCandidate(way, (s1, s2) -> {
+                assertTrue(s2 < s1);
+                assertFalse(index.getWay(s1) == far || index.getWay(s2) == far);
+                if (index.intersects(s1, s2)) {
+                    crossings.add(Arrays.asList(s1, s2));
+                }
+            });
+        }
+        assertEquals(1, crossings.size());
+        assertEquals(Collections.singleton(Arrays.asList(2, 1)), crossings);
+        // adjacent segments of a way have a common node
+        assertFalse(index.intersects(1, 0));
+    }
+
+    /**
+     * Test of {@link SegmentIndex#anySegmentNear}.
+     */
+    @Test
+    void testAnySegmentNear() {
+        final SegmentIndex index = SegmentIndex.build(Arrays.asList(horizontal, vertical, far), 0.01);
+        final Node a = vertical.firstNode();
+        final Node b = vertical.lastNode();
+        assertTrue(index.anySegmentNear(a.getEastNorth(), b.getEastNorth(), s -> index.getWay(s) == horizontal));
+        assertFalse(index.anySegmentNear(a.getEastNorth(), b.getEastNorth(), s -> index.getWay(s) == far));
+        assertTrue(index.anySegmentNear(far.firstNode().getEastNorth(), far.lastNode().getEastNorth(),
+                s -> index.getWay(s) == far));
+    }
+}
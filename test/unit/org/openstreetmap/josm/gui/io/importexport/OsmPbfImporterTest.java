@@ -13,12 +13,14 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.ILatLon;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.AbstractPrimitive;
@@ -31,6 +33,7 @@ import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.protobuf.ProtobufTest;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmPbfReader;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 
 /**
@@ -134,6 +137,49 @@ class OsmPbfImporterTest {
         }
     }
 
+    /**
+     * Ensure that decoding the data blobs on several threads gives the same result as decoding them sequentially
+     * @throws IOException if the test file could not be read
+     * @throws IllegalDataException if the test file could not be parsed
+     */
+    @Test
+    void testParallelDecoding() throws IOException, IllegalDataException {
+        final byte[] data = Files.readAllBytes(Paths.get(TestUtils.getTestDataRoot(), "pbf", "osm", "simple.osm.pbf"));
+        final DataSet sequential = OsmPbfReader.parseDataSet(new ByteArrayInputStream(data), NullProgressMonitor.INSTANCE, 1);
+        final DataSet parallel = OsmPbfReader.parseDataSet(new ByteArrayInputStream(data), NullProgressMonitor.INSTANCE, 4);
+        assertEquals(sequential.allPrimitives().size(), parallel.allPrimitives().size());
+        for (OsmPrimitive primitive : sequential.allPrimitives()) {
+            final OsmPrimitive other = parallel.getPrimitiveById(primitive);
+            assertNotNull(other);
+            assertEquals(primitive.getKeys(), other.getKeys());
+            assertEquals(primitive.getVersion(), other.getVersion());
+        }
+        assertSame(sequential.getUploadPolicy(), parallel.getUploadPolicy());
+    }
+
+    /**
+     * Ensure that reading an area of a file keeps the nodes in the area, and completes the ways and relations using them
+     * @throws IOException if the test file could not be read
+     * @throws IllegalDataException if the test file could not be parsed
+     */
+    @Test
+    void testAreaParsing() throws IOException, IllegalDataException {
+        final Path file = Paths.get(TestUtils.getTestDataRoot(), "pbf", "osm", "simple.osm.pbf");
+        final Bounds corner = new Bounds(new LatLon(39.1998868, -108.6907137), 0.00001, 0.00001);
+        // Read twice, the second read uses the cached blob index
+        for (int i = 0; i < 2; i++) {
+            final DataSet ds = OsmPbfReader.parseDataSet(file, corner, NullProgressMonitor.INSTANCE, 2);
+            assertAll(() -> assertEquals(4, ds.getNodes().size()),
+                    () -> assertEquals(1, ds.getWays().size()),
+                    () -> assertEquals(1, ds.getRelations().size()),
+                    () -> assertTrue(ds.getWays().iterator().next().isClosed()),
+                    () -> assertTrue(ds.allPrimitives().stream().noneMatch(OsmPrimitive::isIncomplete)),
+                    () -> assertEquals(1, ds.getDataSources().size()));
+        }
+        final DataSet empty = OsmPbfReader.parseDataSet(file, new Bounds(0, 0, 1, 1), NullProgressMonitor.INSTANCE, 1);
+        assertTrue(empty.allPrimitives().isEmpty());
+    }
+
     @Test
     void testIdParsing() throws IOException, IllegalDataException {
         final DataSet dataSet;
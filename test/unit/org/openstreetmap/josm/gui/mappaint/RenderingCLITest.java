@@ -0,0 +1,58 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.mappaint.RenderingCLI.RenderingArea;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+import org.openstreetmap.josm.tools.OptionParser.OptionParseException;
+
+/**
+ * Tests the job file of {@link RenderingCLI}.
+ */
+@Projection
+class RenderingCLITest {
+
+    private static RenderingCLI parseCommandLine(String... args) {
+        RenderingCLI cli = new RenderingCLI();
+        cli.parseArguments(args);
+        return cli;
+    }
+
+    /**
+     * Checks that the options of a job are parsed, and that the job inherits the styles of the command line.
+     */
+    @Test
+    void testParseJob() {
+        RenderingCLI cli = parseCommandLine("-i", "data.osm", "-s", "style.mapcss", "--setting", "hide_icons:true", "--jobs", "-");
+        RenderingCLI job = cli.parseJob("  --zoom 19 --bounds 21.152114868164077,51.40091918770498,21.15280151367189,51.4013475612123"
+                + " -o \"an image.png\"");
+        RenderingArea area = job.determineRenderingArea(new DataSet());
+        assertEquals(new Bounds(51.40091918770498, 21.152114868164077, 51.4013475612123, 21.15280151367189, false), area.bounds);
+        assertEquals(0.29858214173896974, area.scale);
+        assertEquals("style.mapcss{hide_icons=true}", job.getStylesKey());
+
+        // the settings of a job apply to the last style of the command line
+        assertEquals("style.mapcss{hide_icons=false}", cli.parseJob("-z 16 -o a.png --setting hide_icons:false").getStylesKey());
+        assertEquals("other.mapcss{}", cli.parseJob("-z 16 -o a.png -s other.mapcss").getStylesKey());
+        assertNotEquals(job.getStylesKey(), cli.parseJob("-z 16 -o a.png --setting other:1").getStylesKey());
+    }
+
+    /**
+     * Checks that invalid jobs are rejected.
+     */
+    @Test
+    void testParseInvalidJob() {
+        RenderingCLI cli = parseCommandLine("-i", "data.osm", "--jobs", "jobs.txt");
+        assertThrows(OptionParseException.class, () -> cli.parseJob("-z 16"));
+        assertThrows(OptionParseException.class, () -> cli.parseJob("-z 16 -o a.png -i other.osm"));
+        assertThrows(OptionParseException.class, () -> cli.parseJob("-z 16 -o a.png --projection epsg:4326"));
+        assertThrows(OptionParseException.class, () -> cli.parseJob("-z 16 -o a.png b.png"));
+        assertThrows(OptionParseException.class, () -> cli.parseJob("-z -1 -o a.png"));
+    }
+}
@@ -0,0 +1,180 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.Cascade;
+import org.openstreetmap.josm.gui.mappaint.MultiCascade;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Unit tests of {@link CascadeCache}.
+ */
+@BasicPreferences
+@Projection
+class CascadeCacheTest {
+
+    private static final String CSS = String.join("\n",
+            "way[highway] { width: 2; color: red; set road; }",
+            "way[highway=service] { width: 1; }",
+            "way.road[name] { text: name; }",
+            "way|z17-[highway] { width: 3; }",
+            "way|z15- { z-index: 1; }",
+            "way[building]:closed { fill-color: blue; }",
+            "way[width>1.5] { dashes: 2,2; }",
+            "relation[type=route] > way[highway] { casing-width: 1; }",
+            "way[highway]::label { text: eval(concat(tag(highway), \"/\", prop(width, default))); }",
+            "node[amenity] { icon-image: \"presets/misc/deprecated.svg\"; }",
+            "node[amenity=bench] { text: eval(osm_id()); }");
+
+    private final List<OsmPrimitive> primitives = new ArrayList<>();
+
+    /**
+     * Setup test.
+     */
+    @BeforeEach
+    void setUp() {
+        final DataSet ds = new DataSet();
+        final String[][] tags = {
+            {"highway", "service"},
+            {"highway", "service"},
+            {"highway", "residential", "name", "Main street"},
+            {"highway", "residential", "name", "Main street", "width", "2"},
+            {"building", "yes"},
+            {"building", "yes"},
+            {},
+        };
+        for (String[] t : tags) {
+            for (boolean closed : new boolean[] {false, true}) {
+                final Node a = new Node(LatLon.ZERO);
+                final Node b = new Node(new LatLon(0, 1));
+                final Node c = new Node(new LatLon(1, 1));
+                ds.addPrimitive(a);
+                ds.addPrimitive(b);
+                ds.addPrimitive(c);
+                final Way way = new Way();
+                way.setNodes(closed ? Arrays.asList(a, b, c, a) : Arrays.asList(a, b, c));
+                for (int i = 0; i < t.length; i += 2) {
+                    way.put(t[i], t[i + 1]);
+                }
+                ds.addPrimitive(way);
+                primitives.add(way);
+            }
+        }
+        for (String amenity : new String[] {"bench", "bench", "cafe", "cafe"}) {
+            final Node node = new Node(LatLon.ZERO);
+            node.put("amenity", amenity);
+            ds.addPrimitive(node);
+            primitives.add(node);
+        }
+        final Relation route = new Relation();
+        route.put("type", "route");
+        route.addMember(new RelationMember("", (Way) primitives.get(0)));
+        ds.addPrimitive(route);
+    }
+
+    private static MapCSSStyleSource load(boolean cache) {
+        CascadeCache.PREF_CASCADE_CACHE.put(cache);
+        final MapCSSStyleSource source = new MapCSSStyleSource(CSS);
+        source.loadStyleSource();
+        assertTrue(source.getErrors().isEmpty(), source.getErrors()::toString);
+        return source;
+    }
+
+    private static String apply(MapCSSStyleSource source, OsmPrimitive osm, double scale) {
+        final MultiCascade mc = new MultiCascade();
+        source.apply(mc, osm, scale, false);
+        final Map<String, String> layers = new TreeMap<>();
+        for (Map.Entry<String, Cascade> layer : mc.getLayers()) {
+            layers.put(layer.getKey(), layer.getValue().toString());
+        }
+        return layers + " " + mc.range;
+    }
+
+    /**
+     * Checks which rules are context-free.
+     */
+    @Test
+    void testContextFree() {
+        final MapCSSStyleSource source = load(true);
+        final boolean[] expected = {true, true, true, true, true, true, true, false, true, true, false};
+        assertEquals(expected.length, source.rules.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], source.rules.get(i).isContextFree(), source.rules.get(i)::toString);
+        }
+    }
+
+    /**
+     * Checks that the cached cascades are the same as the computed cascades, at several scales.
+     */
+    @Test
+    void testSameResults() {
+        final MapCSSStyleSource uncached = load(false);
+        assertNull(uncached.getCascadeCache());
+        final MapCSSStyleSource cached = load(true);
+        final CascadeCache cache = cached.getCascadeCache();
+        assertNotNull(cache);
+        for (int run = 0; run < 2; run++) {
+            for (double scale : new double[] {0.5, 2, 10, 0.5}) {
+                for (OsmPrimitive p : primitives) {
+                    assertEquals(apply(uncached, p, scale), apply(cached, p, scale), () -> p + " at scale " + scale);
+                }
+            }
+        }
+        assertTrue(cache.getHits() > 0);
+        assertTrue(cache.getMisses() > 0);
+        assertTrue(cache.size() > 0);
+    }
+
+    /**
+     * Checks that the cache is only used for empty cascades, and that it is cleared when the style is reloaded.
+     */
+    @Test
+    void testInvalidation() {
+        final MapCSSStyleSource source = load(true);
+        apply(source, primitives.get(8), 1);
+        apply(source, primitives.get(10), 1);
+        final CascadeCache cache = source.getCascadeCache();
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // a cascade which already contains the results of another style is not looked up
+        final MultiCascade mc = new MultiCascade();
+        mc.getOrCreateCascade("default").put("width", 5f);
+        source.apply(mc, primitives.get(10), 1, false);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // the rule with a child selector may apply to all highways
+        apply(source, primitives.get(0), 1);
+        apply(source, primitives.get(2), 1);
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+
+        source.clearCascadeCache();
+        assertEquals(0, cache.size());
+        source.loadStyleSource();
+        assertFalse(cache == source.getCascadeCache());
+        assertEquals(0, source.getCascadeCache().size());
+    }
+}
@@ -0,0 +1,129 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.Environment;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.Projection;
+
+/**
+ * Unit tests of {@link MapCSSRuleCompiler}.
+ */
+@BasicPreferences
+@Projection
+class MapCSSRuleCompilerTest {
+
+    private static final String[] SELECTORS = {
+        "*", "node", "way", "area", "relation", "canvas",
+        "*[highway]", "*[!highway]", "*[highway=residential]", "*[highway!=residential]",
+        "*[oneway?]", "*[oneway?!]", "*[!oneway?]", "*[!oneway?!]",
+        "*[width>2]", "*[width>=2]", "*[width<2]", "*[width<=2]", "*[width>two]",
+        "*[name^=Ma]", "*[name$=str]", "*[name*=ain]", "*[sport~=tennis]", "*[sport~=\"\"]",
+        "*[name=~/M.*/]", "*[name!~/M.*/]", "*[highway][!name]", "way[highway][width>1.5][name*=ain]",
+        "way:closed", "way[highway]:closed", "node:unconnected", "area[building]", "relation[type=multipolygon]",
+        "relation > way[highway]", "way > node", "*[tag(\"highway\")=\"residential\"]",
+    };
+
+    private static final String[][] TAGS = {
+        {},
+        {"highway", "residential", "name", "Main street", "width", "2", "oneway", "yes"},
+        {"highway", "primary", "name", "Mainstr", "width", "1.5", "oneway", "no"},
+        {"highway", "", "name", "", "width", "", "oneway", "-1", "sport", ""},
+        {"width", "two", "sport", "soccer;tennis"},
+        {"sport", "tennis", "building", "yes"},
+        {"sport", ";", "width", "NaN"},
+        {"sport", " tennis ; golf ", "width", "3e0"},
+    };
+
+    private final List<OsmPrimitive> primitives = new ArrayList<>();
+
+    /**
+     * Setup test.
+     */
+    @BeforeEach
+    void setUp() {
+        final DataSet ds = new DataSet();
+        for (String[] tags : TAGS) {
+            final Node a = new Node(LatLon.ZERO);
+            final Node b = new Node(new LatLon(0, 1));
+            final Node c = new Node(new LatLon(1, 1));
+            ds.addPrimitive(a);
+            ds.addPrimitive(b);
+            ds.addPrimitive(c);
+            final Way open = new Way();
+            open.setNodes(Arrays.asList(a, b, c));
+            ds.addPrimitive(open);
+            final Way closed = new Way();
+            closed.setNodes(Arrays.asList(a, b, c, a));
+            ds.addPrimitive(closed);
+            final Relation relation = new Relation();
+            relation.addMember(new RelationMember("outer", closed));
+            ds.addPrimitive(relation);
+            final Relation multipolygon = new Relation();
+            multipolygon.addMember(new RelationMember("outer", closed));
+            multipolygon.put("type", "multipolygon");
+            ds.addPrimitive(multipolygon);
+            for (OsmPrimitive p : Arrays.asList(a, open, closed, relation, multipolygon)) {
+                for (int i = 0; i < tags.length; i += 2) {
+                    p.put(tags[i], tags[i + 1]);
+                }
+                primitives.add(p);
+            }
+        }
+    }
+
+    /**
+     * Checks that the compiled rules match the same primitives as the interpreted rules.
+     */
+    @Test
+    void testSameResults() {
+        final StringBuilder css = new StringBuilder();
+        for (String selector : SELECTORS) {
+            css.append(selector).append(" {}\n");
+        }
+        final MapCSSStyleSource source = new MapCSSStyleSource(css.toString());
+        source.loadStyleSource();
+        assertTrue(source.getErrors().isEmpty(), source.getErrors()::toString);
+        assertEquals(SELECTORS.length, source.rules.size());
+        for (MapCSSRule rule : source.rules) {
+            assertTrue(rule.isCompiled());
+            final MapCSSRule interpreted = new MapCSSRule(rule.selectors, rule.declaration);
+            assertFalse(interpreted.isCompiled());
+            for (OsmPrimitive p : primitives) {
+                assertEquals(interpreted.matches(new Environment(p)), rule.matches(new Environment(p)),
+                        () -> rule + " applied to " + p.getKeys());
+            }
+        }
+    }
+
+    /**
+     * Checks that the rules are interpreted when the compiler is disabled.
+     */
+    @Test
+    void testDisabled() {
+        MapCSSRuleCompiler.PREF_COMPILE_RULES.put(false);
+        try {
+            final MapCSSStyleSource source = new MapCSSStyleSource("way[highway] {}");
+            source.loadStyleSource();
+            assertFalse(source.rules.get(0).isCompiled());
+        } finally {
+            MapCSSRuleCompiler.PREF_COMPILE_RULES.put(true);
+        }
+    }
+}
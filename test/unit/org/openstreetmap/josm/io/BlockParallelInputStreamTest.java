@@ -0,0 +1,172 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * Unit tests of {@link BlockParallelInputStream} class and its subclasses.
+ */
+@BasicPreferences
+class BlockParallelInputStreamTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Creates some compressible data, similar to OSM XML data.
+     * @param size the size of the data
+     * @return the data
+     */
+    private static byte[] createData(int size) {
+        final Random random = new Random(42);
+        final StringBuilder sb = new StringBuilder(size + 100);
+        while (sb.length() < size) {
+            sb.append("<node id='").append(random.nextInt(1_000_000))
+              .append("' lat='").append(random.nextDouble()).append("' lon='").append(random.nextDouble()).append("'/>\n");
+        }
+        return Arrays.copyOf(sb.toString().getBytes(StandardCharsets.UTF_8), size);
+    }
+
+    private Path writeBZip2(String name, int blockSize, byte[]... streams) throws IOException {
+        final Path path = tempDir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(path)) {
+            for (byte[] data : streams) {
+                final BZip2CompressorOutputStream bzip2 = new BZip2CompressorOutputStream(out, blockSize);
+                bzip2.write(data);
+                bzip2.finish();
+            }
+        }
+        return path;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream is = in) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(is.read());
+            final byte[] buffer = new byte[10_000];
+            int read;
+            while ((read = is.read(buffer, 0, buffer.length)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Checks the decompression of a bzip2 file with several blocks, compressed with several block sizes.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    void testBZip2() throws IOException {
+        final byte[] data = createData(1_000_000);
+        for (int blockSize : new int[] {1, 2, 9}) {
+            final Path path = writeBZip2("data" + blockSize + ".osm.bz2", blockSize, data);
+            assertArrayEquals(data, readAll(new ParallelBZip2InputStream(path, 4)), "block size " + blockSize);
+        }
+    }
+
+    /**
+     * Checks the decompression of a bzip2 file with several streams, as compressed by {@code pbzip2}, or with tiny streams.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    void testBZip2MultipleStreams() throws IOException {
+        final byte[] first = createData(300_000);
+        final byte[] second = "<osm/>".getBytes(StandardCharsets.UTF_8);
+        final byte[] third = createData(500_000);
+        final Path path = writeBZip2("multi.osm.bz2", 1, first, second, new byte[0], third);
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(first);
+        expected.write(second);
+        expected.write(third);
+        assertArrayEquals(expected.toByteArray(), readAll(new ParallelBZip2InputStream(path, 3)));
+    }
+
+    /**
+     * Checks that a corrupted bzip2 file is decoded sequentially, after the data of its valid blocks.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    void testBZip2Truncated() throws IOException {
+        final byte[] data = createData(1_000_000);
+        final Path path = writeBZip2("truncated.osm.bz2", 1, data);
+        final byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length * 2 / 3));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(IOException.class, () -> {
+            try (InputStream in = new ParallelBZip2InputStream(path, 2)) {
+                int read;
+                while ((read = in.read()) != -1) {
+                    out.write(read);
+                }
+            }
+        });
+        final byte[] decoded = out.toByteArray();
+        assertArrayEquals(Arrays.copyOf(data, decoded.length), decoded);
+    }
+
+    /**
+     * Checks the decompression of xz files, with several blocks or with a single one.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    void testXZ() throws IOException {
+        final byte[] data = createData(1_000_000);
+        for (int blocks : new int[] {1, 7}) {
+            final Path path = tempDir.resolve("data" + blocks + ".osm.xz");
+            try (XZOutputStream out = new XZOutputStream(Files.newOutputStream(path), new LZMA2Options())) {
+                final int blockSize = data.length / blocks + 1;
+                for (int i = 0; i < data.length; i += blockSize) {
+                    out.write(data, i, Math.min(blockSize, data.length - i));
+                    out.endBlock();
+                }
+            }
+            assertArrayEquals(data, readAll(new ParallelXZInputStream(path, 4)), blocks + " blocks");
+        }
+    }
+
+    /**
+     * Checks that the parallel decompression is chosen for large local files only.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    void testGetUncompressedFileInputStream() throws IOException {
+        final byte[] data = createData(200_000);
+        final Path path = writeBZip2("data.osm.bz2", 1, data);
+        Config.getPref().putInt("compression.parallel.threads", 2);
+        // smaller than the default threshold
+        try (InputStream in = Compression.getUncompressedFileInputStream(path)) {
+            assertFalse(in instanceof BlockParallelInputStream);
+        }
+        Config.getPref().putInt("compression.parallel.threshold", 0);
+        try (InputStream in = Compression.getUncompressedFileInputStream(path)) {
+            assertInstanceOf(ParallelBZip2InputStream.class, in);
+            assertArrayEquals(data, readAll(in));
+        }
+        Config.getPref().putInt("compression.parallel.threshold", -1);
+        try (InputStream in = Compression.getUncompressedFileInputStream(path)) {
+            assertFalse(in instanceof BlockParallelInputStream);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.HTTP;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.extension.ResponseTransformerV2;
+import com.github.tomakehurst.wiremock.http.QueryParameter;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+
+/**
+ * Unit tests of {@link MultiFetchServerObjectReader} class.
+ */
+@BasicPreferences
+@HTTP
+class MultiFetchServerObjectReaderTest {
+
+    /**
+     * A stub of the multi-fetch API for nodes, which replies with the requested nodes, and may fail.
+     */
+    static final class MultiFetchStub implements ResponseTransformerV2 {
+        /** The number of times each node has been delivered */
+        final Map<Long, Integer> delivered = new ConcurrentHashMap<>();
+        /** The number of requests */
+        final AtomicInteger requests = new AtomicInteger();
+        /** The number of the next requests which fail with a server error */
+        final AtomicInteger errors = new AtomicInteger();
+        /** Counted down by each request */
+        volatile CountDownLatch requested = new CountDownLatch(0);
+
+        void reset() {
+            delivered.clear();
+            requests.set(0);
+            errors.set(0);
+        }
+
+        @Override
+        public Response transform(Response response, ServeEvent serveEvent) {
+            final QueryParameter nodes = serveEvent.getRequest().queryParameter("nodes");
+            if (!nodes.isPresent()) {
+                return response;
+            }
+            requests.incrementAndGet();
+            requested.countDown();
+            if (errors.getAndDecrement() > 0) {
+                return Response.Builder.like(response).but().status(503).build();
+            }
+            final StringBuilder sb = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6' generator='stub'>\n");
+            for (String id : nodes.firstValue().split(",", -1)) {
+                delivered.merge(Long.parseLong(id), 1, Integer::sum);
+                sb.append("  <node id='").append(id).append("' version='1' changeset='1' lat='53.5' lon='13.2' visible='true'/>\n");
+            }
+            sb.append("</osm>\n");
+            return Response.Builder.like(response).but().status(200).body(sb.toString()).build();
+        }
+
+        @Override
+        public String getName() {
+            return "MultiFetchStub";
+        }
+    }
+
+    static final MultiFetchStub STUB = new MultiFetchStub();
+
+    @RegisterExtension
+    static WireMockExtension wml = WireMockExtension.newInstance()
+            .options(WireMockConfiguration.wireMockConfig().dynamicPort()
+                    .usingFilesUnderDirectory(TestUtils.getTestDataRoot()).extensions(STUB))
+            .build();
+
+    /**
+     * Setup test.
+     */
+    @BeforeEach
+    void setUp() {
+        STUB.reset();
+        Config.getPref().put("osm-server.url", wml.getRuntimeInfo().getHttpBaseUrl() + "/__files/api");
+        setLatency(20);
+    }
+
+    static void setLatency(int latency) {
+        wml.getRuntimeInfo().getWireMock().register(WireMock.get(WireMock.urlPathEqualTo("/__files/api/0.6/nodes"))
+                .willReturn(WireMock.ok().withFixedDelay(latency)));
+    }
+
+    static DataSet fetchNodes(long from, long to) throws OsmTransferException {
+        final MultiFetchServerObjectReader reader = MultiFetchServerObjectReader.create(false);
+        for (long id = from; id <= to; id++) {
+            reader.append(new SimplePrimitiveId(id, OsmPrimitiveType.NODE));
+        }
+        final DataSet ds = reader.parseOsm(NullProgressMonitor.INSTANCE);
+        assertTrue(reader.getMissingPrimitives().isEmpty());
+        return ds;
+    }
+
+    private static void assertNodes(DataSet ds, long from, long to) {
+        assertEquals(to - from + 1, ds.getNodes().size());
+        for (long id = from; id <= to; id++) {
+            assertNotNull(ds.getPrimitiveById(id, OsmPrimitiveType.NODE), "node " + id);
+            assertFalse(ds.getPrimitiveById(id, OsmPrimitiveType.NODE).isIncomplete(), "node " + id);
+        }
+    }
+
+    /**
+     * Checks that all nodes are fetched, once.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testFetch() throws Exception {
+        assertNodes(fetchNodes(1, 1000), 1, 1000);
+        assertEquals(1000, STUB.delivered.size());
+        assertTrue(STUB.delivered.values().stream().allMatch(n -> n == 1));
+    }
+
+    /**
+     * Checks that the requests failing with a server error are retried with smaller packages.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testRetry() throws Exception {
+        STUB.errors.set(3);
+        assertNodes(fetchNodes(1, 500), 1, 500);
+        assertEquals(500, STUB.delivered.size());
+        assertTrue(STUB.delivered.values().stream().allMatch(n -> n == 1));
+        // 3 failed requests, and more than the 3 successful requests needed with the maximal package size
+        assertTrue(STUB.requests.get() > 6, Integer.toString(STUB.requests.get()));
+    }
+
+    /**
+     * Checks that the nodes being fetched by another reader are not requested again.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    void testConcurrentReaders() throws Exception {
+        setLatency(1000);
+        STUB.requested = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<DataSet> first = executor.submit(() -> fetchNodes(1, 100));
+            assertTrue(STUB.requested.await(10, TimeUnit.SECONDS));
+            final DataSet second = fetchNodes(1, 100);
+            assertNodes(second, 1, 100);
+            assertNodes(first.get(), 1, 100);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, STUB.requests.get());
+    }
+
+    /**
+     * Unit test of {@link MultiFetchController}.
+     */
+    @Test
+    void testController() {
+        final MultiFetchController controller = new MultiFetchController(2, 170);
+        assertTrue(controller.tryStart());
+        assertTrue(controller.tryStart());
+        assertFalse(controller.tryStart());
+        controller.finished(100, 170, true);
+        assertEquals(1, controller.getRequests());
+        assertEquals(85, controller.getBatchSize());
+        controller.cancelled();
+        // a round of successful requests
+        assertTrue(controller.tryStart());
+        controller.finished(100, 85, false);
+        assertEquals(2, controller.getRequests());
+        assertEquals(170, controller.getBatchSize());
+        // larger requests take longer, without being queued
+        assertTrue(controller.tryStart());
+        controller.finished(250, 170, false);
+        assertEquals(2, controller.getRequests());
+        // the server queues the requests
+        assertTrue(controller.tryStart());
+        controller.finished(1000, 170, false);
+        assertEquals(1, controller.getRequests());
+        assertEquals(170, controller.getBatchSize());
+    }
+}
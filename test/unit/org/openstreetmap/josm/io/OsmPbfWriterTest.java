@@ -0,0 +1,203 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests of {@link OsmPbfWriter} class.
+ */
+@BasicPreferences
+class OsmPbfWriterTest {
+    private static DataSet createDataSet() {
+        final DataSet ds = new DataSet();
+        ds.addDataSource(new DataSource(new Bounds(50, 10, 51, 11), "test"));
+        final User user = User.createOsmUser(1234, "somebody");
+        final Node existing = new Node(new LatLon(50.1234567, 10.7654321));
+        existing.setOsmId(10, 3);
+        existing.setUser(user);
+        existing.setRawTimestamp(1_600_000_000);
+        existing.setChangesetId(42);
+        existing.put("amenity", "bench");
+        ds.addPrimitive(existing);
+        final Node newNode = new Node(new LatLon(50.5, 10.5));
+        ds.addPrimitive(newNode);
+        final Node tagged = new Node(new LatLon(-33.9, 151.2));
+        tagged.put("name", "Ünïcödé");
+        tagged.put("amenity", "bench");
+        ds.addPrimitive(tagged);
+        final Way way = new Way(5, 2);
+        way.setUser(user);
+        way.setNodes(Arrays.asList(existing, newNode, tagged, existing));
+        way.put("highway", "footway");
+        ds.addPrimitive(way);
+        final Relation relation = new Relation();
+        relation.addMember(new RelationMember("", existing));
+        relation.addMember(new RelationMember("outer", way));
+        relation.put("type", "multipolygon");
+        ds.addPrimitive(relation);
+        final Relation parent = new Relation(7, 1);
+        parent.addMember(new RelationMember("sub", relation));
+        ds.addPrimitive(parent);
+        final Node deleted = new Node(new LatLon(1, 1));
+        ds.addPrimitive(deleted);
+        deleted.setDeleted(true);
+        return ds;
+    }
+
+    private static DataSet roundTrip(DataSet ds, int blockSize, int compressionLevel) throws IOException, IllegalDataException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OsmPbfWriter writer = new OsmPbfWriter(out, blockSize, compressionLevel)) {
+            writer.write(ds);
+        }
+        return OsmPbfReader.parseDataSet(new ByteArrayInputStream(out.toByteArray()), NullProgressMonitor.INSTANCE);
+    }
+
+    static Stream<Arguments> testRoundTrip() {
+        return Stream.of(Arguments.of(1, Deflater.NO_COMPRESSION), Arguments.of(2, Deflater.BEST_SPEED),
+                Arguments.of(OsmPbfWriter.DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION),
+                Arguments.of(OsmPbfWriter.DEFAULT_BLOCK_SIZE, Deflater.BEST_COMPRESSION));
+    }
+
+    /**
+     * Write a dataset with new, existing and deleted primitives and read it again
+     * @param blockSize The block size
+     * @param compressionLevel The compression level
+     * @throws IOException if the data could not be written
+     * @throws IllegalDataException if the written data could not be read
+     */
+    @ParameterizedTest
+    @MethodSource
+    void testRoundTrip(int blockSize, int compressionLevel) throws IOException, IllegalDataException {
+        final DataSet written = createDataSet();
+        final DataSet read = roundTrip(written, blockSize, compressionLevel);
+        assertAll(() -> assertEquals(3, read.getNodes().size()),
+                () -> assertEquals(1, read.getWays().size()),
+                () -> assertEquals(2, read.getRelations().size()),
+                () -> assertEquals(1, read.getDataSources().size()),
+                () -> assertEquals("test", read.getDataSources().iterator().next().origin),
+                () -> assertTrue(read.getDataSources().iterator().next().bounds.toBBox()
+                        .bboxIsFunctionallyEqual(new Bounds(50, 10, 51, 11).toBBox(), 1e-7)),
+                () -> assertTrue(read.allPrimitives().stream().noneMatch(OsmPrimitive::isIncomplete)));
+
+        final Node existing = (Node) read.getPrimitiveById(10, OsmPrimitiveType.NODE);
+        assertNotNull(existing);
+        assertAll(() -> assertEquals(3, existing.getVersion()),
+                () -> assertEquals(1234, existing.getUser().getId()),
+                () -> assertEquals("somebody", existing.getUser().getName()),
+                () -> assertEquals(1_600_000_000, existing.getRawTimestamp()),
+                () -> assertEquals(42, existing.getChangesetId()),
+                () -> assertEquals("bench", existing.get("amenity")),
+                () -> assertTrue(existing.getCoor().equalsEpsilon(new LatLon(50.1234567, 10.7654321), 1e-9)));
+
+        final Node tagged = read.getNodes().stream().filter(n -> n.hasKey("name")).findFirst().orElseThrow(AssertionError::new);
+        assertAll(() -> assertTrue(tagged.isNew()),
+                () -> assertNull(tagged.getUser()),
+                () -> assertEquals("Ünïcödé", tagged.get("name")),
+                () -> assertTrue(tagged.getCoor().equalsEpsilon(new LatLon(-33.9, 151.2), 1e-9)));
+
+        final Way way = (Way) read.getPrimitiveById(5, OsmPrimitiveType.WAY);
+        assertAll(() -> assertEquals(4, way.getNodesCount()),
+                () -> assertTrue(way.isClosed()),
+                () -> assertEquals(existing, way.firstNode()),
+                () -> assertEquals(tagged, way.getNode(2)),
+                () -> assertEquals("footway", way.get("highway")));
+
+        final Relation parent = (Relation) read.getPrimitiveById(7, OsmPrimitiveType.RELATION);
+        final Relation relation = parent.getMember(0).getRelation();
+        assertAll(() -> assertEquals("sub", parent.getRole(0)),
+                () -> assertTrue(relation.isNew()),
+                () -> assertEquals("multipolygon", relation.get("type")),
+                () -> assertEquals("", relation.getRole(0)),
+                () -> assertEquals(existing, relation.getMember(0).getMember()),
+                () -> assertEquals("outer", relation.getRole(1)),
+                () -> assertEquals(way, relation.getMember(1).getMember()));
+    }
+
+    /**
+     * Write nodes with empty values, which must not be taken for the end of their tags, and read them again
+     * @throws IOException if the data could not be written
+     * @throws IllegalDataException if the written data could not be read
+     */
+    @Test
+    void testRoundTripEmptyValue() throws IOException, IllegalDataException {
+        final DataSet ds = new DataSet();
+        final Node first = new Node(new LatLon(50, 10));
+        first.setOsmId(1, 1);
+        first.put("note", "");
+        first.put("amenity", "bench");
+        ds.addPrimitive(first);
+        final Node second = new Node(new LatLon(50.1, 10.1));
+        second.setOsmId(2, 1);
+        second.put("name", "");
+        ds.addPrimitive(second);
+        final Node third = new Node(new LatLon(50.2, 10.2));
+        third.setOsmId(3, 1);
+        third.put("highway", "crossing");
+        ds.addPrimitive(third);
+        final DataSet read = roundTrip(ds, OsmPbfWriter.DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+        for (Node node : ds.getNodes()) {
+            final OsmPrimitive other = read.getPrimitiveById(node);
+            assertNotNull(other, node::toString);
+            assertEquals(node.getKeys(), other.getKeys());
+        }
+    }
+
+    /**
+     * Read a PBF file, write it, and read it again
+     * @throws IOException if the data could not be written
+     * @throws IllegalDataException if the data could not be read
+     */
+    @Test
+    void testRoundTripFile() throws IOException, IllegalDataException {
+        final DataSet original;
+        try (InputStream is = Files.newInputStream(Paths.get(TestUtils.getTestDataRoot(), "pbf", "osm", "simple.osm.pbf"))) {
+            original = OsmPbfReader.parseDataSet(is, NullProgressMonitor.INSTANCE);
+        }
+        final DataSet read = roundTrip(original, OsmPbfWriter.DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+        assertEquals(original.allPrimitives().size(), read.allPrimitives().size());
+        for (OsmPrimitive primitive : original.allPrimitives()) {
+            final OsmPrimitive other = read.getPrimitiveById(primitive);
+            assertNotNull(other, primitive::toString);
+            assertEquals(primitive.getKeys(), other.getKeys());
+            assertEquals(primitive.getVersion(), other.getVersion());
+            assertEquals(primitive.getRawTimestamp(), other.getRawTimestamp());
+            assertEquals(primitive.getUser(), other.getUser());
+            assertFalse(other.isModified());
+        }
+        assertEquals(original.getUploadPolicy(), read.getUploadPolicy());
+    }
+}
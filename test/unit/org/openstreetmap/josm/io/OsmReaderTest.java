@@ -436,4 +436,59 @@ class OsmReaderTest {
         IllegalDataException illegalDataException = testInvalidData(testData);
         assertTrue(illegalDataException.getMessage().contains("Unknown error element type"));
     }
+
+    private static String createLargeData(String lastElement) {
+        final StringBuilder sb = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?><osm version='0.6'>");
+        for (int i = 1; i <= 5000; i++) {
+            sb.append("<node id='").append(i).append("' version='1' lat='").append(i / 10000.0).append("' lon='0'>")
+              .append("<tag k='ref' v='").append(i).append("'/></node>\n");
+        }
+        for (int i = 1; i <= 1000; i++) {
+            sb.append("<way id='").append(i).append("' version='1'><nd ref='").append(i).append("'/><nd ref='").append(i + 1)
+              .append("'/><nd ref='").append(i + 9000).append("'/></way>\n");
+        }
+        sb.append("<relation id='1' version='1'><member type='way' ref='1' role='outer'/><member type='node' ref='-5' role=''/>")
+          .append("</relation>\n");
+        return sb.append(lastElement).append("</osm>").toString();
+    }
+
+    private static DataSet parse(String osm, boolean pipelined) throws IllegalDataException {
+        OsmReader.PREF_PIPELINED.put(pipelined);
+        try {
+            return OsmReader.parseDataSet(new ByteArrayInputStream(osm.getBytes(StandardCharsets.UTF_8)), NullProgressMonitor.INSTANCE);
+        } finally {
+            OsmReader.PREF_PIPELINED.remove();
+        }
+    }
+
+    /**
+     * Checks that the pipelined reader builds the same data, and reports the same errors, as the sequential reader.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    void testPipelined() throws Exception {
+        final String osm = createLargeData("");
+        final DataSet sequential = assertDoesNotThrow(() -> parse(osm.replace("ref='-5'", "ref='5'"), false));
+        final DataSet pipelined = assertDoesNotThrow(() -> parse(osm.replace("ref='-5'", "ref='5'"), true));
+        assertEquals(sequential.getNodes().size(), pipelined.getNodes().size());
+        assertEquals(sequential.getWays().size(), pipelined.getWays().size());
+        for (Way way : sequential.getWays()) {
+            final Way other = (Way) pipelined.getPrimitiveById(way);
+            assertEquals(way.getNodeIds(), other.getNodeIds());
+            assertEquals(way.isIncomplete(), other.isIncomplete());
+        }
+        for (Node node : sequential.getNodes()) {
+            final Node other = (Node) pipelined.getPrimitiveById(node);
+            assertEquals(node.getCoor(), other.getCoor());
+            assertEquals(node.getKeys(), other.getKeys());
+        }
+        assertEquals(2, pipelined.getRelations().iterator().next().getMembersCount());
+
+        // errors of the xml parsing stage and of the reference resolution
+        for (String invalid : Arrays.asList(createLargeData("<node id='9999'/>"), osm)) {
+            final IllegalDataException expected = assertThrows(IllegalDataException.class, () -> parse(invalid, false));
+            final IllegalDataException actual = assertThrows(IllegalDataException.class, () -> parse(invalid, true));
+            assertEquals(expected.getMessage(), actual.getMessage());
+        }
+    }
 }
@@ -0,0 +1,238 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Changeset;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+import org.openstreetmap.josm.testutils.annotations.HTTP;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.extension.ResponseTransformerV2;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+
+/**
+ * Unit tests of {@link OsmServerWriter} class.
+ */
+@BasicPreferences
+@HTTP
+class OsmServerWriterTest {
+
+    /**
+     * A stub of the OSM API for uploads, which replies to diff uploads as the OSM API does.
+     */
+    static final class DiffUploadStub implements ResponseTransformerV2 {
+        private static final Pattern ELEMENT = Pattern.compile("<(create|modify|delete|node|way|relation|nd|member)\\b[^>]*>");
+        private static final Pattern ID = Pattern.compile(" id='(-?\\d+)'");
+        private static final Pattern REF = Pattern.compile(" ref='(-?\\d+)'");
+        private static final Pattern VERSION = Pattern.compile(" version='(\\d+)'");
+
+        private final int maxChangesetSize;
+        private final AtomicLong lastId = new AtomicLong();
+        /** The number of diff uploads */
+        final AtomicInteger uploads = new AtomicInteger();
+        /** The number of references to new primitives which are not created by the same diff upload */
+        final AtomicInteger unresolved = new AtomicInteger();
+
+        DiffUploadStub(int maxChangesetSize) {
+            this.maxChangesetSize = maxChangesetSize;
+        }
+
+        void reset() {
+            uploads.set(0);
+            unresolved.set(0);
+        }
+
+        @Override
+        public Response transform(Response response, ServeEvent serveEvent) {
+            final Request request = serveEvent.getRequest();
+            final String path = request.getUrl().replaceFirst("\\?.*", "");
+            final String body;
+            if (path.endsWith("/capabilities")) {
+                try {
+                    body = new String(Files.readAllBytes(Paths.get(TestUtils.getTestDataRoot(), "__files", "api", "capabilities")),
+                            StandardCharsets.UTF_8).replace("maximum_elements=\"10000\"", "maximum_elements=\"" + maxChangesetSize + '"');
+                } catch (IOException e) {
+                    return Response.Builder.like(response).but().status(500).body(e.getMessage()).build();
+                }
+            } else if (path.endsWith("/changeset/create")) {
+                body = "1";
+            } else if (path.endsWith("/upload")) {
+                uploads.incrementAndGet();
+                body = diffResult(request.getBodyAsString());
+            } else {
+                return response;
+            }
+            return Response.Builder.like(response).but().status(200).body(body).build();
+        }
+
+        private String diffResult(String osmChange) {
+            final StringBuilder sb = new StringBuilder("<diffResult version='0.6' generator='stub'>\n");
+            final Set<Long> created = new HashSet<>();
+            String mode = null;
+            final Matcher element = ELEMENT.matcher(osmChange);
+            while (element.find()) {
+                final String tag = element.group();
+                final String name = element.group(1);
+                if ("create".equals(name) || "modify".equals(name) || "delete".equals(name)) {
+                    mode = name;
+                } else if ("nd".equals(name) || "member".equals(name)) {
+                    final Matcher ref = REF.matcher(tag);
+                    if (ref.find() && Long.parseLong(ref.group(1)) < 0 && !created.contains(Long.parseLong(ref.group(1)))) {
+                        unresolved.incrementAndGet();
+                    }
+                } else {
+                    final Matcher id = ID.matcher(tag);
+                    assertTrue(id.find(), tag);
+                    final long oldId = Long.parseLong(id.group(1));
+                    sb.append("  <").append(name).append(" old_id='").append(oldId).append('\'');
+                    if ("create".equals(mode)) {
+                        created.add(oldId);
+                        sb.append(" new_id='").append(lastId.incrementAndGet()).append("' new_version='1'");
+                    } else if ("modify".equals(mode)) {
+                        final Matcher version = VERSION.matcher(tag);
+                        assertTrue(version.find(), tag);
+                        sb.append(" new_id='").append(oldId).append("' new_version='")
+                          .append(Integer.parseInt(version.group(1)) + 1).append('\'');
+                    }
+                    sb.append("/>\n");
+                }
+            }
+            return sb.append("</diffResult>\n").toString();
+        }
+
+        @Override
+        public String getName() {
+            return "DiffUploadStub";
+        }
+    }
+
+    static final DiffUploadStub STUB = new DiffUploadStub(1000);
+
+    @RegisterExtension
+    static WireMockExtension wml = WireMockExtension.newInstance()
+            .options(WireMockConfiguration.wireMockConfig().dynamicPort().extensions(STUB))
+            .build();
+
+    /**
+     * Setup test.
+     */
+    @BeforeEach
+    void setUp() {
+        STUB.reset();
+        setUpApi(wml, 10);
+    }
+
+    static void setUpApi(WireMockExtension wireMock, int latency) {
+        Config.getPref().put("osm-server.url", wireMock.getRuntimeInfo().getHttpBaseUrl() + "/api");
+        Config.getPref().put("osm-server.auth-method", "basic");
+        Config.getPref().put("osm-server.username", "test");
+        Config.getPref().put("osm-server.password", "test");
+        wireMock.getRuntimeInfo().getWireMock().register(WireMock.any(WireMock.urlPathMatching("/api/.*"))
+                .willReturn(WireMock.ok().withFixedDelay(latency)));
+    }
+
+    /**
+     * Creates new nodes, followed by new ways, each of which refers to several nodes, starting with the last ones.
+     * @param nodes the number of nodes
+     * @param ways the number of ways
+     * @return the primitives to upload, in upload order
+     */
+    static List<OsmPrimitive> createPrimitives(int nodes, int ways) {
+        final DataSet ds = new DataSet();
+        final List<Node> nodeList = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            final Node node = new Node(new LatLon(53.5 + i * 1e-6, 13.2));
+            ds.addPrimitive(node);
+            nodeList.add(node);
+        }
+        final List<OsmPrimitive> primitives = new ArrayList<>(nodeList);
+        final int nodesPerWay = nodes / ways;
+        for (int i = 0; i < ways; i++) {
+            final Way way = new Way();
+            way.setNodes(nodeList.subList(nodes - (i + 1) * nodesPerWay, nodes - i * nodesPerWay));
+            way.put("highway", "residential");
+            ds.addPrimitive(way);
+            primitives.add(way);
+        }
+        return primitives;
+    }
+
+    static void upload(OsmServerWriter writer, List<OsmPrimitive> primitives, int chunkSize, boolean pipelined)
+            throws OsmTransferException {
+        OsmServerWriter.PREF_PIPELINED_UPLOAD.put(pipelined);
+        try {
+            writer.uploadOsm(new UploadStrategySpecification().setStrategy(UploadStrategy.CHUNKED_DATASET_STRATEGY).setChunkSize(chunkSize),
+                    primitives, new Changeset(), NullProgressMonitor.INSTANCE);
+        } finally {
+            OsmServerWriter.PREF_PIPELINED_UPLOAD.remove();
+        }
+    }
+
+    /**
+     * Checks that all primitives are uploaded in chunks, and that new primitives are referred to by their new id.
+     * @param pipelined whether the upload is pipelined
+     * @throws OsmTransferException if an error occurs
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testUploadInChunks(boolean pipelined) throws OsmTransferException {
+        final List<OsmPrimitive> primitives = createPrimitives(800, 150);
+        final OsmServerWriter writer = new OsmServerWriter();
+        upload(writer, primitives, 100, pipelined);
+        assertEquals(10, STUB.uploads.get());
+        assertEquals(0, STUB.unresolved.get());
+        assertEquals(new HashSet<>(primitives), new HashSet<>(writer.getProcessedPrimitives()));
+        for (OsmPrimitive p : primitives) {
+            assertTrue(p.getUniqueId() > 0, p::toString);
+            assertEquals(1, p.getVersion(), p::toString);
+            assertEquals(1, p.getChangesetId(), p::toString);
+        }
+    }
+
+    /**
+     * Checks that the upload stops when the maximal changeset size is reached.
+     * @param pipelined whether the upload is pipelined
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testMaxChangesetSize(boolean pipelined) {
+        final List<OsmPrimitive> primitives = createPrimitives(1100, 100);
+        final OsmServerWriter writer = new OsmServerWriter();
+        assertThrows(ChangesetClosedException.class, () -> upload(writer, primitives, 300, pipelined));
+        assertEquals(4, STUB.uploads.get());
+        assertEquals(0, STUB.unresolved.get());
+        assertEquals(new HashSet<>(primitives.subList(0, 1000)), new HashSet<>(writer.getProcessedPrimitives()));
+    }
+}
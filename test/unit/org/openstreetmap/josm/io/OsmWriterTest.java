@@ -14,16 +14,23 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DataSetSnapshot;
 import org.openstreetmap.josm.data.osm.DownloadPolicy;
 import org.openstreetmap.josm.data.osm.INode;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.UploadPolicy;
 import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
 
 import org.junit.jupiter.api.Test;
@@ -99,6 +106,45 @@ class OsmWriterTest {
                         .replaceAll("\n", ""));
     }
 
+    /**
+     * Unit test of {@link OsmWriter#write(DataSetSnapshot)}: the snapshot is written as a copy of the data set would be.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    void testWriteSnapshot() throws IOException {
+        final DataSet ds = new DataSet();
+        ds.addDataSource(new DataSource(new Bounds(0, 0, 1, 1), "test"));
+        final Node a = new Node(1, 1);
+        a.setCoor(new LatLon(0.1, 0.1));
+        final Node b = new Node(new LatLon(0.2, 0.2));
+        b.put("name", "b");
+        final Way way = new Way(1, 1);
+        way.setNodes(Arrays.asList(a, b));
+        final Relation relation = new Relation();
+        relation.addMember(new RelationMember("outer", way));
+        ds.addPrimitive(a);
+        ds.addPrimitive(b);
+        ds.addPrimitive(way);
+        ds.addPrimitive(relation);
+
+        try (DataSetSnapshot snapshot = ds.snapshot()) {
+            a.setCoor(new LatLon(0.5, 0.5));
+            b.put("name", "c");
+            ds.removePrimitive(relation);
+            ds.addPrimitive(new Node(new LatLon(0.3, 0.3)));
+            assertEquals(write(w -> w.write(snapshot.toDataSet())), write(w -> w.write(snapshot)));
+        }
+    }
+
+    private static String write(Consumer<OsmWriter> consumer) throws IOException {
+        try (StringWriter stringWriter = new StringWriter();
+             OsmWriter osmWriter = OsmWriterFactory.createOsmWriter(new PrintWriter(stringWriter), false, OsmWriter.DEFAULT_API_VERSION)) {
+            consumer.accept(osmWriter);
+            osmWriter.flush();
+            return stringWriter.toString();
+        }
+    }
+
     /**
      * Unit test of {@link OsmWriter#visit(Changeset)}.
      * @throws IOException if an I/O error occurs
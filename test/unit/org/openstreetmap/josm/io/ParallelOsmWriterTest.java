@@ -0,0 +1,107 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.UploadPolicy;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests of {@link ParallelOsmWriter} class.
+ */
+@BasicPreferences
+class ParallelOsmWriterTest {
+
+    /**
+     * Creates a data set with several chunks of nodes and ways, downloaded and new, modified and deleted primitives.
+     * @return the data set
+     */
+    private static DataSet createDataSet() {
+        final DataSet ds = new DataSet();
+        ds.addDataSource(new DataSource(new Bounds(53.5, 13.2, 53.6, 13.3), "test & <origin>"));
+        final List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 5 * ParallelOsmWriter.CHUNK_SIZE; i++) {
+            final Node node = i % 3 == 0 ? new Node(new LatLon(53.5 + i * 1e-6, 13.2)) : new Node(i + 1, 3);
+            node.setCoor(new LatLon(53.5 + i * 1e-6, 13.2 - i * 1e-7));
+            if (i % 7 == 0) {
+                node.put("name", "n'" + i + " \"&<>é中");
+            }
+            ds.addPrimitive(node);
+            nodes.add(node);
+            if (i % 11 == 0) {
+                node.setDeleted(true);
+            } else if (i % 5 == 0) {
+                node.setModified(true);
+            }
+        }
+        for (int i = 0; i + 10 < nodes.size(); i += 3) {
+            final Way way = i % 2 == 0 ? new Way() : new Way(i + 1, 1);
+            way.setNodes(nodes.subList(i, i + 10));
+            way.put("highway", "residential");
+            ds.addPrimitive(way);
+        }
+        final Relation relation = new Relation(1, 2);
+        relation.addMember(new RelationMember("outer", nodes.get(1)));
+        relation.addMember(new RelationMember("i'nner", ds.getWays().iterator().next()));
+        relation.put("type", "multipolygon");
+        ds.addPrimitive(relation);
+        return ds;
+    }
+
+    private static byte[] writeSequentially(DataSet ds, boolean osmConform) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OsmWriter writer = OsmWriterFactory.createOsmWriter(
+                new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), osmConform, ds.getVersion())) {
+            writer.write(ds);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] writeInParallel(DataSet ds, boolean osmConform) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ParallelOsmWriter(out, osmConform, ds.getVersion()).write(ds);
+        return out.toByteArray();
+    }
+
+    /**
+     * Checks that the output is the same as the one of {@link OsmWriter}.
+     * @throws IOException never
+     */
+    @Test
+    void testSameOutput() throws IOException {
+        final DataSet ds = createDataSet();
+        assertArrayEquals(writeSequentially(ds, false), writeInParallel(ds, false));
+        assertArrayEquals(writeSequentially(ds, true), writeInParallel(ds, true));
+        ds.setUploadPolicy(UploadPolicy.BLOCKED);
+        ds.lock();
+        assertArrayEquals(writeSequentially(ds, false), writeInParallel(ds, false));
+    }
+
+    /**
+     * Checks that small data sets are written sequentially.
+     */
+    @Test
+    void testIsUseful() {
+        final DataSet ds = new DataSet();
+        ds.addPrimitive(new Node(LatLon.ZERO));
+        assertFalse(ParallelOsmWriter.isUseful(ds));
+    }
+}
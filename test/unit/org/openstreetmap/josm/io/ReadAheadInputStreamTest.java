@@ -0,0 +1,101 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link ReadAheadInputStream} class.
+ */
+class ReadAheadInputStreamTest {
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
+
+    @AfterAll
+    static void tearDown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    /**
+     * Checks that the content of the source is read completely, with both read methods.
+     * @throws IOException never
+     */
+    @Test
+    void testRead() throws IOException {
+        final byte[] data = new byte[1_000_000];
+        new Random(42).nextBytes(data);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new ReadAheadInputStream(new ByteArrayInputStream(data), EXECUTOR)) {
+            out.write(in.read());
+            final byte[] buffer = new byte[10_000];
+            int read;
+            while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            assertEquals(-1, in.read());
+        }
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    /**
+     * Checks that the exceptions of the source are thrown by the reader, after the data read before.
+     * @throws IOException never
+     */
+    @Test
+    void testException() throws IOException {
+        final InputStream source = new InputStream() {
+            private int count;
+
+            @Override
+            public int read() throws IOException {
+                if (count++ == 100_000) {
+                    throw new IOException("broken");
+                }
+                return 1;
+            }
+        };
+        final int[] read = {0};
+        try (InputStream in = new ReadAheadInputStream(source, EXECUTOR)) {
+            final IOException e = assertThrows(IOException.class, () -> {
+                while (in.read() == 1) {
+                    read[0]++;
+                }
+            });
+            assertEquals("broken", e.getMessage());
+        }
+        assertEquals(100_000, read[0]);
+    }
+
+    /**
+     * Checks that the source is closed, and cannot be read any more.
+     * @throws IOException never
+     */
+    @Test
+    void testClose() throws IOException {
+        final boolean[] closed = {false};
+        final InputStream source = new ByteArrayInputStream(new byte[1_000_000]) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        final InputStream in = new ReadAheadInputStream(source, EXECUTOR);
+        assertEquals(0, in.read());
+        in.close();
+        assertTrue(closed[0]);
+        assertThrows(IOException.class, in::read);
+    }
+}